@@ -30,12 +30,16 @@
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.blocks.LazyBlock;
 import com.sk89q.worldedit.bukkit.adapter.BukkitImplAdapter;
+import com.sk89q.worldedit.bukkit.adapter.BukkitImplBulkAdapter;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.TreeGenerator;
+import com.sk89q.worldedit.world.ChunkBatch;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 import com.sk89q.worldedit.world.registry.WorldData;
+import org.bukkit.Chunk;
 import org.bukkit.Effect;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.TreeType;
 import org.bukkit.World;
@@ -420,6 +424,33 @@ public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight
         }
     }
 
+    @SuppressWarnings("deprecation")
+    @Override
+    public int setBlocks(ChunkBatch batch, boolean notifyAndLight) throws WorldEditException {
+        World world = getWorld();
+        Chunk chunk = world.getChunkAt(batch.getChunkX(), batch.getChunkZ());
+        BukkitImplAdapter adapter = WorldEditPlugin.getInstance().getBukkitImplAdapter();
+        if (adapter instanceof BukkitImplBulkAdapter) {
+            return ((BukkitImplBulkAdapter) adapter).setBlocks(chunk, batch, notifyAndLight);
+        }
+
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            BaseBlock block = batch.getBlock(i);
+            boolean successful;
+            if (adapter != null) {
+                successful = adapter.setBlock(new Location(world, batch.getX(i), batch.getY(i), batch.getZ(i)), block, notifyAndLight);
+            } else {
+                Block bukkitBlock = chunk.getBlock(batch.getX(i) & 15, batch.getY(i), batch.getZ(i) & 15);
+                successful = bukkitBlock.setTypeIdAndData(block.getType(), (byte) block.getData(), notifyAndLight);
+            }
+            if (successful) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public BaseBlock getLazyBlock(Vector position) {
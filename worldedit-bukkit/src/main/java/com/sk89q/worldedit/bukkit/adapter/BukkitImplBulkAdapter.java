@@ -0,0 +1,49 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.bukkit.adapter;
+
+import com.sk89q.worldedit.world.ChunkBatch;
+import org.bukkit.Chunk;
+
+/**
+ * An optional extension of {@link BukkitImplAdapter} for implementations
+ * that can set a whole chunk's worth of blocks at once.
+ *
+ * <p>None of the adapters that currently ship implement this interface.
+ * Without one, {@link com.sk89q.worldedit.bukkit.BukkitWorld} sets the
+ * blocks of a batch one at a time, as the Bukkit API does not offer a way
+ * to defer lighting and client updates.</p>
+ */
+public interface BukkitImplBulkAdapter extends BukkitImplAdapter {
+
+    /**
+     * Set all the blocks in the given batch.
+     *
+     * <p>Implementations should relight and send the chunk to clients once
+     * rather than once per block.</p>
+     *
+     * @param chunk the chunk that contains every block in the batch
+     * @param batch the batch of changes
+     * @param notifyAndLight notify and light if set
+     * @return the number of blocks that were likely changed
+     */
+    int setBlocks(Chunk chunk, ChunkBatch batch, boolean notifyAndLight);
+
+}
@@ -90,7 +90,7 @@ public void writeNamedTag(String name, Tag tag) throws IOException {
      * @throws IOException
      *             if an I/O error occurs.
      */
-    private void writeTagPayload(Tag tag) throws IOException {
+    void writeTagPayload(Tag tag) throws IOException {
         int type = NBTUtils.getTypeCode(tag.getClass());
         switch (type) {
         case NBTConstants.TYPE_END:
@@ -0,0 +1,423 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.jnbt;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * Reads an <strong>NBT</strong> stream one tag at a time, without building
+ * the whole tree of {@link Tag}s in memory.
+ *
+ * <p>Each call to {@link #next()} moves to the next tag in the stream and
+ * returns an {@link Event} that describes it. The payload of a value is only
+ * read when requested, either all at once with {@link #readTag()} or, for
+ * byte arrays, in pieces with {@link #readBytes(byte[], int, int)}. Payloads
+ * that are not read are skipped when moving to the next tag. Compound and
+ * list tags can likewise be read whole with {@link #readTag()} or skipped
+ * with {@link #skip()}.</p>
+ */
+public final class NBTStreamReader implements Closeable {
+
+    /**
+     * The kind of tag that the reader has moved to.
+     */
+    public enum Event {
+        /**
+         * The start of a compound tag. The following events are its entries.
+         */
+        START_COMPOUND,
+        /**
+         * The end of a compound tag.
+         */
+        END_COMPOUND,
+        /**
+         * The start of a list tag. The following events are its elements.
+         */
+        START_LIST,
+        /**
+         * The end of a list tag.
+         */
+        END_LIST,
+        /**
+         * A tag that is not a compound or a list.
+         */
+        VALUE,
+        /**
+         * The end of the root tag, after which there is nothing more to read.
+         */
+        END_OF_STREAM
+    }
+
+    private final DataInputStream is;
+    private final NBTInputStream tagReader;
+    private boolean[] listFrames = new boolean[8];
+    private int[] listTypes = new int[8];
+    private int[] listRemaining = new int[8];
+    private int depth = 0;
+    private boolean started = false;
+    private Event event;
+    private String name = "";
+    private int type = NBTConstants.TYPE_END;
+    private int length = -1;
+    private int remaining = 0;
+    private boolean pending = false;
+
+    /**
+     * Create a new reader.
+     *
+     * @param is the input stream, which should be buffered
+     * @throws IOException if an I/O error occurs
+     */
+    public NBTStreamReader(InputStream is) throws IOException {
+        checkNotNull(is);
+        this.is = new DataInputStream(is);
+        this.tagReader = new NBTInputStream(this.is);
+    }
+
+    /**
+     * Move to the next tag.
+     *
+     * @return the event describing the tag
+     * @throws IOException if an I/O error occurs or the stream is malformed
+     */
+    public Event next() throws IOException {
+        if (pending) {
+            skipPayload();
+        }
+
+        if (depth == 0) {
+            if (started) {
+                return setEvent(Event.END_OF_STREAM, NBTConstants.TYPE_END, "");
+            }
+            started = true;
+            int rootType = is.readByte() & 0xFF;
+            if (rootType == NBTConstants.TYPE_END) {
+                throw new IOException("TAG_End found without a TAG_Compound/TAG_List tag preceding it.");
+            }
+            return readHeader(rootType, readName());
+        }
+
+        int frame = depth - 1;
+        if (listFrames[frame]) {
+            if (listRemaining[frame] == 0) {
+                depth--;
+                return setEvent(Event.END_LIST, NBTConstants.TYPE_LIST, "");
+            }
+            listRemaining[frame]--;
+            if (listTypes[frame] == NBTConstants.TYPE_END) {
+                throw new IOException("TAG_End not permitted in a list.");
+            }
+            return readHeader(listTypes[frame], "");
+        } else {
+            int entryType = is.readByte() & 0xFF;
+            if (entryType == NBTConstants.TYPE_END) {
+                depth--;
+                return setEvent(Event.END_COMPOUND, NBTConstants.TYPE_COMPOUND, "");
+            }
+            return readHeader(entryType, readName());
+        }
+    }
+
+    /**
+     * Get the event returned by the last call to {@link #next()}.
+     *
+     * @return the event, or null if {@link #next()} has not been called
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Get the name of the current tag. List elements have an empty name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the type of the current tag, as one of the constants in
+     * {@link NBTConstants}.
+     *
+     * @return the type
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Get the length of the current list or array tag.
+     *
+     * @return the number of elements, or -1 if the current tag is not a list or array
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the type of the elements of the current list tag.
+     *
+     * @return the element type
+     * @throws IllegalStateException if the reader is not at the start of a list
+     */
+    public int getListType() {
+        if (event != Event.START_LIST) {
+            throw new IllegalStateException("Not at the start of a list");
+        }
+        return listTypes[depth - 1];
+    }
+
+    /**
+     * Get the number of compound and list tags that enclose the current
+     * position. The entries of the root compound tag are at a depth of 1.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Read part of the payload of the current byte array tag.
+     *
+     * @param buffer the buffer to read into
+     * @param offset the offset in the buffer
+     * @param length the maximum number of bytes to read
+     * @return the number of bytes read, or -1 if the whole array has been read
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the current tag is not a byte array
+     */
+    public int readBytes(byte[] buffer, int offset, int length) throws IOException {
+        checkPositionIndexes(offset, offset + length, buffer.length);
+        if (event != Event.VALUE || type != NBTConstants.TYPE_BYTE_ARRAY) {
+            throw new IllegalStateException("Not at a byte array");
+        }
+        if (remaining == 0) {
+            pending = false;
+            return -1;
+        }
+        int count = Math.min(length, remaining);
+        is.readFully(buffer, offset, count);
+        remaining -= count;
+        pending = remaining > 0;
+        return count;
+    }
+
+    /**
+     * Read the whole of the current tag, including the tags that it
+     * contains. The next call to {@link #next()} moves past the tag.
+     *
+     * @return the tag
+     * @throws IOException if an I/O error occurs or the stream is malformed
+     * @throws IllegalStateException if the payload of the current tag has already been read, in whole or in part
+     */
+    public Tag readTag() throws IOException {
+        if (event == Event.START_COMPOUND) {
+            Tag tag = tagReader.readTagPayload(NBTConstants.TYPE_COMPOUND, depth);
+            endContainer();
+            return tag;
+        } else if (event == Event.START_LIST) {
+            int childType = listTypes[depth - 1];
+            List<Tag> tags = new ArrayList<Tag>();
+            for (int i = 0; i < length; i++) {
+                tags.add(tagReader.readTagPayload(childType, depth));
+            }
+            endContainer();
+            return new ListTag(NBTUtils.getTypeClass(childType), tags);
+        } else if (event == Event.VALUE && pending && (length < 0 || remaining == length)) {
+            pending = false;
+            switch (type) {
+            case NBTConstants.TYPE_BYTE_ARRAY:
+                byte[] bytes = new byte[length];
+                is.readFully(bytes);
+                return new ByteArrayTag(bytes);
+            case NBTConstants.TYPE_INT_ARRAY:
+                int[] ints = new int[length];
+                for (int i = 0; i < length; i++) {
+                    ints[i] = is.readInt();
+                }
+                return new IntArrayTag(ints);
+            default:
+                return tagReader.readTagPayload(type, depth);
+            }
+        } else {
+            throw new IllegalStateException("The current tag has already been read");
+        }
+    }
+
+    /**
+     * Skip the current tag, including the tags that it contains. The next
+     * call to {@link #next()} moves past the tag.
+     *
+     * @throws IOException if an I/O error occurs or the stream is malformed
+     */
+    public void skip() throws IOException {
+        if (event == Event.START_COMPOUND || event == Event.START_LIST) {
+            int target = depth - 1;
+            while (depth > target) {
+                next();
+            }
+        } else if (pending) {
+            skipPayload();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+    private String readName() throws IOException {
+        int nameLength = is.readShort() & 0xFFFF;
+        byte[] nameBytes = new byte[nameLength];
+        is.readFully(nameBytes);
+        return new String(nameBytes, NBTConstants.CHARSET);
+    }
+
+    private Event readHeader(int tagType, String tagName) throws IOException {
+        switch (tagType) {
+        case NBTConstants.TYPE_COMPOUND:
+            push(false, NBTConstants.TYPE_END, 0);
+            return setEvent(Event.START_COMPOUND, tagType, tagName);
+        case NBTConstants.TYPE_LIST:
+            int childType = is.readByte();
+            int listLength = is.readInt();
+            if (listLength < 0) {
+                throw new IOException("Negative list length: " + listLength);
+            }
+            push(true, childType, listLength);
+            setEvent(Event.START_LIST, tagType, tagName);
+            length = listLength;
+            return event;
+        case NBTConstants.TYPE_BYTE_ARRAY:
+        case NBTConstants.TYPE_INT_ARRAY:
+            int arrayLength = is.readInt();
+            if (arrayLength < 0) {
+                throw new IOException("Negative array length: " + arrayLength);
+            }
+            setEvent(Event.VALUE, tagType, tagName);
+            length = arrayLength;
+            remaining = arrayLength;
+            pending = true;
+            return event;
+        case NBTConstants.TYPE_BYTE:
+        case NBTConstants.TYPE_SHORT:
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_FLOAT:
+        case NBTConstants.TYPE_DOUBLE:
+        case NBTConstants.TYPE_STRING:
+            setEvent(Event.VALUE, tagType, tagName);
+            pending = true;
+            return event;
+        default:
+            throw new IOException("Invalid tag type: " + tagType + ".");
+        }
+    }
+
+    private Event setEvent(Event event, int type, String name) {
+        this.event = event;
+        this.type = type;
+        this.name = name;
+        this.length = -1;
+        this.remaining = 0;
+        this.pending = false;
+        return event;
+    }
+
+    private void push(boolean list, int childType, int count) {
+        if (depth == listFrames.length) {
+            listFrames = Arrays.copyOf(listFrames, depth * 2);
+            listTypes = Arrays.copyOf(listTypes, depth * 2);
+            listRemaining = Arrays.copyOf(listRemaining, depth * 2);
+        }
+        listFrames[depth] = list;
+        listTypes[depth] = childType;
+        listRemaining[depth] = count;
+        depth++;
+    }
+
+    private void endContainer() {
+        depth--;
+        // Leave the event as it was so that a second read fails
+        event = Event.VALUE;
+        pending = false;
+        remaining = -1;
+    }
+
+    private void skipPayload() throws IOException {
+        pending = false;
+        switch (type) {
+        case NBTConstants.TYPE_BYTE:
+            skipFully(1);
+            break;
+        case NBTConstants.TYPE_SHORT:
+            skipFully(2);
+            break;
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_FLOAT:
+            skipFully(4);
+            break;
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_DOUBLE:
+            skipFully(8);
+            break;
+        case NBTConstants.TYPE_STRING:
+            skipFully(is.readShort() & 0xFFFF);
+            break;
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            skipFully(remaining);
+            remaining = 0;
+            break;
+        case NBTConstants.TYPE_INT_ARRAY:
+            skipFully(remaining * 4L);
+            remaining = 0;
+            break;
+        default:
+            throw new IllegalStateException("Cannot skip the payload of tag type " + type);
+        }
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            int skipped = is.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                if (is.read() == -1) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+}
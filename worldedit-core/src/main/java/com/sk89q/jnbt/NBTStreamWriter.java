@@ -0,0 +1,234 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.jnbt;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * Writes an <strong>NBT</strong> stream one tag at a time, without first
+ * building the whole tree of {@link Tag}s in memory.
+ *
+ * <p>Compound and list tags are opened and closed explicitly, and byte
+ * arrays can be written in pieces once their length is known. Small tags
+ * can be written whole with {@link #writeTag(String, Tag)}. Entries of a
+ * compound tag (and the root tag) are written with a name, while elements
+ * of a list are written with a name of {@code null}.</p>
+ */
+public final class NBTStreamWriter implements Closeable {
+
+    private final DataOutputStream os;
+    private final NBTOutputStream tagWriter;
+    private boolean[] listFrames = new boolean[8];
+    private int[] listTypes = new int[8];
+    private int[] listRemaining = new int[8];
+    private int depth = 0;
+    private boolean rootWritten = false;
+    private int arrayRemaining = 0;
+
+    /**
+     * Create a new writer.
+     *
+     * @param os the output stream, which should be buffered
+     * @throws IOException if an I/O error occurs
+     */
+    public NBTStreamWriter(OutputStream os) throws IOException {
+        checkNotNull(os);
+        this.os = new DataOutputStream(os);
+        this.tagWriter = new NBTOutputStream(this.os);
+    }
+
+    /**
+     * Open a compound tag. Its entries are written next, followed by a
+     * call to {@link #writeEndCompound()}.
+     *
+     * @param name the name, or null for a list element
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeStartCompound(@Nullable String name) throws IOException {
+        writeHeader(NBTConstants.TYPE_COMPOUND, name);
+        push(false, NBTConstants.TYPE_END, 0);
+    }
+
+    /**
+     * Close the current compound tag.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeEndCompound() throws IOException {
+        checkArrayComplete();
+        if (depth == 0 || listFrames[depth - 1]) {
+            throw new IllegalStateException("Not in a compound tag");
+        }
+        os.writeByte(NBTConstants.TYPE_END);
+        depth--;
+    }
+
+    /**
+     * Open a list tag. Exactly {@code length} elements of the given type are
+     * written next, followed by a call to {@link #writeEndList()}.
+     *
+     * @param name the name, or null for a list element
+     * @param elementType the type of the elements, as one of the constants in {@link NBTConstants}
+     * @param length the number of elements
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeStartList(@Nullable String name, int elementType, int length) throws IOException {
+        checkArgument(length >= 0, "length >= 0 required");
+        checkArgument(length == 0 || elementType != NBTConstants.TYPE_END, "TAG_End not permitted in a list");
+        writeHeader(NBTConstants.TYPE_LIST, name);
+        os.writeByte(elementType);
+        os.writeInt(length);
+        push(true, elementType, length);
+    }
+
+    /**
+     * Close the current list tag.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeEndList() throws IOException {
+        checkArrayComplete();
+        if (depth == 0 || !listFrames[depth - 1]) {
+            throw new IllegalStateException("Not in a list tag");
+        }
+        if (listRemaining[depth - 1] != 0) {
+            throw new IllegalStateException(listRemaining[depth - 1] + " list elements have not been written");
+        }
+        depth--;
+    }
+
+    /**
+     * Start a byte array tag. Exactly {@code length} bytes are written next
+     * using {@link #writeBytes(byte[], int, int)}.
+     *
+     * @param name the name, or null for a list element
+     * @param length the length of the array
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeStartByteArray(@Nullable String name, int length) throws IOException {
+        checkArgument(length >= 0, "length >= 0 required");
+        writeHeader(NBTConstants.TYPE_BYTE_ARRAY, name);
+        os.writeInt(length);
+        arrayRemaining = length;
+    }
+
+    /**
+     * Write part of the current byte array tag.
+     *
+     * @param buffer the buffer to write from
+     * @param offset the offset in the buffer
+     * @param length the number of bytes to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeBytes(byte[] buffer, int offset, int length) throws IOException {
+        checkPositionIndexes(offset, offset + length, buffer.length);
+        if (length > arrayRemaining) {
+            throw new IllegalStateException("Writing " + length + " bytes but only " + arrayRemaining + " remain in the array");
+        }
+        os.write(buffer, offset, length);
+        arrayRemaining -= length;
+    }
+
+    /**
+     * Write a whole tag.
+     *
+     * @param name the name, or null for a list element
+     * @param tag the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTag(@Nullable String name, Tag tag) throws IOException {
+        checkNotNull(tag);
+        int type = NBTUtils.getTypeCode(tag.getClass());
+        if (type == NBTConstants.TYPE_END) {
+            throw new IOException("Named TAG_End not permitted.");
+        }
+        writeHeader(type, name);
+        tagWriter.writeTagPayload(tag);
+    }
+
+    /**
+     * Flush the underlying stream.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        os.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        os.close();
+    }
+
+    private void writeHeader(int type, @Nullable String name) throws IOException {
+        checkArrayComplete();
+        if (depth > 0 && listFrames[depth - 1]) {
+            int frame = depth - 1;
+            if (type != listTypes[frame]) {
+                throw new IllegalStateException("Expected a list element of type " + listTypes[frame] + " but got " + type);
+            }
+            if (listRemaining[frame] == 0) {
+                throw new IllegalStateException("The list is already full");
+            }
+            listRemaining[frame]--;
+        } else {
+            if (depth == 0) {
+                if (rootWritten) {
+                    throw new IllegalStateException("The root tag has already been written");
+                }
+                rootWritten = true;
+            }
+            checkNotNull(name, "name");
+            byte[] nameBytes = name.getBytes(NBTConstants.CHARSET);
+            os.writeByte(type);
+            os.writeShort(nameBytes.length);
+            os.write(nameBytes);
+        }
+    }
+
+    private void checkArrayComplete() {
+        if (arrayRemaining != 0) {
+            throw new IllegalStateException(arrayRemaining + " bytes of the current array have not been written");
+        }
+    }
+
+    private void push(boolean list, int elementType, int length) {
+        if (depth == listFrames.length) {
+            listFrames = Arrays.copyOf(listFrames, depth * 2);
+            listTypes = Arrays.copyOf(listTypes, depth * 2);
+            listRemaining = Arrays.copyOf(listRemaining, depth * 2);
+        }
+        listFrames[depth] = list;
+        listTypes[depth] = elementType;
+        listRemaining[depth] = length;
+        depth++;
+    }
+
+}
@@ -25,17 +25,22 @@
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.event.extent.EditSessionEvent;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.extension.platform.NoCapablePlatformException;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.ChangeSetExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 import com.sk89q.worldedit.extent.MaskingExtent;
 import com.sk89q.worldedit.extent.NullExtent;
 import com.sk89q.worldedit.extent.buffer.ForgetfulExtentBuffer;
-import com.sk89q.worldedit.extent.cache.LastAccessExtentCache;
+import com.sk89q.worldedit.extent.cache.SectionCacheExtent;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.extent.inventory.BlockBagExtent;
 import com.sk89q.worldedit.extent.reorder.MultiStageReorder;
 import com.sk89q.worldedit.extent.validation.BlockChangeLimiter;
 import com.sk89q.worldedit.extent.validation.DataValidatorExtent;
+import com.sk89q.worldedit.extent.world.BatchingWorldExtent;
 import com.sk89q.worldedit.extent.world.BlockQuirkExtent;
 import com.sk89q.worldedit.extent.world.ChunkLoadingExtent;
 import com.sk89q.worldedit.extent.world.FastModeExtent;
@@ -43,22 +48,21 @@
 import com.sk89q.worldedit.function.GroundFunction;
 import com.sk89q.worldedit.function.RegionMaskingFilter;
 import com.sk89q.worldedit.function.block.BlockReplace;
-import com.sk89q.worldedit.function.block.Counter;
 import com.sk89q.worldedit.function.block.Naturalizer;
 import com.sk89q.worldedit.function.generator.GardenPatchGenerator;
 import com.sk89q.worldedit.function.mask.*;
 import com.sk89q.worldedit.function.operation.*;
 import com.sk89q.worldedit.function.pattern.BlockPattern;
 import com.sk89q.worldedit.function.pattern.Patterns;
+import com.sk89q.worldedit.function.scan.RegionScans;
 import com.sk89q.worldedit.function.util.RegionOffset;
 import com.sk89q.worldedit.function.visitor.*;
 import com.sk89q.worldedit.history.UndoContext;
 import com.sk89q.worldedit.history.change.BlockChange;
-import com.sk89q.worldedit.history.changeset.BlockOptimizedHistory;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
-import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.history.changeset.CompactBlockHistory;
+import com.sk89q.worldedit.history.changeset.DiskSpillingHistory;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
-import com.sk89q.worldedit.internal.expression.runtime.RValue;
 import com.sk89q.worldedit.math.MathUtils;
 import com.sk89q.worldedit.math.interpolation.Interpolation;
 import com.sk89q.worldedit.math.interpolation.KochanekBartelsInterpolation;
@@ -70,17 +74,20 @@
 import com.sk89q.worldedit.regions.*;
 import com.sk89q.worldedit.regions.shape.ArbitraryBiomeShape;
 import com.sk89q.worldedit.regions.shape.ArbitraryShape;
+import com.sk89q.worldedit.regions.shape.Deformation;
+import com.sk89q.worldedit.regions.shape.ExpressionBiomeShape;
+import com.sk89q.worldedit.regions.shape.ExpressionShape;
 import com.sk89q.worldedit.regions.shape.RegionShape;
-import com.sk89q.worldedit.regions.shape.WorldEditExpressionEnvironment;
 import com.sk89q.worldedit.util.*;
-import com.sk89q.worldedit.util.collection.DoubleArrayList;
 import com.sk89q.worldedit.util.eventbus.EventBus;
 import com.sk89q.worldedit.world.NullWorld;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -97,7 +104,7 @@
  * using the {@link ChangeSetExtent}.</p>
  */
 @SuppressWarnings({"FieldCanBeLocal", "deprecation"})
-public class EditSession implements Extent {
+public class EditSession implements Extent, BulkOutputExtent {
 
     private static final Logger log = Logger.getLogger(EditSession.class.getCanonicalName());
 
@@ -113,12 +120,15 @@ public enum Stage {
 
     @SuppressWarnings("ProtectedField")
     protected final World world;
-    private final ChangeSet changeSet = new BlockOptimizedHistory();
+    private final ChangeSet changeSet;
 
     private @Nullable FastModeExtent fastModeExtent;
+    private @Nullable BatchingWorldExtent batchingExtent;
+    private final ThreadLocal<Extent> readExtent = new ThreadLocal<Extent>();
     private final SurvivalModeExtent survivalExtent;
     private @Nullable ChunkLoadingExtent chunkLoadingExtent;
-    private @Nullable LastAccessExtentCache cacheExtent;
+    private @Nullable SectionCacheExtent cacheExtent;
+    private long cacheTick = -1;
     private @Nullable BlockQuirkExtent quirkExtent;
     private @Nullable DataValidatorExtent validator;
     private final BlockBagExtent blockBagExtent;
@@ -170,21 +180,39 @@ public EditSession(LocalWorld world, int maxBlocks, @Nullable BlockBag blockBag)
      * @param event the event to call with the extent
      */
     EditSession(EventBus eventBus, World world, int maxBlocks, @Nullable BlockBag blockBag, EditSessionEvent event) {
+        this(eventBus, world, maxBlocks, blockBag, event, createChangeSet(world, event.getActor()));
+    }
+
+    /**
+     * Construct the object with a maximum number of blocks, a block bag and
+     * an existing change set.
+     *
+     * @param eventBus the event bus
+     * @param world the world
+     * @param maxBlocks the maximum number of blocks that can be changed, or -1 to use no limit
+     * @param blockBag an optional {@link BlockBag} to use, otherwise null
+     * @param event the event to call with the extent
+     * @param changeSet the change set to record history to
+     */
+    EditSession(EventBus eventBus, World world, int maxBlocks, @Nullable BlockBag blockBag, EditSessionEvent event, ChangeSet changeSet) {
         checkNotNull(eventBus);
         checkArgument(maxBlocks >= -1, "maxBlocks >= -1 required");
         checkNotNull(event);
+        checkNotNull(changeSet);
 
         this.world = world;
+        this.changeSet = changeSet;
 
         if (world != null) {
             Extent extent;
 
             // These extents are ALWAYS used
             extent = fastModeExtent = new FastModeExtent(world, false);
+            extent = batchingExtent = new BatchingWorldExtent(fastModeExtent, false);
             extent = survivalExtent = new SurvivalModeExtent(extent, world);
             extent = quirkExtent = new BlockQuirkExtent(extent, world);
             extent = chunkLoadingExtent = new ChunkLoadingExtent(extent, world);
-            extent = cacheExtent = new LastAccessExtentCache(extent);
+            extent = cacheExtent = new SectionCacheExtent(extent, getSectionCacheMemory());
             extent = wrapExtent(extent, eventBus, event, Stage.BEFORE_CHANGE);
             extent = validator = new DataValidatorExtent(extent, world);
             extent = blockBagExtent = new BlockBagExtent(extent, blockBag);
@@ -215,6 +243,30 @@ public EditSession(LocalWorld world, int maxBlocks, @Nullable BlockBag blockBag)
         }
     }
 
+    /**
+     * Create the change set for a new edit session, which is spilled to
+     * disk if enabled in the configuration and the actor has a persistent
+     * session.
+     *
+     * @param world the world, or null
+     * @param actor the actor, or null
+     * @return a change set
+     */
+    private static ChangeSet createChangeSet(@Nullable World world, @Nullable Actor actor) {
+        if (world != null && actor != null) {
+            WorldEdit worldEdit = WorldEdit.getInstance();
+            int threshold = worldEdit.getConfiguration().historyDiskThreshold;
+            if (threshold >= 0) {
+                File dir = worldEdit.getSessionManager().getHistoryDirectory(actor.getSessionKey());
+                if (dir != null) {
+                    return new DiskSpillingHistory(dir, world.getName(), threshold);
+                }
+            }
+        }
+
+        return new CompactBlockHistory();
+    }
+
     private Extent wrapExtent(Extent extent, EventBus eventBus, EditSessionEvent event, Stage stage) {
         event = event.clone(stage);
         event.setExtent(extent);
@@ -273,6 +325,9 @@ public boolean isQueueEnabled() {
      */
     public void enableQueue() {
         reorderExtent.setEnabled(true);
+        if (batchingExtent != null) {
+            batchingExtent.setEnabled(true);
+        }
     }
 
     /**
@@ -283,6 +338,9 @@ public void disableQueue() {
             flushQueue();
         }
         reorderExtent.setEnabled(true);
+        if (batchingExtent != null) {
+            batchingExtent.setEnabled(false);
+        }
     }
 
     /**
@@ -386,6 +444,46 @@ public Map<Integer, Integer> popMissingBlocks() {
         return blockBagExtent.popMissing();
     }
 
+    /**
+     * Get the number of blocks that have been submitted to the world in
+     * chunk batches.
+     *
+     * @return the number of blocks
+     */
+    public long getBatchedBlockCount() {
+        return batchingExtent != null ? batchingExtent.getBlocksWritten() : 0;
+    }
+
+    /**
+     * Get the rate at which blocks were submitted to the world in chunk
+     * batches.
+     *
+     * @return the number of blocks per second, or 0 if nothing was batched
+     */
+    public double getBatchedBlocksPerSecond() {
+        return batchingExtent != null ? batchingExtent.getBlocksPerSecond() : 0;
+    }
+
+    /**
+     * Get the number of block reads that were answered from the section
+     * cache.
+     *
+     * @return the number of hits
+     */
+    public long getCacheHits() {
+        return cacheExtent != null ? cacheExtent.getHits() : 0;
+    }
+
+    /**
+     * Get the number of block reads that missed the section cache and were
+     * passed to the world.
+     *
+     * @return the number of misses
+     */
+    public long getCacheMisses() {
+        return cacheExtent != null ? cacheExtent.getMisses() : 0;
+    }
+
     /**
      * Get the number of blocks changed, including repeated block changes.
      *
@@ -407,16 +505,67 @@ public boolean setBiome(Vector2D position, BaseBiome biome) {
         return bypassNone.setBiome(position, biome);
     }
 
+    /**
+     * Set the extent that blocks are read from instead of the world.
+     *
+     * <p>This is used while an edit is computed away from the server
+     * thread, so that masks and patterns that read from this session see
+     * a snapshot of the world rather than the world itself. The extent is
+     * only used for reads made by the calling thread.</p>
+     *
+     * @param readExtent the extent, or null to read from the world
+     */
+    void setReadExtent(@Nullable Extent readExtent) {
+        if (readExtent != null) {
+            this.readExtent.set(readExtent);
+        } else {
+            this.readExtent.remove();
+        }
+    }
+
     @Override
     public BaseBlock getLazyBlock(Vector position) {
+        Extent readExtent = this.readExtent.get();
+        if (readExtent != null) {
+            return readExtent.getLazyBlock(position);
+        }
+        if (cacheExtent != null) {
+            validateCache();
+            return cacheExtent.getLazyBlock(position);
+        }
         return world.getLazyBlock(position);
     }
 
     @Override
     public BaseBlock getBlock(Vector position) {
+        Extent readExtent = this.readExtent.get();
+        if (readExtent != null) {
+            return readExtent.getBlock(position);
+        }
+        if (cacheExtent != null) {
+            validateCache();
+            return cacheExtent.getBlock(position);
+        }
         return world.getBlock(position);
     }
 
+    /**
+     * Forget the blocks held by the section cache if a server tick has
+     * passed since they were read.
+     *
+     * <p>The cache only sees changes made through this session, so blocks
+     * changed by physics, players or other plugins in between ticks
+     * would otherwise be read stale by an edit that runs over several
+     * ticks.</p>
+     */
+    private void validateCache() {
+        long tick = WorldEdit.getInstance().getOperationScheduler().getTick();
+        if (tick != cacheTick) {
+            cacheExtent.clear();
+            cacheTick = tick;
+        }
+    }
+
     /**
      * Get a block type at the given position.
      *
@@ -426,7 +575,7 @@ public BaseBlock getBlock(Vector position) {
      */
     @Deprecated
     public int getBlockType(Vector position) {
-        return world.getBlockType(position);
+        return getLazyBlock(position).getType();
     }
 
     /**
@@ -438,7 +587,7 @@ public int getBlockType(Vector position) {
      */
     @Deprecated
     public int getBlockData(Vector position) {
-        return world.getBlockData(position);
+        return getLazyBlock(position).getData();
     }
 
     /**
@@ -499,6 +648,10 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY, boolean natu
      * @throws WorldEditException thrown on a set error
      */
     public boolean setBlock(Vector position, BaseBlock block, Stage stage) throws WorldEditException {
+        if (cacheExtent != null) {
+            validateCache();
+        }
+
         switch (stage) {
             case BEFORE_HISTORY:
                 return bypassNone.setBlock(position, block);
@@ -552,6 +705,21 @@ public boolean setBlock(Vector position, BaseBlock block) throws MaxChangedBlock
         }
     }
 
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws MaxChangedBlocksException {
+        if (cacheExtent != null) {
+            validateCache();
+        }
+
+        try {
+            return Extents.fillCuboid(bypassNone, min, max, block);
+        } catch (MaxChangedBlocksException e) {
+            throw e;
+        } catch (WorldEditException e) {
+            throw new RuntimeException("Unexpected exception", e);
+        }
+    }
+
     /**
      * Sets the block at a position, subject to both history and block re-ordering.
      *
@@ -694,6 +862,10 @@ public void flushQueue() {
 
     @Override
     public @Nullable Operation commit() {
+        // Later reads, such as those of the next brush stroke, must see the world as it is
+        if (cacheExtent != null) {
+            cacheExtent.clear();
+        }
         return bypassNone.commit();
     }
 
@@ -720,12 +892,7 @@ public int countBlock(Region region, Set<Integer> searchIDs) {
      * @return the number of blocks that matched the pattern
      */
     public int countBlocks(Region region, Set<BaseBlock> searchBlocks) {
-        FuzzyBlockMask mask = new FuzzyBlockMask(this, searchBlocks);
-        Counter count = new Counter();
-        RegionMaskingFilter filter = new RegionMaskingFilter(mask, count);
-        RegionVisitor visitor = new RegionVisitor(region, filter);
-        Operations.completeBlindly(visitor); // We can't throw exceptions, nor do we expect any
-        return count.getCount();
+        return RegionScans.histogram(region, this).getCount(searchBlocks);
     }
 
     /**
@@ -738,10 +905,11 @@ public int countBlocks(Region region, Set<BaseBlock> searchBlocks) {
      * @param recursive whether a breadth-first search should be performed
      * @return number of blocks affected
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     * @throws MaxSearchMemoryException thrown if a recursive fill needs more memory than allowed
      */
     @SuppressWarnings("deprecation")
     public int fillXZ(Vector origin, BaseBlock block, double radius, int depth, boolean recursive)
-            throws MaxChangedBlocksException {
+            throws MaxChangedBlocksException, MaxSearchMemoryException {
         return fillXZ(origin, new SingleBlockPattern(block), radius, depth, recursive);
     }
 
@@ -755,9 +923,10 @@ public int fillXZ(Vector origin, BaseBlock block, double radius, int depth, bool
      * @param recursive whether a breadth-first search should be performed
      * @return number of blocks affected
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     * @throws MaxSearchMemoryException thrown if a recursive fill needs more memory than allowed
      */
     @SuppressWarnings("deprecation")
-    public int fillXZ(Vector origin, Pattern pattern, double radius, int depth, boolean recursive) throws MaxChangedBlocksException {
+    public int fillXZ(Vector origin, Pattern pattern, double radius, int depth, boolean recursive) throws MaxChangedBlocksException, MaxSearchMemoryException {
         checkNotNull(origin);
         checkNotNull(pattern);
         checkArgument(radius >= 0, "radius >= 0");
@@ -781,11 +950,13 @@ public int fillXZ(Vector origin, Pattern pattern, double radius, int depth, bool
             visitor = new DownwardVisitor(mask, replace, origin.getBlockY());
         }
 
+        visitor.setMemoryLimit(getSearchMemoryLimit());
+
         // Start at the origin
         visitor.visit(origin);
 
         // Execute
-        Operations.completeLegacy(visitor);
+        completeSearch(visitor);
 
         return visitor.getAffected();
     }
@@ -886,6 +1057,12 @@ public int setBlocks(Region region, Pattern pattern) throws MaxChangedBlocksExce
         checkNotNull(region);
         checkNotNull(pattern);
 
+        if (region instanceof CuboidRegion && pattern instanceof SingleBlockPattern) {
+            CuboidFill fill = new CuboidFill(this, (CuboidRegion) region, ((SingleBlockPattern) pattern).getBlock());
+            Operations.completeLegacy(fill);
+            return fill.getAffected();
+        }
+
         BlockReplace replace = new BlockReplace(this, Patterns.wrap(pattern));
         RegionVisitor visitor = new RegionVisitor(region, replace);
         Operations.completeLegacy(visitor);
@@ -1019,7 +1196,7 @@ public int makeFaces(final Region region, Pattern pattern) throws MaxChangedBloc
         if (region instanceof CuboidRegion) {
             return makeCuboidFaces(region, pattern);
         } else {
-            return new RegionShape(region).generate(this, pattern, true);
+            return generateShape(new RegionShape(region), pattern, true);
         }
     }
 
@@ -1088,7 +1265,7 @@ protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial)
                     return super.getMaterial(x, y, z, defaultMaterial);
                 }
             };
-            return shape.generate(this, pattern, true);
+            return generateShape(shape, pattern, true);
         }
     }
 
@@ -1241,8 +1418,9 @@ public int moveCuboidRegion(Region region, Vector dir, int distance, boolean cop
      * @param radius the radius of the removal, where a value should be 0 or greater
      * @return number of blocks affected
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     * @throws MaxSearchMemoryException thrown if the search needs more memory than allowed
      */
-    public int drainArea(Vector origin, double radius) throws MaxChangedBlocksException {
+    public int drainArea(Vector origin, double radius) throws MaxChangedBlocksException, MaxSearchMemoryException {
         checkNotNull(origin);
         checkArgument(radius >= 0, "radius >= 0 required");
 
@@ -1253,6 +1431,7 @@ public int drainArea(Vector origin, double radius) throws MaxChangedBlocksExcept
 
         BlockReplace replace = new BlockReplace(this, new BlockPattern(new BaseBlock(BlockID.AIR)));
         RecursiveVisitor visitor = new RecursiveVisitor(mask, replace);
+        visitor.setMemoryLimit(getSearchMemoryLimit());
 
         // Around the origin in a 3x3 block
         for (BlockVector position : CuboidRegion.fromCenter(origin, 1)) {
@@ -1261,11 +1440,59 @@ public int drainArea(Vector origin, double radius) throws MaxChangedBlocksExcept
             }
         }
 
-        Operations.completeLegacy(visitor);
+        completeSearch(visitor);
 
         return visitor.getAffected();
     }
 
+    /**
+     * Complete a search that may run out of memory, like
+     * {@link Operations#completeLegacy(Operation)}.
+     *
+     * @param operation the search
+     * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     * @throws MaxSearchMemoryException thrown if the search needs more memory than allowed
+     */
+    private static void completeSearch(Operation operation) throws MaxChangedBlocksException, MaxSearchMemoryException {
+        try {
+            Operations.complete(operation);
+        } catch (MaxChangedBlocksException e) {
+            throw e;
+        } catch (MaxSearchMemoryException e) {
+            throw e;
+        } catch (WorldEditException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the number of bytes that flood fills may use, as configured.
+     *
+     * @return the limit, or -1 if there is no limit
+     */
+    private static long getSearchMemoryLimit() {
+        try {
+            int limit = WorldEdit.getInstance().getConfiguration().maxSearchMemory;
+            return limit < 0 ? -1 : limit * 1024L * 1024L;
+        } catch (NoCapablePlatformException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the number of bytes that the section cache may use, as configured.
+     *
+     * @return the memory budget
+     */
+    private static long getSectionCacheMemory() {
+        try {
+            int budget = WorldEdit.getInstance().getConfiguration().sectionCacheMemory;
+            return Math.max(0, budget) * 1024L * 1024L;
+        } catch (NoCapablePlatformException e) {
+            return 0;
+        }
+    }
+
     /**
      * Fix liquids so that they turn into stationary blocks and extend outward.
      *
@@ -1275,8 +1502,9 @@ public int drainArea(Vector origin, double radius) throws MaxChangedBlocksExcept
      * @param stationary the block ID of the stationary liquid
      * @return number of blocks affected
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     * @throws MaxSearchMemoryException thrown if the search needs more memory than allowed
      */
-    public int fixLiquid(Vector origin, double radius, int moving, int stationary) throws MaxChangedBlocksException {
+    public int fixLiquid(Vector origin, double radius, int moving, int stationary) throws MaxChangedBlocksException, MaxSearchMemoryException {
         checkNotNull(origin);
         checkArgument(radius >= 0, "radius >= 0 required");
 
@@ -1301,6 +1529,7 @@ public int fixLiquid(Vector origin, double radius, int moving, int stationary) t
 
         BlockReplace replace = new BlockReplace(this, new BlockPattern(new BaseBlock(stationary)));
         NonRisingVisitor visitor = new NonRisingVisitor(mask, replace);
+        visitor.setMemoryLimit(getSearchMemoryLimit());
 
         // Around the origin in a 3x3 block
         for (BlockVector position : CuboidRegion.fromCenter(origin, 1)) {
@@ -1309,7 +1538,7 @@ public int fixLiquid(Vector origin, double radius, int moving, int stationary) t
             }
         }
 
-        Operations.completeLegacy(visitor);
+        completeSearch(visitor);
 
         return visitor.getAffected();
     }
@@ -1835,55 +2064,7 @@ public int makeForest(Vector basePosition, int size, double density, TreeGenerat
      * @return the results
      */
     public List<Countable<Integer>> getBlockDistribution(Region region) {
-        List<Countable<Integer>> distribution = new ArrayList<Countable<Integer>>();
-        Map<Integer, Countable<Integer>> map = new HashMap<Integer, Countable<Integer>>();
-
-        if (region instanceof CuboidRegion) {
-            // Doing this for speed
-            Vector min = region.getMinimumPoint();
-            Vector max = region.getMaximumPoint();
-
-            int minX = min.getBlockX();
-            int minY = min.getBlockY();
-            int minZ = min.getBlockZ();
-            int maxX = max.getBlockX();
-            int maxY = max.getBlockY();
-            int maxZ = max.getBlockZ();
-
-            for (int x = minX; x <= maxX; ++x) {
-                for (int y = minY; y <= maxY; ++y) {
-                    for (int z = minZ; z <= maxZ; ++z) {
-                        Vector pt = new Vector(x, y, z);
-
-                        int id = getBlockType(pt);
-
-                        if (map.containsKey(id)) {
-                            map.get(id).increment();
-                        } else {
-                            Countable<Integer> c = new Countable<Integer>(id, 1);
-                            map.put(id, c);
-                            distribution.add(c);
-                        }
-                    }
-                }
-            }
-        } else {
-            for (Vector pt : region) {
-                int id = getBlockType(pt);
-
-                if (map.containsKey(id)) {
-                    map.get(id).increment();
-                } else {
-                    Countable<Integer> c = new Countable<Integer>(id, 1);
-                    map.put(id, c);
-                }
-            }
-        }
-
-        Collections.sort(distribution);
-        // Collections.reverse(distribution);
-
-        return distribution;
+        return RegionScans.histogram(region, this).getDistribution();
     }
 
     /**
@@ -1892,134 +2073,95 @@ public List<Countable<Integer>> getBlockDistribution(Region region) {
      * @param region a region
      * @return the results
      */
-    // TODO reduce code duplication - probably during ops-redux
     public List<Countable<BaseBlock>> getBlockDistributionWithData(Region region) {
-        List<Countable<BaseBlock>> distribution = new ArrayList<Countable<BaseBlock>>();
-        Map<BaseBlock, Countable<BaseBlock>> map = new HashMap<BaseBlock, Countable<BaseBlock>>();
-
-        if (region instanceof CuboidRegion) {
-            // Doing this for speed
-            Vector min = region.getMinimumPoint();
-            Vector max = region.getMaximumPoint();
-
-            int minX = min.getBlockX();
-            int minY = min.getBlockY();
-            int minZ = min.getBlockZ();
-            int maxX = max.getBlockX();
-            int maxY = max.getBlockY();
-            int maxZ = max.getBlockZ();
-
-            for (int x = minX; x <= maxX; ++x) {
-                for (int y = minY; y <= maxY; ++y) {
-                    for (int z = minZ; z <= maxZ; ++z) {
-                        Vector pt = new Vector(x, y, z);
-
-                        BaseBlock blk = new BaseBlock(getBlockType(pt), getBlockData(pt));
-
-                        if (map.containsKey(blk)) {
-                            map.get(blk).increment();
-                        } else {
-                            Countable<BaseBlock> c = new Countable<BaseBlock>(blk, 1);
-                            map.put(blk, c);
-                            distribution.add(c);
-                        }
-                    }
-                }
-            }
-        } else {
-            for (Vector pt : region) {
-                BaseBlock blk = new BaseBlock(getBlockType(pt), getBlockData(pt));
-
-                if (map.containsKey(blk)) {
-                    map.get(blk).increment();
-                } else {
-                    Countable<BaseBlock> c = new Countable<BaseBlock>(blk, 1);
-                    map.put(blk, c);
-                }
-            }
-        }
-
-        Collections.sort(distribution);
-        // Collections.reverse(distribution);
-
-        return distribution;
+        return RegionScans.histogram(region, this).getDistributionWithData();
     }
 
     public int makeShape(final Region region, final Vector zero, final Vector unit, final Pattern pattern, final String expressionString, final boolean hollow) throws ExpressionException, MaxChangedBlocksException {
-        final Expression expression = Expression.compile(expressionString, "x", "y", "z", "type", "data");
-        expression.optimize();
-
-        final RValue typeVariable = expression.getVariable("type", false);
-        final RValue dataVariable = expression.getVariable("data", false);
-
-        final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
-        expression.setEnvironment(environment);
-
-        final ArbitraryShape shape = new ArbitraryShape(region) {
-            @Override
-            protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
-                final Vector current = new Vector(x, y, z);
-                environment.setCurrentBlock(current);
-                final Vector scaled = current.subtract(zero).divide(unit);
-
-                try {
-                    if (expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ(), defaultMaterial.getType(), defaultMaterial.getData()) <= 0) {
-                        return null;
-                    }
-
-                    return new BaseBlock((int) typeVariable.getValue(), (int) dataVariable.getValue());
-                } catch (Exception e) {
-                    log.log(Level.WARNING, "Failed to create shape", e);
-                    return null;
-                }
-            }
-        };
-
-        return shape.generate(this, pattern, hollow);
+        return generateShape(createShape(region, zero, unit, expressionString), pattern, hollow);
     }
 
-    public int deformRegion(final Region region, final Vector zero, final Vector unit, final String expressionString) throws ExpressionException, MaxChangedBlocksException {
-        final Expression expression = Expression.compile(expressionString, "x", "y", "z");
-        expression.optimize();
-
-        final RValue x = expression.getVariable("x", false);
-        final RValue y = expression.getVariable("y", false);
-        final RValue z = expression.getVariable("z", false);
-
-        final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
-        expression.setEnvironment(environment);
-
-        final DoubleArrayList<BlockVector, BaseBlock> queue = new DoubleArrayList<BlockVector, BaseBlock>(false);
-
-        for (BlockVector position : region) {
-            // offset, scale
-            final Vector scaled = position.subtract(zero).divide(unit);
-
-            // transform
-            expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ());
+    /**
+     * Generate a shape, evaluating it on the compute threads of the
+     * {@link com.sk89q.worldedit.session.OperationScheduler} if there are
+     * any and both the shape and the pattern are thread-safe.
+     *
+     * @param shape the shape
+     * @param pattern the pattern to generate default materials from
+     * @param hollow true to generate a hollow shape
+     * @return number of blocks affected
+     * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     */
+    private int generateShape(ArbitraryShape shape, Pattern pattern, boolean hollow) throws MaxChangedBlocksException {
+        ExecutorService executor = getComputeExecutor();
+        if (executor == null || !shape.isThreadSafe() || !Patterns.isThreadSafe(pattern)) {
+            return shape.generate(this, pattern, hollow);
+        }
 
-            final BlockVector sourcePosition = environment.toWorld(x.getValue(), y.getValue(), z.getValue());
+        try {
+            return shape.generate(this, pattern, hollow, executor, getComputeParallelism());
+        } catch (MaxChangedBlocksException e) {
+            throw e;
+        } catch (WorldEditException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            // read block from world
-            // TODO: use getBlock here once the reflection is out of the way
-            final BaseBlock material = new BaseBlock(world.getBlockType(sourcePosition), world.getBlockData(sourcePosition));
+    /**
+     * Get the executor that shapes may be evaluated on, as configured.
+     *
+     * @return the executor, or null if there are no compute threads
+     */
+    @Nullable
+    private static ExecutorService getComputeExecutor() {
+        try {
+            return WorldEdit.getInstance().getOperationScheduler().getComputeExecutor();
+        } catch (NoCapablePlatformException e) {
+            return null;
+        }
+    }
 
-            // queue operation
-            queue.put(position, material);
+    /**
+     * Get the number of tasks that shapes may be evaluated with, including
+     * the calling thread.
+     *
+     * @return the parallelism
+     */
+    private static int getComputeParallelism() {
+        try {
+            return WorldEdit.getInstance().getConfiguration().schedulerComputeThreads + 1;
+        } catch (NoCapablePlatformException e) {
+            return 1;
         }
+    }
 
-        int affected = 0;
-        for (Map.Entry<BlockVector, BaseBlock> entry : queue) {
-            BlockVector position = entry.getKey();
-            BaseBlock material = entry.getValue();
+    /**
+     * Create a shape from an expression that reads from this session.
+     *
+     * @param region the region to generate the shape in
+     * @param zero the origin of the expression's coordinate system
+     * @param unit the scale of the expression's coordinate system
+     * @param expressionString the expression
+     * @return the shape
+     * @throws ExpressionException thrown if the expression is invalid
+     */
+    public ArbitraryShape createShape(final Region region, final Vector zero, final Vector unit, final String expressionString) throws ExpressionException {
+        return new ExpressionShape(region, this, zero, unit, expressionString);
+    }
 
-            // set at new position
-            if (setBlock(position, material)) {
-                ++affected;
+    public int deformRegion(final Region region, final Vector zero, final Vector unit, final String expressionString) throws ExpressionException, MaxChangedBlocksException {
+        Deformation deformation = new Deformation(this, region, zero, unit, expressionString);
+        ExecutorService executor = getComputeExecutor();
+        try {
+            if (executor == null) {
+                return deformation.apply(this);
             }
+            return deformation.apply(this, executor, getComputeParallelism());
+        } catch (MaxChangedBlocksException e) {
+            throw e;
+        } catch (WorldEditException e) {
+            throw new RuntimeException(e);
         }
-
-        return affected;
     }
 
     /**
@@ -2287,38 +2429,12 @@ private void recurseHollow(Region region, BlockVector origin, Set<BlockVector> o
     }
 
     public int makeBiomeShape(final Region region, final Vector zero, final Vector unit, final BaseBiome biomeType, final String expressionString, final boolean hollow) throws ExpressionException, MaxChangedBlocksException {
-        final Vector2D zero2D = zero.toVector2D();
-        final Vector2D unit2D = unit.toVector2D();
-
-        final Expression expression = Expression.compile(expressionString, "x", "z");
-        expression.optimize();
-
-        final EditSession editSession = this;
-        final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(editSession, unit, zero);
-        expression.setEnvironment(environment);
-
-        final ArbitraryBiomeShape shape = new ArbitraryBiomeShape(region) {
-            @Override
-            protected BaseBiome getBiome(int x, int z, BaseBiome defaultBiomeType) {
-                final Vector2D current = new Vector2D(x, z);
-                environment.setCurrentBlock(current.toVector(0));
-                final Vector2D scaled = current.subtract(zero2D).divide(unit2D);
-
-                try {
-                    if (expression.evaluate(scaled.getX(), scaled.getZ()) <= 0) {
-                        return null; // TODO should return OUTSIDE? seems to cause issues otherwise, workedaround for now
-                    }
-
-                    // TODO: Allow biome setting via a script variable (needs BiomeType<->int mapping)
-                    return defaultBiomeType;
-                } catch (Exception e) {
-                    log.log(Level.WARNING, "Failed to create shape", e);
-                    return null;
-                }
-            }
-        };
-
-        return shape.generate(this, biomeType, hollow);
+        final ArbitraryBiomeShape shape = new ExpressionBiomeShape(region, this, zero, unit, expressionString);
+        ExecutorService executor = getComputeExecutor();
+        if (executor == null) {
+            return shape.generate(this, biomeType, hollow);
+        }
+        return shape.generate(this, biomeType, hollow, executor, getComputeParallelism());
     }
 
     private static final Vector[] recurseDirections = {
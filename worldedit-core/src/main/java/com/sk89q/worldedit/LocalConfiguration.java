@@ -21,6 +21,7 @@
 
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.ItemID;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
 import com.sk89q.worldedit.util.logging.LogFormat;
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 
@@ -91,6 +92,7 @@ public abstract class LocalConfiguration {
     public int maxRadius = -1;
     public int maxSuperPickaxeSize = 5;
     public int maxBrushRadius = 6;
+    public int maxSearchMemory = 256;
     public boolean logCommands = false;
     public String logFile = "";
     public String logFormat = LogFormat.DEFAULT_FORMAT;
@@ -113,6 +115,15 @@ public abstract class LocalConfiguration {
     public int butcherDefaultRadius = -1;
     public int butcherMaxRadius = -1;
     public boolean allowSymlinks = false;
+    public ClipboardStorage clipboardStorage = ClipboardStorage.ARRAY;
+    public int historyDiskThreshold = -1;
+    public int schedulerTickBudget = 0;
+    public int schedulerComputeThreads = 0;
+    public int schedulerIOThreads = 2;
+    public int schedulerIOTasksPerOwner = 1;
+    public int sectionCacheMemory = 16;
+    public int schematicCompressionLevel = -1;
+    public boolean compileExpressions = true;
 
     /**
      * Load the configuration.
@@ -29,10 +29,13 @@
 import com.sk89q.worldedit.command.tool.SinglePickaxe;
 import com.sk89q.worldedit.command.tool.Tool;
 import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.event.extent.EditSessionEvent;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.history.changeset.DiskSpillingHistory;
 import com.sk89q.worldedit.internal.cui.CUIEvent;
 import com.sk89q.worldedit.internal.cui.CUIRegion;
 import com.sk89q.worldedit.internal.cui.SelectionShapeEvent;
@@ -46,12 +49,20 @@
 import com.sk89q.worldedit.world.snapshot.Snapshot;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -62,6 +73,8 @@ public class LocalSession {
 
     public transient static int MAX_HISTORY_SIZE = 15;
 
+    private static final Logger log = Logger.getLogger(LocalSession.class.getCanonicalName());
+
     // Non-session related fields
     private transient LocalConfiguration config;
     private transient final AtomicBoolean dirty = new AtomicBoolean();
@@ -177,6 +190,9 @@ public void setTimezone(TimeZone timezone) {
      * Clear history.
      */
     public void clearHistory() {
+        for (EditSession editSession : history) {
+            discard(editSession);
+        }
         history.clear();
         historyPointer = 0;
     }
@@ -193,17 +209,129 @@ public void remember(EditSession editSession) {
         // Don't store anything if no changes were made
         if (editSession.size() == 0) return;
 
+        ChangeSet changeSet = editSession.getChangeSet();
+        if (changeSet instanceof DiskSpillingHistory) {
+            ((DiskSpillingHistory) changeSet).flush();
+        }
+
         // Destroy any sessions after this undo point
         while (historyPointer < history.size()) {
-            history.remove(historyPointer);
+            discard(history.remove(historyPointer));
         }
         history.add(editSession);
         while (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0);
+            discard(history.remove(0));
         }
         historyPointer = history.size();
     }
 
+    /**
+     * Restore history that was spilled to disk, such as before a restart.
+     *
+     * <p>Only the newest {@link #MAX_HISTORY_SIZE} edits whose world is
+     * available are restored, and older history files are deleted. Restored
+     * edits are placed before any edits already in the history.</p>
+     *
+     * <p>Edits that had been undone can be redone again, unless the history
+     * already contains edits, in which case they are discarded as they
+     * would have been had those edits been made before the restart.</p>
+     *
+     * @param dir the directory containing history files
+     * @param worlds the worlds that are available
+     */
+    public void loadHistory(File dir, List<? extends World> worlds) {
+        checkNotNull(dir);
+        checkNotNull(worlds);
+
+        File[] files = dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(DiskSpillingHistory.EXTENSION);
+            }
+        });
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.valueOf(o1.lastModified()).compareTo(o2.lastModified());
+            }
+        });
+
+        LinkedList<EditSession> restored = new LinkedList<EditSession>();
+        int undone = 0;
+        for (int i = files.length - 1; i >= 0; i--) {
+            File file = files[i];
+            if (restored.size() + history.size() >= MAX_HISTORY_SIZE) {
+                if (!file.delete()) {
+                    log.log(Level.WARNING, "Failed to delete old history file " + file.getPath());
+                }
+                continue;
+            }
+
+            try {
+                DiskSpillingHistory changeSet = DiskSpillingHistory.open(file);
+                World world = findWorld(worlds, changeSet.getWorldName());
+                if (changeSet.isUndone() && (!history.isEmpty() || undone < restored.size())) {
+                    // Only the newest edits can be waiting to be redone
+                    changeSet.delete();
+                    continue;
+                }
+                if (world != null && changeSet.size() > 0) {
+                    if (changeSet.isUndone()) {
+                        undone++;
+                    }
+                    restored.addFirst(new EditSession(WorldEdit.getInstance().getEventBus(), world, -1, null,
+                            new EditSessionEvent(world, null, -1, null), changeSet));
+                }
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to read history file " + file.getPath(), e);
+            }
+        }
+
+        history.addAll(0, restored);
+        historyPointer += restored.size() - undone;
+    }
+
+    @Nullable
+    private static World findWorld(List<? extends World> worlds, String name) {
+        for (World world : worlds) {
+            if (world.getName().equals(name)) {
+                return world;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Release any resources held by the history of an edit session that is
+     * no longer kept.
+     *
+     * @param editSession the edit session
+     */
+    private static void discard(EditSession editSession) {
+        ChangeSet changeSet = editSession.getChangeSet();
+        if (changeSet instanceof DiskSpillingHistory) {
+            ((DiskSpillingHistory) changeSet).delete();
+        }
+    }
+
+    /**
+     * Record whether an edit session is undone in its history, so that the
+     * undo position can be restored after a restart.
+     *
+     * @param editSession the edit session
+     * @param undone true if undone
+     */
+    private static void setUndone(EditSession editSession, boolean undone) {
+        ChangeSet changeSet = editSession.getChangeSet();
+        if (changeSet instanceof DiskSpillingHistory) {
+            ((DiskSpillingHistory) changeSet).setUndone(undone);
+        }
+    }
+
     /**
      * Performs an undo.
      *
@@ -232,6 +360,7 @@ public EditSession undo(@Nullable BlockBag newBlockBag, Player player) {
             newEditSession.enableQueue();
             newEditSession.setFastMode(fastMode);
             editSession.undo(newEditSession);
+            setUndone(editSession, true);
             return editSession;
         } else {
             historyPointer = 0;
@@ -266,6 +395,7 @@ public EditSession redo(@Nullable BlockBag newBlockBag, Player player) {
             newEditSession.enableQueue();
             newEditSession.setFastMode(fastMode);
             editSession.redo(newEditSession);
+            setUndone(editSession, false);
             ++historyPointer;
             return editSession;
         }
@@ -868,6 +998,9 @@ public EditSession createEditSession(LocalPlayer player) {
     public EditSession createEditSession(Player player) {
         checkNotNull(player);
 
+        // Finish earlier edits so this one is made on top of them
+        WorldEdit.getInstance().getOperationScheduler().complete(player);
+
         BlockBag blockBag = getBlockBag(player);
 
         // Create an edit session
@@ -0,0 +1,60 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit;
+
+/**
+ * Thrown when a search, such as a flood fill, needs more memory than the
+ * configured limit allows.
+ */
+public class MaxSearchMemoryException extends WorldEditException {
+
+    private final int visited;
+    private final long memoryLimit;
+
+    /**
+     * Create a new instance.
+     *
+     * @param visited the number of blocks visited before the limit was reached
+     * @param memoryLimit the limit, in bytes
+     */
+    public MaxSearchMemoryException(int visited, long memoryLimit) {
+        super("The search ran out of memory after visiting " + visited + " blocks (limit: " + memoryLimit + " bytes)");
+        this.visited = visited;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Get the limit.
+     *
+     * @return the limit, in bytes
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Get the number of blocks visited before the limit was reached.
+     *
+     * @return the number of blocks
+     */
+    public int getVisited() {
+        return visited;
+    }
+
+}
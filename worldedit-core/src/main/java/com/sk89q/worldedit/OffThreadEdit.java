@@ -0,0 +1,273 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.buffer.ChangeBufferExtent;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
+import com.sk89q.worldedit.function.Contextual;
+import com.sk89q.worldedit.function.EditContext;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.ProgressiveOperation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.function.operation.TimedRunContext;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Computes an edit away from the server thread and then applies the
+ * resulting changes to an {@link EditSession}.
+ *
+ * <p>The edit runs in three stages. First, the blocks around the region
+ * are copied into a snapshot on the calling thread. The operation is then
+ * created and completed on an executor against a buffer that reads from
+ * the snapshot. Finally, the buffered changes are set on the edit session
+ * on the calling thread, where they pass through the session's masks,
+ * history and limits as usual. The snapshot and applied stages respect
+ * the given {@link RunContext}, so the edit can be spread over several
+ * ticks. While the operation is being computed, a {@link TimedRunContext}
+ * is expired so that the tick is yielded, and any other context computes
+ * the operation on the calling thread if the executor has not started
+ * it yet.</p>
+ *
+ * <p>The region is copied when the edit is created, so later changes to
+ * the selection do not affect it.</p>
+ *
+ * <p>The snapshot only contains block IDs and data values, and blocks
+ * outside of the region's bounding box (grown by one block) read as air
+ * while computing. Entity and biome changes are not supported.</p>
+ */
+public class OffThreadEdit implements ProgressiveOperation {
+
+    private enum Stage {
+        SNAPSHOT,
+        COMPUTE,
+        APPLY,
+        DONE
+    }
+
+    private final EditSession editSession;
+    private final Region region;
+    private final Contextual<? extends Operation> factory;
+    private final ListeningExecutorService executor;
+    private final ChangeBufferExtent buffer;
+    private volatile boolean cancelled = false;
+    private Stage stage = Stage.SNAPSHOT;
+    private @Nullable Operation current;
+    private @Nullable FutureTask<Operation> future;
+    private @Nullable Operation computed;
+
+    /**
+     * Create a new instance.
+     *
+     * @param editSession the edit session to apply changes to
+     * @param region the region to edit
+     * @param factory creates the operation to compute
+     * @param executor the executor to compute the operation on
+     */
+    public OffThreadEdit(EditSession editSession, Region region, Contextual<? extends Operation> factory, ListeningExecutorService executor) {
+        checkNotNull(editSession);
+        checkNotNull(region);
+        checkNotNull(factory);
+        checkNotNull(executor);
+        this.editSession = editSession;
+        this.region = region.clone();
+        this.factory = factory;
+        this.executor = executor;
+
+        Vector min = this.region.getMinimumPoint().subtract(1, 1, 1);
+        Vector max = this.region.getMaximumPoint().add(1, 1, 1);
+        int maxY = editSession.getWorld().getMaxY();
+        CuboidRegion bounds = new CuboidRegion(
+                min.setY(Math.max(0, Math.min(maxY, min.getBlockY()))),
+                max.setY(Math.max(0, Math.min(maxY, max.getBlockY()))));
+
+        Clipboard snapshot = new PaletteClipboard(bounds);
+        this.buffer = new ChangeBufferExtent(snapshot);
+        this.current = new RegionVisitor(bounds, new SnapshotCopy(snapshot));
+    }
+
+    /**
+     * Get the number of changes that the computed operation made.
+     *
+     * @return the number of changes
+     */
+    public int getChangeCount() {
+        return stage == Stage.APPLY || stage == Stage.DONE ? buffer.size() : 0;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        switch (stage) {
+            case SNAPSHOT:
+                current = current.resume(run);
+                if (current == null) {
+                    stage = Stage.COMPUTE;
+                    future = new FutureTask<Operation>(new ComputeTask());
+                    try {
+                        executor.execute(future);
+                    } catch (RejectedExecutionException ignored) {
+                        // Computed on this thread in the next stage
+                    }
+                }
+                return this;
+
+            case COMPUTE:
+                if (!future.isDone()) {
+                    if (run instanceof TimedRunContext) {
+                        ((TimedRunContext) run).expire();
+                        return this;
+                    }
+
+                    // Does nothing if the executor has already started it
+                    future.run();
+                }
+                computed = getComputed();
+                current = buffer.apply(editSession);
+                stage = Stage.APPLY;
+                return this;
+
+            case APPLY:
+                current = current.resume(run);
+                if (current == null) {
+                    stage = Stage.DONE;
+                    return null;
+                }
+                return this;
+
+            default:
+                return null;
+        }
+    }
+
+    private Operation getComputed() throws WorldEditException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the edit to be computed", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), WorldEditException.class);
+            throw new RuntimeException("Failed to compute the edit", e.getCause());
+        }
+    }
+
+    @Override
+    public double getProgress() {
+        switch (stage) {
+            case SNAPSHOT:
+                return getProgress(current) / 3;
+            case COMPUTE:
+                return 1 / 3.0;
+            case APPLY:
+                return (2 + getProgress(current)) / 3;
+            default:
+                return 1;
+        }
+    }
+
+    private static double getProgress(@Nullable Operation operation) {
+        if (operation instanceof ProgressiveOperation) {
+            return Math.max(0, ((ProgressiveOperation) operation).getProgress());
+        }
+        return 0;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        if (future != null) {
+            future.cancel(false);
+        }
+        if (current != null) {
+            current.cancel();
+        }
+        stage = Stage.DONE;
+    }
+
+    @Override
+    public void addStatusMessages(List<String> messages) {
+        if (computed != null) {
+            computed.addStatusMessages(messages);
+        }
+    }
+
+    /**
+     * Copies the block IDs and data values of the world into the snapshot.
+     */
+    private class SnapshotCopy implements RegionFunction {
+        private final Clipboard snapshot;
+
+        private SnapshotCopy(Clipboard snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean apply(Vector position) throws WorldEditException {
+            BaseBlock block = editSession.getLazyBlock(position);
+            return snapshot.setBlock(position, new BaseBlock(block.getType(), block.getData()));
+        }
+    }
+
+    /**
+     * Creates and completes the operation against the buffer.
+     */
+    private class ComputeTask implements Callable<Operation> {
+        @Override
+        public Operation call() throws Exception {
+            RunContext run = new RunContext() {
+                @Override
+                public boolean shouldContinue() {
+                    return !cancelled;
+                }
+            };
+
+            editSession.setReadExtent(buffer);
+            try {
+                EditContext context = new EditContext();
+                context.setDestination(buffer);
+                context.setRegion(region);
+
+                Operation operation = factory.createFromContext(context);
+                Operation next = operation;
+                while (next != null && !cancelled) {
+                    next = next.resume(run);
+                }
+                return operation;
+            } finally {
+                editSession.setReadExtent(null);
+            }
+        }
+    }
+
+}
@@ -44,6 +44,7 @@
 import com.sk89q.worldedit.scripting.CraftScriptContext;
 import com.sk89q.worldedit.scripting.CraftScriptEngine;
 import com.sk89q.worldedit.scripting.RhinoCraftScriptEngine;
+import com.sk89q.worldedit.session.OperationScheduler;
 import com.sk89q.worldedit.session.SessionManager;
 import com.sk89q.worldedit.session.request.Request;
 import com.sk89q.worldedit.util.eventbus.EventBus;
@@ -95,6 +96,7 @@ public class WorldEdit {
     private final PlatformManager platformManager = new PlatformManager(this);
     private final EditSessionFactory editSessionFactory = new EditSessionFactory.EditSessionFactoryImpl(eventBus);
     private final SessionManager sessions = new SessionManager(this);
+    private final OperationScheduler operationScheduler = new OperationScheduler(this);
 
     private final BlockFactory blockFactory = new BlockFactory(this);
     private final ItemFactory itemFactory = new ItemFactory(this);
@@ -194,6 +196,15 @@ public SessionManager getSessionManager() {
         return sessions;
     }
 
+    /**
+     * Return the scheduler that runs operations over several ticks.
+     *
+     * @return the operation scheduler
+     */
+    public OperationScheduler getOperationScheduler() {
+        return operationScheduler;
+    }
+
     /**
      * @deprecated Use {@link #getSessionManager()}
      */
@@ -19,14 +19,16 @@
 
 package com.sk89q.worldedit.command;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandPermissions;
 import com.sk89q.minecraft.util.commands.Logging;
 import com.sk89q.worldedit.*;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
-import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
 import com.sk89q.worldedit.function.block.BlockReplace;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
@@ -40,9 +42,13 @@
 import com.sk89q.worldedit.regions.RegionSelector;
 import com.sk89q.worldedit.regions.selector.CuboidRegionSelector;
 import com.sk89q.worldedit.session.ClipboardHolder;
+import com.sk89q.worldedit.session.ScheduledOperation;
 import com.sk89q.worldedit.util.command.binding.Switch;
 import com.sk89q.worldedit.util.command.parametric.Optional;
 
+import javax.annotation.Nullable;
+import java.util.concurrent.CancellationException;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.PLACEMENT;
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.REGION;
@@ -81,7 +87,7 @@ public void copy(Player player, LocalSession session, EditSession editSession,
                      @Selection Region region, @Switch('e') boolean copyEntities,
                      @Switch('m') Mask mask) throws WorldEditException {
 
-        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        Clipboard clipboard = worldEdit.getConfiguration().clipboardStorage.create(region);
         clipboard.setOrigin(session.getPlacementPosition(player));
         ForwardExtentCopy copy = new ForwardExtentCopy(editSession, region, clipboard, region.getMinimumPoint());
         copy.setCopyingEntities(copyEntities);
@@ -112,7 +118,7 @@ public void cut(Player player, LocalSession session, EditSession editSession,
                     @Selection Region region, @Optional("air") Pattern leavePattern, @Switch('e') boolean copyEntities,
                     @Switch('m') Mask mask) throws WorldEditException {
 
-        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        Clipboard clipboard = worldEdit.getConfiguration().clipboardStorage.create(region);
         clipboard.setOrigin(session.getPlacementPosition(player));
         ForwardExtentCopy copy = new ForwardExtentCopy(editSession, region, clipboard, region.getMinimumPoint());
         copy.setSourceFunction(new BlockReplace(editSession, leavePattern));
@@ -143,7 +149,7 @@ public void cut(Player player, LocalSession session, EditSession editSession,
     )
     @CommandPermissions("worldedit.clipboard.paste")
     @Logging(PLACEMENT)
-    public void paste(Player player, LocalSession session, EditSession editSession,
+    public void paste(final Player player, LocalSession session, EditSession editSession,
                       @Switch('a') boolean ignoreAirBlocks, @Switch('o') boolean atOrigin,
                       @Switch('s') boolean selectPasted) throws WorldEditException {
 
@@ -151,13 +157,31 @@ public void paste(Player player, LocalSession session, EditSession editSession,
         Clipboard clipboard = holder.getClipboard();
         Region region = clipboard.getRegion();
 
-        Vector to = atOrigin ? clipboard.getOrigin() : session.getPlacementPosition(player);
+        final Vector to = atOrigin ? clipboard.getOrigin() : session.getPlacementPosition(player);
         Operation operation = holder
                 .createPaste(editSession, editSession.getWorld().getWorldData())
                 .to(to)
                 .ignoreAirBlocks(ignoreAirBlocks)
                 .build();
-        Operations.completeLegacy(operation);
+
+        // Run over several ticks if the scheduler has a tick budget
+        ScheduledOperation scheduled = worldEdit.getOperationScheduler().submit(player, "/paste", operation);
+        Futures.addCallback(scheduled.getFuture(), new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+                player.print("The clipboard has been pasted at " + to);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof MaxChangedBlocksException) {
+                    player.printError("Max blocks changed in an operation reached ("
+                            + ((MaxChangedBlocksException) t).getBlockLimit() + ").");
+                } else if (!(t instanceof CancellationException)) {
+                    player.printError("The clipboard could not be pasted: " + t.getMessage());
+                }
+            }
+        });
 
         if (selectPasted) {
             Vector clipboardOffset = clipboard.getRegion().getMinimumPoint().subtract(clipboard.getOrigin());
@@ -168,8 +192,6 @@ public void paste(Player player, LocalSession session, EditSession editSession,
             selector.learnChanges();
             selector.explainRegionAdjust(player, session);
         }
-
-        player.print("The clipboard has been pasted at " + to);
     }
 
     @Command(
@@ -243,6 +265,33 @@ public void save(Actor actor) {
         actor.printError("This command is no longer used. See //schematic save.");
     }
 
+    @Command(
+        aliases = { "/clipboardinfo", "/clipinfo" },
+        usage = "",
+        desc = "Show information about your clipboard",
+        min = 0,
+        max = 0
+    )
+    @CommandPermissions("worldedit.clipboard.info")
+    public void clipboardInfo(Player player, LocalSession session) throws WorldEditException {
+        ClipboardHolder holder = session.getClipboard();
+        Clipboard clipboard = holder.getClipboard();
+        Vector dimensions = clipboard.getDimensions();
+
+        player.print("Dimensions: " + dimensions.getBlockX() + "x" + dimensions.getBlockY() + "x" + dimensions.getBlockZ()
+                + " (" + clipboard.getRegion().getArea() + " block(s))");
+        player.print("Origin: " + clipboard.getOrigin());
+
+        if (clipboard instanceof PaletteClipboard) {
+            PaletteClipboard palette = (PaletteClipboard) clipboard;
+            player.print("Storage: palette (" + palette.getAllocatedSectionCount() + "/" + palette.getSectionCount()
+                    + " section(s) allocated, " + palette.getNbtBlockCount() + " block(s) with NBT)");
+            player.print("Estimated memory usage: " + (palette.getMemoryUsage() / 1024) + " KiB");
+        } else {
+            player.print("Storage: " + clipboard.getClass().getSimpleName());
+        }
+    }
+
     @Command(
         aliases = { "clearclipboard" },
         usage = "",
@@ -27,8 +27,13 @@
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.session.BackgroundTask;
+import com.sk89q.worldedit.session.ScheduledOperation;
 import com.sk89q.worldedit.util.command.parametric.Optional;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -142,6 +147,66 @@ public void togglePlace(Player player, LocalSession session, EditSession editSes
         }
     }
 
+    @Command(
+        aliases = { "/operations", "/ops" },
+        usage = "",
+        desc = "List your edits and transfers that are still being completed",
+        min = 0,
+        max = 0
+    )
+    @CommandPermissions("worldedit.operations")
+    public void operations(Actor actor) throws WorldEditException {
+        List<ScheduledOperation> operations = worldEdit.getOperationScheduler().getOperations(actor);
+        List<BackgroundTask<?>> tasks = worldEdit.getOperationScheduler().getBackgroundTasks(actor);
+        if (operations.isEmpty() && tasks.isEmpty()) {
+            actor.print("You have no edits in progress.");
+            return;
+        }
+
+        for (BackgroundTask<?> task : tasks) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(task.getDescription()).append(": ");
+            double progress = task.getProgress();
+            if (progress >= 0) {
+                builder.append(Math.round(progress * 100)).append("% done");
+            } else {
+                builder.append("running");
+            }
+            builder.append(" (").append(task.getElapsedTime(TimeUnit.MILLISECONDS)).append("ms)");
+            actor.print(builder.toString());
+        }
+
+        for (ScheduledOperation operation : operations) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(operation.getDescription()).append(": ");
+            builder.append(operation.getState().name().toLowerCase());
+            double progress = operation.getProgress();
+            if (progress >= 0) {
+                builder.append(", ").append(Math.round(progress * 100)).append("% done");
+            }
+            builder.append(" (").append(operation.getTicks()).append(" ticks, ");
+            builder.append(operation.getRunTime(TimeUnit.MILLISECONDS)).append("ms)");
+            actor.print(builder.toString());
+        }
+    }
+
+    @Command(
+        aliases = { "/cancel" },
+        usage = "",
+        desc = "Cancel your edits and transfers that are still being completed",
+        min = 0,
+        max = 0
+    )
+    @CommandPermissions("worldedit.operations")
+    public void cancel(Actor actor) throws WorldEditException {
+        int cancelled = worldEdit.getOperationScheduler().cancel(actor);
+        if (cancelled > 0) {
+            actor.print(cancelled + " edit(s) cancelled.");
+        } else {
+            actor.printError("You have no edits in progress.");
+        }
+    }
+
     @Command(
         aliases = { "/searchitem", "/l", "/search", "searchitem" },
         usage = "<query>",
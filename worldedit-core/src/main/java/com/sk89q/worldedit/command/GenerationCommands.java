@@ -19,20 +19,31 @@
 
 package com.sk89q.worldedit.command;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandPermissions;
 import com.sk89q.minecraft.util.commands.Logging;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.OffThreadEdit;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.function.Contextual;
+import com.sk89q.worldedit.function.EditContext;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.function.pattern.Patterns;
 import com.sk89q.worldedit.internal.annotation.Selection;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.shape.ArbitraryShape;
+import com.sk89q.worldedit.session.OperationScheduler;
+import com.sk89q.worldedit.session.ScheduledOperation;
 import com.sk89q.worldedit.util.TreeGenerator;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
 import com.sk89q.worldedit.util.command.binding.Range;
@@ -41,6 +52,11 @@
 import com.sk89q.worldedit.util.command.parametric.Optional;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.*;
 
@@ -269,7 +285,7 @@ public void pyramid(Player player, LocalSession session, EditSession editSession
     )
     @CommandPermissions("worldedit.generation.shape")
     @Logging(ALL)
-    public void generate(Player player, LocalSession session, EditSession editSession,
+    public void generate(final Player player, LocalSession session, EditSession editSession,
                          @Selection Region region,
                          Pattern pattern,
                          @Text String expression,
@@ -306,6 +322,32 @@ public void generate(Player player, LocalSession session, EditSession editSessio
         }
 
         try {
+            OperationScheduler scheduler = worldEdit.getOperationScheduler();
+            ListeningExecutorService executor = scheduler.getComputeExecutor();
+            if (executor != null) {
+                Region target = region.clone();
+                ArbitraryShape shape = editSession.createShape(target, zero, unit, expression);
+                int parallelism = worldEdit.getConfiguration().schedulerComputeThreads + 1;
+                final ShapeGeneration generation = new ShapeGeneration(shape, Patterns.wrap(pattern), hollow, executor, parallelism);
+                OffThreadEdit operation = new OffThreadEdit(editSession, target, generation, executor);
+                ScheduledOperation scheduled = scheduler.submit(player, "//generate", operation);
+                Futures.addCallback(scheduled.getFuture(), new FutureCallback<Void>() {
+                    @Override
+                    public void onSuccess(@Nullable Void result) {
+                        player.findFreePosition();
+                        player.print(generation.getAffected() + " block(s) have been created.");
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        if (!(t instanceof CancellationException)) {
+                            player.printError("The shape could not be generated: " + t.getMessage());
+                        }
+                    }
+                });
+                return;
+            }
+
             final int affected = editSession.makeShape(region, zero, unit, Patterns.wrap(pattern), expression, hollow);
             player.findFreePosition();
             player.print(affected + " block(s) have been created.");
@@ -379,4 +421,48 @@ public void generateBiome(Player player, LocalSession session, EditSession editS
         }
     }
 
+    /**
+     * Generates a shape on the destination of an edit, evaluating it on
+     * the compute threads if the shape is thread-safe.
+     */
+    private static class ShapeGeneration implements Contextual<Operation> {
+        private final ArbitraryShape shape;
+        private final com.sk89q.worldedit.patterns.Pattern pattern;
+        private final boolean hollow;
+        private final ExecutorService executor;
+        private final int parallelism;
+        private volatile int affected;
+
+        private ShapeGeneration(ArbitraryShape shape, com.sk89q.worldedit.patterns.Pattern pattern, boolean hollow, ExecutorService executor, int parallelism) {
+            this.shape = shape;
+            this.pattern = pattern;
+            this.hollow = hollow;
+            this.executor = executor;
+            this.parallelism = parallelism;
+        }
+
+        private int getAffected() {
+            return affected;
+        }
+
+        @Override
+        public Operation createFromContext(final EditContext context) {
+            return new Operation() {
+                @Override
+                public Operation resume(RunContext run) throws WorldEditException {
+                    affected = shape.generate(context.getDestination(), pattern, hollow, executor, parallelism);
+                    return null;
+                }
+
+                @Override
+                public void cancel() {
+                }
+
+                @Override
+                public void addStatusMessages(List<String> messages) {
+                }
+            };
+        }
+    }
+
 }
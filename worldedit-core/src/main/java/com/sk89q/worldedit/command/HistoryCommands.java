@@ -24,6 +24,7 @@
 import com.sk89q.minecraft.util.commands.CommandPermissions;
 import com.sk89q.worldedit.*;
 import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.session.SessionKey;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -65,6 +66,7 @@ public void undo(Player player, LocalSession session, EditSession editSession, C
                     player.printError("Unable to find session for " + args.getString(1));
                     break;
                 }
+                completeOperations(args.getString(1));
                 undone = sess.undo(session.getBlockBag(player), player);
             }
             if (undone != null) {
@@ -100,6 +102,7 @@ public void redo(Player player, LocalSession session, EditSession editSession, C
                     player.printError("Unable to find session for " + args.getString(1));
                     break;
                 }
+                completeOperations(args.getString(1));
                 redone = sess.redo(session.getBlockBag(player), player);
             }
             if (redone != null) {
@@ -124,4 +127,17 @@ public void clearHistory(Player player, LocalSession session, EditSession editSe
         player.print("History cleared.");
     }
 
+    /**
+     * Complete the queued operations of another player, so that their
+     * history includes every edit that they have started.
+     *
+     * @param name the name of the player
+     */
+    private void completeOperations(String name) {
+        SessionKey key = worldEdit.getSessionManager().findKeyByName(name);
+        if (key != null) {
+            worldEdit.getOperationScheduler().complete(key);
+        }
+    }
+
 }
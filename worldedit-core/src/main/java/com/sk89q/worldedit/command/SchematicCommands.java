@@ -19,6 +19,8 @@
 
 package com.sk89q.worldedit.command;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.minecraft.util.commands.CommandException;
@@ -30,30 +32,38 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
-import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardWriter;
 import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.session.BackgroundTask;
 import com.sk89q.worldedit.session.ClipboardHolder;
 import com.sk89q.worldedit.util.command.binding.Switch;
 import com.sk89q.worldedit.util.command.parametric.Optional;
 import com.sk89q.worldedit.util.io.Closer;
+import com.sk89q.worldedit.util.io.TransferMonitor;
 import com.sk89q.worldedit.util.io.file.FilenameException;
 import com.sk89q.worldedit.world.registry.WorldData;
 
+import javax.annotation.Nullable;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -90,44 +100,68 @@ public SchematicCommands(WorldEdit worldEdit) {
     )
     @Deprecated
     @CommandPermissions({ "worldedit.clipboard.load", "worldedit.schematic.load" })
-    public void load(Player player, LocalSession session, @Optional("schematic") String formatName, String filename) throws FilenameException {
+    public void load(final Player player, final LocalSession session, @Optional("schematic") String formatName, String filename) throws FilenameException {
         LocalConfiguration config = worldEdit.getConfiguration();
 
+        ClipboardFormat format = ClipboardFormat.findByAlias(formatName);
+        if (format == null) {
+            player.printError("Unknown schematic format: " + formatName);
+            return;
+        }
+
         File dir = worldEdit.getWorkingDirectoryFile(config.saveDir);
-        File f = worldEdit.getSafeOpenFile(player, dir, filename, "schematic", "schematic");
+        File f = worldEdit.getSafeOpenFile(player, dir, filename, format.getExtension(), format.getExtension());
 
         if (!f.exists()) {
             player.printError("Schematic " + filename + " does not exist!");
             return;
         }
 
-        ClipboardFormat format = ClipboardFormat.findByAlias(formatName);
-        if (format == null) {
-            player.printError("Unknown schematic format: " + formatName);
+        final File file = f;
+        final String name = filename;
+        final ClipboardFormat clipboardFormat = format;
+        final ClipboardStorage storage = config.clipboardStorage;
+        final WorldData worldData = player.getWorld().getWorldData();
+        final TransferMonitor monitor = new TransferMonitor(f.length());
+
+        Callable<Clipboard> task = new Callable<Clipboard>() {
+            @Override
+            public Clipboard call() throws IOException {
+                Closer closer = Closer.create();
+                try {
+                    FileInputStream fis = closer.register(new FileInputStream(file));
+                    BufferedInputStream bis = closer.register(new BufferedInputStream(monitor.wrap(fis)));
+                    ClipboardReader reader = clipboardFormat.getReader(bis, storage);
+                    return reader.read(worldData);
+                } finally {
+                    closer.close();
+                }
+            }
+        };
+
+        BackgroundTask<Clipboard> loading = submit(player, "Loading " + filename, task, monitor);
+        if (loading == null) {
             return;
         }
 
-        Closer closer = Closer.create();
-        try {
-            FileInputStream fis = closer.register(new FileInputStream(f));
-            BufferedInputStream bis = closer.register(new BufferedInputStream(fis));
-            ClipboardReader reader = format.getReader(bis);
-
-            WorldData worldData = player.getWorld().getWorldData();
-            Clipboard clipboard = reader.read(player.getWorld().getWorldData());
-            session.setClipboard(new ClipboardHolder(clipboard, worldData));
-
-            log.info(player.getName() + " loaded " + f.getCanonicalPath());
-            player.print(filename + " loaded. Paste it with //paste");
-        } catch (IOException e) {
-            player.printError("Schematic could not read or it does not exist: " + e.getMessage());
-            log.log(Level.WARNING, "Failed to load a saved clipboard", e);
-        } finally {
-            try {
-                closer.close();
-            } catch (IOException ignored) {
+        Futures.addCallback(loading.getFuture(), new FutureCallback<Clipboard>() {
+            @Override
+            public void onSuccess(Clipboard clipboard) {
+                session.setClipboard(new ClipboardHolder(clipboard, worldData));
+                log.info(player.getName() + " loaded " + file.getAbsolutePath());
+                player.print(name + " loaded. Paste it with //paste");
             }
-        }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (isCancellation(t)) {
+                    player.printError("Loading " + name + " was cancelled.");
+                } else {
+                    player.printError("Schematic could not read or it does not exist: " + t.getMessage());
+                    log.log(Level.WARNING, "Failed to load a saved clipboard", t);
+                }
+            }
+        }, worldEdit.getOperationScheduler().getServerExecutor());
     }
 
     @Command(
@@ -138,18 +172,18 @@ public void load(Player player, LocalSession session, @Optional("schematic") Str
     )
     @Deprecated
     @CommandPermissions({ "worldedit.clipboard.save", "worldedit.schematic.save" })
-    public void save(Player player, LocalSession session, @Optional("schematic") String formatName, String filename) throws CommandException, WorldEditException {
+    public void save(final Player player, LocalSession session, @Optional("schematic") String formatName, String filename) throws CommandException, WorldEditException {
         LocalConfiguration config = worldEdit.getConfiguration();
 
-        File dir = worldEdit.getWorkingDirectoryFile(config.saveDir);
-        File f = worldEdit.getSafeSaveFile(player, dir, filename, "schematic", "schematic");
-
         ClipboardFormat format = ClipboardFormat.findByAlias(formatName);
         if (format == null) {
             player.printError("Unknown schematic format: " + formatName);
             return;
         }
 
+        File dir = worldEdit.getWorkingDirectoryFile(config.saveDir);
+        File f = worldEdit.getSafeSaveFile(player, dir, filename, format.getExtension(), format.getExtension());
+
         ClipboardHolder holder = session.getClipboard();
         Clipboard clipboard = holder.getClipboard();
         Transform transform = holder.getTransform();
@@ -158,40 +192,114 @@ public void save(Player player, LocalSession session, @Optional("schematic") Str
         // If we have a transform, bake it into the copy
         if (!transform.isIdentity()) {
             FlattenedClipboardTransform result = FlattenedClipboardTransform.transform(clipboard, transform, holder.getWorldData());
-            target = new BlockArrayClipboard(result.getTransformedRegion());
+            target = config.clipboardStorage.create(result.getTransformedRegion());
             target.setOrigin(clipboard.getOrigin());
             Operations.completeLegacy(result.copyTo(target));
         } else {
             target = clipboard;
         }
 
-        Closer closer = Closer.create();
-        try {
-            // Create parent directories
-            File parent = f.getParentFile();
-            if (parent != null && !parent.exists()) {
-                if (!parent.mkdirs()) {
-                    throw new CommandException("Could not create folder for schematics!");
+        // Create parent directories
+        File parent = f.getParentFile();
+        if (parent != null && !parent.exists()) {
+            if (!parent.mkdirs()) {
+                throw new CommandException("Could not create folder for schematics!");
+            }
+        }
+
+        // The clipboard is not changed after it has been created, so it is
+        // safe to read from another thread
+        final File file = f;
+        final String name = filename;
+        final ClipboardFormat clipboardFormat = format;
+        final Clipboard source = target;
+        final WorldData worldData = holder.getWorldData();
+        final int compressionLevel = config.schematicCompressionLevel;
+        final ExecutorService executor = worldEdit.getOperationScheduler().getComputeExecutor();
+        final int parallelism = config.schedulerComputeThreads;
+        final TransferMonitor monitor = new TransferMonitor(-1);
+
+        Callable<File> task = new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                // Write next to the schematic, so that it can be moved into place
+                File temporary = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+                boolean moved = false;
+                try {
+                    Closer closer = Closer.create();
+                    try {
+                        FileOutputStream fos = closer.register(new FileOutputStream(temporary));
+                        BufferedOutputStream bos = closer.register(new BufferedOutputStream(monitor.wrap(fos)));
+                        ClipboardWriter writer = closer.register(clipboardFormat.getWriter(bos, compressionLevel, executor, parallelism));
+                        writer.write(source, worldData);
+                    } finally {
+                        closer.close();
+                    }
+
+                    if (file.exists() && !file.delete()) {
+                        throw new IOException("Could not replace " + file.getName());
+                    }
+                    if (!temporary.renameTo(file)) {
+                        throw new IOException("Could not move the schematic into place");
+                    }
+                    moved = true;
+                    return file;
+                } finally {
+                    if (!moved) {
+                        temporary.delete();
+                    }
                 }
             }
+        };
 
-            FileOutputStream fos = closer.register(new FileOutputStream(f));
-            BufferedOutputStream bos = closer.register(new BufferedOutputStream(fos));
-            ClipboardWriter writer = closer.register(format.getWriter(bos));
-            writer.write(target, holder.getWorldData());
-            log.info(player.getName() + " saved " + f.getCanonicalPath());
-            player.print(filename + " saved.");
-        } catch (IOException e) {
-            player.printError("Schematic could not written: " + e.getMessage());
-            log.log(Level.WARNING, "Failed to write a saved clipboard", e);
-        } finally {
-            try {
-                closer.close();
-            } catch (IOException ignored) {
+        BackgroundTask<File> saving = submit(player, "Saving " + filename, task, monitor);
+        if (saving == null) {
+            return;
+        }
+
+        Futures.addCallback(saving.getFuture(), new FutureCallback<File>() {
+            @Override
+            public void onSuccess(File result) {
+                log.info(player.getName() + " saved " + result.getAbsolutePath());
+                player.print(name + " saved.");
             }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (isCancellation(t)) {
+                    player.printError("Saving " + name + " was cancelled.");
+                } else {
+                    player.printError("Schematic could not written: " + t.getMessage());
+                    log.log(Level.WARNING, "Failed to write a saved clipboard", t);
+                }
+            }
+        }, worldEdit.getOperationScheduler().getServerExecutor());
+    }
+
+    /**
+     * Submit a schematic transfer to the I/O threads.
+     *
+     * @param player the player
+     * @param description a description of the transfer
+     * @param task the task
+     * @param monitor the monitor of the transfer
+     * @param <V> the type of result
+     * @return the submitted task, or null if the player has been told that it could not be submitted
+     */
+    @Nullable
+    private <V> BackgroundTask<V> submit(Player player, String description, Callable<V> task, TransferMonitor monitor) {
+        try {
+            return worldEdit.getOperationScheduler().submitBackground(player, description, task, monitor);
+        } catch (RejectedExecutionException e) {
+            player.printError("Too many schematics are being loaded or saved right now. Try again once yours are done.");
+            return null;
         }
     }
 
+    private static boolean isCancellation(Throwable t) {
+        return t instanceof CancellationException || t instanceof InterruptedIOException;
+    }
+
     @Command(
             aliases = { "delete", "d" },
             usage = "<filename>",
@@ -207,9 +315,17 @@ public void delete(Player player, LocalSession session, EditSession editSession,
         String filename = args.getString(0);
 
         File dir = worldEdit.getWorkingDirectoryFile(config.saveDir);
-        File f = worldEdit.getSafeSaveFile(player, dir, filename, "schematic", "schematic");
+        File f = null;
 
-        if (!f.exists()) {
+        // Without an extension, delete the schematic of whichever format exists
+        for (ClipboardFormat format : ClipboardFormat.values()) {
+            f = worldEdit.getSafeSaveFile(player, dir, filename, format.getExtension(), format.getExtension());
+            if (f.exists()) {
+                break;
+            }
+        }
+
+        if (f == null || !f.exists()) {
             player.printError("Schematic " + filename + " does not exist!");
             return;
         }
@@ -35,7 +35,10 @@
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.permission.ActorSelectorLimits;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.function.scan.BlockHistogram;
+import com.sk89q.worldedit.function.scan.RegionScans;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.regions.RegionOperationException;
 import com.sk89q.worldedit.regions.RegionSelector;
@@ -57,8 +60,10 @@
 import com.sk89q.worldedit.world.storage.ChunkStore;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.POSITION;
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.REGION;
@@ -628,21 +633,23 @@ public void size(Player player, LocalSession session, EditSession editSession, C
         max = 1
     )
     @CommandPermissions("worldedit.analysis.count")
-    public void count(Player player, LocalSession session, EditSession editSession, CommandContext args) throws WorldEditException {
+    public void count(Player player, LocalSession session, EditSession editSession, CommandContext args) throws WorldEditException, CommandException {
 
         boolean useData = args.hasFlag('d');
         if (args.getString(0).contains(":")) {
             useData = true; //override d flag, if they specified data they want it
         }
+        Set<BaseBlock> searchBlocks;
         if (useData) {
-            Set<BaseBlock> searchBlocks = we.getBlocks(player, args.getString(0), true);
-            int count = editSession.countBlocks(session.getSelection(player.getWorld()), searchBlocks);
-            player.print("Counted: " + count);
+            searchBlocks = we.getBlocks(player, args.getString(0), true);
         } else {
-            Set<Integer> searchIDs = we.getBlockIDs(player, args.getString(0), true);
-            int count = editSession.countBlock(session.getSelection(player.getWorld()), searchIDs);
-            player.print("Counted: " + count);
+            searchBlocks = new HashSet<BaseBlock>();
+            for (Integer id : we.getBlockIDs(player, args.getString(0), true)) {
+                searchBlocks.add(new BaseBlock(id, -1));
+            }
         }
+        BlockHistogram histogram = getHistogram(session.getSelection(player.getWorld()), editSession, true);
+        player.print("Counted: " + histogram.getCount(searchBlocks));
     }
 
     @Command(
@@ -666,15 +673,25 @@ public void distr(Player player, LocalSession session, EditSession editSession,
         List<Countable<BaseBlock>> distributionData = null;
 
         if (args.hasFlag('c')) {
-            // TODO: Update for new clipboard
-            throw new CommandException("Needs to be re-written again");
+            ClipboardHolder holder = session.getClipboard();
+            Clipboard clipboard = holder.getClipboard();
+            Region region = clipboard.getRegion();
+            BlockHistogram histogram = getHistogram(region, clipboard, false);
+            if (useData) {
+                distributionData = histogram.getDistributionWithData();
+            } else {
+                distribution = histogram.getDistribution();
+            }
+            size = region.getArea();
         } else {
+            Region region = session.getSelection(player.getWorld());
+            BlockHistogram histogram = getHistogram(region, editSession, true);
             if (useData) {
-                distributionData = editSession.getBlockDistributionWithData(session.getSelection(player.getWorld()));
+                distributionData = histogram.getDistributionWithData();
             } else {
-                distribution = editSession.getBlockDistribution(session.getSelection(player.getWorld()));
+                distribution = histogram.getDistribution();
             }
-            size = session.getSelection(player.getWorld()).getArea();
+            size = region.getArea();
         }
 
         if ((useData && distributionData.size() <= 0)
@@ -707,6 +724,35 @@ public void distr(Player player, LocalSession session, EditSession editSession,
         }
     }
 
+    /**
+     * Count the blocks of a region, using the compute threads if there
+     * are any.
+     *
+     * @param region the region
+     * @param source the extent to read blocks from
+     * @param snapshot true if the source may only be read from the calling thread, such as a world
+     * @return the histogram
+     * @throws CommandException thrown if the calling thread is interrupted
+     */
+    private BlockHistogram getHistogram(Region region, Extent source, boolean snapshot) throws CommandException {
+        ExecutorService executor = we.getOperationScheduler().getComputeExecutor();
+        if (executor == null) {
+            return RegionScans.histogram(region, source);
+        }
+
+        int parallelism = we.getConfiguration().schedulerComputeThreads + 1;
+        try {
+            if (snapshot) {
+                return RegionScans.histogramSnapshots(region, source, executor, parallelism);
+            } else {
+                return RegionScans.histogram(region, source, executor, parallelism);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandException("Interrupted while counting blocks");
+        }
+    }
+
     @Command(
         aliases = { "/sel", ";", "/desel", "/deselect" },
         flags = "d",
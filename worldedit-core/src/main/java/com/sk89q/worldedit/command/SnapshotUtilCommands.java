@@ -35,6 +35,7 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 import static com.sk89q.minecraft.util.commands.Logging.LogMode.REGION;
@@ -125,7 +126,9 @@ public void restore(Player player, LocalSession session, EditSession editSession
 
         try {
             // Restore snapshot
-            SnapshotRestore restore = new SnapshotRestore(chunkStore, editSession, region);
+            ExecutorService executor = we.getOperationScheduler().getComputeExecutor();
+            int parallelism = Math.max(1, config.schedulerComputeThreads);
+            SnapshotRestore restore = new SnapshotRestore(chunkStore, editSession, region, executor, parallelism);
             //player.print(restore.getChunksAffected() + " chunk(s) will be loaded.");
 
             restore.restore();
@@ -21,25 +21,33 @@
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.minecraft.util.commands.CommandLocals;
 import com.sk89q.minecraft.util.commands.CommandPermissionsException;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.IncompleteRegionException;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.OffThreadEdit;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.function.Contextual;
 import com.sk89q.worldedit.function.EditContext;
 import com.sk89q.worldedit.function.operation.Operation;
-import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.session.OperationScheduler;
+import com.sk89q.worldedit.session.ScheduledOperation;
 import com.sk89q.worldedit.util.command.argument.CommandArgs;
 import com.sk89q.worldedit.util.command.composition.CommandExecutor;
 import com.sk89q.worldedit.util.command.composition.SimpleCommand;
 
+import javax.annotation.Nullable;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -67,7 +75,7 @@ public Operation call(CommandArgs args, CommandLocals locals) throws CommandExce
         Actor actor = locals.get(Actor.class);
         if (actor instanceof Player) {
             try {
-                Player player = (Player) actor;
+                final Player player = (Player) actor;
                 LocalSession session = WorldEdit.getInstance().getSessionManager().get(player);
                 Region selection = session.getSelection(player.getWorld());
 
@@ -76,21 +84,36 @@ public Operation call(CommandArgs args, CommandLocals locals) throws CommandExce
                 locals.put(EditSession.class, editSession);
                 session.tellVersion(player);
 
-                EditContext editContext = new EditContext();
-                editContext.setDestination(locals.get(EditSession.class));
-                editContext.setRegion(selection);
-
-                Operation operation = operationFactory.createFromContext(editContext);
-                Operations.completeBlindly(operation);
-
-                List<String> messages = Lists.newArrayList();
-                operation.addStatusMessages(messages);
-                if (messages.isEmpty()) {
-                    actor.print("Operation completed.");
+                OperationScheduler scheduler = WorldEdit.getInstance().getOperationScheduler();
+                ListeningExecutorService executor = scheduler.getComputeExecutor();
+                final Operation operation;
+                if (executor != null) {
+                    operation = new OffThreadEdit(editSession, selection, operationFactory, executor);
                 } else {
-                    actor.print("Operation completed (" + Joiner.on(", ").join(messages) + ").");
+                    EditContext editContext = new EditContext();
+                    editContext.setDestination(editSession);
+                    editContext.setRegion(selection);
+                    operation = operationFactory.createFromContext(editContext);
                 }
 
+                // Run over several ticks if the scheduler has a tick budget
+                ScheduledOperation scheduled = scheduler.submit(player, getDescription(), operation);
+                Futures.addCallback(scheduled.getFuture(), new FutureCallback<Void>() {
+                    @Override
+                    public void onSuccess(@Nullable Void result) {
+                        printCompleted(player, operation);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        if (t instanceof MaxChangedBlocksException) {
+                            player.printError("Max blocks changed in an operation reached ("
+                                    + ((MaxChangedBlocksException) t).getBlockLimit() + ").");
+                        } else if (!(t instanceof CancellationException)) {
+                            player.printError("The edit could not be completed: " + t.getMessage());
+                        }
+                    }
+                });
                 return operation;
             } catch (IncompleteRegionException e) {
                 WorldEdit.getInstance().getPlatformManager().getCommandManager().getExceptionConverter().convert(e);
@@ -101,6 +124,16 @@ public Operation call(CommandArgs args, CommandLocals locals) throws CommandExce
         }
     }
 
+    private static void printCompleted(Actor actor, Operation operation) {
+        List<String> messages = Lists.newArrayList();
+        operation.addStatusMessages(messages);
+        if (messages.isEmpty()) {
+            actor.print("Operation completed.");
+        } else {
+            actor.print("Operation completed (" + Joiner.on(", ").join(messages) + ").");
+        }
+    }
+
     @Override
     public String getDescription() {
         return delegate.getDescription();
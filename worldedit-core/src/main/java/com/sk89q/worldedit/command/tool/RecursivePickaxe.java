@@ -25,10 +25,18 @@
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.mask.AbstractMask;
+import com.sk89q.worldedit.function.mask.BlockMask;
+import com.sk89q.worldedit.function.mask.CoordinateMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Mask2D;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.visitor.RecursiveVisitor;
 import com.sk89q.worldedit.world.World;
 
-import java.util.HashSet;
-import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * A pickaxe mode that recursively finds adjacent blocks within range of
@@ -49,10 +57,10 @@ public boolean canUse(Actor player) {
     }
 
     @Override
-    public boolean actPrimary(Platform server, LocalConfiguration config, Player player, LocalSession session, com.sk89q.worldedit.util.Location clicked) {
-        World world = (World) clicked.getExtent();
+    public boolean actPrimary(final Platform server, LocalConfiguration config, Player player, LocalSession session, com.sk89q.worldedit.util.Location clicked) {
+        final World world = (World) clicked.getExtent();
 
-        int initialType = world.getBlockType(clicked.toVector());
+        final int initialType = world.getBlockType(clicked.toVector());
 
         if (initialType == BlockID.AIR) {
             return true;
@@ -62,14 +70,32 @@ public boolean actPrimary(Platform server, LocalConfiguration config, Player pla
             return true;
         }
 
-        EditSession editSession = session.createEditSession(player);
+        final EditSession editSession = session.createEditSession(player);
         editSession.getSurvivalExtent().setToolUse(config.superPickaxeManyDrop);
 
+        final Vector origin = clicked.toVector();
+        Mask mask = new MaskIntersection(
+                new RangeMask(origin, range),
+                new BlockMask(editSession, new BaseBlock(initialType, -1)));
+
+        RecursiveVisitor visitor = new RecursiveVisitor(mask, new RegionFunction() {
+            @Override
+            public boolean apply(Vector position) throws WorldEditException {
+                world.queueBlockBreakEffect(server, position, initialType, origin.distanceSq(position));
+                return editSession.setBlock(position, air);
+            }
+        });
+        visitor.setMemoryLimit(config.maxSearchMemory < 0 ? -1 : config.maxSearchMemory * 1024L * 1024L);
+        visitor.visit(origin);
+
         try {
-            recurse(server, editSession, world, clicked.toVector().toBlockVector(),
-                    clicked.toVector(), range, initialType, new HashSet<BlockVector>());
+            Operations.complete(visitor);
+        } catch (MaxSearchMemoryException e) {
+            player.printError("The pickaxe ran out of memory; try a smaller range.");
         } catch (MaxChangedBlocksException e) {
             player.printError("Max blocks change limit reached.");
+        } catch (WorldEditException e) {
+            player.printError(e.getMessage());
         } finally {
             editSession.flushQueue();
             session.remember(editSession);
@@ -78,36 +104,45 @@ public boolean actPrimary(Platform server, LocalConfiguration config, Player pla
         return true;
     }
 
-    private static void recurse(Platform server, EditSession editSession, World world, BlockVector pos,
-            Vector origin, double size, int initialType, Set<BlockVector> visited) throws MaxChangedBlocksException {
+    /**
+     * Matches positions that are no further than a given distance from
+     * an origin.
+     */
+    private static final class RangeMask extends AbstractMask implements CoordinateMask {
+        private final double originX;
+        private final double originY;
+        private final double originZ;
+        private final double rangeSq;
+
+        private RangeMask(Vector origin, double range) {
+            this.originX = origin.getX();
+            this.originY = origin.getY();
+            this.originZ = origin.getZ();
+            this.rangeSq = range * range;
+        }
 
-        final double distanceSq = origin.distanceSq(pos);
-        if (distanceSq > size*size || visited.contains(pos)) {
-            return;
+        @Override
+        public boolean test(Vector vector) {
+            return test(vector.getX(), vector.getY(), vector.getZ());
         }
 
-        visited.add(pos);
+        @Override
+        public boolean test(int x, int y, int z) {
+            return test((double) x, (double) y, (double) z);
+        }
 
-        if (editSession.getBlock(pos).getType() != initialType) {
-            return;
+        private boolean test(double x, double y, double z) {
+            double dx = x - originX;
+            double dy = y - originY;
+            double dz = z - originZ;
+            return dx * dx + dy * dy + dz * dz <= rangeSq;
         }
 
-        world.queueBlockBreakEffect(server, pos, initialType, distanceSq);
-
-        editSession.setBlock(pos, air);
-
-        recurse(server, editSession, world, pos.add(1, 0, 0).toBlockVector(),
-                origin, size, initialType, visited);
-        recurse(server, editSession, world, pos.add(-1, 0, 0).toBlockVector(),
-                origin, size, initialType, visited);
-        recurse(server, editSession, world, pos.add(0, 0, 1).toBlockVector(),
-                origin, size, initialType, visited);
-        recurse(server, editSession, world, pos.add(0, 0, -1).toBlockVector(),
-                origin, size, initialType, visited);
-        recurse(server, editSession, world, pos.add(0, 1, 0).toBlockVector(),
-                origin, size, initialType, visited);
-        recurse(server, editSession, world, pos.add(0, -1, 0).toBlockVector(),
-                origin, size, initialType, visited);
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            return null;
+        }
     }
 
 }
@@ -28,8 +28,18 @@
 import com.sk89q.worldedit.function.pattern.RandomPattern;
 import com.sk89q.worldedit.internal.registry.InputParser;
 
+/**
+ * Parses a comma-separated list of weighted blocks into a
+ * {@link RandomPattern}, such as {@code 50%stone,50%dirt}.
+ *
+ * <p>One of the entries may be {@code seed=<number>}, in which case the
+ * same block is always chosen for the same position, so that the result can
+ * be reproduced.</p>
+ */
 class RandomPatternParser extends InputParser<Pattern> {
 
+    private static final String SEED_PREFIX = "seed=";
+
     RandomPatternParser(WorldEdit worldEdit) {
         super(worldEdit);
     }
@@ -37,9 +47,31 @@ class RandomPatternParser extends InputParser<Pattern> {
     @Override
     public Pattern parseFromInput(String input, ParserContext context) throws InputParseException {
         BlockFactory blockRegistry = worldEdit.getBlockFactory();
-        RandomPattern randomPattern = new RandomPattern();
+        String[] tokens = input.split(",");
+        RandomPattern randomPattern = null;
+
+        for (String token : tokens) {
+            if (token.startsWith(SEED_PREFIX)) {
+                if (randomPattern != null) {
+                    throw new InputParseException("Only one seed can be given for '" + input + "'");
+                }
+                try {
+                    randomPattern = new RandomPattern(Long.parseLong(token.substring(SEED_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    throw new InputParseException("The seed in '" + input + "' is not a whole number");
+                }
+            }
+        }
+
+        if (randomPattern == null) {
+            randomPattern = new RandomPattern();
+        }
+
+        for (String token : tokens) {
+            if (token.startsWith(SEED_PREFIX)) {
+                continue;
+            }
 
-        for (String token : input.split(",")) {
             BaseBlock block;
 
             double chance;
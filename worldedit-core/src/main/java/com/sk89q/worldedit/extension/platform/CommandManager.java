@@ -20,6 +20,8 @@
 package com.sk89q.worldedit.extension.platform;
 
 import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.minecraft.util.commands.CommandLocals;
 import com.sk89q.minecraft.util.commands.CommandPermissionsException;
@@ -36,7 +38,11 @@
 import com.sk89q.worldedit.event.platform.CommandSuggestionEvent;
 import com.sk89q.worldedit.function.factory.Deform;
 import com.sk89q.worldedit.function.factory.Deform.Mode;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.OperationQueue;
 import com.sk89q.worldedit.internal.command.*;
+import com.sk89q.worldedit.session.OperationScheduler;
+import com.sk89q.worldedit.session.ScheduledOperation;
 import com.sk89q.worldedit.session.request.Request;
 import com.sk89q.worldedit.util.command.Dispatcher;
 import com.sk89q.worldedit.util.command.InvalidUsageException;
@@ -51,8 +57,10 @@
 import com.sk89q.worldedit.util.logging.DynamicStreamHandler;
 import com.sk89q.worldedit.util.logging.LogFormat;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -232,7 +240,6 @@ public void handleCommand(CommandEvent event) {
         }
 
         LocalSession session = worldEdit.getSessionManager().get(actor);
-        LocalConfiguration config = worldEdit.getConfiguration();
 
         CommandLocals locals = new CommandLocals();
         locals.put(Actor.class, actor);
@@ -289,29 +296,95 @@ public void handleCommand(CommandEvent event) {
             EditSession editSession = locals.get(EditSession.class);
 
             if (editSession != null) {
-                session.remember(editSession);
-                editSession.flushQueue();
-
-                if (config.profile) {
-                    long time = System.currentTimeMillis() - start;
-                    int changed = editSession.getBlockChangeCount();
-                    if (time > 0) {
-                        double throughput = changed / (time / 1000.0);
-                        actor.printDebug((time / 1000.0) + "s elapsed (history: "
-                                + changed + " changed; "
-                                + Math.round(throughput) + " blocks/sec).");
-                    } else {
-                        actor.printDebug((time / 1000.0) + "s elapsed.");
+                OperationScheduler scheduler = worldEdit.getOperationScheduler();
+                Operation commit = editSession.commit();
+
+                // Operations that the command submitted (such as edits computed away from the
+                // server thread) may not have changed any blocks yet, so the session is only
+                // remembered once the queue of the actor has reached the commit
+                if (commit != null || !scheduler.getOperations(actor).isEmpty()) {
+                    ScheduledOperation operation = scheduler.submit(actor, split[0], commit != null ? commit : new OperationQueue());
+                    if (!operation.isDone()) {
+                        actor.print("The edit will be completed over the next few ticks (see /operations).");
                     }
+                    Futures.addCallback(operation.getFuture(), new EditCompletionCallback(actor, session, editSession, start));
+                } else {
+                    session.remember(editSession);
+                    finishEdit(actor, editSession, start);
                 }
-
-                worldEdit.flushBlockBag(actor, editSession);
             }
         }
 
         event.setCancelled(true);
     }
 
+    /**
+     * Report on a finished edit and return blocks to the actor's block bag.
+     *
+     * @param actor the actor
+     * @param editSession the edit session
+     * @param start the time at which the command started
+     */
+    private void finishEdit(Actor actor, EditSession editSession, long start) {
+        if (worldEdit.getConfiguration().profile) {
+            long time = System.currentTimeMillis() - start;
+            int changed = editSession.getBlockChangeCount();
+            if (time > 0) {
+                double throughput = changed / (time / 1000.0);
+                actor.printDebug((time / 1000.0) + "s elapsed (history: "
+                        + changed + " changed; "
+                        + Math.round(throughput) + " blocks/sec).");
+            } else {
+                actor.printDebug((time / 1000.0) + "s elapsed.");
+            }
+
+            long batched = editSession.getBatchedBlockCount();
+            if (batched > 0) {
+                actor.printDebug("World writes: " + batched + " blocks in chunk batches ("
+                        + Math.round(editSession.getBatchedBlocksPerSecond()) + " blocks/sec).");
+            }
+        }
+
+        worldEdit.flushBlockBag(actor, editSession);
+    }
+
+    /**
+     * Finishes an edit once its changes have been committed.
+     */
+    private class EditCompletionCallback implements FutureCallback<Void> {
+        private final Actor actor;
+        private final LocalSession session;
+        private final EditSession editSession;
+        private final long start;
+
+        private EditCompletionCallback(Actor actor, LocalSession session, EditSession editSession, long start) {
+            this.actor = actor;
+            this.session = session;
+            this.editSession = editSession;
+            this.start = start;
+        }
+
+        @Override
+        public void onSuccess(@Nullable Void result) {
+            session.remember(editSession);
+            finishEdit(actor, editSession, start);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            // Whatever was changed before the failure can still be undone
+            session.remember(editSession);
+            if (t instanceof CancellationException) {
+                actor.printError("The edit was cancelled before it was completed.");
+            } else {
+                actor.printError("Please report this error: [See console]");
+                actor.printRaw(t.getClass().getName() + ": " + t.getMessage());
+                log.log(Level.SEVERE, "An unexpected error occurred while completing an edit", t);
+            }
+            worldEdit.flushBlockBag(actor, editSession);
+        }
+    }
+
     @Subscribe
     public void handleCommandSuggestion(CommandSuggestionEvent event) {
         try {
@@ -131,6 +131,9 @@ public synchronized boolean unregister(Platform platform) {
         if (removed) {
             logger.log(Level.FINE, "Unregistering " + platform.getClass().getCanonicalName() + " from WorldEdit");
 
+            // Finish queued edits while the platform's worlds are still around
+            worldEdit.getOperationScheduler().shutdown();
+
             boolean choosePreferred = false;
 
             // Check whether this platform was chosen to be the preferred one
@@ -0,0 +1,55 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+/**
+ * An {@link OutputExtent} that can fill a cuboid with a single block in one
+ * call, which may be much faster than setting each block on its own.
+ *
+ * <p>Extents that pass the request on should use
+ * {@link Extents#fillCuboid(OutputExtent, Vector, Vector, BaseBlock)}, which
+ * falls back to setting each block when the next extent does not support
+ * bulk fills. An extent that cannot handle a particular fill itself can
+ * use {@link Extents#setEach(OutputExtent, Vector, Vector, BaseBlock)} on
+ * itself instead.</p>
+ */
+public interface BulkOutputExtent extends OutputExtent {
+
+    /**
+     * Change every block in the cuboid between the two given points
+     * (inclusive) to the given block.
+     *
+     * <p>As with {@link #setBlock(Vector, BaseBlock)}, the return value is
+     * only an estimation.</p>
+     *
+     * @param min the minimum point of the cuboid
+     * @param max the maximum point of the cuboid
+     * @param block the block to set
+     * @return the number of blocks that were probably changed
+     * @throws WorldEditException thrown on an error
+     */
+    int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException;
+
+}
@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.CuboidFillChange;
 import com.sk89q.worldedit.history.change.EntityCreate;
 import com.sk89q.worldedit.history.change.EntityRemove;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
@@ -41,7 +42,7 @@
 /**
  * Stores changes to a {@link ChangeSet}.
  */
-public class ChangeSetExtent extends AbstractDelegateExtent {
+public class ChangeSetExtent extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private final ChangeSet changeSet;
 
@@ -64,6 +65,21 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return super.setBlock(location, block);
     }
 
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        // Record one change per chunk column, so that undo can stop between them
+        for (int chunkX = min.getBlockX() >> 4; chunkX <= max.getBlockX() >> 4; chunkX++) {
+            for (int chunkZ = min.getBlockZ() >> 4; chunkZ <= max.getBlockZ() >> 4; chunkZ++) {
+                Vector columnMin = new Vector(Math.max(min.getBlockX(), chunkX << 4), min.getBlockY(), Math.max(min.getBlockZ(), chunkZ << 4));
+                Vector columnMax = new Vector(Math.min(max.getBlockX(), (chunkX << 4) + 15), max.getBlockY(), Math.min(max.getBlockZ(), (chunkZ << 4) + 15));
+                if (Extents.getVolume(columnMin, columnMax) > 0) {
+                    changeSet.add(new CuboidFillChange(this, columnMin, columnMax, block));
+                }
+            }
+        }
+        return Extents.fillCuboid(getExtent(), min, max, block);
+    }
+
     @Nullable
     @Override
     public Entity createEntity(Location location, BaseEntity state) {
@@ -0,0 +1,104 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Utility methods related to {@link Extent}s.
+ */
+public final class Extents {
+
+    private Extents() {
+    }
+
+    /**
+     * Fill the cuboid between the two given points (inclusive) with the
+     * given block, using a bulk fill if the extent supports it.
+     *
+     * @param extent the extent
+     * @param min the minimum point of the cuboid
+     * @param max the maximum point of the cuboid
+     * @param block the block to set
+     * @return the number of blocks that were probably changed
+     * @throws WorldEditException thrown on an error
+     * @see BulkOutputExtent
+     */
+    public static int fillCuboid(OutputExtent extent, Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        checkNotNull(extent);
+        if (extent instanceof BulkOutputExtent) {
+            return ((BulkOutputExtent) extent).fillCuboid(min, max, block);
+        } else {
+            return setEach(extent, min, max, block);
+        }
+    }
+
+    /**
+     * Fill the cuboid between the two given points (inclusive) with the
+     * given block by setting each block on its own.
+     *
+     * @param extent the extent
+     * @param min the minimum point of the cuboid
+     * @param max the maximum point of the cuboid
+     * @param block the block to set
+     * @return the number of blocks that were probably changed
+     * @throws WorldEditException thrown on an error
+     */
+    public static int setEach(OutputExtent extent, Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        checkNotNull(extent);
+        checkNotNull(min);
+        checkNotNull(max);
+        checkNotNull(block);
+
+        int changed = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    if (extent.setBlock(new BlockVector(x, y, z), block)) {
+                        changed++;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Get the number of blocks in the cuboid between the two given points
+     * (inclusive).
+     *
+     * @param min the minimum point of the cuboid
+     * @param max the maximum point of the cuboid
+     * @return the number of blocks
+     */
+    public static long getVolume(Vector min, Vector max) {
+        long width = Math.max(0, max.getBlockX() - min.getBlockX() + 1);
+        long height = Math.max(0, max.getBlockY() - min.getBlockY() + 1);
+        long length = Math.max(0, max.getBlockZ() - min.getBlockZ() + 1);
+        return width * height * length;
+    }
+
+}
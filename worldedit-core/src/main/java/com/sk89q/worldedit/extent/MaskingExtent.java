@@ -23,13 +23,14 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Requires that all mutating methods pass a given {@link Mask}.
  */
-public class MaskingExtent extends AbstractDelegateExtent {
+public class MaskingExtent extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private Mask mask;
 
@@ -69,4 +70,13 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return mask.test(location) && super.setBlock(location, block);
     }
 
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        if (mask == Masks.alwaysTrue()) {
+            return Extents.fillCuboid(getExtent(), min, max, block);
+        } else {
+            return Extents.setEach(this, min, max, block);
+        }
+    }
+
 }
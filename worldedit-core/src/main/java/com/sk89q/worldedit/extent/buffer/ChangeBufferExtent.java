@@ -0,0 +1,115 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.extent.buffer;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.BlockMapEntryPlacer;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+import com.sk89q.worldedit.Vector2D;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Buffers block changes to an {@link Extent} so that they can be applied
+ * to another extent later.
+ *
+ * <p>Unlike {@link ForgetfulExtentBuffer}, buffered changes are returned
+ * by {@link #getBlock(Vector)} and {@link #getLazyBlock(Vector)}, so the
+ * buffer can be edited as if it was the delegate extent. Entity and biome
+ * changes are not supported.</p>
+ */
+public class ChangeBufferExtent extends AbstractDelegateExtent {
+
+    private final Map<BlockVector, BaseBlock> buffer = new LinkedHashMap<BlockVector, BaseBlock>();
+
+    /**
+     * Create a new buffer.
+     *
+     * @param delegate the extent to read unchanged blocks from
+     */
+    public ChangeBufferExtent(Extent delegate) {
+        super(delegate);
+        checkNotNull(delegate);
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        BaseBlock block = buffer.get(position.toBlockVector());
+        return block != null ? new BaseBlock(block) : super.getBlock(position);
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        BaseBlock block = buffer.get(position.toBlockVector());
+        return block != null ? block : super.getLazyBlock(position);
+    }
+
+    @Override
+    public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+        checkNotNull(block);
+        buffer.put(location.toBlockVector(), new BaseBlock(block));
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        return null;
+    }
+
+    @Override
+    public boolean setBiome(Vector2D position, BaseBiome biome) {
+        return false;
+    }
+
+    /**
+     * Get the number of buffered changes.
+     *
+     * @return the number of changes
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * Create an operation that sets every buffered change on the given
+     * extent, in the order that the changes were first made.
+     *
+     * @param target the extent to apply the changes to
+     * @return an operation
+     */
+    public Operation apply(Extent target) {
+        checkNotNull(target);
+        return new BlockMapEntryPlacer(target, buffer.entrySet().iterator(), buffer.size());
+    }
+
+}
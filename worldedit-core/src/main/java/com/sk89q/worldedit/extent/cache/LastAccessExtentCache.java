@@ -28,7 +28,10 @@
 /**
  * Returns the same cached {@link BaseBlock} for repeated calls to
  * {@link #getLazyBlock(Vector)} with the same position.
+ *
+ * @deprecated use {@link SectionCacheExtent}, which caches whole sections
  */
+@Deprecated
 public class LastAccessExtentCache extends AbstractDelegateExtent {
 
     private CachedBlock lastBlock;
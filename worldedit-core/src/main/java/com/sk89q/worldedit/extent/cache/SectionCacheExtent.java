@@ -0,0 +1,276 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.LazyBlock;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
+import com.sk89q.worldedit.math.BlockPositions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Caches the ID and data values returned by {@link #getLazyBlock(Vector)}
+ * in 16x16x16 sections of primitive arrays.
+ *
+ * <p>Sections are filled as their blocks are read and are kept up to date
+ * with block changes that pass through this extent. Changes made to the
+ * underlying extent by other means are not seen. When more sections are
+ * cached than the configured memory budget allows, the least recently used
+ * section is evicted.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class SectionCacheExtent extends AbstractDelegateExtent implements BulkOutputExtent {
+
+    /**
+     * The approximate number of bytes used by a single cached section.
+     */
+    public static final int SECTION_MEMORY = 4096 * 2 + 64 * 8 + 64;
+
+    private final SectionMap sections = new SectionMap();
+    private int maxSections;
+    private long lastKey;
+    private Section lastSection;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     * @param memoryBudget the maximum number of bytes to use for cached sections, or 0 to disable the cache
+     */
+    public SectionCacheExtent(Extent extent, long memoryBudget) {
+        super(extent);
+        setMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * Get the maximum number of bytes to use for cached sections.
+     *
+     * @return the memory budget
+     */
+    public long getMemoryBudget() {
+        return (long) maxSections * SECTION_MEMORY;
+    }
+
+    /**
+     * Set the maximum number of bytes to use for cached sections.
+     *
+     * <p>Sections beyond the new budget are evicted.</p>
+     *
+     * @param memoryBudget the memory budget, or 0 to disable the cache
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        checkArgument(memoryBudget >= 0, "memoryBudget >= 0 required");
+        this.maxSections = (int) Math.min(Integer.MAX_VALUE, memoryBudget / SECTION_MEMORY);
+        if (sections.size() > maxSections) {
+            clear();
+        }
+    }
+
+    /**
+     * Get the number of reads that were answered from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of reads that had to be passed to the underlying extent.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of sections that are currently cached.
+     *
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * Get the approximate number of bytes used by cached sections.
+     *
+     * @return the memory usage
+     */
+    public long getMemoryUsage() {
+        return (long) sections.size() * SECTION_MEMORY;
+    }
+
+    /**
+     * Remove all cached sections. The hit and miss counts are kept.
+     */
+    public void clear() {
+        sections.clear();
+        lastSection = null;
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        Section section = getSection(x, y, z, true);
+        if (section == null) {
+            misses++;
+            return super.getLazyBlock(position);
+        }
+
+        int index = index(x, y, z);
+        if (section.isKnown(index)) {
+            hits++;
+            int packed = section.blocks[index];
+            return new LazyBlock(packed >> 4, packed & 0xF, getExtent(), position);
+        }
+
+        misses++;
+        BaseBlock block = super.getLazyBlock(position);
+        section.set(index, block);
+        return block;
+    }
+
+    @Override
+    public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        boolean changed = super.setBlock(position, block);
+        if (changed) {
+            int x = position.getBlockX();
+            int y = position.getBlockY();
+            int z = position.getBlockZ();
+            Section section = getSection(x, y, z, false);
+            if (section != null) {
+                section.set(index(x, y, z), block);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        int changed = Extents.fillCuboid(getExtent(), min, max, block);
+        if (sections.isEmpty()) {
+            return changed;
+        }
+
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    Section section = getSection(x, y, z, false);
+                    if (section != null) {
+                        section.set(index(x, y, z), block);
+                    } else {
+                        // Skip to the next section along the X axis
+                        x |= 0xF;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private Section getSection(int x, int y, int z, boolean create) {
+        if (maxSections == 0 || !BlockPositions.canPack(x, y, z)) {
+            return null;
+        }
+        long key = BlockPositions.pack(x >> 4, y >> 4, z >> 4);
+        Section section = lastSection;
+        if (section != null && lastKey == key) {
+            return section;
+        }
+        section = sections.get(key);
+        if (section == null) {
+            if (!create) {
+                return null;
+            }
+            section = new Section();
+            sections.put(key, section);
+        }
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    private static int index(int x, int y, int z) {
+        return ((y & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+
+    /**
+     * The ID and data values of a 16x16x16 section, with a bit per block
+     * recording whether the block has been read yet.
+     */
+    private static final class Section {
+        private final char[] blocks = new char[4096];
+        private final long[] known = new long[64];
+
+        private boolean isKnown(int index) {
+            return (known[index >> 6] & (1L << index)) != 0;
+        }
+
+        private void set(int index, BaseBlock block) {
+            int id = block.getId();
+            int data = block.getData();
+            if (id >= 0 && id < 4096 && data >= 0 && data < 16) {
+                blocks[index] = (char) ((id << 4) | data);
+                known[index >> 6] |= 1L << index;
+            } else {
+                known[index >> 6] &= ~(1L << index);
+            }
+        }
+    }
+
+    /**
+     * Keeps sections in access order and evicts the least recently used
+     * section once the budget is exceeded.
+     */
+    private final class SectionMap extends LinkedHashMap<Long, Section> {
+        private SectionMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Section> eldest) {
+            if (size() > maxSections) {
+                if (eldest.getValue() == lastSection) {
+                    lastSection = null;
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
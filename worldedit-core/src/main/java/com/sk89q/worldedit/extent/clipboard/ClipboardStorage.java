@@ -0,0 +1,97 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.regions.Region;
+
+import javax.annotation.Nullable;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The available backends for storing clipboard blocks.
+ */
+public enum ClipboardStorage {
+
+    /**
+     * Stores a {@link com.sk89q.worldedit.blocks.BaseBlock} object per block.
+     */
+    ARRAY("array", "default") {
+        @Override
+        public Clipboard create(Region region) {
+            return new BlockArrayClipboard(region);
+        }
+    },
+
+    /**
+     * Stores palette-compressed sections of packed ID and data values.
+     */
+    PALETTE("palette", "compact") {
+        @Override
+        public Clipboard create(Region region) {
+            return new PaletteClipboard(region);
+        }
+    };
+
+    private static final Map<String, ClipboardStorage> aliasMap = new HashMap<String, ClipboardStorage>();
+
+    private final String[] aliases;
+
+    /**
+     * Create a new instance.
+     *
+     * @param aliases an array of aliases by which this storage may be referred to
+     */
+    private ClipboardStorage(String ... aliases) {
+        this.aliases = aliases;
+    }
+
+    /**
+     * Create a new, empty clipboard that uses this storage.
+     *
+     * @param region the bounding region
+     * @return a new clipboard
+     */
+    public abstract Clipboard create(Region region);
+
+    static {
+        for (ClipboardStorage storage : EnumSet.allOf(ClipboardStorage.class)) {
+            for (String key : storage.aliases) {
+                aliasMap.put(key, storage);
+            }
+        }
+    }
+
+    /**
+     * Find the clipboard storage named by the given alias.
+     *
+     * @param alias the alias
+     * @return the storage, otherwise null if none is matched
+     */
+    @Nullable
+    public static ClipboardStorage findByAlias(String alias) {
+        checkNotNull(alias);
+        return aliasMap.get(alias.toLowerCase().trim());
+    }
+
+}
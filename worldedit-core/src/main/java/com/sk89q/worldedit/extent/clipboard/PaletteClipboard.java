@@ -0,0 +1,311 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.collection.PaletteArray;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores block data in 16x16x16 sections, each of which is a
+ * {@link PaletteArray} of packed ID and data values.
+ *
+ * <p>Sections that are never written to are not allocated and sections
+ * containing a single type of block take almost no memory. NBT data is
+ * kept in a separate map only for those blocks that have it.</p>
+ */
+public class PaletteClipboard implements Clipboard {
+
+    private static final int SECTION_SHIFT = 4;
+    private static final int SECTION_SIZE = 1 << SECTION_SHIFT;
+    private static final int SECTION_MASK = SECTION_SIZE - 1;
+    private static final int SECTION_VOLUME = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE;
+
+    private final Region region;
+    private Vector origin;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int width;
+    private final int length;
+    private final int sectionsX;
+    private final int sectionsZ;
+    private final PaletteArray[] sections;
+    private final Map<Long, CompoundTag> nbtData = new HashMap<Long, CompoundTag>();
+    private final List<ClipboardEntity> entities = new ArrayList<ClipboardEntity>();
+
+    /**
+     * Create a new instance.
+     *
+     * <p>The origin will be placed at the region's lowest minimum point.</p>
+     *
+     * @param region the bounding region
+     */
+    public PaletteClipboard(Region region) {
+        checkNotNull(region);
+        this.region = region.clone();
+        this.origin = region.getMinimumPoint();
+
+        Vector min = region.getMinimumPoint();
+        Vector dimensions = getDimensions();
+        minX = min.getBlockX();
+        minY = min.getBlockY();
+        minZ = min.getBlockZ();
+        width = dimensions.getBlockX();
+        length = dimensions.getBlockZ();
+        sectionsX = (width + SECTION_MASK) >> SECTION_SHIFT;
+        int sectionsY = (dimensions.getBlockY() + SECTION_MASK) >> SECTION_SHIFT;
+        sectionsZ = (length + SECTION_MASK) >> SECTION_SHIFT;
+        sections = new PaletteArray[sectionsX * sectionsY * sectionsZ];
+    }
+
+    @Override
+    public Region getRegion() {
+        return region.clone();
+    }
+
+    @Override
+    public Vector getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public void setOrigin(Vector origin) {
+        this.origin = origin;
+    }
+
+    @Override
+    public Vector getDimensions() {
+        return region.getMaximumPoint().subtract(region.getMinimumPoint()).add(1, 1, 1);
+    }
+
+    @Override
+    public Vector getMinimumPoint() {
+        return region.getMinimumPoint();
+    }
+
+    @Override
+    public Vector getMaximumPoint() {
+        return region.getMaximumPoint();
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        List<Entity> filtered = new ArrayList<Entity>();
+        for (Entity entity : entities) {
+            if (region.contains(entity.getLocation().toVector())) {
+                filtered.add(entity);
+            }
+        }
+        return Collections.unmodifiableList(filtered);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        ClipboardEntity ret = new ClipboardEntity(location, entity);
+        entities.add(ret);
+        return ret;
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        if (region.contains(position)) {
+            int x = position.getBlockX() - minX;
+            int y = position.getBlockY() - minY;
+            int z = position.getBlockZ() - minZ;
+            int packed = getPacked(x, y, z);
+            CompoundTag tag = nbtData.isEmpty() ? null : nbtData.get(getIndex(x, y, z));
+            return new BaseBlock(packed >> 4, packed & 0xF, tag);
+        }
+
+        return new BaseBlock(BlockID.AIR);
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        return getBlock(position);
+    }
+
+    @Override
+    public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        if (region.contains(position)) {
+            int x = position.getBlockX() - minX;
+            int y = position.getBlockY() - minY;
+            int z = position.getBlockZ() - minZ;
+            int packed = (block.getId() << 4) | Math.max(0, block.getData());
+
+            int sectionIndex = getSectionIndex(x, y, z);
+            PaletteArray section = sections[sectionIndex];
+            if (section == null) {
+                if (packed == BlockID.AIR && !block.hasNbtData()) {
+                    return true; // Unallocated sections are already air
+                }
+                section = new PaletteArray(SECTION_VOLUME, BlockID.AIR);
+                sections[sectionIndex] = section;
+            }
+            section.set(getIndexInSection(x, y, z), packed);
+
+            CompoundTag tag = block.getNbtData();
+            if (tag != null) {
+                nbtData.put(getIndex(x, y, z), tag);
+            } else if (!nbtData.isEmpty()) {
+                nbtData.remove(getIndex(x, y, z));
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public BaseBiome getBiome(Vector2D position) {
+        return new BaseBiome(0);
+    }
+
+    @Override
+    public boolean setBiome(Vector2D position, BaseBiome biome) {
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public Operation commit() {
+        return null;
+    }
+
+    /**
+     * Get an estimate of the number of bytes of heap used by the block
+     * storage of this clipboard.
+     *
+     * <p>NBT data is counted per stored tag rather than measured, so the
+     * estimate is a lower bound when many tile entities are present.</p>
+     *
+     * @return the number of bytes
+     */
+    public long getMemoryUsage() {
+        long bytes = 16 + sections.length * 4L;
+        for (PaletteArray section : sections) {
+            if (section != null) {
+                bytes += section.getMemoryUsage();
+            }
+        }
+        bytes += nbtData.size() * 64L;
+        return bytes;
+    }
+
+    /**
+     * Get the number of allocated sections.
+     *
+     * @return the number of allocated sections
+     */
+    public int getAllocatedSectionCount() {
+        int count = 0;
+        for (PaletteArray section : sections) {
+            if (section != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the total number of sections spanned by this clipboard.
+     *
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return sections.length;
+    }
+
+    /**
+     * Get the number of blocks with NBT data.
+     *
+     * @return the number of blocks with NBT data
+     */
+    public int getNbtBlockCount() {
+        return nbtData.size();
+    }
+
+    private int getPacked(int x, int y, int z) {
+        PaletteArray section = sections[getSectionIndex(x, y, z)];
+        if (section == null) {
+            return BlockID.AIR;
+        }
+        return section.get(getIndexInSection(x, y, z));
+    }
+
+    private int getSectionIndex(int x, int y, int z) {
+        return ((y >> SECTION_SHIFT) * sectionsZ + (z >> SECTION_SHIFT)) * sectionsX + (x >> SECTION_SHIFT);
+    }
+
+    private static int getIndexInSection(int x, int y, int z) {
+        return ((y & SECTION_MASK) << (SECTION_SHIFT * 2)) | ((z & SECTION_MASK) << SECTION_SHIFT) | (x & SECTION_MASK);
+    }
+
+    private long getIndex(int x, int y, int z) {
+        return ((long) y * length + z) * width + x;
+    }
+
+    /**
+     * Stores entity data.
+     */
+    private class ClipboardEntity extends StoredEntity {
+        ClipboardEntity(Location location, BaseEntity entity) {
+            super(location, entity);
+        }
+
+        @Override
+        public boolean remove() {
+            return entities.remove(this);
+        }
+
+        @Nullable
+        @Override
+        public <T> T getFacet(Class<? extends T> cls) {
+            return null;
+        }
+    }
+
+}
@@ -21,9 +21,15 @@
 
 import com.sk89q.jnbt.NBTConstants;
 import com.sk89q.jnbt.NBTInputStream;
-import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.NBTStreamReader;
+import com.sk89q.jnbt.NBTStreamWriter;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.util.io.LevelGZIPOutputStream;
+import com.sk89q.worldedit.util.io.ParallelGZIPOutputStream;
 
 import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -37,8 +43,9 @@
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -50,17 +57,38 @@ public enum ClipboardFormat {
     /**
      * The Schematic format used by many software.
      */
-    SCHEMATIC("mcedit", "mce", "schematic") {
+    SCHEMATIC("schematic", "mcedit", "mce", "schematic") {
         @Override
         public ClipboardReader getReader(InputStream inputStream) throws IOException {
-            NBTInputStream nbtStream = new NBTInputStream(new GZIPInputStream(inputStream));
-            return new SchematicReader(nbtStream);
+            return getReader(inputStream, ClipboardStorage.ARRAY);
+        }
+
+        @Override
+        public ClipboardReader getReader(InputStream inputStream, ClipboardStorage storage) throws IOException {
+            if (storage == ClipboardStorage.ARRAY) {
+                // Creating a block for every position dominates the load time
+                // of an array clipboard, and the tree reader is faster there
+                return new SchematicReader(new NBTInputStream(new GZIPInputStream(inputStream)));
+            }
+            NBTStreamReader nbtStream = new NBTStreamReader(new BufferedInputStream(new GZIPInputStream(inputStream)));
+            return new StreamingSchematicReader(nbtStream, storage);
         }
 
         @Override
         public ClipboardWriter getWriter(OutputStream outputStream) throws IOException {
-            NBTOutputStream nbtStream = new NBTOutputStream(new GZIPOutputStream(outputStream));
-            return new SchematicWriter(nbtStream);
+            return getWriter(outputStream, Deflater.DEFAULT_COMPRESSION, null, 1);
+        }
+
+        @Override
+        public ClipboardWriter getWriter(OutputStream outputStream, int compressionLevel, @Nullable ExecutorService executor, int parallelism) throws IOException {
+            OutputStream compressed;
+            if (executor != null && parallelism > 1) {
+                compressed = new ParallelGZIPOutputStream(outputStream, compressionLevel, executor, parallelism);
+            } else {
+                compressed = new LevelGZIPOutputStream(outputStream, compressionLevel);
+            }
+            NBTStreamWriter nbtStream = new NBTStreamWriter(new BufferedOutputStream(compressed, 65536));
+            return new StreamingSchematicWriter(nbtStream);
         }
 
         @Override
@@ -86,21 +114,79 @@ public boolean isFormat(File file) {
                 }
             }
         }
+    },
+
+    /**
+     * A compact format of palette-encoded 16x16x16 sections with an index,
+     * so that parts of a schematic can be read on their own.
+     *
+     * @see CompactSchematic
+     */
+    COMPACT("wecs", "compact", "wecs") {
+        @Override
+        public ClipboardReader getReader(InputStream inputStream) throws IOException {
+            return new CompactSchematicReader(inputStream);
+        }
+
+        @Override
+        public ClipboardReader getReader(InputStream inputStream, ClipboardStorage storage) throws IOException {
+            return new CompactSchematicReader(inputStream, storage);
+        }
+
+        @Override
+        public ClipboardWriter getWriter(OutputStream outputStream) throws IOException {
+            return new CompactSchematicWriter(outputStream);
+        }
+
+        @Override
+        public ClipboardWriter getWriter(OutputStream outputStream, int compressionLevel, @Nullable ExecutorService executor, int parallelism) throws IOException {
+            return new CompactSchematicWriter(outputStream, compressionLevel);
+        }
+
+        @Override
+        public boolean isFormat(File file) {
+            DataInputStream str = null;
+            try {
+                str = new DataInputStream(new FileInputStream(file));
+                return str.readInt() == CompactSchematic.MAGIC;
+            } catch (IOException e) {
+                return false;
+            } finally {
+                if (str != null) {
+                    try {
+                        str.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
     };
 
     private static final Map<String, ClipboardFormat> aliasMap = new HashMap<String, ClipboardFormat>();
 
+    private final String extension;
     private final String[] aliases;
 
     /**
      * Create a new instance.
      *
+     * @param extension the file extension of files of this format
      * @param aliases an array of aliases by which this format may be referred to
      */
-    private ClipboardFormat(String ... aliases) {
+    private ClipboardFormat(String extension, String ... aliases) {
+        this.extension = extension;
         this.aliases = aliases;
     }
 
+    /**
+     * Get the file extension of files of this format, without a dot.
+     *
+     * @return the file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
     /**
      * Get a set of aliases.
      *
@@ -119,6 +205,21 @@ public Set<String> getAliases() {
      */
     public abstract ClipboardReader getReader(InputStream inputStream) throws IOException;
 
+    /**
+     * Create a reader that reads into a clipboard of the given storage.
+     *
+     * <p>Formats that cannot choose the storage of the clipboard ignore
+     * it.</p>
+     *
+     * @param inputStream the input stream
+     * @param storage the storage of the clipboard to read into
+     * @return a reader
+     * @throws IOException thrown on I/O error
+     */
+    public ClipboardReader getReader(InputStream inputStream, ClipboardStorage storage) throws IOException {
+        return getReader(inputStream);
+    }
+
     /**
      * Create a writer.
      *
@@ -128,6 +229,23 @@ public Set<String> getAliases() {
      */
     public abstract ClipboardWriter getWriter(OutputStream outputStream) throws IOException;
 
+    /**
+     * Create a writer that compresses its output with the given level,
+     * possibly using several threads.
+     *
+     * <p>Formats that are not compressed ignore the compression options.</p>
+     *
+     * @param outputStream the output stream
+     * @param compressionLevel the compression level, from 0 to 9, or -1 for the default level
+     * @param executor an executor to compress on, or null to compress on the writing thread
+     * @param parallelism the maximum number of parts to compress at once
+     * @return a writer
+     * @throws IOException thrown on I/O error
+     */
+    public ClipboardWriter getWriter(OutputStream outputStream, int compressionLevel, @Nullable ExecutorService executor, int parallelism) throws IOException {
+        return getWriter(outputStream);
+    }
+
     /**
      * Return whether the given file is of this format.
      *
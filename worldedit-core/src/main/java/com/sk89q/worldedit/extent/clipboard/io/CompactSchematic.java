@@ -0,0 +1,79 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+/**
+ * Constants of the compact schematic format.
+ *
+ * <p>A file starts with a fixed size header:</p>
+ *
+ * <pre>
+ * int   magic ("WECS")
+ * int   version
+ * int   width, height, length
+ * int   minimum point X, Y, Z
+ * int   offset X, Y, Z (the minimum point minus the origin)
+ * long  number of blocks that are not air
+ * int   palette size
+ * long  length of the section data
+ * </pre>
+ *
+ * <p>It is followed by the palette, where every entry is an {@code int} of
+ * the block ID and data value packed as {@code id << 4 | data} and an
+ * {@code int} of the number of blocks of that type, and by the section
+ * index. Every 16x16x16 section of the clipboard, ordered by Y, then Z,
+ * then X, has a {@code long} offset into the section data and an
+ * {@code int} length. A length of 0 means that the section is made of a
+ * single block type, and the offset is then its palette index.</p>
+ *
+ * <p>Each section with data is compressed on its own with a raw deflate
+ * stream, so that a part of the clipboard can be read by skipping the
+ * sections it does not need. It decompresses to a byte with the number of
+ * bytes per block (1 or 2) and the big-endian palette indices of its 4096
+ * blocks, ordered by Y, then Z, then X. Blocks that lie outside the
+ * clipboard are undefined.</p>
+ *
+ * <p>The file ends with a deflate stream of an NBT compound with the
+ * {@code TileEntities} and {@code Entities} lists, stored as they are in
+ * MCEdit schematics.</p>
+ */
+final class CompactSchematic {
+
+    static final int MAGIC = 0x57454353;
+    static final int VERSION = 1;
+    static final int SECTION_SHIFT = 4;
+    static final int SECTION_SIZE = 1 << SECTION_SHIFT;
+    static final int SECTION_VOLUME = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE;
+
+    private CompactSchematic() {
+    }
+
+    /**
+     * Get the number of sections needed to cover the given number of blocks.
+     *
+     * @param blocks the number of blocks along an axis
+     * @return the number of sections
+     */
+    static int sections(int blocks) {
+        return (blocks + SECTION_SIZE - 1) >> SECTION_SHIFT;
+    }
+
+}
@@ -0,0 +1,433 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NamedTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.function.scan.BlockHistogram;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.registry.WorldData;
+import com.sk89q.worldedit.world.storage.NBTConversions;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.sk89q.worldedit.extent.clipboard.io.CompactSchematic.SECTION_SHIFT;
+import static com.sk89q.worldedit.extent.clipboard.io.CompactSchematic.SECTION_SIZE;
+import static com.sk89q.worldedit.extent.clipboard.io.CompactSchematic.SECTION_VOLUME;
+
+/**
+ * Reads clipboards in the compact schematic format.
+ *
+ * <p>The header, palette and section index are read when they are first
+ * needed, so the size, origin and block counts of a schematic can be found
+ * without decompressing any blocks. {@link #read(WorldData, Region)} only
+ * decompresses the sections that intersect the given region and skips
+ * over the others.</p>
+ *
+ * <p>The stream is read from start to end, so only one clipboard can be
+ * read with each reader.</p>
+ *
+ * @see CompactSchematicWriter
+ */
+public class CompactSchematicReader implements ClipboardReader {
+
+    private static final Logger log = Logger.getLogger(CompactSchematicReader.class.getCanonicalName());
+
+    private final CountingInputStream countingStream;
+    private final DataInputStream inputStream;
+    private final ClipboardStorage storage;
+    private boolean headerRead = false;
+    private boolean blocksRead = false;
+    private CuboidRegion region;
+    private Vector origin;
+    private long blockCount;
+    private int[] palette;
+    private int[] counts;
+    private long[] offsets;
+    private int[] lengths;
+    private long dataLength;
+    private long dataStart;
+
+    /**
+     * Create a new instance that reads into a {@link ClipboardStorage#ARRAY}
+     * clipboard.
+     *
+     * @param inputStream the input stream to read from
+     */
+    public CompactSchematicReader(InputStream inputStream) {
+        this(inputStream, ClipboardStorage.ARRAY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param inputStream the input stream to read from
+     * @param storage the storage of the clipboard to read into
+     */
+    public CompactSchematicReader(InputStream inputStream, ClipboardStorage storage) {
+        checkNotNull(inputStream);
+        checkNotNull(storage);
+        this.countingStream = new CountingInputStream(inputStream);
+        this.inputStream = new DataInputStream(countingStream);
+        this.storage = storage;
+    }
+
+    /**
+     * Get the region of the schematic.
+     *
+     * @return the region
+     * @throws IOException thrown on I/O error
+     */
+    public CuboidRegion getRegion() throws IOException {
+        readHeader();
+        return region.clone();
+    }
+
+    /**
+     * Get the origin of the schematic.
+     *
+     * @return the origin
+     * @throws IOException thrown on I/O error
+     */
+    public Vector getOrigin() throws IOException {
+        readHeader();
+        return origin;
+    }
+
+    /**
+     * Get the number of blocks in the schematic that are not air.
+     *
+     * @return the number of blocks
+     * @throws IOException thrown on I/O error
+     */
+    public long getBlockCount() throws IOException {
+        readHeader();
+        return blockCount;
+    }
+
+    /**
+     * Get the number of blocks of every type in the schematic.
+     *
+     * @return a histogram of the blocks
+     * @throws IOException thrown on I/O error
+     */
+    public BlockHistogram getBlockCounts() throws IOException {
+        readHeader();
+        BlockHistogram histogram = new BlockHistogram();
+        for (int i = 0; i < palette.length; i++) {
+            histogram.add(palette[i] >> 4, palette[i] & 0xF, counts[i]);
+        }
+        return histogram;
+    }
+
+    @Override
+    public Clipboard read(WorldData data) throws IOException {
+        readHeader();
+        return read(data, region);
+    }
+
+    /**
+     * Read the part of the schematic that is within the bounding box of the
+     * given region.
+     *
+     * @param data the world data space to convert the blocks to
+     * @param bounds a region in the coordinates of the schematic
+     * @return the read clipboard
+     * @throws IOException thrown on I/O error
+     * @throws IllegalArgumentException thrown if the region does not intersect the schematic
+     */
+    public Clipboard read(WorldData data, Region bounds) throws IOException {
+        checkNotNull(bounds);
+        readHeader();
+        checkState(!blocksRead, "This reader has already read a clipboard");
+        blocksRead = true;
+
+        Vector schematicMin = region.getMinimumPoint();
+        Vector min = Vector.getMaximum(schematicMin, bounds.getMinimumPoint());
+        Vector max = Vector.getMinimum(region.getMaximumPoint(), bounds.getMaximumPoint());
+        checkArgument(min.getBlockX() <= max.getBlockX() && min.getBlockY() <= max.getBlockY() && min.getBlockZ() <= max.getBlockZ(),
+                "The region does not intersect the schematic");
+
+        Clipboard clipboard = storage.create(new CuboidRegion(min, max));
+        clipboard.setOrigin(origin);
+
+        // Work in coordinates relative to the minimum point of the schematic
+        int baseX = schematicMin.getBlockX();
+        int baseY = schematicMin.getBlockY();
+        int baseZ = schematicMin.getBlockZ();
+        int fromX = min.getBlockX() - baseX;
+        int fromY = min.getBlockY() - baseY;
+        int fromZ = min.getBlockZ() - baseZ;
+        int toX = max.getBlockX() - baseX;
+        int toY = max.getBlockY() - baseY;
+        int toZ = max.getBlockZ() - baseZ;
+        int sectionsX = CompactSchematic.sections(region.getWidth());
+        int sectionsZ = CompactSchematic.sections(region.getLength());
+
+        // Clipboards copy the blocks that are set, so one block per type is enough
+        BaseBlock[] blocks = new BaseBlock[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            blocks[i] = new BaseBlock(palette[i] >> 4, palette[i] & 0xF);
+        }
+
+        byte[] compressed = new byte[0];
+        byte[] decoded = new byte[1 + SECTION_VOLUME * 2];
+        Inflater inflater = new Inflater(true);
+        int failedBlockSets = 0;
+
+        try {
+            for (int sy = fromY >> SECTION_SHIFT; sy <= toY >> SECTION_SHIFT; sy++) {
+                for (int sz = fromZ >> SECTION_SHIFT; sz <= toZ >> SECTION_SHIFT; sz++) {
+                    for (int sx = fromX >> SECTION_SHIFT; sx <= toX >> SECTION_SHIFT; sx++) {
+                        int section = (sy * sectionsZ + sz) * sectionsX + sx;
+                        int length = lengths[section];
+                        int bytes = 0;
+
+                        if (length > 0) {
+                            seek(dataStart + offsets[section]);
+                            if (compressed.length < length + 1) {
+                                compressed = new byte[length + 1];
+                            }
+                            inputStream.readFully(compressed, 0, length);
+                            compressed[length] = 0; // Raw inflation may need a trailing byte
+                            inflater.reset();
+                            inflater.setInput(compressed, 0, length + 1);
+                            int size = inflate(inflater, decoded);
+                            bytes = decoded[0];
+                            if ((bytes != 1 && bytes != 2) || size != 1 + SECTION_VOLUME * bytes) {
+                                throw new IOException("Section " + section + " of the schematic is corrupt");
+                            }
+                        } else if (offsets[section] < 0 || offsets[section] >= palette.length) {
+                            throw new IOException("Section " + section + " of the schematic refers to a missing palette entry");
+                        }
+
+                        int startX = Math.max(fromX, sx << SECTION_SHIFT);
+                        int startY = Math.max(fromY, sy << SECTION_SHIFT);
+                        int startZ = Math.max(fromZ, sz << SECTION_SHIFT);
+                        int endX = Math.min(toX, (sx << SECTION_SHIFT) + SECTION_SIZE - 1);
+                        int endY = Math.min(toY, (sy << SECTION_SHIFT) + SECTION_SIZE - 1);
+                        int endZ = Math.min(toZ, (sz << SECTION_SHIFT) + SECTION_SIZE - 1);
+
+                        for (int y = startY; y <= endY; y++) {
+                            for (int z = startZ; z <= endZ; z++) {
+                                for (int x = startX; x <= endX; x++) {
+                                    int index;
+                                    if (bytes == 0) {
+                                        index = (int) offsets[section];
+                                    } else {
+                                        int local = ((y & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+                                        if (bytes == 1) {
+                                            index = decoded[1 + local] & 0xFF;
+                                        } else {
+                                            index = ((decoded[1 + local * 2] & 0xFF) << 8) | (decoded[2 + local * 2] & 0xFF);
+                                        }
+                                    }
+
+                                    if (index >= blocks.length) {
+                                        throw new IOException("Section " + section + " of the schematic refers to a missing palette entry");
+                                    }
+
+                                    try {
+                                        clipboard.setBlock(new Vector(baseX + x, baseY + y, baseZ + z), blocks[index]);
+                                    } catch (WorldEditException e) {
+                                        if (failedBlockSets++ == 0) {
+                                            log.log(Level.WARNING, "Failed to set block on a Clipboard -- no more messages will be logged", e);
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+
+        // ====================================================================
+        // Tile entities and entities
+        // ====================================================================
+
+        seek(dataStart + dataLength);
+        Inflater extrasInflater = new Inflater(true);
+        CompoundTag extras;
+        try {
+            NBTInputStream nbtStream = new NBTInputStream(new InflaterInputStream(inputStream, extrasInflater));
+            NamedTag rootTag = nbtStream.readNamedTag();
+            if (!(rootTag.getTag() instanceof CompoundTag)) {
+                throw new IOException("The tile entities and entities of the schematic are corrupt");
+            }
+            extras = (CompoundTag) rootTag.getTag();
+        } finally {
+            extrasInflater.end();
+        }
+
+        for (Tag tag : extras.getList("TileEntities")) {
+            if (!(tag instanceof CompoundTag)) continue;
+            CompoundTag t = (CompoundTag) tag;
+
+            int x = t.getInt("x");
+            int y = t.getInt("y");
+            int z = t.getInt("z");
+            if (x < fromX || x > toX || y < fromY || y > toY || z < fromZ || z > toZ) {
+                continue;
+            }
+
+            Vector position = new Vector(baseX + x, baseY + y, baseZ + z);
+            BaseBlock block = clipboard.getBlock(position);
+            try {
+                clipboard.setBlock(position, new BaseBlock(block.getId(), block.getData(), new CompoundTag(new HashMap<String, Tag>(t.getValue()))));
+            } catch (WorldEditException e) {
+                log.log(Level.WARNING, "Failed to set a tile entity on a Clipboard", e);
+            }
+        }
+
+        Region clipboardRegion = clipboard.getRegion();
+        for (Tag tag : extras.getList("Entities")) {
+            if (tag instanceof CompoundTag) {
+                CompoundTag compound = (CompoundTag) tag;
+                String id = compound.getString("id");
+                Location location = NBTConversions.toLocation(clipboard, compound.getListTag("Pos"), compound.getListTag("Rotation"));
+
+                if (!id.isEmpty() && clipboardRegion.contains(location.toVector().toBlockPoint())) {
+                    BaseEntity state = new BaseEntity(id, compound);
+                    clipboard.createEntity(location, state);
+                }
+            }
+        }
+
+        return clipboard;
+    }
+
+    /**
+     * Read the header, palette and section index if they have not been
+     * read yet.
+     *
+     * @throws IOException thrown on I/O error
+     */
+    private void readHeader() throws IOException {
+        if (headerRead) {
+            return;
+        }
+
+        if (inputStream.readInt() != CompactSchematic.MAGIC) {
+            throw new IOException("Not a compact schematic");
+        }
+        int version = inputStream.readInt();
+        if (version != CompactSchematic.VERSION) {
+            throw new IOException("Unsupported compact schematic version " + version);
+        }
+
+        int width = inputStream.readInt();
+        int height = inputStream.readInt();
+        int length = inputStream.readInt();
+        if (width <= 0 || height <= 0 || length <= 0) {
+            throw new IOException("The schematic has an invalid size of " + width + "x" + height + "x" + length);
+        }
+        Vector min = new Vector(inputStream.readInt(), inputStream.readInt(), inputStream.readInt());
+        Vector offset = new Vector(inputStream.readInt(), inputStream.readInt(), inputStream.readInt());
+        region = new CuboidRegion(min, min.add(width, height, length).subtract(Vector.ONE));
+        origin = min.subtract(offset);
+        blockCount = inputStream.readLong();
+
+        int paletteSize = inputStream.readInt();
+        if (paletteSize <= 0 || paletteSize > (BaseBlock.MAX_ID + 1) << 4) {
+            throw new IOException("The schematic has an invalid palette size of " + paletteSize);
+        }
+        dataLength = inputStream.readLong();
+
+        palette = new int[paletteSize];
+        counts = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = inputStream.readInt();
+            counts[i] = inputStream.readInt();
+        }
+
+        long sectionCount = (long) CompactSchematic.sections(width) * CompactSchematic.sections(height) * CompactSchematic.sections(length);
+        if (sectionCount > Integer.MAX_VALUE) {
+            throw new IOException("The schematic is too large");
+        }
+        offsets = new long[(int) sectionCount];
+        lengths = new int[(int) sectionCount];
+        for (int i = 0; i < sectionCount; i++) {
+            offsets[i] = inputStream.readLong();
+            lengths[i] = inputStream.readInt();
+        }
+
+        dataStart = countingStream.getCount();
+        headerRead = true;
+    }
+
+    /**
+     * Skip forward to the given position in the stream.
+     *
+     * @param position the position
+     * @throws IOException thrown on I/O error, or if the position has already been passed
+     */
+    private void seek(long position) throws IOException {
+        long skip = position - countingStream.getCount();
+        if (skip < 0) {
+            throw new IOException("The sections of the schematic are out of order");
+        }
+        ByteStreams.skipFully(inputStream, skip);
+    }
+
+    private static int inflate(Inflater inflater, byte[] output) throws IOException {
+        try {
+            int size = 0;
+            while (!inflater.finished() && size < output.length) {
+                int count = inflater.inflate(output, size, output.length - size);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += count;
+            }
+            return size;
+        } catch (DataFormatException e) {
+            throw new IOException("A section of the schematic could not be decompressed", e);
+        }
+    }
+
+}
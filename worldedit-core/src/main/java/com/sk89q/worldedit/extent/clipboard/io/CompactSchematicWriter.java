@@ -0,0 +1,329 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.DoubleTag;
+import com.sk89q.jnbt.FloatTag;
+import com.sk89q.jnbt.IntTag;
+import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.registry.WorldData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.sk89q.worldedit.extent.clipboard.io.CompactSchematic.SECTION_SHIFT;
+import static com.sk89q.worldedit.extent.clipboard.io.CompactSchematic.SECTION_SIZE;
+import static com.sk89q.worldedit.extent.clipboard.io.CompactSchematic.SECTION_VOLUME;
+
+/**
+ * Writes clipboards in the compact schematic format.
+ *
+ * <p>Blocks are read from the clipboard one 16x16x16 section at a time
+ * and compressed straight away. The compressed sections are kept in memory
+ * until the palette is complete, because the palette and the section index
+ * are written before them.</p>
+ *
+ * @see CompactSchematicReader
+ */
+public class CompactSchematicWriter implements ClipboardWriter {
+
+    private final DataOutputStream outputStream;
+    private final int compressionLevel;
+
+    /**
+     * Create a new writer that uses the default compression level.
+     *
+     * @param outputStream the output stream to write to
+     */
+    public CompactSchematicWriter(OutputStream outputStream) {
+        this(outputStream, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Create a new writer.
+     *
+     * @param outputStream the output stream to write to
+     * @param compressionLevel the compression level, from 0 to 9, or -1 for the default level
+     */
+    public CompactSchematicWriter(OutputStream outputStream, int compressionLevel) {
+        checkNotNull(outputStream);
+        this.outputStream = new DataOutputStream(outputStream);
+        this.compressionLevel = compressionLevel;
+        new Deflater(compressionLevel, true).end(); // Check the level
+    }
+
+    @Override
+    public void write(Clipboard clipboard, WorldData data) throws IOException {
+        Region region = clipboard.getRegion();
+        Vector min = region.getMinimumPoint();
+        Vector offset = min.subtract(clipboard.getOrigin());
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int minZ = min.getBlockZ();
+        int width = region.getWidth();
+        int height = region.getHeight();
+        int length = region.getLength();
+        int sectionsX = CompactSchematic.sections(width);
+        int sectionsY = CompactSchematic.sections(height);
+        int sectionsZ = CompactSchematic.sections(length);
+
+        if ((long) width * height * length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Region too large for a compact schematic");
+        }
+
+        // Palette indices are stored plus one so that 0 means unassigned
+        char[] paletteLookup = new char[(BaseBlock.MAX_ID + 1) << 4];
+        int[] palette = new int[16];
+        int[] counts = new int[16];
+        int paletteSize = 0;
+
+        int sectionCount = sectionsX * sectionsY * sectionsZ;
+        long[] offsets = new long[sectionCount];
+        int[] lengths = new int[sectionCount];
+        ByteArrayOutputStream sections = new ByteArrayOutputStream();
+        List<Tag> tileEntities = new ArrayList<Tag>();
+
+        int[] indices = new int[SECTION_VOLUME];
+        byte[] encoded = new byte[1 + SECTION_VOLUME * 2];
+        byte[] buffer = new byte[8192];
+        Deflater deflater = new Deflater(compressionLevel, true);
+
+        try {
+            int section = 0;
+            for (int sy = 0; sy < sectionsY; sy++) {
+                for (int sz = 0; sz < sectionsZ; sz++) {
+                    for (int sx = 0; sx < sectionsX; sx++, section++) {
+                        int baseX = sx << SECTION_SHIFT;
+                        int baseY = sy << SECTION_SHIFT;
+                        int baseZ = sz << SECTION_SHIFT;
+                        int endX = Math.min(SECTION_SIZE, width - baseX);
+                        int endY = Math.min(SECTION_SIZE, height - baseY);
+                        int endZ = Math.min(SECTION_SIZE, length - baseZ);
+                        int first = -1;
+                        int max = 0;
+                        boolean uniform = true;
+
+                        if (endX < SECTION_SIZE || endY < SECTION_SIZE || endZ < SECTION_SIZE) {
+                            Arrays.fill(indices, -1);
+                        }
+
+                        for (int y = 0; y < endY; y++) {
+                            for (int z = 0; z < endZ; z++) {
+                                for (int x = 0; x < endX; x++) {
+                                    int relX = baseX + x;
+                                    int relY = baseY + y;
+                                    int relZ = baseZ + z;
+                                    BaseBlock block = clipboard.getBlock(new Vector(minX + relX, minY + relY, minZ + relZ));
+                                    int packed = ((block.getId() & BaseBlock.MAX_ID) << 4) | (block.getData() & BaseBlock.MAX_DATA);
+
+                                    int index = paletteLookup[packed] - 1;
+                                    if (index < 0) {
+                                        if (paletteSize == palette.length) {
+                                            palette = Arrays.copyOf(palette, paletteSize * 2);
+                                            counts = Arrays.copyOf(counts, paletteSize * 2);
+                                        }
+                                        index = paletteSize++;
+                                        palette[index] = packed;
+                                        paletteLookup[packed] = (char) (index + 1);
+                                    }
+                                    counts[index]++;
+
+                                    indices[(y << 8) | (z << 4) | x] = index;
+                                    if (first == -1) {
+                                        first = index;
+                                    } else if (index != first) {
+                                        uniform = false;
+                                    }
+                                    max = Math.max(max, index);
+
+                                    CompoundTag rawTag = block.getNbtData();
+                                    if (rawTag != null) {
+                                        Map<String, Tag> values = new HashMap<String, Tag>(rawTag.getValue());
+                                        values.put("id", new StringTag(block.getNbtId()));
+                                        values.put("x", new IntTag(relX));
+                                        values.put("y", new IntTag(relY));
+                                        values.put("z", new IntTag(relZ));
+                                        tileEntities.add(new CompoundTag(values));
+                                    }
+                                }
+                            }
+                        }
+
+                        if (uniform) {
+                            offsets[section] = first;
+                            lengths[section] = 0;
+                            continue;
+                        }
+
+                        // Blocks outside of the clipboard take the most compressible value
+                        int bytes = max < 256 ? 1 : 2;
+                        int size = 1 + SECTION_VOLUME * bytes;
+                        encoded[0] = (byte) bytes;
+                        for (int i = 0; i < SECTION_VOLUME; i++) {
+                            int index = indices[i] == -1 ? first : indices[i];
+                            if (bytes == 1) {
+                                encoded[1 + i] = (byte) index;
+                            } else {
+                                encoded[1 + i * 2] = (byte) (index >> 8);
+                                encoded[2 + i * 2] = (byte) index;
+                            }
+                        }
+
+                        offsets[section] = sections.size();
+                        deflater.reset();
+                        deflater.setInput(encoded, 0, size);
+                        deflater.finish();
+                        while (!deflater.finished()) {
+                            int count = deflater.deflate(buffer);
+                            sections.write(buffer, 0, count);
+                        }
+                        lengths[section] = (int) (sections.size() - offsets[section]);
+                    }
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+
+        // ====================================================================
+        // Header, palette and index
+        // ====================================================================
+
+        long nonAir = 0;
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] >> 4 != BlockID.AIR) {
+                nonAir += counts[i];
+            }
+        }
+
+        outputStream.writeInt(CompactSchematic.MAGIC);
+        outputStream.writeInt(CompactSchematic.VERSION);
+        outputStream.writeInt(width);
+        outputStream.writeInt(height);
+        outputStream.writeInt(length);
+        outputStream.writeInt(minX);
+        outputStream.writeInt(minY);
+        outputStream.writeInt(minZ);
+        outputStream.writeInt(offset.getBlockX());
+        outputStream.writeInt(offset.getBlockY());
+        outputStream.writeInt(offset.getBlockZ());
+        outputStream.writeLong(nonAir);
+        outputStream.writeInt(paletteSize);
+        outputStream.writeLong(sections.size());
+
+        for (int i = 0; i < paletteSize; i++) {
+            outputStream.writeInt(palette[i]);
+            outputStream.writeInt(counts[i]);
+        }
+
+        for (int i = 0; i < sectionCount; i++) {
+            outputStream.writeLong(offsets[i]);
+            outputStream.writeInt(lengths[i]);
+        }
+
+        sections.writeTo(outputStream);
+
+        // ====================================================================
+        // Tile entities and entities
+        // ====================================================================
+
+        List<Tag> entities = new ArrayList<Tag>();
+        for (Entity entity : clipboard.getEntities()) {
+            BaseEntity state = entity.getState();
+
+            if (state != null) {
+                Map<String, Tag> values = new HashMap<String, Tag>();
+
+                // Put NBT provided data
+                CompoundTag rawTag = state.getNbtData();
+                if (rawTag != null) {
+                    values.putAll(rawTag.getValue());
+                }
+
+                // Store our location data, overwriting any
+                values.put("id", new StringTag(state.getTypeId()));
+                values.put("Pos", writeVector(entity.getLocation().toVector()));
+                values.put("Rotation", writeRotation(entity.getLocation()));
+
+                entities.add(new CompoundTag(values));
+            }
+        }
+
+        Map<String, Tag> extras = new HashMap<String, Tag>();
+        extras.put("TileEntities", new ListTag(CompoundTag.class, tileEntities));
+        extras.put("Entities", new ListTag(CompoundTag.class, entities));
+
+        Deflater extrasDeflater = new Deflater(compressionLevel, true);
+        try {
+            DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputStream, extrasDeflater);
+            NBTOutputStream nbtStream = new NBTOutputStream(deflaterStream);
+            nbtStream.writeNamedTag("Extras", new CompoundTag(extras));
+            deflaterStream.finish();
+        } finally {
+            extrasDeflater.end();
+        }
+
+        outputStream.flush();
+    }
+
+    private Tag writeVector(Vector vector) {
+        List<DoubleTag> list = new ArrayList<DoubleTag>();
+        list.add(new DoubleTag(vector.getX()));
+        list.add(new DoubleTag(vector.getY()));
+        list.add(new DoubleTag(vector.getZ()));
+        return new ListTag(DoubleTag.class, list);
+    }
+
+    private Tag writeRotation(Location location) {
+        List<FloatTag> list = new ArrayList<FloatTag>();
+        list.add(new FloatTag(location.getYaw()));
+        list.add(new FloatTag(location.getPitch()));
+        return new ListTag(FloatTag.class, list);
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+}
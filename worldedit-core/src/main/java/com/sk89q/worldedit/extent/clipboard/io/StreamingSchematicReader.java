@@ -0,0 +1,364 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.IntTag;
+import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTConstants;
+import com.sk89q.jnbt.NBTStreamReader;
+import com.sk89q.jnbt.NBTStreamReader.Event;
+import com.sk89q.jnbt.NBTUtils;
+import com.sk89q.jnbt.ShortTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.extent.clipboard.io.legacycompat.NBTCompatibilityHandler;
+import com.sk89q.worldedit.extent.clipboard.io.legacycompat.SignCompatibilityHandler;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.registry.WorldData;
+import com.sk89q.worldedit.world.storage.NBTConversions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads schematic files that are compatible with MCEdit and other editors
+ * without loading the whole NBT tree into memory.
+ *
+ * <p>Block IDs and data values are decoded from the stream straight into a
+ * single array of packed values, which is then copied into a clipboard of
+ * the chosen {@link ClipboardStorage}. Only tile entities, entities and the
+ * small metadata tags are read as {@link Tag}s. The tags of the schematic
+ * may appear in any order.</p>
+ */
+public class StreamingSchematicReader implements ClipboardReader {
+
+    private static final List<NBTCompatibilityHandler> COMPATIBILITY_HANDLERS = new ArrayList<>();
+
+    static {
+        COMPATIBILITY_HANDLERS.add(new SignCompatibilityHandler());
+    }
+
+    private static final Logger log = Logger.getLogger(StreamingSchematicReader.class.getCanonicalName());
+    private static final int BUFFER_SIZE = 8192;
+    private final NBTStreamReader reader;
+    private final ClipboardStorage storage;
+
+    /**
+     * Create a new instance that reads into a {@link ClipboardStorage#ARRAY}
+     * clipboard.
+     *
+     * @param reader the NBT stream to read from
+     */
+    public StreamingSchematicReader(NBTStreamReader reader) {
+        this(reader, ClipboardStorage.ARRAY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param reader the NBT stream to read from
+     * @param storage the storage of the clipboard to read into
+     */
+    public StreamingSchematicReader(NBTStreamReader reader, ClipboardStorage storage) {
+        checkNotNull(reader);
+        checkNotNull(storage);
+        this.reader = reader;
+        this.storage = storage;
+    }
+
+    @Override
+    public Clipboard read(WorldData data) throws IOException {
+        // Schematic tag
+        if (reader.next() != Event.START_COMPOUND || !reader.getName().equals("Schematic")) {
+            throw new IOException("Tag 'Schematic' does not exist or is not first");
+        }
+
+        Map<String, Tag> schematic = new HashMap<String, Tag>();
+        char[] blocks = null;
+        boolean hasBlocks = false;
+        boolean hasData = false;
+        byte[] addId = null;
+        List<Tag> tileEntities = null;
+        List<Tag> entities = null;
+
+        Event event;
+        while ((event = reader.next()) != Event.END_COMPOUND) {
+            String name = reader.getName();
+            if (name.equals("Blocks")) {
+                blocks = readBlockArray(blocks, name, true);
+                hasBlocks = true;
+            } else if (name.equals("Data")) {
+                blocks = readBlockArray(blocks, name, false);
+                hasData = true;
+            } else if (name.equals("AddBlocks")) {
+                requireType(name, NBTConstants.TYPE_BYTE_ARRAY);
+                byte[] bytes = new byte[reader.getLength()];
+                int read = 0;
+                int count;
+                while ((count = reader.readBytes(bytes, read, bytes.length - read)) > 0) {
+                    read += count;
+                }
+                addId = bytes;
+            } else if (name.equals("TileEntities")) {
+                requireType(name, NBTConstants.TYPE_LIST);
+                tileEntities = ((ListTag) reader.readTag()).getValue();
+            } else if (name.equals("Entities") && event == Event.START_LIST) {
+                entities = ((ListTag) reader.readTag()).getValue();
+            } else if (event == Event.VALUE) {
+                schematic.put(name, reader.readTag());
+            } else {
+                reader.skip();
+            }
+        }
+
+        if (!hasBlocks) {
+            throw new IOException("Schematic file is missing a 'Blocks' tag");
+        }
+
+        // Check type of Schematic
+        String materials = requireTag(schematic, "Materials", StringTag.class).getValue();
+        if (!materials.equals("Alpha")) {
+            throw new IOException("Schematic file is not an Alpha schematic");
+        }
+
+        if (!hasData) {
+            throw new IOException("Schematic file is missing a \"Data\" tag");
+        }
+        if (tileEntities == null) {
+            throw new IOException("Schematic file is missing a \"TileEntities\" tag");
+        }
+
+        // ====================================================================
+        // Metadata
+        // ====================================================================
+
+        Vector origin;
+        Region region;
+
+        // Get information
+        short width = requireTag(schematic, "Width", ShortTag.class).getValue();
+        short height = requireTag(schematic, "Height", ShortTag.class).getValue();
+        short length = requireTag(schematic, "Length", ShortTag.class).getValue();
+
+        try {
+            int originX = requireTag(schematic, "WEOriginX", IntTag.class).getValue();
+            int originY = requireTag(schematic, "WEOriginY", IntTag.class).getValue();
+            int originZ = requireTag(schematic, "WEOriginZ", IntTag.class).getValue();
+            Vector min = new Vector(originX, originY, originZ);
+
+            int offsetX = requireTag(schematic, "WEOffsetX", IntTag.class).getValue();
+            int offsetY = requireTag(schematic, "WEOffsetY", IntTag.class).getValue();
+            int offsetZ = requireTag(schematic, "WEOffsetZ", IntTag.class).getValue();
+            Vector offset = new Vector(offsetX, offsetY, offsetZ);
+
+            origin = min.subtract(offset);
+            region = new CuboidRegion(min, min.add(width, height, length).subtract(Vector.ONE));
+        } catch (IOException ignored) {
+            origin = new Vector(0, 0, 0);
+            region = new CuboidRegion(origin, origin.add(width, height, length).subtract(Vector.ONE));
+        }
+
+        int volume = width * height * length;
+        if (blocks.length < volume) {
+            throw new IOException("Schematic file has " + blocks.length + " blocks but its size is " + volume);
+        }
+
+        // ====================================================================
+        // Blocks
+        // ====================================================================
+
+        // We support 4096 block IDs using the same method as vanilla Minecraft, where
+        // the highest 4 bits are stored in a separate byte array.
+        if (addId != null) {
+            int end = Math.min(blocks.length, addId.length * 2);
+            for (int index = 0; index < end; index++) {
+                int add = (index & 1) == 0 ? addId[index >> 1] & 0x0F : (addId[index >> 1] & 0xF0) >> 4;
+                blocks[index] |= (char) (add << 12);
+            }
+        }
+
+        // Need to pull out tile entities
+        Map<Integer, CompoundTag> tileEntitiesMap = new HashMap<Integer, CompoundTag>();
+
+        for (Tag tag : tileEntities) {
+            if (!(tag instanceof CompoundTag)) continue;
+            CompoundTag t = (CompoundTag) tag;
+
+            int x = t.getInt("x");
+            int y = t.getInt("y");
+            int z = t.getInt("z");
+            if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= length) {
+                continue;
+            }
+
+            int index = y * width * length + z * width + x;
+            Map<String, Tag> values = new HashMap<String, Tag>(t.getValue());
+            BaseBlock block = new BaseBlock(blocks[index] >> 4, blocks[index] & 0xF);
+            for (NBTCompatibilityHandler handler : COMPATIBILITY_HANDLERS) {
+                if (handler.isAffectedBlock(block)) {
+                    handler.updateNBT(block, values);
+                }
+            }
+
+            tileEntitiesMap.put(index, new CompoundTag(values));
+        }
+
+        Clipboard clipboard = storage.create(region);
+        clipboard.setOrigin(origin);
+
+        // Clipboards copy the blocks that are set, so one block per type is enough
+        BaseBlock[] cache = new BaseBlock[65536];
+        Vector min = region.getMinimumPoint();
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int minZ = min.getBlockZ();
+
+        // Don't log a torrent of errors
+        int failedBlockSets = 0;
+
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                for (int z = 0; z < length; ++z) {
+                    int index = y * width * length + z * width + x;
+                    int packed = blocks[index];
+                    BaseBlock block;
+                    CompoundTag tileEntity = tileEntitiesMap.isEmpty() ? null : tileEntitiesMap.get(index);
+                    if (tileEntity != null) {
+                        block = new BaseBlock(packed >> 4, packed & 0xF, tileEntity);
+                    } else {
+                        block = cache[packed];
+                        if (block == null) {
+                            block = cache[packed] = new BaseBlock(packed >> 4, packed & 0xF);
+                        }
+                    }
+
+                    try {
+                        clipboard.setBlock(new Vector(minX + x, minY + y, minZ + z), block);
+                    } catch (WorldEditException e) {
+                        switch (failedBlockSets) {
+                            case 0:
+                                log.log(Level.WARNING, "Failed to set block on a Clipboard", e);
+                                break;
+                            case 1:
+                                log.log(Level.WARNING, "Failed to set block on a Clipboard (again) -- no more messages will be logged", e);
+                                break;
+                            default:
+                        }
+
+                        failedBlockSets++;
+                    }
+                }
+            }
+        }
+
+        // ====================================================================
+        // Entities
+        // ====================================================================
+
+        if (entities != null) {
+            for (Tag tag : entities) {
+                if (tag instanceof CompoundTag) {
+                    CompoundTag compound = (CompoundTag) tag;
+                    String id = compound.getString("id");
+                    Location location = NBTConversions.toLocation(clipboard, compound.getListTag("Pos"), compound.getListTag("Rotation"));
+
+                    if (!id.isEmpty()) {
+                        BaseEntity state = new BaseEntity(id, compound);
+                        clipboard.createEntity(location, state);
+                    }
+                }
+            }
+        }
+
+        return clipboard;
+    }
+
+    /**
+     * Read the current byte array tag into the ID or data bits of the
+     * packed block array, creating the array if this is the first one.
+     *
+     * @param blocks the packed block array, or null
+     * @param name the name of the tag
+     * @param ids true to read block IDs, false to read data values
+     * @return the packed block array
+     * @throws IOException on I/O error
+     */
+    private char[] readBlockArray(char[] blocks, String name, boolean ids) throws IOException {
+        requireType(name, NBTConstants.TYPE_BYTE_ARRAY);
+        if (blocks == null) {
+            blocks = new char[reader.getLength()];
+        } else if (blocks.length != reader.getLength()) {
+            throw new IOException("The 'Blocks' and 'Data' tags have different lengths");
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int offset = 0;
+        int count;
+        while ((count = reader.readBytes(buffer, 0, buffer.length)) > 0) {
+            if (ids) {
+                for (int i = 0; i < count; i++) {
+                    blocks[offset + i] = (char) ((blocks[offset + i] & 0xF) | ((buffer[i] & 0xFF) << 4));
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    blocks[offset + i] = (char) ((blocks[offset + i] & 0xFFF0) | (buffer[i] & 0xF));
+                }
+            }
+            offset += count;
+        }
+        return blocks;
+    }
+
+    private void requireType(String name, int type) throws IOException {
+        if (reader.getType() != type) {
+            throw new IOException(name + " tag is not of tag type " + NBTUtils.getTypeClass(type).getName());
+        }
+    }
+
+    private static <T extends Tag> T requireTag(Map<String, Tag> items, String key, Class<T> expected) throws IOException {
+        if (!items.containsKey(key)) {
+            throw new IOException("Schematic file is missing a \"" + key + "\" tag");
+        }
+
+        Tag tag = items.get(key);
+        if (!expected.isInstance(tag)) {
+            throw new IOException(key + " tag is not of tag type " + expected.getName());
+        }
+
+        return expected.cast(tag);
+    }
+
+}
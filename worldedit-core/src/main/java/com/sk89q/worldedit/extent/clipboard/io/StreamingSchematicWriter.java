@@ -0,0 +1,229 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.DoubleTag;
+import com.sk89q.jnbt.FloatTag;
+import com.sk89q.jnbt.IntTag;
+import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTConstants;
+import com.sk89q.jnbt.NBTStreamWriter;
+import com.sk89q.jnbt.ShortTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.registry.WorldData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes schematic files that are compatible with MCEdit and other editors
+ * without building the whole NBT tree in memory.
+ *
+ * <p>The block IDs are written one layer at a time as they are read from
+ * the clipboard. Only the data values (and the high bits of block IDs
+ * above 255, if there are any) are kept until the IDs have been written,
+ * along with the tile entities.</p>
+ */
+public class StreamingSchematicWriter implements ClipboardWriter {
+
+    private static final int MAX_SIZE = Short.MAX_VALUE - Short.MIN_VALUE;
+    private final NBTStreamWriter writer;
+
+    /**
+     * Create a new schematic writer.
+     *
+     * @param writer the NBT stream to write to
+     */
+    public StreamingSchematicWriter(NBTStreamWriter writer) {
+        checkNotNull(writer);
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(Clipboard clipboard, WorldData data) throws IOException {
+        Region region = clipboard.getRegion();
+        Vector origin = clipboard.getOrigin();
+        Vector min = region.getMinimumPoint();
+        Vector offset = min.subtract(origin);
+        int width = region.getWidth();
+        int height = region.getHeight();
+        int length = region.getLength();
+
+        if (width > MAX_SIZE) {
+            throw new IllegalArgumentException("Width of region too large for a .schematic");
+        }
+        if (height > MAX_SIZE) {
+            throw new IllegalArgumentException("Height of region too large for a .schematic");
+        }
+        if (length > MAX_SIZE) {
+            throw new IllegalArgumentException("Length of region too large for a .schematic");
+        }
+
+        // ====================================================================
+        // Metadata
+        // ====================================================================
+
+        writer.writeStartCompound("Schematic");
+        writer.writeTag("Width", new ShortTag((short) width));
+        writer.writeTag("Length", new ShortTag((short) length));
+        writer.writeTag("Height", new ShortTag((short) height));
+        writer.writeTag("Materials", new StringTag("Alpha"));
+        writer.writeTag("WEOriginX", new IntTag(min.getBlockX()));
+        writer.writeTag("WEOriginY", new IntTag(min.getBlockY()));
+        writer.writeTag("WEOriginZ", new IntTag(min.getBlockZ()));
+        writer.writeTag("WEOffsetX", new IntTag(offset.getBlockX()));
+        writer.writeTag("WEOffsetY", new IntTag(offset.getBlockY()));
+        writer.writeTag("WEOffsetZ", new IntTag(offset.getBlockZ()));
+
+        // ====================================================================
+        // Block handling
+        // ====================================================================
+
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int minZ = min.getBlockZ();
+        int volume = width * height * length;
+        byte[] layer = new byte[width * length];
+        byte[] addBlocks = null;
+        byte[] blockData = new byte[volume];
+        List<Tag> tileEntities = new ArrayList<Tag>();
+
+        writer.writeStartByteArray("Blocks", volume);
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            for (int z = 0; z < length; z++) {
+                for (int x = 0; x < width; x++, index++) {
+                    BaseBlock block = clipboard.getBlock(new Vector(minX + x, minY + y, minZ + z));
+                    int type = block.getType();
+
+                    // Save 4096 IDs in an AddBlocks section
+                    if (type > 255) {
+                        if (addBlocks == null) { // Lazily create section
+                            addBlocks = new byte[(volume >> 1) + 1];
+                        }
+
+                        addBlocks[index >> 1] = (byte) (((index & 1) == 0) ?
+                                addBlocks[index >> 1] & 0xF0 | (type >> 8) & 0xF
+                                : addBlocks[index >> 1] & 0xF | ((type >> 8) & 0xF) << 4);
+                    }
+
+                    layer[z * width + x] = (byte) type;
+                    blockData[index] = (byte) block.getData();
+
+                    // Store TileEntity data
+                    CompoundTag rawTag = block.getNbtData();
+                    if (rawTag != null) {
+                        Map<String, Tag> values = new HashMap<String, Tag>(rawTag.getValue());
+                        values.put("id", new StringTag(block.getNbtId()));
+                        values.put("x", new IntTag(x));
+                        values.put("y", new IntTag(y));
+                        values.put("z", new IntTag(z));
+                        tileEntities.add(new CompoundTag(values));
+                    }
+                }
+            }
+            writer.writeBytes(layer, 0, layer.length);
+        }
+
+        writer.writeStartByteArray("Data", volume);
+        writer.writeBytes(blockData, 0, volume);
+
+        if (addBlocks != null) {
+            writer.writeStartByteArray("AddBlocks", addBlocks.length);
+            writer.writeBytes(addBlocks, 0, addBlocks.length);
+        }
+
+        writer.writeStartList("TileEntities", NBTConstants.TYPE_COMPOUND, tileEntities.size());
+        for (Tag tag : tileEntities) {
+            writer.writeTag(null, tag);
+        }
+        writer.writeEndList();
+
+        // ====================================================================
+        // Entities
+        // ====================================================================
+
+        List<Tag> entities = new ArrayList<Tag>();
+        for (Entity entity : clipboard.getEntities()) {
+            BaseEntity state = entity.getState();
+
+            if (state != null) {
+                Map<String, Tag> values = new HashMap<String, Tag>();
+
+                // Put NBT provided data
+                CompoundTag rawTag = state.getNbtData();
+                if (rawTag != null) {
+                    values.putAll(rawTag.getValue());
+                }
+
+                // Store our location data, overwriting any
+                values.put("id", new StringTag(state.getTypeId()));
+                values.put("Pos", writeVector(entity.getLocation().toVector()));
+                values.put("Rotation", writeRotation(entity.getLocation()));
+
+                entities.add(new CompoundTag(values));
+            }
+        }
+
+        writer.writeStartList("Entities", NBTConstants.TYPE_COMPOUND, entities.size());
+        for (Tag tag : entities) {
+            writer.writeTag(null, tag);
+        }
+        writer.writeEndList();
+
+        writer.writeEndCompound();
+        writer.flush();
+    }
+
+    private Tag writeVector(Vector vector) {
+        List<DoubleTag> list = new ArrayList<DoubleTag>();
+        list.add(new DoubleTag(vector.getX()));
+        list.add(new DoubleTag(vector.getY()));
+        list.add(new DoubleTag(vector.getZ()));
+        return new ListTag(DoubleTag.class, list);
+    }
+
+    private Tag writeRotation(Location location) {
+        List<FloatTag> list = new ArrayList<FloatTag>();
+        list.add(new FloatTag(location.getYaw()));
+        list.add(new FloatTag(location.getPitch()));
+        return new ListTag(FloatTag.class, list);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+}
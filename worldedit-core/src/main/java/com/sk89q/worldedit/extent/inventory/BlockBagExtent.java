@@ -23,7 +23,9 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 
 import javax.annotation.Nullable;
 import java.util.HashMap;
@@ -32,7 +34,7 @@
 /**
  * Applies a {@link BlockBag} to operations.
  */
-public class BlockBagExtent extends AbstractDelegateExtent {
+public class BlockBagExtent extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private Map<Integer, Integer> missingBlocks = new HashMap<Integer, Integer>();
     private BlockBag blockBag;
@@ -110,4 +112,12 @@ public boolean setBlock(Vector position, BaseBlock block) throws WorldEditExcept
 
         return super.setBlock(position, block);
     }
+
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        if (blockBag != null) {
+            return Extents.setEach(this, min, max, block);
+        }
+        return Extents.fillCuboid(getExtent(), min, max, block);
+    }
 }
@@ -28,7 +28,9 @@
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 import com.sk89q.worldedit.function.operation.BlockMapEntryPlacer;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.OperationQueue;
@@ -40,7 +42,7 @@
 /**
  * Re-orders blocks into several stages.
  */
-public class MultiStageReorder extends AbstractDelegateExtent implements ReorderingExtent {
+public class MultiStageReorder extends AbstractDelegateExtent implements ReorderingExtent, BulkOutputExtent {
 
     private TupleArrayList<BlockVector, BaseBlock> stage1 = new TupleArrayList<BlockVector, BaseBlock>();
     private TupleArrayList<BlockVector, BaseBlock> stage2 = new TupleArrayList<BlockVector, BaseBlock>();
@@ -111,13 +113,81 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
     }
 
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        if (!enabled) {
+            return Extents.fillCuboid(getExtent(), min, max, block);
+        }
+
+        if (BlockType.shouldPlaceLast(block.getType()) || BlockType.shouldPlaceFinal(block.getType())
+                || containsPlaceLast(min, max)) {
+            // Torches, etc. within the fill have to be replaced with air first
+            return Extents.setEach(this, min, max, block);
+        }
+
+        // Blocks are placed in the first stage anyway, so the fill can be
+        // passed on right away once earlier changes within it are dropped
+        stage1 = removeWithin(stage1, min, max);
+        stage2 = removeWithin(stage2, min, max);
+        stage3 = removeWithin(stage3, min, max);
+        return Extents.fillCuboid(getExtent(), min, max, block);
+    }
+
+    private boolean containsPlaceLast(Vector min, Vector max) {
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    if (BlockType.shouldPlaceLast(getLazyBlock(new Vector(x, y, z)).getType())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static TupleArrayList<BlockVector, BaseBlock> removeWithin(TupleArrayList<BlockVector, BaseBlock> stage, Vector min, Vector max) {
+        if (stage.isEmpty()) {
+            return stage;
+        }
+        TupleArrayList<BlockVector, BaseBlock> remaining = new TupleArrayList<BlockVector, BaseBlock>();
+        for (Map.Entry<BlockVector, BaseBlock> entry : stage) {
+            if (!entry.getKey().containedWithin(min, max)) {
+                remaining.add(entry);
+            }
+        }
+        return remaining;
+    }
+
     @Override
     public Operation commitBefore() {
-        return new OperationQueue(
-                new BlockMapEntryPlacer(
-                        getExtent(),
-                        Iterators.concat(stage1.iterator(), stage2.iterator())),
-                new Stage3Committer());
+        return new StageCommitter();
+    }
+
+    /**
+     * Places the queued blocks of every stage, waiting until the operation
+     * is first run so that blocks queued in the meantime are included.
+     */
+    private class StageCommitter implements Operation {
+
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            return new OperationQueue(
+                    new BlockMapEntryPlacer(
+                            getExtent(),
+                            Iterators.concat(stage1.iterator(), stage2.iterator()),
+                            stage1.size() + stage2.size()),
+                    new Stage3Committer());
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public void addStatusMessages(List<String> messages) {
+        }
+
     }
 
     private class Stage3Committer implements Operation {
@@ -24,7 +24,9 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -32,7 +34,7 @@
  * Limits the number of blocks that can be changed before a
  * {@link MaxChangedBlocksException} is thrown.
  */
-public class BlockChangeLimiter extends AbstractDelegateExtent {
+public class BlockChangeLimiter extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private int limit;
     private int count = 0;
@@ -86,4 +88,17 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
         return super.setBlock(location, block);
     }
+
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        if (limit >= 0) {
+            long volume = Extents.getVolume(min, max);
+            if (count + volume > limit) {
+                // Let the limit be reached at the same block as it would otherwise
+                return Extents.setEach(this, min, max, block);
+            }
+            count += (int) volume;
+        }
+        return Extents.fillCuboid(getExtent(), min, max, block);
+    }
 }
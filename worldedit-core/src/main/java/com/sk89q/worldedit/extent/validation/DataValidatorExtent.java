@@ -23,7 +23,9 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 import com.sk89q.worldedit.world.World;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -31,7 +33,7 @@
 /**
  * Validates set data to prevent creating invalid blocks and such.
  */
-public class DataValidatorExtent extends AbstractDelegateExtent {
+public class DataValidatorExtent extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private final World world;
 
@@ -67,6 +69,26 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return super.setBlock(location, block);
     }
 
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        int minY = Math.max(0, min.getBlockY());
+        int maxY = Math.min(world.getMaxY(), max.getBlockY());
+        if (minY > maxY) {
+            return 0;
+        }
+
+        // No invalid blocks
+        if (!world.isValidBlockType(block.getType())) {
+            return 0;
+        }
+
+        if (block.getData() < 0) {
+            throw new SevereValidationException("Cannot set a data value that is less than 0");
+        }
+
+        return Extents.fillCuboid(getExtent(), min.setY(minY), max.setY(maxY), block);
+    }
+
     private static class SevereValidationException extends WorldEditException {
         private SevereValidationException(String message) {
             super(message);
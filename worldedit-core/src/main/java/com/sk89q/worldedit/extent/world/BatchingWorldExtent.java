@@ -0,0 +1,324 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockType;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
+import com.sk89q.worldedit.extent.Extents;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.world.ChunkBatch;
+import com.sk89q.worldedit.world.World;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Groups block changes by chunk and submits each chunk's changes to the
+ * world at once using {@link com.sk89q.worldedit.world.AbstractWorld#setBlocks(ChunkBatch, boolean)}.
+ *
+ * <p>Pending changes are submitted when too many have accumulated and when
+ * the extent is committed. Blocks that must be placed after their
+ * surroundings, such as torches and signs, cause pending changes to be
+ * submitted first and are then passed through immediately, so the ordering
+ * of {@link com.sk89q.worldedit.extent.reorder.MultiStageReorder} is
+ * preserved.</p>
+ *
+ * <p>As the world is only written to later, {@link #setBlock(Vector, BaseBlock)}
+ * reports a change whenever the block differs from the current or pending
+ * block at the position. {@link #fillCuboid(Vector, Vector, BaseBlock)}
+ * submits its changes right away and reports the number of blocks that the
+ * world changed.</p>
+ */
+public class BatchingWorldExtent extends AbstractDelegateExtent implements BulkOutputExtent {
+
+    /**
+     * The default number of pending changes after which they are submitted.
+     */
+    public static final int DEFAULT_MAX_PENDING = 65536;
+
+    private final FastModeExtent extent;
+    private final Map<Long, ChunkBatch> batches = new LinkedHashMap<Long, ChunkBatch>();
+    private ChunkBatch lastBatch;
+    private int pending = 0;
+    private int maxPending = DEFAULT_MAX_PENDING;
+    private boolean enabled;
+    private long blocksWritten = 0;
+    private long writeNanos = 0;
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent that writes to the world
+     * @param enabled true to enable batching
+     */
+    public BatchingWorldExtent(FastModeExtent extent, boolean enabled) {
+        super(extent);
+        this.extent = extent;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Create a new instance with batching enabled.
+     *
+     * @param extent the extent that writes to the world
+     */
+    public BatchingWorldExtent(FastModeExtent extent) {
+        this(extent, true);
+    }
+
+    /**
+     * Return whether batching is enabled.
+     *
+     * @return true if batching is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set whether batching is enabled. Disabling batching does not submit
+     * changes that are already pending.
+     *
+     * @param enabled true to enable batching
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get the number of pending changes after which they are submitted.
+     *
+     * @return the maximum number of pending changes
+     */
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * Set the number of pending changes after which they are submitted.
+     *
+     * @param maxPending the maximum number of pending changes, greater than 0
+     */
+    public void setMaxPending(int maxPending) {
+        checkArgument(maxPending > 0, "maxPending > 0 required");
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Get the number of changes that have not yet been submitted.
+     *
+     * @return the number of pending changes
+     */
+    public int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Get the number of blocks that have been submitted to the world.
+     *
+     * @return the number of blocks
+     */
+    public long getBlocksWritten() {
+        return blocksWritten;
+    }
+
+    /**
+     * Get the time spent submitting blocks to the world, in nanoseconds.
+     *
+     * @return the time spent
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * Get the rate at which blocks were submitted to the world.
+     *
+     * @return the number of blocks per second, or 0 if nothing was written
+     */
+    public double getBlocksPerSecond() {
+        return writeNanos > 0 ? blocksWritten / (writeNanos / 1e9) : 0;
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        BaseBlock block = getPending(position);
+        return block != null ? new BaseBlock(block) : super.getBlock(position);
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        BaseBlock block = getPending(position);
+        return block != null ? block : super.getLazyBlock(position);
+    }
+
+    @Override
+    public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+        if (!enabled) {
+            return super.setBlock(location, block);
+        }
+
+        int type = block.getType();
+        if (BlockType.shouldPlaceLast(type) || BlockType.shouldPlaceFinal(type)) {
+            flush();
+            return super.setBlock(location, block);
+        }
+
+        // The world does not report setting a block to itself as a change
+        BaseBlock existing = getLazyBlock(location);
+        if (!block.hasNbtData() && existing.getType() == type && existing.getData() == block.getData()) {
+            return false;
+        }
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        ChunkBatch batch = getBatch(x >> 4, z >> 4, true);
+        int size = batch.size();
+        batch.set(x, y, z, block);
+        pending += batch.size() - size;
+
+        if (pending >= maxPending) {
+            flush();
+        }
+
+        return true;
+    }
+
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        int type = block.getType();
+        if (!enabled || BlockType.shouldPlaceLast(type) || BlockType.shouldPlaceFinal(type)) {
+            return Extents.setEach(this, min, max, block);
+        }
+
+        // Submit earlier changes first, so that only this fill is counted below
+        flush();
+        int changed = 0;
+        for (int chunkX = min.getBlockX() >> 4; chunkX <= max.getBlockX() >> 4; chunkX++) {
+            for (int chunkZ = min.getBlockZ() >> 4; chunkZ <= max.getBlockZ() >> 4; chunkZ++) {
+                int minX = Math.max(min.getBlockX(), chunkX << 4);
+                int maxX = Math.min(max.getBlockX(), (chunkX << 4) | 0xF);
+                int minZ = Math.max(min.getBlockZ(), chunkZ << 4);
+                int maxZ = Math.min(max.getBlockZ(), (chunkZ << 4) | 0xF);
+                ChunkBatch batch = getBatch(chunkX, chunkZ, true);
+                int size = batch.size();
+                for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        for (int x = minX; x <= maxX; x++) {
+                            batch.set(x, y, z, block);
+                        }
+                    }
+                }
+                pending += batch.size() - size;
+
+                if (pending >= maxPending) {
+                    changed += flush();
+                }
+            }
+        }
+
+        return changed + flush();
+    }
+
+    /**
+     * Submit all pending changes to the world.
+     *
+     * @return the number of blocks that the world reported as changed
+     * @throws WorldEditException thrown on an error
+     */
+    public int flush() throws WorldEditException {
+        if (pending == 0) {
+            return 0;
+        }
+
+        int changed = 0;
+        long start = System.nanoTime();
+        try {
+            for (ChunkBatch batch : batches.values()) {
+                changed += extent.setBlocks(batch);
+                blocksWritten += batch.size();
+            }
+        } finally {
+            batches.clear();
+            lastBatch = null;
+            pending = 0;
+            writeNanos += System.nanoTime() - start;
+        }
+        return changed;
+    }
+
+    private BaseBlock getPending(Vector position) {
+        if (pending == 0) {
+            return null;
+        }
+        int x = position.getBlockX();
+        int z = position.getBlockZ();
+        ChunkBatch batch = getBatch(x >> 4, z >> 4, false);
+        return batch != null ? batch.get(x, position.getBlockY(), z) : null;
+    }
+
+    private ChunkBatch getBatch(int chunkX, int chunkZ, boolean create) {
+        ChunkBatch batch = lastBatch;
+        if (batch != null && batch.getChunkX() == chunkX && batch.getChunkZ() == chunkZ) {
+            return batch;
+        }
+
+        Long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+        batch = batches.get(key);
+        if (batch == null) {
+            if (!create) {
+                return null;
+            }
+            batch = new ChunkBatch(chunkX, chunkZ);
+            batches.put(key, batch);
+        }
+        lastBatch = batch;
+        return batch;
+    }
+
+    @Override
+    protected Operation commitBefore() {
+        return new Operation() {
+            @Override
+            public Operation resume(RunContext run) throws WorldEditException {
+                flush();
+                return null;
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public void addStatusMessages(List<String> messages) {
+            }
+        };
+    }
+
+}
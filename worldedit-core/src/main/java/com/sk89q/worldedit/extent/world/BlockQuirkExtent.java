@@ -19,13 +19,16 @@
 
 package com.sk89q.worldedit.extent.world;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 import com.sk89q.worldedit.world.World;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -34,7 +37,7 @@
  * Handles various quirks when setting blocks, such as ice turning
  * into water or containers dropping their contents.
  */
-public class BlockQuirkExtent extends AbstractDelegateExtent {
+public class BlockQuirkExtent extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private final World world;
 
@@ -64,4 +67,24 @@ public boolean setBlock(Vector position, BaseBlock block) throws WorldEditExcept
         return super.setBlock(position, block);
     }
 
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    Vector position = new BlockVector(x, y, z);
+                    int existing = getExtent().getLazyBlock(position).getType();
+
+                    if (BlockType.isContainerBlock(existing)) {
+                        world.clearContainerBlockContents(position);
+                    } else if (existing == BlockID.ICE) {
+                        world.setBlock(position, new BaseBlock(BlockID.AIR));
+                    }
+                }
+            }
+        }
+
+        return Extents.fillCuboid(getExtent(), min, max, block);
+    }
+
 }
@@ -19,11 +19,14 @@
 
 package com.sk89q.worldedit.extent.world;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 import com.sk89q.worldedit.world.World;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -31,7 +34,7 @@
 /**
  * Automatically loads chunks when blocks are accessed.
  */
-public class ChunkLoadingExtent extends AbstractDelegateExtent {
+public class ChunkLoadingExtent extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private final World world;
     private boolean enabled;
@@ -65,4 +68,14 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         world.checkLoadedChunk(location);
         return super.setBlock(location, block);
     }
+
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        for (int chunkX = min.getBlockX() >> 4; chunkX <= max.getBlockX() >> 4; chunkX++) {
+            for (int chunkZ = min.getBlockZ() >> 4; chunkZ <= max.getBlockZ() >> 4; chunkZ++) {
+                world.checkLoadedChunk(new BlockVector(chunkX << 4, min.getBlockY(), chunkZ << 4));
+            }
+        }
+        return Extents.fillCuboid(getExtent(), min, max, block);
+    }
 }
@@ -26,6 +26,8 @@
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.ChunkBatch;
 import com.sk89q.worldedit.world.World;
 
 import java.util.HashSet;
@@ -93,6 +95,36 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
     }
 
+    /**
+     * Set all the blocks in the given batch.
+     *
+     * <p>If the world is an {@link AbstractWorld}, the whole batch is passed
+     * to it at once. Otherwise, the blocks are set one at a time.</p>
+     *
+     * @param batch the batch of changes
+     * @return the number of blocks that were set
+     * @throws WorldEditException thrown on an error
+     * @see AbstractWorld#setBlocks(ChunkBatch, boolean)
+     */
+    public int setBlocks(ChunkBatch batch) throws WorldEditException {
+        if (enabled) {
+            dirtyChunks.add(batch.getChunkPosition());
+        }
+        boolean notifyAndLight = !enabled;
+
+        if (world instanceof AbstractWorld) {
+            return ((AbstractWorld) world).setBlocks(batch, notifyAndLight);
+        }
+
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (world.setBlock(new Vector(batch.getX(i), batch.getY(i), batch.getZ(i)), batch.getBlock(i), notifyAndLight)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     @Override
     protected Operation commitBefore() {
         return new Operation() {
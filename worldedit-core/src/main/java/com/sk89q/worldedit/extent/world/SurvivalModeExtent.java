@@ -24,7 +24,9 @@
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
 import com.sk89q.worldedit.world.World;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -37,7 +39,7 @@
  * in the constructor. For that reason, if you wish to "catch" changes, you
  * should catch them before the changes reach this extent.</p>
  */
-public class SurvivalModeExtent extends AbstractDelegateExtent {
+public class SurvivalModeExtent extends AbstractDelegateExtent implements BulkOutputExtent {
 
     private final World world;
     private boolean toolUse = false;
@@ -89,4 +91,13 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
     }
 
+    @Override
+    public int fillCuboid(Vector min, Vector max, BaseBlock block) throws WorldEditException {
+        if (toolUse && block.getType() == BlockID.AIR) {
+            return Extents.setEach(this, min, max, block);
+        } else {
+            return Extents.fillCuboid(getExtent(), min, max, block);
+        }
+    }
+
 }
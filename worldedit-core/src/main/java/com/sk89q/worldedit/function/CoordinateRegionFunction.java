@@ -0,0 +1,44 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.function;
+
+import com.sk89q.worldedit.WorldEditException;
+
+/**
+ * A {@link RegionFunction} that can also be applied to a position given as
+ * block coordinates, without creating a vector.
+ *
+ * <p>Visitors call {@link #apply(int, int, int)} instead of
+ * {@link #apply(com.sk89q.worldedit.Vector)} on functions that implement
+ * this interface.</p>
+ */
+public interface CoordinateRegionFunction extends RegionFunction {
+
+    /**
+     * Apply the function to the given position.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if something was changed
+     * @throws WorldEditException thrown on an error
+     */
+    boolean apply(int x, int y, int z) throws WorldEditException;
+
+}
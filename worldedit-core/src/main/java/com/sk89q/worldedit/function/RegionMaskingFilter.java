@@ -19,9 +19,11 @@
 
 package com.sk89q.worldedit.function;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -30,7 +32,7 @@
  * delegate {@link com.sk89q.worldedit.function.RegionFunction} if they
  * match the given mask.
  */
-public class RegionMaskingFilter implements RegionFunction {
+public class RegionMaskingFilter implements CoordinateRegionFunction {
 
     private final RegionFunction function;
     private Mask mask;
@@ -53,4 +55,16 @@ public boolean apply(Vector position) throws WorldEditException {
         return mask.test(position) && function.apply(position);
     }
 
+    @Override
+    public boolean apply(int x, int y, int z) throws WorldEditException {
+        if (!Masks.test(mask, x, y, z)) {
+            return false;
+        }
+        if (function instanceof CoordinateRegionFunction) {
+            return ((CoordinateRegionFunction) function).apply(x, y, z);
+        } else {
+            return function.apply(new BlockVector(x, y, z));
+        }
+    }
+
 }
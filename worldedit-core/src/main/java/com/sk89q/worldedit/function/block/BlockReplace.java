@@ -48,6 +48,24 @@ public BlockReplace(Extent extent, Pattern pattern) {
         this.pattern = pattern;
     }
 
+    /**
+     * Get the extent that blocks are set on.
+     *
+     * @return the extent
+     */
+    public Extent getExtent() {
+        return extent;
+    }
+
+    /**
+     * Get the pattern that provides the replacement blocks.
+     *
+     * @return the pattern
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
     @Override
     public boolean apply(Vector position) throws WorldEditException {
         return extent.setBlock(position, pattern.apply(position));
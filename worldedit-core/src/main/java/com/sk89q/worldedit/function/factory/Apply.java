@@ -22,8 +22,12 @@
 import com.sk89q.worldedit.function.Contextual;
 import com.sk89q.worldedit.function.EditContext;
 import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.block.BlockReplace;
+import com.sk89q.worldedit.function.operation.CuboidFill;
 import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.pattern.BlockPattern;
 import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.NullRegion;
 import com.sk89q.worldedit.regions.Region;
 
@@ -48,7 +52,18 @@ public Apply(Region region, Contextual<? extends RegionFunction> function) {
 
     @Override
     public Operation createFromContext(EditContext context) {
-        return new RegionVisitor(firstNonNull(context.getRegion(), region), function.createFromContext(context));
+        Region region = firstNonNull(context.getRegion(), this.region);
+        RegionFunction function = this.function.createFromContext(context);
+
+        // Filling a cuboid with one block can be done in bulk
+        if (region instanceof CuboidRegion && function.getClass() == BlockReplace.class) {
+            BlockReplace replace = (BlockReplace) function;
+            if (replace.getPattern() instanceof BlockPattern) {
+                return new CuboidFill(replace.getExtent(), (CuboidRegion) region, ((BlockPattern) replace.getPattern()).getBlock());
+            }
+        }
+
+        return new RegionVisitor(region, function);
     }
 
     @Override
@@ -26,6 +26,7 @@
 import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -37,10 +38,15 @@
  *
  * <p>This mask checks for both an exact block ID and data value match, as well
  * for a block with the same ID but a data value of -1.</p>
+ *
+ * <p>The list is compiled into a bitset with one bit for every combination
+ * of block ID and data value, which is tested against the lazy block at
+ * each position.</p>
  */
 public class BlockMask extends AbstractExtentMask {
 
     private final Set<BaseBlock> blocks = new HashSet<BaseBlock>();
+    private final long[] bits = new long[(BaseBlock.MAX_ID + 1) * 16 / 64];
 
     /**
      * Create a new block mask.
@@ -50,8 +56,7 @@ public class BlockMask extends AbstractExtentMask {
      */
     public BlockMask(Extent extent, Collection<BaseBlock> blocks) {
         super(extent);
-        checkNotNull(blocks);
-        this.blocks.addAll(blocks);
+        add(blocks);
     }
 
     /**
@@ -71,7 +76,16 @@ public BlockMask(Extent extent, BaseBlock... block) {
      */
     public void add(Collection<BaseBlock> blocks) {
         checkNotNull(blocks);
-        this.blocks.addAll(blocks);
+        for (BaseBlock block : blocks) {
+            this.blocks.add(block);
+            int index = block.getId() << 4;
+            if (block.getData() < 0) {
+                bits[index >> 6] |= 0xFFFFL << (index & 63);
+            } else {
+                index |= block.getData() & 0xF;
+                bits[index >> 6] |= 1L << (index & 63);
+            }
+        }
     }
 
     /**
@@ -89,13 +103,28 @@ public void add(BaseBlock... block) {
      * @return a list of blocks
      */
     public Collection<BaseBlock> getBlocks() {
-        return blocks;
+        return Collections.unmodifiableSet(blocks);
+    }
+
+    /**
+     * Test whether the given block ID and data value are matched.
+     *
+     * @param id the block ID
+     * @param data the data value
+     * @return true if matched
+     */
+    public boolean matches(int id, int data) {
+        if (id < 0 || id > BaseBlock.MAX_ID) {
+            return false;
+        }
+        int index = (id << 4) | (data & 0xF);
+        return (bits[index >> 6] & (1L << (index & 63))) != 0;
     }
 
     @Override
     public boolean test(Vector vector) {
-        BaseBlock block = getExtent().getBlock(vector);
-        return blocks.contains(block) || blocks.contains(new BaseBlock(block.getType(), -1));
+        BaseBlock block = getExtent().getLazyBlock(vector);
+        return matches(block.getType(), block.getData());
     }
 
     @Nullable
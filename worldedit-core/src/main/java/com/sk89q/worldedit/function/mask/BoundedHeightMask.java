@@ -29,7 +29,7 @@
  * Has the criteria where the Y value of passed positions must be within
  * a certain range of Y values (inclusive).
  */
-public class BoundedHeightMask extends AbstractMask {
+public class BoundedHeightMask extends AbstractMask implements CoordinateMask {
 
     private final int minY;
     private final int maxY;
@@ -51,6 +51,11 @@ public boolean test(Vector vector) {
         return vector.getY() >= minY && vector.getY() <= maxY;
     }
 
+    @Override
+    public boolean test(int x, int y, int z) {
+        return y >= minY && y <= maxY;
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
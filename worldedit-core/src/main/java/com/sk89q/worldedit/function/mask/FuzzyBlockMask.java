@@ -19,9 +19,7 @@
 
 package com.sk89q.worldedit.function.mask;
 
-import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
-import com.sk89q.worldedit.blocks.Blocks;
 import com.sk89q.worldedit.extent.Extent;
 
 import java.util.Collection;
@@ -35,13 +33,4 @@ public FuzzyBlockMask(Extent extent, Collection<BaseBlock> blocks) {
     public FuzzyBlockMask(Extent extent, BaseBlock... block) {
         super(extent, block);
     }
-
-    @Override
-    public boolean test(Vector vector) {
-        Extent extent = getExtent();
-        Collection<BaseBlock> blocks = getBlocks();
-        BaseBlock lazyBlock = extent.getLazyBlock(vector);
-        BaseBlock compare = new BaseBlock(lazyBlock.getType(), lazyBlock.getData());
-        return Blocks.containsFuzzy(blocks, compare);
-    }
 }
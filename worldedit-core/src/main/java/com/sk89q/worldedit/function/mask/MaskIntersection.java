@@ -19,12 +19,15 @@
 
 package com.sk89q.worldedit.function.mask;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -35,10 +38,22 @@
  * Combines several masks and requires that all masks return true
  * when a certain position is tested. It serves as a logical AND operation
  * on a list of masks.
+ *
+ * <p>Masks of the same kind that are added are flattened into this one, and
+ * masks are tested in order of their estimated cost so that cheap masks
+ * can rule out a position before expensive ones are consulted.</p>
  */
-public class MaskIntersection extends AbstractMask {
+public class MaskIntersection extends AbstractMask implements CoordinateMask {
+
+    private static final Comparator<Mask> COST_ORDER = new Comparator<Mask>() {
+        @Override
+        public int compare(Mask o1, Mask o2) {
+            return Integer.compare(Masks.getCost(o1), Masks.getCost(o2));
+        }
+    };
 
     private final Set<Mask> masks = new HashSet<Mask>();
+    private volatile Mask[] ordered;
 
     /**
      * Create a new intersection.
@@ -46,8 +61,7 @@ public class MaskIntersection extends AbstractMask {
      * @param masks a list of masks
      */
     public MaskIntersection(Collection<Mask> masks) {
-        checkNotNull(masks);
-        this.masks.addAll(masks);
+        add(masks);
     }
 
     /**
@@ -66,7 +80,14 @@ public MaskIntersection(Mask... mask) {
      */
     public void add(Collection<Mask> masks) {
         checkNotNull(masks);
-        this.masks.addAll(masks);
+        for (Mask mask : masks) {
+            if (mask.getClass() == getClass()) {
+                this.masks.addAll(((MaskIntersection) mask).getMasks());
+            } else {
+                this.masks.add(mask);
+            }
+        }
+        ordered = null;
     }
 
     /**
@@ -84,12 +105,28 @@ public void add(Mask... mask) {
      * @return the masks
      */
     public Collection<Mask> getMasks() {
-        return masks;
+        return Collections.unmodifiableSet(masks);
+    }
+
+    /**
+     * Get the masks ordered from the cheapest to the most expensive to test.
+     *
+     * @return an array of masks that must not be modified
+     */
+    protected Mask[] getOrderedMasks() {
+        Mask[] ordered = this.ordered;
+        if (ordered == null) {
+            ordered = masks.toArray(new Mask[masks.size()]);
+            Arrays.sort(ordered, COST_ORDER);
+            this.ordered = ordered;
+        }
+        return ordered;
     }
 
     @Override
     public boolean test(Vector vector) {
-        if (masks.isEmpty()) {
+        Mask[] masks = getOrderedMasks();
+        if (masks.length == 0) {
             return false;
         }
 
@@ -102,6 +139,32 @@ public boolean test(Vector vector) {
         return true;
     }
 
+    @Override
+    public boolean test(int x, int y, int z) {
+        Mask[] masks = getOrderedMasks();
+        if (masks.length == 0) {
+            return false;
+        }
+
+        Vector vector = null;
+        for (Mask mask : masks) {
+            boolean result;
+            if (mask instanceof CoordinateMask) {
+                result = ((CoordinateMask) mask).test(x, y, z);
+            } else {
+                if (vector == null) {
+                    vector = new BlockVector(x, y, z);
+                }
+                result = mask.test(vector);
+            }
+            if (!result) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
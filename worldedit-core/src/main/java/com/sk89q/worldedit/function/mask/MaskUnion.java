@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.function.mask;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 
 import javax.annotation.Nullable;
@@ -53,9 +54,7 @@ public MaskUnion(Mask... mask) {
 
     @Override
     public boolean test(Vector vector) {
-        Collection<Mask> masks = getMasks();
-
-        for (Mask mask : masks) {
+        for (Mask mask : getOrderedMasks()) {
             if (mask.test(vector)) {
                 return true;
             }
@@ -64,6 +63,27 @@ public boolean test(Vector vector) {
         return false;
     }
 
+    @Override
+    public boolean test(int x, int y, int z) {
+        Vector vector = null;
+        for (Mask mask : getOrderedMasks()) {
+            boolean result;
+            if (mask instanceof CoordinateMask) {
+                result = ((CoordinateMask) mask).test(x, y, z);
+            } else {
+                if (vector == null) {
+                    vector = new BlockVector(x, y, z);
+                }
+                result = mask.test(vector);
+            }
+            if (result) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
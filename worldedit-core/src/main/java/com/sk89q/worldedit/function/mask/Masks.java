@@ -55,6 +55,59 @@ public static Mask2D alwaysTrue2D() {
         return ALWAYS_TRUE;
     }
 
+    /**
+     * Test the given position with the given mask, only creating a vector
+     * if the mask is not a {@link CoordinateMask}.
+     *
+     * @param mask the mask
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the criteria is met
+     */
+    public static boolean test(Mask mask, int x, int y, int z) {
+        if (mask instanceof CoordinateMask) {
+            return ((CoordinateMask) mask).test(x, y, z);
+        } else {
+            return mask.test(new BlockVector(x, y, z));
+        }
+    }
+
+    /**
+     * Estimate the relative cost of testing a position with the given mask.
+     *
+     * <p>Masks that only look at coordinates are the cheapest, followed by
+     * masks that read a single block from an extent. Unknown masks and
+     * expressions are assumed to be expensive. The value is only used to
+     * order the children of {@link MaskIntersection} and {@link MaskUnion}
+     * so that cheap tests can short-circuit expensive ones.</p>
+     *
+     * @param mask the mask
+     * @return the estimated cost, where lower is cheaper
+     */
+    static int getCost(Mask mask) {
+        if (mask instanceof AlwaysTrue || mask instanceof AlwaysFalse
+                || mask instanceof RegionMask || mask instanceof BoundedHeightMask || mask instanceof NoiseFilter) {
+            return 0;
+        } else if (mask instanceof BlockMask || mask instanceof ExistingBlockMask || mask instanceof SolidBlockMask) {
+            return 2;
+        } else if (mask instanceof NegatedMask) {
+            return getCost(((NegatedMask) mask).mask);
+        } else if (mask instanceof OffsetMask) {
+            return getCost(((OffsetMask) mask).getMask()) + 1;
+        } else if (mask instanceof MaskIntersection) {
+            int cost = 0;
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                cost += getCost(child);
+            }
+            return cost;
+        } else if (mask instanceof ExpressionMask) {
+            return 8;
+        } else {
+            return 4;
+        }
+    }
+
     /**
      * Negate the given mask.
      *
@@ -69,23 +122,7 @@ public static Mask negate(final Mask mask) {
         }
 
         checkNotNull(mask);
-        return new AbstractMask() {
-            @Override
-            public boolean test(Vector vector) {
-                return !mask.test(vector);
-            }
-
-            @Nullable
-            @Override
-            public Mask2D toMask2D() {
-                Mask2D mask2d = mask.toMask2D();
-                if (mask2d != null) {
-                    return negate(mask2d);
-                } else {
-                    return null;
-                }
-            }
-        };
+        return new NegatedMask(mask);
     }
 
     /**
@@ -207,12 +244,49 @@ public boolean matches(EditSession editSession, Vector position) {
         };
     }
 
-    private static class AlwaysTrue implements Mask, Mask2D {
+    /**
+     * Negates a 3D mask.
+     */
+    private static class NegatedMask extends AbstractMask implements CoordinateMask {
+        private final Mask mask;
+
+        private NegatedMask(Mask mask) {
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean test(Vector vector) {
+            return !mask.test(vector);
+        }
+
+        @Override
+        public boolean test(int x, int y, int z) {
+            return !Masks.test(mask, x, y, z);
+        }
+
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            Mask2D mask2d = mask.toMask2D();
+            if (mask2d != null) {
+                return negate(mask2d);
+            } else {
+                return null;
+            }
+        }
+    }
+
+    private static class AlwaysTrue implements CoordinateMask, Mask2D {
         @Override
         public boolean test(Vector vector) {
             return true;
         }
 
+        @Override
+        public boolean test(int x, int y, int z) {
+            return true;
+        }
+
         @Override
         public boolean test(Vector2D vector) {
             return true;
@@ -225,12 +299,17 @@ public Mask2D toMask2D() {
         }
     }
 
-    private static class AlwaysFalse implements Mask, Mask2D {
+    private static class AlwaysFalse implements CoordinateMask, Mask2D {
         @Override
         public boolean test(Vector vector) {
             return false;
         }
 
+        @Override
+        public boolean test(int x, int y, int z) {
+            return false;
+        }
+
         @Override
         public boolean test(Vector2D vector) {
             return false;
@@ -19,7 +19,9 @@
 
 package com.sk89q.worldedit.function.mask;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.AbstractRegion;
 import com.sk89q.worldedit.regions.Region;
 
 import javax.annotation.Nullable;
@@ -29,7 +31,7 @@
 /**
  * A mask that tests whether given positions are contained within a region.
  */
-public class RegionMask extends AbstractMask {
+public class RegionMask extends AbstractMask implements CoordinateMask {
 
     private Region region;
 
@@ -66,6 +68,15 @@ public boolean test(Vector vector) {
         return region.contains(vector);
     }
 
+    @Override
+    public boolean test(int x, int y, int z) {
+        if (region instanceof AbstractRegion) {
+            return ((AbstractRegion) region).contains(x, y, z);
+        } else {
+            return region.contains(new BlockVector(x, y, z));
+        }
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
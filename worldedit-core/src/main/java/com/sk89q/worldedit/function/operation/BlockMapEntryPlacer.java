@@ -34,10 +34,13 @@
  * Sets block from an iterator of {@link Map.Entry} containing a
  * {@link BlockVector} as the key and a {@link BaseBlock} as the value.
  */
-public class BlockMapEntryPlacer implements Operation {
+public class BlockMapEntryPlacer implements ProgressiveOperation {
 
     private final Extent extent;
     private final Iterator<Map.Entry<BlockVector, BaseBlock>> iterator;
+    private final int size;
+    private boolean cancelled = false;
+    private int placed = 0;
 
     /**
      * Create a new instance.
@@ -46,24 +49,51 @@ public class BlockMapEntryPlacer implements Operation {
      * @param iterator the iterator
      */
     public BlockMapEntryPlacer(Extent extent, Iterator<Map.Entry<BlockVector, BaseBlock>> iterator) {
+        this(extent, iterator, -1);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent to set the blocks on
+     * @param iterator the iterator
+     * @param size the number of entries in the iterator, or -1 if not known
+     */
+    public BlockMapEntryPlacer(Extent extent, Iterator<Map.Entry<BlockVector, BaseBlock>> iterator, int size) {
         checkNotNull(extent);
         checkNotNull(iterator);
         this.extent = extent;
         this.iterator = iterator;
+        this.size = size;
     }
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        while (iterator.hasNext()) {
+        while (!cancelled && iterator.hasNext()) {
             Map.Entry<BlockVector, BaseBlock> entry = iterator.next();
             extent.setBlock(entry.getKey(), entry.getValue());
+            placed++;
+
+            if (!run.shouldContinue()) {
+                return iterator.hasNext() ? this : null;
+            }
         }
 
         return null;
     }
 
+    @Override
+    public double getProgress() {
+        if (size > 0) {
+            return Math.min(1, placed / (double) size);
+        } else {
+            return iterator.hasNext() ? 0 : 1;
+        }
+    }
+
     @Override
     public void cancel() {
+        cancelled = true;
     }
 
     @Override
@@ -21,6 +21,7 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.history.change.CuboidFillChange;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
 import com.sk89q.worldedit.history.UndoContext;
 
@@ -32,13 +33,16 @@
 /**
  * Performs an undo or redo from a given {@link ChangeSet}.
  */
-public class ChangeSetExecutor implements Operation {
+public class ChangeSetExecutor implements ProgressiveOperation {
 
     public enum Type {UNDO, REDO}
 
     private final Iterator<Change> iterator;
     private final Type type;
     private final UndoContext context;
+    private final int size;
+    private boolean cancelled = false;
+    private int executed = 0;
 
     /**
      * Create a new instance.
@@ -54,6 +58,7 @@ private ChangeSetExecutor(ChangeSet changeSet, Type type, UndoContext context) {
 
         this.type = type;
         this.context = context;
+        this.size = changeSet.size();
 
         if (type == Type.UNDO) {
             iterator = changeSet.backwardIterator();
@@ -64,20 +69,31 @@ private ChangeSetExecutor(ChangeSet changeSet, Type type, UndoContext context) {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        while (iterator.hasNext()) {
+        while (!cancelled && iterator.hasNext()) {
             Change change = iterator.next();
             if (type == Type.UNDO) {
                 change.undo(context);
             } else {
                 change.redo(context);
             }
+            executed += change instanceof CuboidFillChange ? ((CuboidFillChange) change).getVolume() : 1;
+
+            if (!run.shouldContinue()) {
+                return iterator.hasNext() ? this : null;
+            }
         }
 
         return null;
     }
 
+    @Override
+    public double getProgress() {
+        return size > 0 ? Math.min(1, executed / (double) size) : 1;
+    }
+
     @Override
     public void cancel() {
+        cancelled = true;
     }
 
     @Override
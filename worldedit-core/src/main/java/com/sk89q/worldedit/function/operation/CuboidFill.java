@@ -0,0 +1,127 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
+import com.sk89q.worldedit.extent.Extents;
+import com.sk89q.worldedit.extent.OutputExtent;
+import com.sk89q.worldedit.regions.CuboidRegion;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fills a cuboid region with a single block.
+ *
+ * <p>The region is filled one chunk column at a time with
+ * {@link Extents#fillCuboid(OutputExtent, Vector, Vector, BaseBlock)}, so
+ * extents that implement {@link BulkOutputExtent} can handle each column
+ * at once. The operation stops between columns when the {@link RunContext}
+ * asks it to.</p>
+ */
+public class CuboidFill implements ProgressiveOperation {
+
+    private final OutputExtent extent;
+    private final BaseBlock block;
+    private final Vector min;
+    private final Vector max;
+    private final int columnCount;
+    private int column = 0;
+    private boolean cancelled = false;
+    private int affected = 0;
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent to fill
+     * @param region the region to fill
+     * @param block the block to fill with
+     */
+    public CuboidFill(OutputExtent extent, CuboidRegion region, BaseBlock block) {
+        checkNotNull(extent);
+        checkNotNull(region);
+        checkNotNull(block);
+        this.extent = extent;
+        this.block = block;
+        this.min = region.getMinimumPoint();
+        this.max = region.getMaximumPoint();
+        this.columnCount = getColumnsX() * ((max.getBlockZ() >> 4) - (min.getBlockZ() >> 4) + 1);
+    }
+
+    /**
+     * Get the number of affected blocks.
+     *
+     * @return the number of affected blocks
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    private int getColumnsX() {
+        return (max.getBlockX() >> 4) - (min.getBlockX() >> 4) + 1;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        int columnsX = getColumnsX();
+
+        while (column < columnCount && !cancelled) {
+            int chunkX = (min.getBlockX() >> 4) + column % columnsX;
+            int chunkZ = (min.getBlockZ() >> 4) + column / columnsX;
+            Vector columnMin = new Vector(
+                    Math.max(min.getBlockX(), chunkX << 4),
+                    min.getBlockY(),
+                    Math.max(min.getBlockZ(), chunkZ << 4));
+            Vector columnMax = new Vector(
+                    Math.min(max.getBlockX(), (chunkX << 4) | 0xF),
+                    max.getBlockY(),
+                    Math.min(max.getBlockZ(), (chunkZ << 4) | 0xF));
+            affected += Extents.fillCuboid(extent, columnMin, columnMax, block);
+            column++;
+
+            if (!run.shouldContinue()) {
+                return column < columnCount ? this : null;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public double getProgress() {
+        return columnCount > 0 ? column / (double) columnCount : 1;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public void addStatusMessages(List<String> messages) {
+        messages.add(getAffected() + " blocks affected");
+    }
+
+}
@@ -29,7 +29,7 @@
  * Executes a delegete operation, but returns to another operation upon
  * completing the delegate.
  */
-public class DelegateOperation implements Operation {
+public class DelegateOperation implements ProgressiveOperation {
 
     private final Operation original;
     private Operation delegate;
@@ -53,6 +53,17 @@ public Operation resume(RunContext run) throws WorldEditException {
         return delegate != null ? this : original;
     }
 
+    @Override
+    public double getProgress() {
+        if (delegate instanceof ProgressiveOperation) {
+            return ((ProgressiveOperation) delegate).getProgress();
+        } else if (original instanceof ProgressiveOperation) {
+            return ((ProgressiveOperation) original).getProgress();
+        } else {
+            return 0;
+        }
+    }
+
     @Override
     public void cancel() {
         delegate.cancel();
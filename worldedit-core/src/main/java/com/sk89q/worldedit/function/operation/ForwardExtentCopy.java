@@ -279,6 +279,7 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        repetitions = 0;
     }
 
     @Override
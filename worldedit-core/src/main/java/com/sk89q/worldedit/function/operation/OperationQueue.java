@@ -32,11 +32,13 @@
 /**
  * Executes multiple queues in order.
  */
-public class OperationQueue implements Operation {
+public class OperationQueue implements ProgressiveOperation {
 
     private final List<Operation> operations = Lists.newArrayList();
     private final Deque<Operation> queue = new ArrayDeque<Operation>();
     private Operation current;
+    private int total = 0;
+    private int finished = 0;
 
     /**
      * Create a new queue containing no operations.
@@ -77,6 +79,7 @@ public OperationQueue(Operation... operation) {
     public void offer(Operation operation) {
         checkNotNull(operation);
         queue.offer(operation);
+        total++;
     }
 
     @Override
@@ -89,6 +92,7 @@ public Operation resume(RunContext run) throws WorldEditException {
             current = current.resume(run);
 
             if (current == null) {
+                finished++;
                 current = queue.poll();
             }
         }
@@ -96,8 +100,24 @@ public Operation resume(RunContext run) throws WorldEditException {
         return current != null ? this : null;
     }
 
+    @Override
+    public double getProgress() {
+        if (total == 0) {
+            return 1;
+        }
+        double progress = finished;
+        if (current instanceof ProgressiveOperation) {
+            progress += ((ProgressiveOperation) current).getProgress();
+        }
+        return Math.min(1, progress / total);
+    }
+
     @Override
     public void cancel() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
         for (Operation operation : queue) {
             operation.cancel();
         }
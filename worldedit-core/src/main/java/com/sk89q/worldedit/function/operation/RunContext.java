@@ -21,6 +21,10 @@
 
 /**
  * Describes the current run.
+ *
+ * <p>This context never asks operations to stop early. See
+ * {@link TimedRunContext} for a context that limits how long an
+ * operation may run for before it has to yield.</p>
  */
 public class RunContext {
 
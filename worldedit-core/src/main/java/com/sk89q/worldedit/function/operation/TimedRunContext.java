@@ -0,0 +1,86 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.function.operation;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link RunContext} that asks operations to stop once a time budget
+ * has been used up.
+ *
+ * <p>The clock is only read every few calls to
+ * {@link #shouldContinue()}, so the budget may be exceeded slightly.</p>
+ */
+public class TimedRunContext extends RunContext {
+
+    private static final int CHECK_INTERVAL_MASK = 0xF;
+
+    private final long deadline;
+    private int calls = 0;
+    private boolean expired = false;
+
+    /**
+     * Create a new instance.
+     *
+     * @param budget the amount of time that operations may run for
+     * @param unit the unit of the budget
+     */
+    public TimedRunContext(long budget, TimeUnit unit) {
+        checkArgument(budget >= 0, "budget >= 0 required");
+        checkNotNull(unit);
+        this.deadline = System.nanoTime() + unit.toNanos(budget);
+    }
+
+    /**
+     * Return whether the budget has been used up.
+     *
+     * @return true if the budget has been used up
+     */
+    public boolean isExpired() {
+        if (!expired) {
+            expired = System.nanoTime() - deadline >= 0;
+        }
+        return expired;
+    }
+
+    /**
+     * Use up the rest of the budget.
+     *
+     * <p>Operations that are waiting on work done elsewhere may call this
+     * so that they are not resumed again until the next budget.</p>
+     */
+    public void expire() {
+        expired = true;
+    }
+
+    @Override
+    public boolean shouldContinue() {
+        if (expired) {
+            return false;
+        }
+        if ((++calls & CHECK_INTERVAL_MASK) != 0) {
+            return true;
+        }
+        return !isExpired();
+    }
+
+}
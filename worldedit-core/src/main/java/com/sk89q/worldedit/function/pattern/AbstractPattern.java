@@ -23,4 +23,19 @@
  * An abstract implementation for {@link Pattern}s.
  */
 public abstract class AbstractPattern implements Pattern {
+
+    /**
+     * Return whether this pattern may be applied from several threads at
+     * once.
+     *
+     * <p>Patterns are not thread-safe unless they say so, and operations
+     * that could evaluate a pattern on several threads check this first.</p>
+     *
+     * @return true if thread-safe
+     * @see Patterns#isThreadSafe(Pattern)
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
 }
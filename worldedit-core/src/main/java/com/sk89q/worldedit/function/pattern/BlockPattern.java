@@ -27,7 +27,7 @@
 /**
  * A pattern that returns the same {@link BaseBlock} each time.
  */
-public class BlockPattern extends AbstractPattern {
+public class BlockPattern extends AbstractPattern implements CoordinatePattern {
 
     private BaseBlock block;
 
@@ -59,9 +59,19 @@ public void setBlock(BaseBlock block) {
         this.block = block;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public BaseBlock apply(Vector position) {
         return block;
     }
 
+    @Override
+    public BaseBlock apply(int x, int y, int z) {
+        return block;
+    }
+
 }
@@ -19,8 +19,10 @@
 
 package com.sk89q.worldedit.function.pattern;
 
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.patterns.SingleBlockPattern;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -40,11 +42,16 @@ private Patterns() {
      */
     public static Pattern wrap(final com.sk89q.worldedit.patterns.Pattern pattern) {
         checkNotNull(pattern);
-        return new Pattern() {
+        return new CoordinatePattern() {
             @Override
             public BaseBlock apply(Vector position) {
                 return pattern.next(position);
             }
+
+            @Override
+            public BaseBlock apply(int x, int y, int z) {
+                return pattern.next(x, y, z);
+            }
         };
     }
 
@@ -56,17 +63,75 @@ public BaseBlock apply(Vector position) {
      */
     public static com.sk89q.worldedit.patterns.Pattern wrap(final Pattern pattern) {
         checkNotNull(pattern);
-        return new com.sk89q.worldedit.patterns.Pattern() {
-            @Override
-            public BaseBlock next(Vector position) {
-                return pattern.apply(position);
-            }
+        return new LegacyPattern(pattern);
+    }
 
-            @Override
-            public BaseBlock next(int x, int y, int z) {
-                return next(new Vector(x, y, z));
-            }
-        };
+    /**
+     * Return whether the given pattern may be applied from several threads
+     * at once.
+     *
+     * @param pattern the pattern
+     * @return true if the pattern is known to be thread-safe
+     * @see AbstractPattern#isThreadSafe()
+     */
+    public static boolean isThreadSafe(Pattern pattern) {
+        checkNotNull(pattern);
+        return pattern instanceof AbstractPattern && ((AbstractPattern) pattern).isThreadSafe();
+    }
+
+    /**
+     * Return whether the given old-style pattern may be applied from
+     * several threads at once.
+     *
+     * @param pattern the pattern
+     * @return true if the pattern is known to be thread-safe
+     */
+    public static boolean isThreadSafe(com.sk89q.worldedit.patterns.Pattern pattern) {
+        checkNotNull(pattern);
+        if (pattern instanceof LegacyPattern) {
+            return isThreadSafe(((LegacyPattern) pattern).pattern);
+        } else {
+            return pattern instanceof SingleBlockPattern;
+        }
+    }
+
+    /**
+     * Return a block from the given pattern for the given position, only
+     * creating a vector if the pattern is not a {@link CoordinatePattern}.
+     *
+     * @param pattern the pattern
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return a block
+     */
+    public static BaseBlock apply(Pattern pattern, int x, int y, int z) {
+        if (pattern instanceof CoordinatePattern) {
+            return ((CoordinatePattern) pattern).apply(x, y, z);
+        } else {
+            return pattern.apply(new BlockVector(x, y, z));
+        }
+    }
+
+    /**
+     * An old-style pattern that wraps a new-style pattern.
+     */
+    private static class LegacyPattern implements com.sk89q.worldedit.patterns.Pattern {
+        private final Pattern pattern;
+
+        private LegacyPattern(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public BaseBlock next(Vector position) {
+            return pattern.apply(position);
+        }
+
+        @Override
+        public BaseBlock next(int x, int y, int z) {
+            return apply(pattern, x, y, z);
+        }
     }
 
 }
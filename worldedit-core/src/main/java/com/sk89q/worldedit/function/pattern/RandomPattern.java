@@ -21,21 +21,57 @@
 
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.math.SplitMix64;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Uses a random pattern of a weighted list of patterns.
+ *
+ * <p>Patterns are chosen in constant time with an alias table that is built
+ * once after patterns are added. Without a seed, each thread draws from its
+ * own generator. With a seed, the choice only depends on the seed and the
+ * position, so the result does not depend on the order in which positions
+ * are visited or on how the work is split between threads.</p>
  */
-public class RandomPattern extends AbstractPattern {
+public class RandomPattern extends AbstractPattern implements CoordinatePattern {
 
-    private final Random random = new Random();
+    private final SplitMix64 root = new SplitMix64(ThreadLocalRandom.current().nextLong());
+    private final ThreadLocal<SplitMix64> random = new ThreadLocal<SplitMix64>() {
+        @Override
+        protected SplitMix64 initialValue() {
+            synchronized (root) {
+                return root.split();
+            }
+        }
+    };
     private List<Chance> patterns = new ArrayList<Chance>();
     private double max = 0;
+    private boolean seeded = false;
+    private long seed;
+    private volatile AliasTable table;
+
+    /**
+     * Create a new random pattern with an unpredictable result.
+     */
+    public RandomPattern() {
+    }
+
+    /**
+     * Create a new random pattern that always chooses the same pattern
+     * for the same seed and position.
+     *
+     * @param seed the seed
+     */
+    public RandomPattern(long seed) {
+        this.seeded = true;
+        this.seed = seed;
+    }
 
     /**
      * Add a pattern to the weight list of patterns.
@@ -48,23 +84,113 @@ public class RandomPattern extends AbstractPattern {
      */
     public void add(Pattern pattern, double chance) {
         checkNotNull(pattern);
+        checkArgument(chance >= 0, "chance >= 0 required");
         patterns.add(new Chance(pattern, chance));
         max += chance;
+        table = null;
+    }
+
+    /**
+     * Return whether this pattern may be applied from several threads at
+     * once, which is the case if all the added patterns are thread-safe.
+     *
+     * @return true if thread-safe
+     */
+    @Override
+    public boolean isThreadSafe() {
+        for (Chance chance : patterns) {
+            if (!Patterns.isThreadSafe(chance.getPattern())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public BaseBlock apply(Vector position) {
-        double r = random.nextDouble();
-        double offset = 0;
+        if (seeded) {
+            return apply(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+        }
+        return choose(random.get().nextLong()).apply(position);
+    }
 
-        for (Chance chance : patterns) {
-            if (r <= (offset + chance.getChance()) / max) {
-                return chance.getPattern().apply(position);
+    @Override
+    public BaseBlock apply(int x, int y, int z) {
+        long value = seeded ? SplitMix64.hash(seed, x, y, z) : random.get().nextLong();
+        return Patterns.apply(choose(value), x, y, z);
+    }
+
+    private Pattern choose(long value) {
+        AliasTable table = this.table;
+        if (table == null) {
+            table = new AliasTable(patterns, max);
+            this.table = table;
+        }
+        return table.choose(value);
+    }
+
+    /**
+     * A table for Vose's alias method, which picks an entry with one random
+     * value regardless of the number of entries.
+     */
+    private static class AliasTable {
+        private final Pattern[] patterns;
+        private final double[] probability;
+        private final int[] alias;
+
+        private AliasTable(List<Chance> chances, double max) {
+            int n = chances.size();
+            if (n == 0 || max <= 0) {
+                throw new IllegalStateException("No patterns with a positive chance have been added");
+            }
+
+            patterns = new Pattern[n];
+            probability = new double[n];
+            alias = new int[n];
+
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < n; i++) {
+                Chance chance = chances.get(i);
+                patterns[i] = chance.getPattern();
+                scaled[i] = chance.getChance() * n / max;
+                if (scaled[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = (scaled[more] + scaled[less]) - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+
+            // Whatever remains is only off by rounding errors
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1;
             }
-            offset += chance.getChance();
         }
 
-        throw new RuntimeException("ProportionalFillPattern");
+        private Pattern choose(long value) {
+            double d = SplitMix64.toDouble(value) * patterns.length;
+            int column = (int) d;
+            return d - column < probability[column] ? patterns[column] : patterns[alias[column]];
+        }
     }
 
     private static class Chance {
@@ -0,0 +1,176 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.scan;
+
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.util.Countable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Counts blocks by ID and data value in a primitive array.
+ */
+public class BlockHistogram {
+
+    private static final int SIZE = (BaseBlock.MAX_ID + 1) << 4;
+
+    private final int[] counts = new int[SIZE];
+
+    /**
+     * Count a block.
+     *
+     * @param id the block ID
+     * @param data the data value
+     */
+    public void add(int id, int data) {
+        counts[index(id, data)]++;
+    }
+
+    /**
+     * Count several blocks of the same type.
+     *
+     * @param id the block ID
+     * @param data the data value
+     * @param count the number of blocks
+     */
+    public void add(int id, int data, int count) {
+        counts[index(id, data)] += count;
+    }
+
+    /**
+     * Add the counts of another histogram to this one.
+     *
+     * @param other the other histogram
+     */
+    public void add(BlockHistogram other) {
+        checkNotNull(other);
+        int[] otherCounts = other.counts;
+        for (int i = 0; i < SIZE; i++) {
+            counts[i] += otherCounts[i];
+        }
+    }
+
+    /**
+     * Get the number of blocks with the given ID and any data value.
+     *
+     * @param id the block ID
+     * @return the number of blocks
+     */
+    public int getCount(int id) {
+        int base = index(id, 0);
+        int count = 0;
+        for (int i = 0; i < 16; i++) {
+            count += counts[base + i];
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of blocks with the given ID and data value.
+     *
+     * @param id the block ID
+     * @param data the data value
+     * @return the number of blocks
+     */
+    public int getCount(int id, int data) {
+        return counts[index(id, data)];
+    }
+
+    /**
+     * Get the number of blocks that match any of the given blocks. Blocks
+     * with a data value of -1 match all data values.
+     *
+     * @param blocks the blocks to match
+     * @return the number of blocks
+     */
+    public int getCount(Set<BaseBlock> blocks) {
+        checkNotNull(blocks);
+        boolean[] matched = new boolean[SIZE];
+        int count = 0;
+        for (BaseBlock block : blocks) {
+            int from = index(block.getId(), block.getData() < 0 ? 0 : block.getData());
+            int to = block.getData() < 0 ? from + 16 : from + 1;
+            for (int i = from; i < to; i++) {
+                if (!matched[i]) {
+                    matched[i] = true;
+                    count += counts[i];
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the total number of blocks counted.
+     *
+     * @return the number of blocks
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Get the distribution of block IDs, sorted by ascending count.
+     *
+     * @return the distribution
+     */
+    public List<Countable<Integer>> getDistribution() {
+        List<Countable<Integer>> distribution = new ArrayList<Countable<Integer>>();
+        for (int id = 0; id <= BaseBlock.MAX_ID; id++) {
+            int count = getCount(id);
+            if (count > 0) {
+                distribution.add(new Countable<Integer>(id, count));
+            }
+        }
+        Collections.sort(distribution);
+        return distribution;
+    }
+
+    /**
+     * Get the distribution of block IDs and data values, sorted by
+     * ascending count.
+     *
+     * @return the distribution
+     */
+    public List<Countable<BaseBlock>> getDistributionWithData() {
+        List<Countable<BaseBlock>> distribution = new ArrayList<Countable<BaseBlock>>();
+        for (int i = 0; i < SIZE; i++) {
+            if (counts[i] > 0) {
+                distribution.add(new Countable<BaseBlock>(new BaseBlock(i >> 4, i & 0xF), counts[i]));
+            }
+        }
+        Collections.sort(distribution);
+        return distribution;
+    }
+
+    private static int index(int id, int data) {
+        return ((id & BaseBlock.MAX_ID) << 4) | (data & BaseBlock.MAX_DATA);
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.scan;
+
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+/**
+ * Reads blocks during a scan of a region and collects the results into
+ * a result object.
+ *
+ * <p>A scan may be split into several parts that run on different
+ * threads. Each part collects into its own result object, created with
+ * {@link #createResult()}, and the results are then combined with
+ * {@link #merge(Object, Object)}. Implementations should therefore not
+ * keep state outside of the result objects.</p>
+ *
+ * @param <T> the type of result
+ */
+public interface BlockScanner<T> {
+
+    /**
+     * Create a new, empty result.
+     *
+     * @return a new result
+     */
+    T createResult();
+
+    /**
+     * Scan a block.
+     *
+     * @param result the result of the current part of the scan
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @param block the block
+     */
+    void scan(T result, int x, int y, int z, BaseBlock block);
+
+    /**
+     * Combine two results.
+     *
+     * <p>The given results may be modified and the returned result may
+     * be either of them.</p>
+     *
+     * @param first the first result
+     * @param second the second result
+     * @return the combined result
+     */
+    T merge(T first, T second);
+
+}
@@ -0,0 +1,548 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.scan;
+
+import com.google.common.base.Throwables;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.regions.AbstractRegion;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Scans the blocks of a region with a {@link BlockScanner}.
+ *
+ * <p>The region is split into chunk-aligned columns. When an executor is
+ * given, the columns are shared between several tasks that each collect
+ * into their own result, and the source extent must then be safe to read
+ * from several threads at once (for example, a clipboard that is not being
+ * modified). World extents generally are not, and should be scanned with
+ * {@link #scan(Region, Extent, BlockScanner)} on the thread that owns
+ * them, or with
+ * {@link #scanSnapshots(Region, Extent, BlockScanner, ExecutorService, int)},
+ * which copies each column on the calling thread and hands the copies to
+ * tasks on the executor.</p>
+ */
+public final class RegionScans {
+
+    private RegionScans() {
+    }
+
+    /**
+     * Scan a region on the calling thread.
+     *
+     * @param region the region
+     * @param source the extent to read blocks from
+     * @param scanner the scanner
+     * @param <T> the type of result
+     * @return the result
+     */
+    public static <T> T scan(Region region, Extent source, BlockScanner<T> scanner) {
+        checkNotNull(region);
+        checkNotNull(source);
+        checkNotNull(scanner);
+        return new ScanTask<T>(new Columns(region), source, scanner).call();
+    }
+
+    /**
+     * Scan a region using several threads.
+     *
+     * <p>The calling thread takes part in the scan and blocks until it has
+     * finished.</p>
+     *
+     * @param region the region
+     * @param source the extent to read blocks from, which must be safe to read from several threads
+     * @param scanner the scanner
+     * @param executor the executor to run the other tasks on
+     * @param parallelism the number of tasks, including the calling thread
+     * @param <T> the type of result
+     * @return the result
+     * @throws InterruptedException thrown if the calling thread is interrupted while waiting
+     */
+    public static <T> T scan(Region region, Extent source, BlockScanner<T> scanner, ExecutorService executor, int parallelism) throws InterruptedException {
+        checkNotNull(region);
+        checkNotNull(source);
+        checkNotNull(scanner);
+        checkNotNull(executor);
+        checkArgument(parallelism >= 1, "parallelism >= 1 required");
+
+        Columns columns = new Columns(region);
+        int tasks = Math.min(parallelism, columns.count);
+        List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>();
+        try {
+            for (int i = 1; i < tasks; i++) {
+                FutureTask<T> future = new FutureTask<T>(new ScanTask<T>(columns, source, scanner));
+                executor.execute(future);
+                futures.add(future);
+            }
+        } catch (RejectedExecutionException ignored) {
+            // The calling thread scans whatever the submitted tasks do not
+        }
+
+        T result;
+        try {
+            result = new ScanTask<T>(columns, source, scanner).call();
+        } catch (RuntimeException e) {
+            columns.cancel();
+            throw e;
+        }
+
+        try {
+            for (FutureTask<T> future : futures) {
+                // Tasks that no thread has started yet have nothing left to
+                // scan, so finish them here instead of waiting for a thread
+                future.run();
+                result = scanner.merge(result, getResult(future));
+            }
+        } catch (RuntimeException e) {
+            columns.cancel();
+            throw e;
+        } catch (InterruptedException e) {
+            columns.cancel();
+            throw e;
+        }
+
+        return result;
+    }
+
+    /**
+     * Scan a region that can only be read from the calling thread, such as
+     * a world, using several threads.
+     *
+     * <p>The calling thread copies the blocks of one chunk-aligned column
+     * at a time, and the copies are scanned by tasks on the executor while
+     * the next columns are being copied. Each task collects into a single
+     * result for the whole scan. At most {@code parallelism} copies wait to
+     * be scanned at once, and the calling thread scans copies itself
+     * whenever the tasks fall behind, so it never waits on a task that no
+     * thread has started.</p>
+     *
+     * @param region the region
+     * @param source the extent to read blocks from, which is only read from the calling thread
+     * @param scanner the scanner
+     * @param executor the executor to scan the copies on
+     * @param parallelism the number of tasks that scan copies, and the number of copies that may wait to be scanned
+     * @param <T> the type of result
+     * @return the result
+     * @throws InterruptedException thrown if the calling thread is interrupted while waiting
+     */
+    public static <T> T scanSnapshots(Region region, Extent source, BlockScanner<T> scanner, ExecutorService executor, int parallelism) throws InterruptedException {
+        checkNotNull(region);
+        checkNotNull(source);
+        checkNotNull(scanner);
+        checkNotNull(executor);
+        checkArgument(parallelism >= 1, "parallelism >= 1 required");
+
+        Columns columns = new Columns(region);
+        SnapshotQueue queue = new SnapshotQueue(columns, parallelism);
+        List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>();
+        try {
+            for (int i = 0; i < Math.min(parallelism, columns.count); i++) {
+                FutureTask<T> future = new FutureTask<T>(new SnapshotScanTask<T>(queue, scanner));
+                executor.execute(future);
+                futures.add(future);
+            }
+        } catch (RejectedExecutionException ignored) {
+            // The calling thread scans whatever the submitted tasks do not
+        }
+
+        T result = scanner.createResult();
+        try {
+            int index;
+            while ((index = columns.claim()) >= 0) {
+                Snapshot snapshot = queue.obtain();
+                snapshot.copy(columns, index, source);
+                if (!queue.offer(snapshot)) {
+                    snapshot.scan(scanner, result);
+                    queue.recycle(snapshot);
+                }
+            }
+
+            queue.finish();
+            Snapshot snapshot;
+            while ((snapshot = queue.poll()) != null) {
+                snapshot.scan(scanner, result);
+            }
+
+            for (FutureTask<T> future : futures) {
+                // Tasks that no thread has started yet have nothing left to
+                // scan, so finish them here instead of waiting for a thread
+                future.run();
+                result = scanner.merge(result, getResult(future));
+            }
+        } catch (RuntimeException e) {
+            queue.finish();
+            throw e;
+        } catch (InterruptedException e) {
+            queue.finish();
+            throw e;
+        }
+
+        return result;
+    }
+
+    private static <T> T getResult(FutureTask<T> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new RuntimeException("Failed to scan the region", e.getCause());
+        }
+    }
+
+    /**
+     * Count the blocks of a region by ID and data value on the calling
+     * thread.
+     *
+     * @param region the region
+     * @param source the extent to read blocks from
+     * @return the histogram
+     */
+    public static BlockHistogram histogram(Region region, Extent source) {
+        return scan(region, source, new HistogramScanner());
+    }
+
+    /**
+     * Count the blocks of a region by ID and data value using several
+     * threads.
+     *
+     * @param region the region
+     * @param source the extent to read blocks from, which must be safe to read from several threads
+     * @param executor the executor to run the other tasks on
+     * @param parallelism the number of tasks, including the calling thread
+     * @return the histogram
+     * @throws InterruptedException thrown if the calling thread is interrupted while waiting
+     * @see #scan(Region, Extent, BlockScanner, ExecutorService, int)
+     */
+    public static BlockHistogram histogram(Region region, Extent source, ExecutorService executor, int parallelism) throws InterruptedException {
+        return scan(region, source, new HistogramScanner(), executor, parallelism);
+    }
+
+    /**
+     * Count the blocks of a region that can only be read from the calling
+     * thread by ID and data value using several threads.
+     *
+     * @param region the region
+     * @param source the extent to read blocks from, which is only read from the calling thread
+     * @param executor the executor to count the copied columns on
+     * @param parallelism the number of copies that may be counted at once
+     * @return the histogram
+     * @throws InterruptedException thrown if the calling thread is interrupted while waiting
+     * @see #scanSnapshots(Region, Extent, BlockScanner, ExecutorService, int)
+     */
+    public static BlockHistogram histogramSnapshots(Region region, Extent source, ExecutorService executor, int parallelism) throws InterruptedException {
+        return scanSnapshots(region, source, new HistogramScanner(), executor, parallelism);
+    }
+
+    /**
+     * The chunk-aligned columns of a region, handed out to tasks in order.
+     */
+    private static final class Columns {
+        private final Region region;
+        private final boolean cuboid;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int chunksX;
+        private final int count;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Columns(Region region) {
+            Vector min = region.getMinimumPoint();
+            Vector max = region.getMaximumPoint();
+            this.region = region;
+            this.cuboid = region instanceof CuboidRegion;
+            this.minX = min.getBlockX();
+            this.minY = min.getBlockY();
+            this.minZ = min.getBlockZ();
+            this.maxX = max.getBlockX();
+            this.maxY = max.getBlockY();
+            this.maxZ = max.getBlockZ();
+            this.minChunkX = minX >> 4;
+            this.minChunkZ = minZ >> 4;
+            this.chunksX = (maxX >> 4) - minChunkX + 1;
+            this.count = chunksX * ((maxZ >> 4) - minChunkZ + 1);
+        }
+
+        private int claim() {
+            int index = next.getAndIncrement();
+            return index < count ? index : -1;
+        }
+
+        private void cancel() {
+            next.set(count);
+        }
+
+        private int getChunkX(int index) {
+            return minChunkX + index % chunksX;
+        }
+
+        private int getChunkZ(int index) {
+            return minChunkZ + index / chunksX;
+        }
+
+        private boolean contains(int x, int y, int z) {
+            if (cuboid) {
+                return true;
+            } else if (region instanceof AbstractRegion) {
+                return ((AbstractRegion) region).contains(x, y, z);
+            } else {
+                return region.contains(new Vector(x, y, z));
+            }
+        }
+    }
+
+    /**
+     * Scans columns until none are left.
+     */
+    private static final class ScanTask<T> implements Callable<T> {
+        private final Columns columns;
+        private final Extent source;
+        private final BlockScanner<T> scanner;
+
+        private ScanTask(Columns columns, Extent source, BlockScanner<T> scanner) {
+            this.columns = columns;
+            this.source = source;
+            this.scanner = scanner;
+        }
+
+        @Override
+        public T call() {
+            Columns columns = this.columns;
+            T result = scanner.createResult();
+            int index;
+            while ((index = columns.claim()) >= 0) {
+                int chunkX = columns.getChunkX(index);
+                int chunkZ = columns.getChunkZ(index);
+                int fromX = Math.max(columns.minX, chunkX << 4);
+                int toX = Math.min(columns.maxX, (chunkX << 4) + 15);
+                int fromZ = Math.max(columns.minZ, chunkZ << 4);
+                int toZ = Math.min(columns.maxZ, (chunkZ << 4) + 15);
+
+                for (int y = columns.minY; y <= columns.maxY; y++) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            if (columns.contains(x, y, z)) {
+                                scanner.scan(result, x, y, z, source.getLazyBlock(new Vector(x, y, z)));
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Column copies waiting to be scanned, and copies that have been scanned
+     * and may be reused.
+     */
+    private static final class SnapshotQueue {
+        private final BlockingQueue<Snapshot> waiting;
+        private final BlockingQueue<Snapshot> free;
+        private final int capacity;
+        private volatile boolean finished = false;
+
+        private SnapshotQueue(Columns columns, int parallelism) {
+            this.waiting = new ArrayBlockingQueue<Snapshot>(parallelism);
+            this.free = new ArrayBlockingQueue<Snapshot>(parallelism * 2 + 1);
+            this.capacity = 16 * 16 * (columns.maxY - columns.minY + 1);
+        }
+
+        private Snapshot obtain() {
+            Snapshot snapshot = free.poll();
+            return snapshot != null ? snapshot : new Snapshot(capacity);
+        }
+
+        private void recycle(Snapshot snapshot) {
+            free.offer(snapshot);
+        }
+
+        private boolean offer(Snapshot snapshot) {
+            return waiting.offer(snapshot);
+        }
+
+        @Nullable
+        private Snapshot poll() {
+            return waiting.poll();
+        }
+
+        @Nullable
+        private Snapshot take() throws InterruptedException {
+            while (true) {
+                Snapshot snapshot = waiting.poll();
+                if (snapshot != null) {
+                    return snapshot;
+                } else if (finished) {
+                    return null;
+                }
+                snapshot = waiting.poll(1, TimeUnit.MILLISECONDS);
+                if (snapshot != null) {
+                    return snapshot;
+                }
+            }
+        }
+
+        private void finish() {
+            finished = true;
+        }
+    }
+
+    /**
+     * Scans copies from a queue into one result until no more are coming.
+     */
+    private static final class SnapshotScanTask<T> implements Callable<T> {
+        private final SnapshotQueue queue;
+        private final BlockScanner<T> scanner;
+
+        private SnapshotScanTask(SnapshotQueue queue, BlockScanner<T> scanner) {
+            this.queue = queue;
+            this.scanner = scanner;
+        }
+
+        @Override
+        public T call() throws InterruptedException {
+            T result = scanner.createResult();
+            Snapshot snapshot;
+            while ((snapshot = queue.take()) != null) {
+                snapshot.scan(scanner, result);
+                queue.recycle(snapshot);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A copy of the IDs and data values of one column.
+     */
+    private static final class Snapshot {
+        private static final int OUTSIDE = -1;
+
+        private final int[] materials;
+        private int fromX;
+        private int toX;
+        private int fromY;
+        private int toY;
+        private int fromZ;
+        private int toZ;
+
+        private Snapshot(int capacity) {
+            this.materials = new int[capacity];
+        }
+
+        private void copy(Columns columns, int index, Extent source) {
+            int chunkX = columns.getChunkX(index);
+            int chunkZ = columns.getChunkZ(index);
+            fromX = Math.max(columns.minX, chunkX << 4);
+            toX = Math.min(columns.maxX, (chunkX << 4) + 15);
+            fromY = columns.minY;
+            toY = columns.maxY;
+            fromZ = Math.max(columns.minZ, chunkZ << 4);
+            toZ = Math.min(columns.maxZ, (chunkZ << 4) + 15);
+
+            int[] materials = this.materials;
+            int i = 0;
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    for (int x = fromX; x <= toX; x++) {
+                        if (columns.contains(x, y, z)) {
+                            BaseBlock block = source.getLazyBlock(new Vector(x, y, z));
+                            materials[i++] = (block.getType() << 4) | (block.getData() & 0xF);
+                        } else {
+                            materials[i++] = OUTSIDE;
+                        }
+                    }
+                }
+            }
+        }
+
+        private <T> void scan(BlockScanner<T> scanner, T result) {
+            int[] materials = this.materials;
+            int i = 0;
+            if (scanner instanceof HistogramScanner) {
+                // Count straight from the copy
+                BlockHistogram histogram = (BlockHistogram) result;
+                int count = (toX - fromX + 1) * (toY - fromY + 1) * (toZ - fromZ + 1);
+                for (; i < count; i++) {
+                    int material = materials[i];
+                    if (material != OUTSIDE) {
+                        histogram.add(material >> 4, material & 0xF);
+                    }
+                }
+                return;
+            }
+
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    for (int x = fromX; x <= toX; x++) {
+                        int material = materials[i++];
+                        if (material != OUTSIDE) {
+                            scanner.scan(result, x, y, z, new BaseBlock(material >> 4, material & 0xF));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts blocks into a {@link BlockHistogram}.
+     */
+    private static final class HistogramScanner implements BlockScanner<BlockHistogram> {
+        @Override
+        public BlockHistogram createResult() {
+            return new BlockHistogram();
+        }
+
+        @Override
+        public void scan(BlockHistogram result, int x, int y, int z, BaseBlock block) {
+            result.add(block.getId(), block.getData());
+        }
+
+        @Override
+        public BlockHistogram merge(BlockHistogram first, BlockHistogram second) {
+            first.add(second);
+            return first;
+        }
+    }
+
+}
@@ -20,14 +20,20 @@
 package com.sk89q.worldedit.function.visitor;
 
 import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.MaxSearchMemoryException;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.CoordinateRegionFunction;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockPositions;
+import com.sk89q.worldedit.util.collection.BlockPositionSet;
+import com.sk89q.worldedit.util.collection.LongArrayQueue;
 
 import java.util.*;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -40,13 +46,22 @@
  * <p>As an abstract implementation, this class can be used to implement
  * functionality that starts at certain points and extends outward from
  * those points.</p>
+ *
+ * <p>Visited points are kept in a {@link BlockPositionSet} and queued
+ * points as packed {@code long}s, so the search does not create objects
+ * per point unless the function or {@link #isVisitable} requires them.
+ * If a memory limit is set, the search fails with a
+ * {@link MaxSearchMemoryException} once it is reached. Points that
+ * cannot be packed by {@link BlockPositions} are never visited.</p>
  */
 public abstract class BreadthFirstSearch implements Operation {
 
     private final RegionFunction function;
-    private final Queue<BlockVector> queue = new ArrayDeque<BlockVector>();
-    private final Set<BlockVector> visited = new HashSet<BlockVector>();
+    private final LongArrayQueue queue = new LongArrayQueue();
+    private final BlockPositionSet visited = new BlockPositionSet();
     private final List<Vector> directions = new ArrayList<Vector>();
+    private long memoryLimit = -1;
+    private boolean cancelled = false;
     private int affected = 0;
 
     /**
@@ -98,6 +113,36 @@ protected void addDiagonal() {
         directions.add(new Vector(-1, 0, 1));
     }
 
+    /**
+     * Get the approximate number of bytes that the search may use before
+     * it fails.
+     *
+     * @return the limit, or -1 if there is no limit
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Set the approximate number of bytes that the search may use before
+     * it fails with a {@link MaxSearchMemoryException}.
+     *
+     * @param memoryLimit the limit, or -1 for no limit
+     */
+    public void setMemoryLimit(long memoryLimit) {
+        checkArgument(memoryLimit >= -1, "memoryLimit >= -1 required");
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Get an estimate of the number of bytes used by the search.
+     *
+     * @return the number of bytes
+     */
+    public long getMemoryUsage() {
+        return visited.getMemoryUsage() + queue.getMemoryUsage();
+    }
+
     /**
      * Add the given location to the list of locations to visit, provided
      * that it has not been visited. The position passed to this method
@@ -113,38 +158,43 @@ protected void addDiagonal() {
      * @param position the position
      */
     public void visit(Vector position) {
-        BlockVector blockVector = position.toBlockVector();
-        if (!visited.contains(blockVector)) {
-            queue.add(blockVector);
-            visited.add(blockVector);
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        if (BlockPositions.canPack(x, y, z) && visited.add(x, y, z)) {
+            queue.add(BlockPositions.pack(x, y, z));
         }
     }
 
     /**
-     * Try to visit the given 'to' location.
+     * Return whether the given 'to' block should be visited, starting from the
+     * 'from' block.
      *
      * @param from the origin block
      * @param to the block under question
+     * @return true if the 'to' block should be visited
      */
-    private void visit(Vector from, Vector to) {
-        BlockVector blockVector = to.toBlockVector();
-        if (!visited.contains(blockVector)) {
-            visited.add(blockVector);
-            if (isVisitable(from, to)) {
-                queue.add(blockVector);
-            }
-        }
-    }
+    protected abstract boolean isVisitable(Vector from, Vector to);
 
     /**
      * Return whether the given 'to' block should be visited, starting from the
      * 'from' block.
      *
-     * @param from the origin block
-     * @param to the block under question
+     * <p>The default implementation calls
+     * {@link #isVisitable(Vector, Vector)}. Subclasses should override
+     * this method as well to avoid creating vectors.</p>
+     *
+     * @param fromX the X coordinate of the origin block
+     * @param fromY the Y coordinate of the origin block
+     * @param fromZ the Z coordinate of the origin block
+     * @param toX the X coordinate of the block under question
+     * @param toY the Y coordinate of the block under question
+     * @param toZ the Z coordinate of the block under question
      * @return true if the 'to' block should be visited
      */
-    protected abstract boolean isVisitable(Vector from, Vector to);
+    protected boolean isVisitable(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        return isVisitable(new BlockVector(fromX, fromY, fromZ), new BlockVector(toX, toY, toZ));
+    }
 
     /**
      * Get the number of affected objects.
@@ -157,15 +207,48 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        Vector position;
-        
-        while ((position = queue.poll()) != null) {
-            if (function.apply(position)) {
+        int count = directions.size();
+        int[] offsets = new int[count * 3];
+        int i = 0;
+        for (Vector dir : directions) {
+            offsets[i++] = dir.getBlockX();
+            offsets[i++] = dir.getBlockY();
+            offsets[i++] = dir.getBlockZ();
+        }
+
+        CoordinateRegionFunction coordinateFunction = function instanceof CoordinateRegionFunction
+                ? (CoordinateRegionFunction) function : null;
+
+        while (!cancelled && !queue.isEmpty()) {
+            long position = queue.remove();
+            int x = BlockPositions.unpackX(position);
+            int y = BlockPositions.unpackY(position);
+            int z = BlockPositions.unpackZ(position);
+
+            boolean changed = coordinateFunction != null
+                    ? coordinateFunction.apply(x, y, z)
+                    : function.apply(new BlockVector(x, y, z));
+            if (changed) {
                 affected++;
             }
 
-            for (Vector dir : directions) {
-                visit(position, position.add(dir));
+            for (int j = 0; j < offsets.length; j += 3) {
+                int toX = x + offsets[j];
+                int toY = y + offsets[j + 1];
+                int toZ = z + offsets[j + 2];
+                if (BlockPositions.canPack(toX, toY, toZ) && visited.add(toX, toY, toZ)
+                        && isVisitable(x, y, z, toX, toY, toZ)) {
+                    queue.add(BlockPositions.pack(toX, toY, toZ));
+                }
+            }
+
+            if (memoryLimit >= 0 && getMemoryUsage() > memoryLimit) {
+                cancel();
+                throw new MaxSearchMemoryException(visited.size(), memoryLimit);
+            }
+
+            if (!run.shouldContinue()) {
+                return queue.isEmpty() ? null : this;
             }
         }
 
@@ -174,6 +257,8 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        cancelled = true;
+        queue.clear();
     }
 
     @Override
@@ -65,4 +65,9 @@ protected boolean isVisitable(Vector from, Vector to) {
         int fromY = from.getBlockY();
         return (fromY == baseY || to.subtract(from).getBlockY() < 0) && super.isVisitable(from, to);
     }
+
+    @Override
+    protected boolean isVisitable(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        return (fromY == baseY || toY - fromY < 0) && super.isVisitable(fromX, fromY, fromZ, toX, toY, toZ);
+    }
 }
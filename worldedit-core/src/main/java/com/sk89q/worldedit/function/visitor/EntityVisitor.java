@@ -37,6 +37,7 @@ public class EntityVisitor implements Operation {
 
     private final Iterator<? extends Entity> iterator;
     private final EntityFunction function;
+    private boolean cancelled = false;
     private int affected = 0;
 
     /**
@@ -63,10 +64,14 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        while (iterator.hasNext()) {
+        while (!cancelled && iterator.hasNext()) {
             if (function.apply(iterator.next())) {
                 affected++;
             }
+
+            if (!run.shouldContinue()) {
+                return iterator.hasNext() ? this : null;
+            }
         }
 
         return null;
@@ -74,6 +79,7 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        cancelled = true;
     }
 
     @Override
@@ -26,6 +26,7 @@
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.regions.FlatRegion;
 
+import java.util.Iterator;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -37,6 +38,8 @@ public class FlatRegionVisitor implements Operation {
 
     private final FlatRegion flatRegion;
     private final FlatRegionFunction function;
+    private Iterator<Vector2D> iterator;
+    private boolean cancelled = false;
     private int affected = 0;
 
     /**
@@ -64,10 +67,18 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (Vector2D pt : flatRegion.asFlatRegion()) {
-            if (function.apply(pt)) {
+        if (iterator == null) {
+            iterator = flatRegion.asFlatRegion().iterator();
+        }
+
+        while (!cancelled && iterator.hasNext()) {
+            if (function.apply(iterator.next())) {
                 affected++;
             }
+
+            if (!run.shouldContinue()) {
+                return iterator.hasNext() ? this : null;
+            }
         }
 
         return null;
@@ -75,6 +86,7 @@ public Operation resume(RunContext run) throws WorldEditException {
 
     @Override
     public void cancel() {
+        cancelled = true;
     }
 
     @Override
@@ -22,6 +22,7 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -32,6 +33,7 @@
 public class RecursiveVisitor extends BreadthFirstSearch {
 
     private final Mask mask;
+    private final boolean vectorTestOverridden = overridesVectorTest(getClass());
 
     /**
      * Create a new recursive visitor.
@@ -49,4 +51,32 @@ public RecursiveVisitor(Mask mask, RegionFunction function) {
     protected boolean isVisitable(Vector from, Vector to) {
         return mask.test(to);
     }
+
+    @Override
+    protected boolean isVisitable(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        if (vectorTestOverridden) {
+            // Let subclasses that only know the vector method decide
+            return super.isVisitable(fromX, fromY, fromZ, toX, toY, toZ);
+        }
+        return Masks.test(mask, toX, toY, toZ);
+    }
+
+    /**
+     * Return whether a subclass overrides
+     * {@link #isVisitable(Vector, Vector)} beyond the visitors of this
+     * package, which override both methods consistently.
+     *
+     * @param type the class of the visitor
+     * @return true if overridden
+     */
+    private static boolean overridesVectorTest(Class<?> type) {
+        for (Class<?> c = type; c != RecursiveVisitor.class && c != DownwardVisitor.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("isVisitable", Vector.class, Vector.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return false;
+    }
 }
@@ -19,22 +19,37 @@
 
 package com.sk89q.worldedit.function.visitor;
 
-import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.CoordinateRegionFunction;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.operation.ProgressiveOperation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
 
 import java.util.List;
 
 /**
  * Utility class to apply region functions to {@link com.sk89q.worldedit.regions.Region}.
+ *
+ * <p>Positions are visited with a {@link RegionCursor}. Functions that
+ * implement {@link CoordinateRegionFunction} are given block coordinates,
+ * so that no vector has to be created for positions that they skip.</p>
+ *
+ * <p>The visitor stops when the {@link RunContext} asks it to and picks up
+ * where it left off when resumed.</p>
  */
-public class RegionVisitor implements Operation {
+public class RegionVisitor implements ProgressiveOperation {
 
     private final Region region;
     private final RegionFunction function;
+    private RegionCursor cursor;
+    private boolean hasNext;
+    private boolean cancelled = false;
+    private int visited = 0;
     private int affected = 0;
 
     public RegionVisitor(Region region, RegionFunction function) {
@@ -53,17 +68,44 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (Vector pt : region) {
-            if (function.apply(pt)) {
+        if (cursor == null) {
+            cursor = Regions.cursor(region);
+            hasNext = cursor.next();
+        }
+
+        CoordinateRegionFunction coordinateFunction = function instanceof CoordinateRegionFunction
+                ? (CoordinateRegionFunction) function : null;
+
+        while (hasNext && !cancelled) {
+            int x = cursor.getX();
+            int y = cursor.getY();
+            int z = cursor.getZ();
+            boolean changed = coordinateFunction != null
+                    ? coordinateFunction.apply(x, y, z)
+                    : function.apply(new BlockVector(x, y, z));
+            if (changed) {
                 affected++;
             }
+            visited++;
+            hasNext = cursor.next();
+
+            if (!run.shouldContinue()) {
+                return hasNext ? this : null;
+            }
         }
 
         return null;
     }
 
+    @Override
+    public double getProgress() {
+        int area = region.getArea();
+        return area > 0 ? Math.min(1, visited / (double) area) : 1;
+    }
+
     @Override
     public void cancel() {
+        cancelled = true;
     }
 
     @Override
@@ -0,0 +1,209 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.change;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.Extents;
+import com.sk89q.worldedit.history.UndoContext;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Represents the fill of a cuboid with a single block that may be undone
+ * or replayed.
+ *
+ * <p>Instead of one {@link BlockChange} per block, the previous blocks are
+ * stored as one {@code char} each for the ID and data value, and NBT data
+ * is only stored for blocks that have it. Redoing the change fills the
+ * cuboid again with
+ * {@link Extents#fillCuboid(com.sk89q.worldedit.extent.OutputExtent, Vector, Vector, BaseBlock)}.</p>
+ *
+ * <p>Like {@link BlockChange}, the extent is taken from the passed
+ * {@link UndoContext}.</p>
+ */
+public class CuboidFillChange implements Change, Iterable<BlockChange> {
+
+    private final BlockVector min;
+    private final BlockVector max;
+    private final BaseBlock current;
+    private final char[] previous;
+    private final Map<Integer, CompoundTag> previousNbt = new HashMap<Integer, CompoundTag>();
+
+    /**
+     * Create a new change, reading the previous blocks from the given
+     * extent.
+     *
+     * @param extent the extent to read the previous blocks from
+     * @param min the minimum point of the cuboid
+     * @param max the maximum point of the cuboid
+     * @param current the block that the cuboid is filled with
+     */
+    public CuboidFillChange(Extent extent, Vector min, Vector max, BaseBlock current) {
+        checkNotNull(extent);
+        checkNotNull(min);
+        checkNotNull(max);
+        checkNotNull(current);
+        long volume = Extents.getVolume(min, max);
+        checkArgument(volume > 0 && volume <= Integer.MAX_VALUE, "the cuboid must have between 1 and 2^31-1 blocks");
+
+        this.min = min.toBlockVector();
+        this.max = max.toBlockVector();
+        this.current = current;
+        this.previous = new char[(int) volume];
+
+        int index = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    BaseBlock block = extent.getBlock(new BlockVector(x, y, z));
+                    previous[index] = (char) ((block.getId() << 4) | (block.getData() & 0xF));
+                    CompoundTag tag = block.getNbtData();
+                    if (tag != null) {
+                        previousNbt.put(index, tag);
+                    }
+                    index++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the minimum point of the cuboid.
+     *
+     * @return the minimum point
+     */
+    public BlockVector getMinimumPoint() {
+        return min;
+    }
+
+    /**
+     * Get the maximum point of the cuboid.
+     *
+     * @return the maximum point
+     */
+    public BlockVector getMaximumPoint() {
+        return max;
+    }
+
+    /**
+     * Get the block that the cuboid is filled with.
+     *
+     * @return the block
+     */
+    public BaseBlock getCurrent() {
+        return current;
+    }
+
+    /**
+     * Get the number of blocks in the cuboid.
+     *
+     * @return the number of blocks
+     */
+    public int getVolume() {
+        return previous.length;
+    }
+
+    /**
+     * Get the previous block at the given index, in the order of
+     * {@link #iterator()}.
+     *
+     * @param index the index
+     * @return the previous block
+     */
+    private BaseBlock getPrevious(int index) {
+        int packed = previous[index];
+        CompoundTag tag = previousNbt.isEmpty() ? null : previousNbt.get(index);
+        return new BaseBlock(packed >> 4, packed & 0xF, tag);
+    }
+
+    /**
+     * Get the position of the block at the given index, in the order of
+     * {@link #iterator()}.
+     *
+     * @param index the index
+     * @return the position
+     */
+    private BlockVector getPosition(int index) {
+        int width = max.getBlockX() - min.getBlockX() + 1;
+        int length = max.getBlockZ() - min.getBlockZ() + 1;
+        int x = index % width;
+        int z = (index / width) % length;
+        int y = index / (width * length);
+        return new BlockVector(min.getBlockX() + x, min.getBlockY() + y, min.getBlockZ() + z);
+    }
+
+    /**
+     * Get an iterator over the change of every block of the cuboid, for
+     * change sets that store block changes in their own way.
+     *
+     * @return an iterator
+     */
+    @Override
+    public Iterator<BlockChange> iterator() {
+        return new Iterator<BlockChange>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < previous.length;
+            }
+
+            @Override
+            public BlockChange next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                BlockChange change = new BlockChange(getPosition(index), getPrevious(index), current);
+                index++;
+                return change;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Not supported");
+            }
+        };
+    }
+
+    @Override
+    public void undo(UndoContext context) throws WorldEditException {
+        Extent extent = checkNotNull(context.getExtent());
+        for (int i = previous.length - 1; i >= 0; i--) {
+            extent.setBlock(getPosition(i), getPrevious(i));
+        }
+    }
+
+    @Override
+    public void redo(UndoContext context) throws WorldEditException {
+        Extents.fillCuboid(checkNotNull(context.getExtent()), min, max, current);
+    }
+
+}
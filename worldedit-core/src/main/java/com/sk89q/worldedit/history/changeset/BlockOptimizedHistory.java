@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.history.change.BlockChange;
 import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.history.change.CuboidFillChange;
 import com.sk89q.worldedit.util.collection.TupleArrayList;
 
 import java.util.ArrayList;
@@ -55,6 +56,10 @@ public void add(Change change) {
             BlockVector position = blockChange.getPosition();
             previous.put(position, blockChange.getPrevious());
             current.put(position, blockChange.getCurrent());
+        } else if (change instanceof CuboidFillChange) {
+            for (BlockChange blockChange : (CuboidFillChange) change) {
+                add(blockChange);
+            }
         } else {
             super.add(change);
         }
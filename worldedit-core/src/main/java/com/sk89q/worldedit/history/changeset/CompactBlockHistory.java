@@ -0,0 +1,211 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.Iterators;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.history.change.CuboidFillChange;
+import com.sk89q.worldedit.math.BlockPositions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An extension of {@link ArrayListHistory} that stores {@link BlockChange}s
+ * in growable primitive arrays.
+ *
+ * <p>Each block change costs one {@code long} for the position and one
+ * {@code int} for the previous and current ID and data values. NBT data is
+ * only stored for blocks that have it. Changes that cannot be packed
+ * (positions out of range or wildcard data values) are stored as regular
+ * {@link Change}s.</p>
+ *
+ * <p>{@link CuboidFillChange}s are kept as they are, which is more compact
+ * still, and are returned in order with the block changes.</p>
+ */
+public class CompactBlockHistory extends ArrayListHistory {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private int[] blocks = new int[INITIAL_CAPACITY];
+    private int count = 0;
+    private final Map<Integer, CompoundTag> previousNbt = new HashMap<Integer, CompoundTag>();
+    private final Map<Integer, CompoundTag> currentNbt = new HashMap<Integer, CompoundTag>();
+    private final List<CuboidFillChange> fills = new ArrayList<CuboidFillChange>();
+    private int[] fillOffsets = new int[0];
+    private long fillVolume = 0;
+
+    @Override
+    public void add(Change change) {
+        checkNotNull(change);
+
+        if (change instanceof CuboidFillChange) {
+            CuboidFillChange fill = (CuboidFillChange) change;
+            if (fills.size() == fillOffsets.length) {
+                int[] newOffsets = new int[Math.max(16, fillOffsets.length * 2)];
+                System.arraycopy(fillOffsets, 0, newOffsets, 0, fills.size());
+                fillOffsets = newOffsets;
+            }
+            // The fill comes after the block changes recorded so far
+            fillOffsets[fills.size()] = count;
+            fills.add(fill);
+            fillVolume += fill.getVolume();
+            return;
+        }
+
+        if (change instanceof BlockChange) {
+            BlockChange blockChange = (BlockChange) change;
+            BlockVector position = blockChange.getPosition();
+            BaseBlock previous = blockChange.getPrevious();
+            BaseBlock current = blockChange.getCurrent();
+            int x = position.getBlockX();
+            int y = position.getBlockY();
+            int z = position.getBlockZ();
+
+            if (BlockPositions.canPack(x, y, z) && previous.getData() >= 0 && current.getData() >= 0) {
+                ensureCapacity(count + 1);
+                positions[count] = BlockPositions.pack(x, y, z);
+                blocks[count] = (packBlock(previous) << 16) | packBlock(current);
+                CompoundTag previousTag = previous.getNbtData();
+                if (previousTag != null) {
+                    previousNbt.put(count, previousTag);
+                }
+                CompoundTag currentTag = current.getNbtData();
+                if (currentTag != null) {
+                    currentNbt.put(count, currentTag);
+                }
+                count++;
+                return;
+            }
+        }
+
+        super.add(change);
+    }
+
+    @Override
+    public Iterator<Change> forwardIterator() {
+        return Iterators.concat(super.forwardIterator(), new BlockChangeIterator(false));
+    }
+
+    @Override
+    public Iterator<Change> backwardIterator() {
+        return Iterators.concat(super.backwardIterator(), new BlockChangeIterator(true));
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, super.size() + count + fillVolume);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > positions.length) {
+            int newCapacity = Math.max(capacity, positions.length + (positions.length >> 1));
+            long[] newPositions = new long[newCapacity];
+            int[] newBlocks = new int[newCapacity];
+            System.arraycopy(positions, 0, newPositions, 0, count);
+            System.arraycopy(blocks, 0, newBlocks, 0, count);
+            positions = newPositions;
+            blocks = newBlocks;
+        }
+    }
+
+    private BlockChange createChange(int index) {
+        long position = positions[index];
+        int packed = blocks[index];
+        BlockVector vector = new BlockVector(
+                BlockPositions.unpackX(position),
+                BlockPositions.unpackY(position),
+                BlockPositions.unpackZ(position));
+        BaseBlock previous = unpackBlock(packed >>> 16, previousNbt.isEmpty() ? null : previousNbt.get(index));
+        BaseBlock current = unpackBlock(packed & 0xFFFF, currentNbt.isEmpty() ? null : currentNbt.get(index));
+        return new BlockChange(vector, previous, current);
+    }
+
+    private static int packBlock(BaseBlock block) {
+        return (block.getId() << 4) | block.getData();
+    }
+
+    private static BaseBlock unpackBlock(int packed, CompoundTag nbt) {
+        return new BaseBlock(packed >> 4, packed & 0xF, nbt);
+    }
+
+    /**
+     * Iterates over the stored block changes and fills in either direction.
+     */
+    private class BlockChangeIterator implements Iterator<Change> {
+        private final boolean reverse;
+        private final int end;
+        private final int fillEnd;
+        private int index;
+        private int fillIndex;
+
+        private BlockChangeIterator(boolean reverse) {
+            this.reverse = reverse;
+            this.end = count;
+            this.fillEnd = fills.size();
+            this.index = reverse ? end - 1 : 0;
+            this.fillIndex = reverse ? fillEnd - 1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return reverse ? index >= 0 || fillIndex >= 0 : index < end || fillIndex < fillEnd;
+        }
+
+        @Override
+        public Change next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Change change;
+            if (reverse) {
+                if (fillIndex >= 0 && fillOffsets[fillIndex] > index) {
+                    change = fills.get(fillIndex--);
+                } else {
+                    change = createChange(index--);
+                }
+            } else {
+                if (fillIndex < fillEnd && fillOffsets[fillIndex] <= index) {
+                    change = fills.get(fillIndex++);
+                } else {
+                    change = createChange(index++);
+                }
+            }
+            return change;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+    }
+
+}
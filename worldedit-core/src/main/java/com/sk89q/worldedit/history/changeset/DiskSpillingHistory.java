@@ -0,0 +1,588 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.Iterators;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.history.change.CuboidFillChange;
+import com.sk89q.worldedit.math.BlockPositions;
+import com.sk89q.worldedit.util.io.Closer;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An extension of {@link ArrayListHistory} that moves {@link BlockChange}s
+ * to a compressed, append-only file once more than a given number of
+ * changes have been recorded.
+ *
+ * <p>Block changes are grouped into frames of up to {@link #FRAME_SIZE}
+ * changes that are compressed independently, so iterating in either
+ * direction only ever holds one frame in memory. Only the frame offsets
+ * are kept on the heap for spilled changes.</p>
+ *
+ * <p>Because the file is self-describing, a history that was spilled and
+ * {@link #flush() flushed} can be reopened with {@link #open(File)}, such
+ * as after a restart. Whether the changes were {@link #setUndone(boolean)
+ * undone} is kept in the file as well. Non-block changes are never written
+ * to disk.</p>
+ */
+public class DiskSpillingHistory extends ArrayListHistory {
+
+    /**
+     * The file extension used for history files.
+     */
+    public static final String EXTENSION = ".wehist";
+
+    /**
+     * The maximum number of block changes in one frame.
+     */
+    public static final int FRAME_SIZE = 65536;
+
+    private static final Logger log = Logger.getLogger(DiskSpillingHistory.class.getCanonicalName());
+    private static final int MAGIC = 0x57454843;
+    private static final int VERSION = 1;
+    private static final int STATE_OFFSET = 5;
+    private static final AtomicInteger fileCounter = new AtomicInteger();
+
+    private final File directory;
+    private final String worldName;
+    private final int threshold;
+    @Nullable private File file;
+    private final List<Frame> memoryFrames = new ArrayList<Frame>();
+    private Frame tail = new Frame();
+    private long[] frameOffsets = new long[16];
+    private int frameCount = 0;
+    private int spilledCount = 0;
+    private int blockCount = 0;
+    private boolean failed = false;
+    private boolean undone = false;
+
+    /**
+     * Create a new instance.
+     *
+     * @param directory the directory to place the history file in
+     * @param worldName the name of the world the changes are made in
+     * @param threshold the number of block changes kept in memory before
+     *                  spilling to disk
+     */
+    public DiskSpillingHistory(File directory, String worldName, int threshold) {
+        checkNotNull(directory);
+        checkNotNull(worldName);
+        checkArgument(threshold >= 0, "threshold >= 0 required");
+        this.directory = directory;
+        this.worldName = worldName;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Reopen a history file that was previously written.
+     *
+     * @param file the file
+     * @return the history
+     * @throws IOException thrown on I/O error or if the file is not a history file
+     */
+    public static DiskSpillingHistory open(File file) throws IOException {
+        checkNotNull(file);
+
+        Closer closer = Closer.create();
+        try {
+            RandomAccessFile raf = closer.register(new RandomAccessFile(file, "r"));
+            if (raf.readInt() != MAGIC) {
+                throw new IOException(file + " is not a history file");
+            }
+            if (raf.readByte() != VERSION) {
+                throw new IOException(file + " has an unsupported history version");
+            }
+            boolean undone = raf.readBoolean();
+            String worldName = raf.readUTF();
+
+            DiskSpillingHistory history = new DiskSpillingHistory(file.getParentFile(), worldName, 0);
+            history.file = file;
+            history.undone = undone;
+
+            long length = raf.length();
+            long offset = raf.getFilePointer();
+            while (offset < length) {
+                raf.seek(offset);
+                int size;
+                int compressedLength;
+                try {
+                    size = raf.readInt();
+                    compressedLength = raf.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long next = raf.getFilePointer() + compressedLength;
+                if (next > length) {
+                    break; // Truncated frame at the end, such as after a crash
+                }
+                history.addFrameOffset(offset);
+                history.spilledCount += size;
+                offset = next;
+            }
+
+            return history;
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Get the name of the world that the changes were made in.
+     *
+     * @return the world name
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Get the file that changes are spilled to, if changes have been spilled.
+     *
+     * @return the file or null
+     */
+    @Nullable
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Return whether changes have been spilled to disk.
+     *
+     * @return true if spilled
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Return whether the changes have been undone and not redone since.
+     *
+     * @return true if undone
+     */
+    public boolean isUndone() {
+        return undone;
+    }
+
+    /**
+     * Set whether the changes have been undone.
+     *
+     * <p>If changes have been spilled, the state is also written to the
+     * file so that it is kept across a restart.</p>
+     *
+     * @param undone true if undone
+     */
+    public void setUndone(boolean undone) {
+        this.undone = undone;
+
+        if (file == null || !file.exists()) {
+            return;
+        }
+
+        // Keep the modification time, as history files are restored in that order
+        long lastModified = file.lastModified();
+        Closer closer = Closer.create();
+        try {
+            RandomAccessFile raf = closer.register(new RandomAccessFile(file, "rw"));
+            raf.seek(STATE_OFFSET);
+            raf.writeBoolean(undone);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to write the undo state of " + file.getPath(), e);
+        } finally {
+            try {
+                closer.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (lastModified != 0) {
+            file.setLastModified(lastModified);
+        }
+    }
+
+    @Override
+    public void add(Change change) {
+        checkNotNull(change);
+
+        if (change instanceof BlockChange && tail.add((BlockChange) change)) {
+            blockCount++;
+            // Spill as soon as the threshold is passed, rather than holding up to a full frame
+            if (tail.size == FRAME_SIZE || (!failed && !isSpilled() && blockCount > threshold)) {
+                completeFrame();
+            }
+        } else if (change instanceof CuboidFillChange) {
+            // Keep the fill in order with the other block changes
+            for (BlockChange blockChange : (CuboidFillChange) change) {
+                add(blockChange);
+            }
+        } else {
+            super.add(change);
+        }
+    }
+
+    /**
+     * Write any block changes kept in memory to disk if this history has
+     * passed its threshold, so that the file contains every block change.
+     */
+    public void flush() {
+        if (tail.size > 0) {
+            memoryFrames.add(tail);
+            tail = new Frame();
+        }
+        spillIfNeeded();
+    }
+
+    /**
+     * Delete the file backing this history, if one exists.
+     *
+     * <p>The history should not be used afterwards.</p>
+     */
+    public void delete() {
+        if (file != null && file.exists() && !file.delete()) {
+            log.log(Level.WARNING, "Failed to delete history file " + file.getPath());
+        }
+    }
+
+    @Override
+    public Iterator<Change> forwardIterator() {
+        return Iterators.concat(super.forwardIterator(), new FrameIterator(false));
+    }
+
+    @Override
+    public Iterator<Change> backwardIterator() {
+        return Iterators.concat(super.backwardIterator(), new FrameIterator(true));
+    }
+
+    @Override
+    public int size() {
+        return super.size() + spilledCount + blockCount;
+    }
+
+    private void completeFrame() {
+        memoryFrames.add(tail);
+        tail = new Frame();
+        spillIfNeeded();
+    }
+
+    private void spillIfNeeded() {
+        if (failed || (!isSpilled() && blockCount <= threshold)) {
+            return;
+        }
+
+        Iterator<Frame> it = memoryFrames.iterator();
+        while (it.hasNext()) {
+            if (!writeFrame(it.next())) {
+                return;
+            }
+            it.remove();
+        }
+    }
+
+    private boolean writeFrame(Frame frame) {
+        Closer closer = Closer.create();
+        try {
+            boolean created = false;
+            if (file == null) {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Failed to create directory " + directory.getPath());
+                }
+                file = new File(directory, System.currentTimeMillis() + "-" + fileCounter.incrementAndGet() + EXTENSION);
+                created = true;
+            }
+
+            long offset = file.length();
+            FileOutputStream fos = closer.register(new FileOutputStream(file, true));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            if (created) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeBoolean(undone);
+                out.writeUTF(worldName);
+                offset = out.size();
+            }
+
+            byte[] compressed = frame.compress();
+            out.writeInt(frame.size);
+            out.writeInt(compressed.length);
+            out.write(compressed);
+            out.flush();
+
+            addFrameOffset(offset);
+            spilledCount += frame.size;
+            blockCount -= frame.size;
+            return true;
+        } catch (IOException e) {
+            // Keep the remaining changes in memory rather than lose them
+            log.log(Level.WARNING, "Failed to write history to disk; keeping it in memory", e);
+            failed = true;
+            return false;
+        } finally {
+            try {
+                closer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void addFrameOffset(long offset) {
+        if (frameCount == frameOffsets.length) {
+            long[] newOffsets = new long[frameCount * 2];
+            System.arraycopy(frameOffsets, 0, newOffsets, 0, frameCount);
+            frameOffsets = newOffsets;
+        }
+        frameOffsets[frameCount++] = offset;
+    }
+
+    private Frame readFrame(int index) {
+        Closer closer = Closer.create();
+        try {
+            RandomAccessFile raf = closer.register(new RandomAccessFile(file, "r"));
+            raf.seek(frameOffsets[index]);
+            raf.readInt();
+            int compressedLength = raf.readInt();
+            byte[] compressed = new byte[compressedLength];
+            raf.readFully(compressed);
+            return Frame.decompress(compressed);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read history from " + file, e);
+        } finally {
+            try {
+                closer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Iterates over frames on disk, then in memory, then the tail.
+     */
+    private class FrameIterator implements Iterator<Change> {
+        private final boolean reverse;
+        private final int diskFrames;
+        private final int totalFrames;
+        private int frameIndex;
+        @Nullable private Frame current;
+        private int index;
+
+        private FrameIterator(boolean reverse) {
+            this.reverse = reverse;
+            this.diskFrames = frameCount;
+            this.totalFrames = frameCount + memoryFrames.size() + 1;
+            this.frameIndex = reverse ? totalFrames : -1;
+        }
+
+        private Frame getFrame(int i) {
+            if (i < diskFrames) {
+                return readFrame(i);
+            } else if (i - diskFrames < memoryFrames.size()) {
+                return memoryFrames.get(i - diskFrames);
+            } else {
+                return tail;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || (reverse ? index < 0 : index >= current.size)) {
+                frameIndex += reverse ? -1 : 1;
+                if (frameIndex < 0 || frameIndex >= totalFrames) {
+                    current = null;
+                    return false;
+                }
+                current = getFrame(frameIndex);
+                index = reverse ? current.size - 1 : 0;
+            }
+            return true;
+        }
+
+        @Override
+        public Change next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Change change = current.get(index);
+            index += reverse ? -1 : 1;
+            return change;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+    }
+
+    /**
+     * A group of block changes stored in primitive arrays.
+     */
+    private static final class Frame {
+        private long[] positions = new long[64];
+        private int[] blocks = new int[64];
+        private final Map<Integer, CompoundTag> previousNbt = new HashMap<Integer, CompoundTag>();
+        private final Map<Integer, CompoundTag> currentNbt = new HashMap<Integer, CompoundTag>();
+        private int size;
+
+        private boolean add(BlockChange change) {
+            BlockVector position = change.getPosition();
+            BaseBlock previous = change.getPrevious();
+            BaseBlock current = change.getCurrent();
+            int x = position.getBlockX();
+            int y = position.getBlockY();
+            int z = position.getBlockZ();
+
+            if (!BlockPositions.canPack(x, y, z) || previous.getData() < 0 || current.getData() < 0) {
+                return false;
+            }
+
+            if (size == positions.length) {
+                grow(Math.min(FRAME_SIZE, size * 2));
+            }
+            positions[size] = BlockPositions.pack(x, y, z);
+            blocks[size] = (((previous.getId() << 4) | previous.getData()) << 16) | (current.getId() << 4) | current.getData();
+            CompoundTag previousTag = previous.getNbtData();
+            if (previousTag != null) {
+                previousNbt.put(size, previousTag);
+            }
+            CompoundTag currentTag = current.getNbtData();
+            if (currentTag != null) {
+                currentNbt.put(size, currentTag);
+            }
+            size++;
+            return true;
+        }
+
+        private void grow(int capacity) {
+            long[] newPositions = new long[capacity];
+            int[] newBlocks = new int[capacity];
+            System.arraycopy(positions, 0, newPositions, 0, size);
+            System.arraycopy(blocks, 0, newBlocks, 0, size);
+            positions = newPositions;
+            blocks = newBlocks;
+        }
+
+        private BlockChange get(int index) {
+            long position = positions[index];
+            int packed = blocks[index];
+            int previous = packed >>> 16;
+            int current = packed & 0xFFFF;
+            return new BlockChange(
+                    new BlockVector(BlockPositions.unpackX(position), BlockPositions.unpackY(position), BlockPositions.unpackZ(position)),
+                    new BaseBlock(previous >> 4, previous & 0xF, previousNbt.isEmpty() ? null : previousNbt.get(index)),
+                    new BaseBlock(current >> 4, current & 0xF, currentNbt.isEmpty() ? null : currentNbt.get(index)));
+        }
+
+        private byte[] compress() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(size * 4);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 8192));
+                NBTOutputStream nbtOut = new NBTOutputStream(out);
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(positions[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(blocks[i]);
+                }
+                writeNbt(out, nbtOut, previousNbt);
+                writeNbt(out, nbtOut, currentNbt);
+                out.close();
+            } finally {
+                deflater.end();
+            }
+            return bytes.toByteArray();
+        }
+
+        private static void writeNbt(DataOutputStream out, NBTOutputStream nbtOut, Map<Integer, CompoundTag> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<Integer, CompoundTag> entry : map.entrySet()) {
+                out.writeInt(entry.getKey());
+                nbtOut.writeNamedTag("", entry.getValue());
+            }
+        }
+
+        private static Frame decompress(byte[] compressed) throws IOException {
+            InputStream stream = new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+            DataInputStream in = new DataInputStream(stream);
+            try {
+                NBTInputStream nbtIn = new NBTInputStream(in);
+                Frame frame = new Frame();
+                int size = in.readInt();
+                frame.grow(Math.max(1, size));
+                for (int i = 0; i < size; i++) {
+                    frame.positions[i] = in.readLong();
+                }
+                for (int i = 0; i < size; i++) {
+                    frame.blocks[i] = in.readInt();
+                }
+                readNbt(in, nbtIn, frame.previousNbt);
+                readNbt(in, nbtIn, frame.currentNbt);
+                frame.size = size;
+                return frame;
+            } finally {
+                in.close();
+            }
+        }
+
+        private static void readNbt(DataInputStream in, NBTInputStream nbtIn, Map<Integer, CompoundTag> map) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int index = in.readInt();
+                Tag tag = nbtIn.readNamedTag().getTag();
+                if (tag instanceof CompoundTag) {
+                    map.put(index, (CompoundTag) tag);
+                }
+            }
+        }
+    }
+
+}
@@ -35,6 +35,8 @@
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
+import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.ChunkBatch;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 import com.sk89q.worldedit.world.registry.WorldData;
@@ -99,6 +101,14 @@ public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight
         return world.setBlock(position, block, notifyAndLight);
     }
 
+    @Override
+    public int setBlocks(ChunkBatch batch, boolean notifyAndLight) throws WorldEditException {
+        if (world instanceof AbstractWorld) {
+            return ((AbstractWorld) world).setBlocks(batch, notifyAndLight);
+        }
+        return super.setBlocks(batch, notifyAndLight);
+    }
+
     @Override
     public int getBlockLightLevel(Vector position) {
         return world.getBlockLightLevel(position);
@@ -89,6 +89,12 @@ public void convert(MaxChangedBlocksException e) throws CommandException {
                 + e.getBlockLimit() + ").");
     }
 
+    @ExceptionMatch
+    public void convert(MaxSearchMemoryException e) throws CommandException {
+        throw new CommandException("The search ran out of memory after visiting " + e.getVisited()
+                + " blocks (limit in configuration: " + (e.getMemoryLimit() / 1024 / 1024) + " MB). Try a smaller radius.");
+    }
+
     @ExceptionMatch
     public void convert(MaxBrushRadiusException e) throws CommandException {
         throw new CommandException("Maximum brush radius (in configuration): " + worldEdit.getConfiguration().maxBrushRadius);
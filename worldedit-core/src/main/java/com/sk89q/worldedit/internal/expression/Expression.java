@@ -25,15 +25,19 @@
 import com.sk89q.worldedit.internal.expression.runtime.Constant;
 import com.sk89q.worldedit.internal.expression.runtime.EvaluationException;
 import com.sk89q.worldedit.internal.expression.runtime.ExpressionEnvironment;
+import com.sk89q.worldedit.internal.expression.runtime.ExpressionCompiler;
 import com.sk89q.worldedit.internal.expression.runtime.Functions;
 import com.sk89q.worldedit.internal.expression.runtime.RValue;
 import com.sk89q.worldedit.internal.expression.runtime.ReturnException;
+import com.sk89q.worldedit.internal.expression.runtime.StateAnalysis;
 import com.sk89q.worldedit.internal.expression.runtime.Variable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
 /**
  * Compiles and evaluates expressions.
@@ -56,7 +60,8 @@
  * <p>To compile an equation, run
  * {@code Expression.compile("expression here", "var1", "var2"...)}.
  * If you wish to run the equation multiple times, you can then optimize it,
- * by calling {@link #optimize()}. You can then run the equation as many times
+ * by calling {@link #optimize()}, which also compiles it into bytecode where
+ * possible. You can then run the equation as many times
  * as you want by calling {@link #evaluate(double...)}. You do not need to
  * pass values for all variables specified while compiling.
  * To query variables after evaluation, you can use
@@ -65,14 +70,25 @@
  *
  * <p>Variables are also supported and can be set either by passing values
  * to {@link #evaluate(double...)}.</p>
+ *
+ * <p>An expression keeps its variables between evaluations, so it must not
+ * be evaluated on several threads at once. Each thread can evaluate its
+ * own {@link #copy()} instead.</p>
  */
 public class Expression {
 
-    private static final ThreadLocal<Stack<Expression>> instance = new ThreadLocal<Stack<Expression>>();
+    private static final ThreadLocal<Deque<Expression>> instance = new ThreadLocal<Deque<Expression>>() {
+        @Override
+        protected Deque<Expression> initialValue() {
+            return new ArrayDeque<Expression>();
+        }
+    };
 
     private final Map<String, RValue> variables = new HashMap<String, RValue>();
+    private final String expression;
     private final String[] variableNames;
     private RValue root;
+    private boolean optimized;
     private final Functions functions = new Functions();
     private ExpressionEnvironment environment;
 
@@ -81,10 +97,11 @@ public static Expression compile(String expression, String... variableNames) thr
     }
 
     private Expression(String expression, String... variableNames) throws ExpressionException {
-        this(Lexer.tokenize(expression), variableNames);
+        this(expression, Lexer.tokenize(expression), variableNames);
     }
 
-    private Expression(List<Token> tokens, String... variableNames) throws ExpressionException {
+    private Expression(String expression, List<Token> tokens, String... variableNames) throws ExpressionException {
+        this.expression = expression;
         this.variableNames = variableNames;
 
         variables.put("e", new Constant(-1, Math.E));
@@ -124,7 +141,63 @@ public double evaluate(double... values) throws EvaluationException {
     }
 
     public void optimize() throws EvaluationException {
-        root = root.optimize();
+        root = ExpressionCompiler.compile(root.optimize());
+        optimized = true;
+    }
+
+    /**
+     * Create a copy of this expression that can be evaluated independently,
+     * for example on another thread.
+     *
+     * <p>The copy has its own variables, which start out with the current
+     * values of this expression's variables, and its own {@code megabuf}.
+     * It uses the same environment, and is optimized if this expression
+     * is.</p>
+     *
+     * @return the copy
+     */
+    public Expression copy() {
+        Expression copy;
+        try {
+            copy = new Expression(expression, variableNames);
+            if (optimized) {
+                copy.optimize();
+            }
+        } catch (ExpressionException e) {
+            throw new IllegalStateException("Failed to copy an expression that compiled before", e);
+        }
+
+        for (Map.Entry<String, RValue> entry : variables.entrySet()) {
+            RValue variable = copy.variables.get(entry.getKey());
+            if (entry.getValue() instanceof Variable && variable instanceof Variable) {
+                ((Variable) variable).value = ((Variable) entry.getValue()).value;
+            }
+        }
+        copy.environment = environment;
+        return copy;
+    }
+
+    /**
+     * Return whether every evaluation of this expression only depends on
+     * the values passed to {@link #evaluate(double...)}.
+     *
+     * <p>Stateless expressions do not read variables before assigning them,
+     * do not use {@code megabuf} or {@code gmegabuf}, and do not query the
+     * environment. Copies of them (see {@link #copy()}) can be evaluated on
+     * several threads at once and give the same results as evaluating this
+     * expression on one thread.</p>
+     *
+     * @return true if stateless
+     */
+    public boolean isStateless() {
+        List<Variable> parameters = new ArrayList<Variable>();
+        for (String variableName : variableNames) {
+            RValue variable = variables.get(variableName);
+            if (variable instanceof Variable) {
+                parameters.add((Variable) variable);
+            }
+        }
+        return StateAnalysis.isStateless(root, parameters);
     }
 
     @Override
@@ -146,22 +219,11 @@ public static Expression getInstance() {
     }
 
     private void pushInstance() {
-        Stack<Expression> foo = instance.get();
-        if (foo == null) {
-            instance.set(foo = new Stack<Expression>());
-        }
-
-        foo.push(this);
+        instance.get().push(this);
     }
 
     private void popInstance() {
-        Stack<Expression> foo = instance.get();
-
-        foo.pop();
-
-        if (foo.isEmpty()) {
-            instance.set(null);
-        }
+        instance.get().pop();
     }
 
     public Functions getFunctions() {
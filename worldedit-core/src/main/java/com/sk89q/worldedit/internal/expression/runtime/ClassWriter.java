@@ -0,0 +1,433 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a minimal Java class file for {@link ExpressionCompiler}.
+ *
+ * <p>Classes are written with version 49 (Java 5), so that no stack map
+ * frames have to be computed and the verifier infers types itself. Only the
+ * instructions and constant pool entries that the compiler needs are
+ * supported.</p>
+ */
+final class ClassWriter {
+
+    static final int ICONST_M1 = 0x02;
+    static final int ICONST_0 = 0x03;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int ALOAD_0 = 0x2a;
+    static final int AALOAD = 0x32;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int DUP2_X1 = 0x5d;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DREM = 0x73;
+    static final int DNEG = 0x77;
+    static final int LSHL = 0x79;
+    static final int LSHR = 0x7b;
+    static final int LXOR = 0x83;
+    static final int IINC = 0x84;
+    static final int I2L = 0x85;
+    static final int L2I = 0x88;
+    static final int L2D = 0x8a;
+    static final int D2L = 0x8f;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int GOTO = 0xa7;
+    static final int DRETURN = 0xaf;
+    static final int RETURN = 0xb1;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int CHECKCAST = 0xc0;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+    private int poolCount = 1;
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount = 0;
+    private final int thisClass;
+    private final int superClass;
+
+    /**
+     * Create a new writer.
+     *
+     * @param name the internal name of the class
+     * @param superName the internal name of the superclass
+     */
+    ClassWriter(String name, String superName) {
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+    }
+
+    int utf8(String value) {
+        Integer index = poolIndex.get("U" + value);
+        if (index == null) {
+            try {
+                pool.writeByte(CONSTANT_UTF8);
+                pool.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            index = add("U" + value, 1);
+        }
+        return index;
+    }
+
+    int classRef(String internalName) {
+        return entry("C" + internalName, CONSTANT_CLASS, utf8(internalName), -1, 1);
+    }
+
+    int intConstant(int value) {
+        Integer index = poolIndex.get("I" + value);
+        if (index == null) {
+            try {
+                pool.writeByte(CONSTANT_INTEGER);
+                pool.writeInt(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            index = add("I" + value, 1);
+        }
+        return index;
+    }
+
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = poolIndex.get("D" + bits);
+        if (index == null) {
+            try {
+                pool.writeByte(CONSTANT_DOUBLE);
+                pool.writeLong(bits);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            index = add("D" + bits, 2);
+        }
+        return index;
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int nameAndType = entry("N" + name + " " + descriptor, CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor), 1);
+        return entry(tag + owner + "." + name + " " + descriptor, tag, classRef(owner), nameAndType, 1);
+    }
+
+    private int entry(String key, int tag, int first, int second, int size) {
+        Integer index = poolIndex.get(key);
+        if (index == null) {
+            try {
+                pool.writeByte(tag);
+                pool.writeShort(first);
+                if (second >= 0) {
+                    pool.writeShort(second);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            index = add(key, size);
+        }
+        return index;
+    }
+
+    private int add(String key, int size) {
+        int index = poolCount;
+        poolCount += size;
+        if (poolCount > 0xFFFF) {
+            throw new IllegalStateException("Too many constants");
+        }
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    /**
+     * Add a public method.
+     *
+     * @param name the name of the method
+     * @param descriptor the descriptor of the method
+     * @param code the code of the method
+     */
+    void addMethod(String name, String descriptor, Code code) {
+        byte[] bytes = code.toByteArray();
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalStateException("Method too large");
+        }
+        try {
+            methods.writeShort(ACC_PUBLIC);
+            methods.writeShort(utf8(name));
+            methods.writeShort(utf8(descriptor));
+            methods.writeShort(1);
+            methods.writeShort(utf8("Code"));
+            methods.writeInt(12 + bytes.length);
+            methods.writeShort(code.maxStack);
+            methods.writeShort(code.maxLocals);
+            methods.writeInt(bytes.length);
+            methods.write(bytes);
+            methods.writeShort(0); // Exception table
+            methods.writeShort(0); // Attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        methodCount++;
+    }
+
+    /**
+     * Get the bytes of the class file.
+     *
+     * @return the class file
+     */
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // Interfaces
+            out.writeShort(0); // Fields
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            out.writeShort(0); // Attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The code of a single method, along with the stack depth and the local
+     * variables that it needs.
+     */
+    static final class Code {
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals;
+
+        /**
+         * Create a new instance.
+         *
+         * @param firstLocal the first local variable slot that is not a parameter
+         */
+        Code(int firstLocal) {
+            this.maxLocals = firstLocal;
+        }
+
+        /**
+         * Reserve local variable slots.
+         *
+         * @param size the number of slots, which is 2 for doubles
+         * @return the first slot
+         */
+        int allocate(int size) {
+            int slot = maxLocals;
+            maxLocals += size;
+            if (maxLocals > 0xFF) {
+                throw new IllegalStateException("Too many local variables");
+            }
+            return slot;
+        }
+
+        int getStack() {
+            return stack;
+        }
+
+        /**
+         * Set the stack depth, which is needed after an unconditional jump.
+         *
+         * @param stack the stack depth
+         */
+        void setStack(int stack) {
+            this.stack = stack;
+        }
+
+        void op(int opcode, int stackChange) {
+            u1(opcode);
+            adjust(stackChange);
+        }
+
+        void op1(int opcode, int operand, int stackChange) {
+            u1(opcode);
+            u1(operand);
+            adjust(stackChange);
+        }
+
+        void op2(int opcode, int operand, int stackChange) {
+            u1(opcode);
+            u2(operand);
+            adjust(stackChange);
+        }
+
+        void iinc(int slot, int amount) {
+            u1(IINC);
+            u1(slot);
+            u1(amount);
+        }
+
+        void invokeInterface(int index, int argumentSlots, int stackChange) {
+            u1(INVOKEINTERFACE);
+            u2(index);
+            u1(argumentSlots + 1);
+            u1(0);
+            adjust(stackChange);
+        }
+
+        void jump(int opcode, Label label, int stackChange) {
+            label.fixups.add(length);
+            u1(opcode);
+            u2(0);
+            adjust(stackChange);
+        }
+
+        void mark(Label label) {
+            label.position = length;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, 0, result, 0, length);
+            return result;
+        }
+
+        /**
+         * Append the code of another method body and resolve its jumps.
+         *
+         * @param other the code to append
+         * @param labels the labels used by the other code
+         */
+        void append(Code other, List<Label> labels) {
+            int offset = length;
+            ensureCapacity(length + other.length);
+            System.arraycopy(other.bytes, 0, bytes, length, other.length);
+            length += other.length;
+            for (Label label : labels) {
+                for (int fixup : label.fixups) {
+                    int jump = label.position - fixup;
+                    if (label.position < 0 || jump < Short.MIN_VALUE || jump > Short.MAX_VALUE) {
+                        throw new IllegalStateException("Jump out of range");
+                    }
+                    bytes[offset + fixup + 1] = (byte) (jump >> 8);
+                    bytes[offset + fixup + 2] = (byte) jump;
+                }
+            }
+            maxStack = Math.max(maxStack, stack + other.maxStack);
+            maxLocals = Math.max(maxLocals, other.maxLocals);
+            stack += other.stack;
+        }
+
+        private void adjust(int stackChange) {
+            stack += stackChange;
+            if (stack > maxStack) {
+                maxStack = stack;
+            }
+        }
+
+        private void u1(int value) {
+            ensureCapacity(length + 1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            ensureCapacity(length + 2);
+            bytes[length++] = (byte) (value >> 8);
+            bytes[length++] = (byte) value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                byte[] newBytes = new byte[Math.max(capacity, bytes.length * 2)];
+                System.arraycopy(bytes, 0, newBytes, 0, length);
+                bytes = newBytes;
+            }
+        }
+    }
+
+    /**
+     * A position in the code that can be jumped to.
+     */
+    static final class Label {
+        private int position = -1;
+        private final List<Integer> fixups = new ArrayList<Integer>();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+/**
+ * The base class of expressions that were compiled into bytecode by
+ * {@link ExpressionCompiler}.
+ *
+ * <p>Generated subclasses only implement {@link #getValue()}. Parts of the
+ * expression that could not be compiled are kept as nodes and evaluated
+ * by the generated code through {@link RValue#getValue()}.</p>
+ */
+public abstract class CompiledExpression extends Node {
+
+    /**
+     * The nodes that are evaluated or passed to functions by the generated code.
+     */
+    protected final RValue[] nodes;
+
+    /**
+     * The variables that are read and assigned by the generated code.
+     */
+    protected final Variable[] variables;
+
+    private final RValue source;
+
+    /**
+     * Create a new instance.
+     *
+     * @param source the expression that was compiled
+     * @param nodes the nodes used by the generated code
+     * @param variables the variables used by the generated code
+     */
+    protected CompiledExpression(RValue source, RValue[] nodes, Variable[] variables) {
+        super(source.getPosition());
+        this.source = source;
+        this.nodes = nodes;
+        this.variables = variables;
+    }
+
+    /**
+     * Get the expression that was compiled.
+     *
+     * @return the source expression
+     */
+    public RValue getSource() {
+        return source;
+    }
+
+    /**
+     * Called by generated loops before each iteration to enforce the same
+     * iteration limit as the interpreter.
+     *
+     * @param iterations the number of iterations so far
+     * @param position the position of the loop
+     * @throws EvaluationException thrown if the loop has run too often
+     */
+    protected static void checkIterations(int iterations, int position) throws EvaluationException {
+        if (iterations > 256) {
+            throw new EvaluationException(position, "Loop exceeded 256 iterations.");
+        }
+    }
+
+    @Override
+    public char id() {
+        return source.id();
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+}
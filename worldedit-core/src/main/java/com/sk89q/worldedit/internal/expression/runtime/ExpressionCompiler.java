@@ -0,0 +1,739 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+import com.sk89q.worldedit.internal.expression.runtime.ClassWriter.Code;
+import com.sk89q.worldedit.internal.expression.runtime.ClassWriter.Label;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.sk89q.worldedit.internal.expression.runtime.ClassWriter.*;
+
+/**
+ * Compiles an optimized expression tree into a class with a single
+ * {@link RValue#getValue()} method.
+ *
+ * <p>Constants, variables, operators, conditionals, sequences and loops
+ * without {@code break} or {@code continue} are compiled into bytecode that
+ * works on primitive doubles. Math functions are called directly on
+ * {@link Math}, and other functions are called directly with their argument
+ * nodes instead of through reflection. Anything else is left to the
+ * interpreter: the generated code calls {@link RValue#getValue()} on the
+ * original node.</p>
+ *
+ * <p>Each compiled expression gets its own class loader, so that its class
+ * can be unloaded together with the expression.</p>
+ */
+public final class ExpressionCompiler {
+
+    private static final Logger log = Logger.getLogger(ExpressionCompiler.class.getCanonicalName());
+    private static final AtomicInteger classCount = new AtomicInteger();
+    private static final Map<String, String> mathFunctions = new HashMap<String, String>();
+    private static volatile boolean enabled = true;
+
+    private static final String BASE = internalName(CompiledExpression.class);
+    private static final String RVALUE = internalName(RValue.class);
+    private static final String VARIABLE = internalName(Variable.class);
+    private static final String MATH = internalName(Math.class);
+
+    static {
+        for (String name : new String[] { "sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh",
+                "sqrt", "cbrt", "abs", "ceil", "floor", "rint", "exp", "log", "log10" }) {
+            mathFunctions.put(name + "/1", name);
+        }
+        mathFunctions.put("ln/1", "log");
+        mathFunctions.put("round/1", "round");
+        mathFunctions.put("atan2/2", "atan2");
+        mathFunctions.put("min/2", "min");
+        mathFunctions.put("max/2", "max");
+        mathFunctions.put("min/3", "min");
+        mathFunctions.put("max/3", "max");
+    }
+
+    private final RValue source;
+    private final List<RValue> nodes = new ArrayList<RValue>();
+    private final List<Variable> variables = new ArrayList<Variable>();
+    private final Map<Variable, Integer> variableSlots = new IdentityHashMap<Variable, Integer>();
+    private final List<Label> labels = new ArrayList<Label>();
+    private final String name;
+    private final ClassWriter writer;
+    private final Code code = new Code(1);
+    private int compiled = 0;
+
+    private ExpressionCompiler(RValue source) {
+        this.source = source;
+        this.name = BASE + "$Generated" + classCount.incrementAndGet();
+        this.writer = new ClassWriter(name, BASE);
+    }
+
+    /**
+     * Return whether expressions are compiled.
+     *
+     * @return true if enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set whether expressions are compiled. If disabled,
+     * {@link #compile(RValue)} returns expressions unchanged.
+     *
+     * @param enabled true to enable
+     */
+    public static void setEnabled(boolean enabled) {
+        ExpressionCompiler.enabled = enabled;
+    }
+
+    /**
+     * Compile the given expression.
+     *
+     * <p>If the expression cannot be compiled, or compiling it would not
+     * make it faster, it is returned unchanged.</p>
+     *
+     * @param expression the optimized expression
+     * @return the compiled expression, or the given expression
+     */
+    public static RValue compile(RValue expression) {
+        if (!enabled || expression instanceof Constant || expression instanceof Variable
+                || expression instanceof CompiledExpression) {
+            return expression;
+        }
+
+        try {
+            return new ExpressionCompiler(expression).generate();
+        } catch (RuntimeException e) {
+            log.log(Level.FINE, "Failed to compile expression " + expression, e);
+        } catch (LinkageError e) {
+            log.log(Level.FINE, "Failed to load compiled expression " + expression, e);
+        } catch (ReflectiveOperationException e) {
+            log.log(Level.FINE, "Failed to create compiled expression " + expression, e);
+        }
+        return expression;
+    }
+
+    private RValue generate() throws ReflectiveOperationException {
+        emit(source);
+        if (compiled == 0) {
+            return source;
+        }
+
+        Code method = new Code(1);
+        for (int i = 0; i < variables.size(); i++) {
+            method.op(ALOAD_0, 1);
+            method.op2(GETFIELD, writer.fieldRef(BASE, "variables", "[L" + VARIABLE + ";"), 0);
+            pushInt(method, i);
+            method.op(AALOAD, -1);
+            method.op1(ASTORE, variableSlots.get(variables.get(i)), -1);
+        }
+        method.append(code, labels);
+        method.op(DRETURN, -2);
+        writer.addMethod("getValue", "()D", method);
+
+        String constructor = "(L" + RVALUE + ";[L" + RVALUE + ";[L" + VARIABLE + ";)V";
+        Code init = new Code(4);
+        init.op(ALOAD_0, 1);
+        init.op1(ALOAD, 1, 1);
+        init.op1(ALOAD, 2, 1);
+        init.op1(ALOAD, 3, 1);
+        init.op2(INVOKESPECIAL, writer.methodRef(BASE, "<init>", constructor), -4);
+        init.op(RETURN, 0);
+        writer.addMethod("<init>", constructor, init);
+
+        Class<?> type = new Loader(CompiledExpression.class.getClassLoader()).define(name.replace('/', '.'), writer.toByteArray());
+        Constructor<?> ctor = type.getConstructor(RValue.class, RValue[].class, Variable[].class);
+        try {
+            return (RValue) ctor.newInstance(source,
+                    nodes.toArray(new RValue[nodes.size()]),
+                    variables.toArray(new Variable[variables.size()]));
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Emit code that leaves the value of the given node on the stack.
+     *
+     * @param node the node
+     */
+    private void emit(RValue node) {
+        if (node instanceof Constant) {
+            pushDouble(((Constant) node).getValue());
+        } else if (node instanceof Variable) {
+            loadVariable((Variable) node);
+            code.op2(GETFIELD, writer.fieldRef(VARIABLE, "value", "D"), 1);
+        } else if (node instanceof LValueFunction) {
+            emitNode(node);
+            return;
+        } else if (node instanceof Function) {
+            if (!emitFunction((Function) node)) {
+                emitNode(node);
+                return;
+            }
+        } else if (node instanceof Conditional) {
+            emitConditional((Conditional) node);
+        } else if (node instanceof Sequence) {
+            emitSequence((Sequence) node);
+        } else if (node instanceof While && !containsBreak(node)) {
+            emitWhile((While) node);
+        } else if (node instanceof For && !containsBreak(node)) {
+            emitFor((For) node);
+        } else if (node instanceof SimpleFor && ((SimpleFor) node).counter instanceof Variable && !containsBreak(node)) {
+            emitSimpleFor((SimpleFor) node);
+        } else {
+            emitNode(node);
+            return;
+        }
+        compiled++;
+    }
+
+    /**
+     * Emit code that evaluates the given node with the interpreter.
+     *
+     * @param node the node
+     */
+    private void emitNode(RValue node) {
+        loadNode(node);
+        code.invokeInterface(writer.interfaceMethodRef(RVALUE, "getValue", "()D"), 0, 1);
+    }
+
+    private boolean emitFunction(Function function) {
+        Method method = function.method;
+        RValue[] args = function.args;
+        String key = method.getName() + "/" + args.length;
+
+        if (method.getDeclaringClass() == Operators.class && emitOperator(method.getName(), args)) {
+            return true;
+        }
+
+        if (method.getDeclaringClass() == Functions.class && mathFunctions.containsKey(key)) {
+            for (RValue arg : args) {
+                emit(arg);
+            }
+            String mathName = mathFunctions.get(key);
+            if (mathName.equals("round")) {
+                code.op2(INVOKESTATIC, writer.methodRef(MATH, "round", "(D)J"), 0);
+                code.op(L2D, 0);
+            } else if (args.length == 1) {
+                code.op2(INVOKESTATIC, writer.methodRef(MATH, mathName, "(D)D"), 0);
+            } else {
+                for (int i = 1; i < args.length; i++) {
+                    code.op2(INVOKESTATIC, writer.methodRef(MATH, mathName, "(DD)D"), -2);
+                }
+            }
+            return true;
+        }
+
+        return emitInvoke(method, args);
+    }
+
+    /**
+     * Emit a direct call to a static method that takes the argument nodes.
+     *
+     * @param method the method
+     * @param args the arguments
+     * @return true if the call could be emitted
+     */
+    private boolean emitInvoke(Method method, RValue[] args) {
+        Class<?>[] parameters = method.getParameterTypes();
+        if (!Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers())
+                || !Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                || method.getReturnType() != double.class || parameters.length != args.length) {
+            return false;
+        }
+
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> parameter : parameters) {
+            if (parameter != RValue.class && parameter != LValue.class) {
+                return false;
+            }
+            descriptor.append('L').append(internalName(parameter)).append(';');
+        }
+        descriptor.append(")D");
+
+        for (int i = 0; i < args.length; i++) {
+            loadNode(args[i]);
+            if (parameters[i] != RValue.class) {
+                code.op2(CHECKCAST, writer.classRef(internalName(parameters[i])), 0);
+            }
+        }
+        code.op2(INVOKESTATIC, writer.methodRef(internalName(method.getDeclaringClass()), method.getName(), descriptor.toString()), 2 - args.length);
+        return true;
+    }
+
+    private boolean emitOperator(String name, RValue[] args) {
+        if (args.length == 2) {
+            RValue lhs = args[0];
+            RValue rhs = args[1];
+            if (name.equals("add")) {
+                emitArithmetic(lhs, rhs, DADD);
+            } else if (name.equals("sub")) {
+                emitArithmetic(lhs, rhs, DSUB);
+            } else if (name.equals("mul")) {
+                emitArithmetic(lhs, rhs, DMUL);
+            } else if (name.equals("div")) {
+                emitArithmetic(lhs, rhs, DDIV);
+            } else if (name.equals("mod")) {
+                emitArithmetic(lhs, rhs, DREM);
+            } else if (name.equals("pow")) {
+                emit(lhs);
+                emit(rhs);
+                code.op2(INVOKESTATIC, writer.methodRef(MATH, "pow", "(DD)D"), -2);
+            } else if (name.equals("lth")) {
+                emitComparison(lhs, rhs, DCMPG, IFGE);
+            } else if (name.equals("leq")) {
+                emitComparison(lhs, rhs, DCMPG, IFGT);
+            } else if (name.equals("gth")) {
+                emitComparison(lhs, rhs, DCMPL, IFLE);
+            } else if (name.equals("geq")) {
+                emitComparison(lhs, rhs, DCMPL, IFLT);
+            } else if (name.equals("equ")) {
+                emitComparison(lhs, rhs, DCMPL, IFNE);
+            } else if (name.equals("neq")) {
+                emitComparison(lhs, rhs, DCMPL, IFEQ);
+            } else if (name.equals("and")) {
+                Label falseLabel = newLabel();
+                emitTest(lhs, IFLE, falseLabel);
+                emitTest(rhs, IFLE, falseLabel);
+                emitBoolean(falseLabel, DCONST_1, DCONST_0);
+            } else if (name.equals("or")) {
+                Label trueLabel = newLabel();
+                emitTest(lhs, IFGT, trueLabel);
+                emitTest(rhs, IFGT, trueLabel);
+                emitBoolean(trueLabel, DCONST_0, DCONST_1);
+            } else if (name.equals("shl")) {
+                emitShift(lhs, rhs, LSHL);
+            } else if (name.equals("shr")) {
+                emitShift(lhs, rhs, LSHR);
+            } else if (lhs instanceof Variable) {
+                return emitAssignment(name, (Variable) lhs, rhs);
+            } else {
+                return false;
+            }
+            return true;
+        } else if (args.length == 1) {
+            RValue x = args[0];
+            if (name.equals("neg")) {
+                emit(x);
+                code.op(DNEG, 0);
+            } else if (name.equals("not")) {
+                Label falseLabel = newLabel();
+                emitTest(x, IFGT, falseLabel);
+                emitBoolean(falseLabel, DCONST_1, DCONST_0);
+            } else if (name.equals("inv")) {
+                emit(x);
+                code.op(D2L, 0);
+                code.op(ICONST_M1, 1);
+                code.op(I2L, 1);
+                code.op(LXOR, -2);
+                code.op(L2D, 0);
+            } else if (x instanceof Variable) {
+                return emitIncrement(name, (Variable) x);
+            } else {
+                return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void emitArithmetic(RValue lhs, RValue rhs, int opcode) {
+        emit(lhs);
+        emit(rhs);
+        code.op(opcode, -2);
+    }
+
+    private void emitShift(RValue lhs, RValue rhs, int opcode) {
+        emit(lhs);
+        code.op(D2L, 0);
+        emit(rhs);
+        code.op(D2L, 0);
+        code.op(L2I, -1);
+        code.op(opcode, -1);
+        code.op(L2D, 0);
+    }
+
+    /**
+     * Emit a comparison that results in 1 or 0.
+     *
+     * @param lhs the left-hand side
+     * @param rhs the right-hand side
+     * @param compare the comparison instruction
+     * @param jumpIfFalse the jump that is taken if the comparison is false
+     */
+    private void emitComparison(RValue lhs, RValue rhs, int compare, int jumpIfFalse) {
+        emit(lhs);
+        emit(rhs);
+        code.op(compare, -3);
+        Label falseLabel = newLabel();
+        code.jump(jumpIfFalse, falseLabel, -1);
+        emitBoolean(falseLabel, DCONST_1, DCONST_0);
+    }
+
+    /**
+     * Emit code that compares a value to 0 and jumps if it is true.
+     *
+     * @param value the value
+     * @param jump the jump instruction
+     * @param label the label to jump to
+     */
+    private void emitTest(RValue value, int jump, Label label) {
+        emit(value);
+        code.op(DCONST_0, 2);
+        code.op(DCMPL, -3);
+        code.jump(jump, label, -1);
+    }
+
+    /**
+     * Push one of two constants depending on whether the given label
+     * was jumped to.
+     *
+     * @param jumped the label
+     * @param fallThrough the constant to push if the label was not jumped to
+     * @param jumpedTo the constant to push if the label was jumped to
+     */
+    private void emitBoolean(Label jumped, int fallThrough, int jumpedTo) {
+        Label end = newLabel();
+        int stack = code.getStack();
+        code.op(fallThrough, 2);
+        code.jump(GOTO, end, 0);
+        code.setStack(stack);
+        code.mark(jumped);
+        code.op(jumpedTo, 2);
+        code.mark(end);
+    }
+
+    private boolean emitAssignment(String name, Variable variable, RValue rhs) {
+        int opcode;
+        if (name.equals("ass")) {
+            opcode = 0;
+        } else if (name.equals("aadd")) {
+            opcode = DADD;
+        } else if (name.equals("asub")) {
+            opcode = DSUB;
+        } else if (name.equals("amul")) {
+            opcode = DMUL;
+        } else if (name.equals("adiv")) {
+            opcode = DDIV;
+        } else if (name.equals("amod")) {
+            opcode = DREM;
+        } else if (name.equals("aexp")) {
+            opcode = -1;
+        } else {
+            return false;
+        }
+
+        loadVariable(variable);
+        if (opcode != 0) {
+            code.op(DUP, 1);
+            code.op2(GETFIELD, writer.fieldRef(VARIABLE, "value", "D"), 1);
+        }
+        emit(rhs);
+        if (opcode == -1) {
+            code.op2(INVOKESTATIC, writer.methodRef(MATH, "pow", "(DD)D"), -2);
+        } else if (opcode != 0) {
+            code.op(opcode, -2);
+        }
+        storeVariable();
+        return true;
+    }
+
+    private boolean emitIncrement(String name, Variable variable) {
+        boolean post;
+        int opcode;
+        if (name.equals("inc")) {
+            post = false;
+            opcode = DADD;
+        } else if (name.equals("dec")) {
+            post = false;
+            opcode = DSUB;
+        } else if (name.equals("postinc")) {
+            post = true;
+            opcode = DADD;
+        } else if (name.equals("postdec")) {
+            post = true;
+            opcode = DSUB;
+        } else {
+            return false;
+        }
+
+        loadVariable(variable);
+        code.op(DUP, 1);
+        code.op2(GETFIELD, writer.fieldRef(VARIABLE, "value", "D"), 1);
+        if (post) {
+            // Keep the old value below the variable
+            code.op(DUP2_X1, 2);
+            code.op(DCONST_1, 2);
+            code.op(opcode, -2);
+            code.op2(PUTFIELD, writer.fieldRef(VARIABLE, "value", "D"), -3);
+        } else {
+            code.op(DCONST_1, 2);
+            code.op(opcode, -2);
+            storeVariable();
+        }
+        return true;
+    }
+
+    /**
+     * Store the value on the stack into the variable below it and leave
+     * the value on the stack.
+     */
+    private void storeVariable() {
+        code.op(DUP2_X1, 2);
+        code.op2(PUTFIELD, writer.fieldRef(VARIABLE, "value", "D"), -3);
+    }
+
+    private void emitConditional(Conditional conditional) {
+        Label elseLabel = newLabel();
+        Label end = newLabel();
+        emitTest(conditional.condition, IFLE, elseLabel);
+        int stack = code.getStack();
+        emit(conditional.truePart);
+        code.jump(GOTO, end, 0);
+        code.setStack(stack);
+        code.mark(elseLabel);
+        if (conditional.falsePart == null) {
+            code.op(DCONST_0, 2);
+        } else {
+            emit(conditional.falsePart);
+        }
+        code.mark(end);
+    }
+
+    private void emitSequence(Sequence sequence) {
+        if (sequence.sequence.length == 0) {
+            code.op(DCONST_0, 2);
+            return;
+        }
+        for (int i = 0; i < sequence.sequence.length; i++) {
+            if (i > 0) {
+                code.op(POP2, -2);
+            }
+            emit(sequence.sequence[i]);
+        }
+    }
+
+    private void emitWhile(While loop) {
+        int result = code.allocate(2);
+        int iterations = code.allocate(1);
+        Label start = newLabel();
+        Label end = newLabel();
+        initLoop(result, iterations);
+
+        code.mark(start);
+        if (!loop.footChecked) {
+            emitTest(loop.condition, IFLE, end);
+        }
+        emitIteration(iterations, loop.getPosition(), loop.body, result);
+        if (loop.footChecked) {
+            emitTest(loop.condition, IFGT, start);
+        } else {
+            code.jump(GOTO, start, 0);
+        }
+        code.mark(end);
+        code.op1(DLOAD, result, 2);
+    }
+
+    private void emitFor(For loop) {
+        int result = code.allocate(2);
+        int iterations = code.allocate(1);
+        Label start = newLabel();
+        Label end = newLabel();
+        initLoop(result, iterations);
+
+        emit(loop.init);
+        code.op(POP2, -2);
+        code.mark(start);
+        emitTest(loop.condition, IFLE, end);
+        emitIteration(iterations, loop.getPosition(), loop.body, result);
+        emit(loop.increment);
+        code.op(POP2, -2);
+        code.jump(GOTO, start, 0);
+        code.mark(end);
+        code.op1(DLOAD, result, 2);
+    }
+
+    private void emitSimpleFor(SimpleFor loop) {
+        int result = code.allocate(2);
+        int iterations = code.allocate(1);
+        int counter = code.allocate(2);
+        int last = code.allocate(2);
+        Label start = newLabel();
+        Label end = newLabel();
+        initLoop(result, iterations);
+
+        emit(loop.first);
+        code.op1(DSTORE, counter, -2);
+        emit(loop.last);
+        code.op1(DSTORE, last, -2);
+        code.mark(start);
+        code.op1(DLOAD, counter, 2);
+        code.op1(DLOAD, last, 2);
+        code.op(DCMPG, -3);
+        code.jump(IFGT, end, -1);
+        loadVariable((Variable) loop.counter);
+        code.op1(DLOAD, counter, 2);
+        code.op2(PUTFIELD, writer.fieldRef(VARIABLE, "value", "D"), -3);
+        emitIteration(iterations, loop.getPosition(), loop.body, result);
+        code.op1(DLOAD, counter, 2);
+        code.op(DCONST_1, 2);
+        code.op(DADD, -2);
+        code.op1(DSTORE, counter, -2);
+        code.jump(GOTO, start, 0);
+        code.mark(end);
+        code.op1(DLOAD, result, 2);
+    }
+
+    private void initLoop(int result, int iterations) {
+        code.op(DCONST_0, 2);
+        code.op1(DSTORE, result, -2);
+        code.op(ICONST_0, 1);
+        code.op1(ISTORE, iterations, -1);
+    }
+
+    private void emitIteration(int iterations, int position, RValue body, int result) {
+        code.op1(ILOAD, iterations, 1);
+        pushInt(code, position);
+        code.op2(INVOKESTATIC, writer.methodRef(BASE, "checkIterations", "(II)V"), -2);
+        code.iinc(iterations, 1);
+        emit(body);
+        code.op1(DSTORE, result, -2);
+    }
+
+    private void loadVariable(Variable variable) {
+        Integer slot = variableSlots.get(variable);
+        if (slot == null) {
+            slot = code.allocate(1);
+            variableSlots.put(variable, slot);
+            variables.add(variable);
+        }
+        code.op1(ALOAD, slot, 1);
+    }
+
+    private void loadNode(RValue node) {
+        int index = nodes.size();
+        nodes.add(node);
+        code.op(ALOAD_0, 1);
+        code.op2(GETFIELD, writer.fieldRef(BASE, "nodes", "[L" + RVALUE + ";"), 0);
+        pushInt(code, index);
+        code.op(AALOAD, -1);
+    }
+
+    private void pushDouble(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            code.op(DCONST_0, 2);
+        } else if (value == 1.0) {
+            code.op(DCONST_1, 2);
+        } else {
+            code.op2(LDC2_W, writer.doubleConstant(value), 2);
+        }
+    }
+
+    private void pushInt(Code code, int value) {
+        if (value >= -1 && value <= 5) {
+            code.op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.op1(BIPUSH, value, 1);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.op2(SIPUSH, value, 1);
+        } else {
+            code.op2(LDC_W, writer.intConstant(value), 1);
+        }
+    }
+
+    private Label newLabel() {
+        Label label = new Label();
+        labels.add(label);
+        return label;
+    }
+
+    /**
+     * Return whether the given node contains a {@code break} or
+     * {@code continue} statement, which compiled loops do not support.
+     *
+     * @param node the node
+     * @return true if it contains one
+     */
+    private static boolean containsBreak(RValue node) {
+        if (node instanceof Break) {
+            return true;
+        } else if (node instanceof Function) {
+            for (RValue arg : ((Function) node).args) {
+                if (containsBreak(arg)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof Sequence) {
+            for (RValue child : ((Sequence) node).sequence) {
+                if (containsBreak(child)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof Conditional) {
+            Conditional conditional = (Conditional) node;
+            return containsBreak(conditional.condition) || containsBreak(conditional.truePart)
+                    || (conditional.falsePart != null && containsBreak(conditional.falsePart));
+        } else if (node instanceof While) {
+            return containsBreak(((While) node).condition) || containsBreak(((While) node).body);
+        } else if (node instanceof For) {
+            For loop = (For) node;
+            return containsBreak(loop.init) || containsBreak(loop.condition)
+                    || containsBreak(loop.increment) || containsBreak(loop.body);
+        } else if (node instanceof SimpleFor) {
+            SimpleFor loop = (SimpleFor) node;
+            return containsBreak(loop.first) || containsBreak(loop.last) || containsBreak(loop.body);
+        } else if (!(node instanceof Constant) && !(node instanceof Variable)) {
+            // Other statements, such as switch, may catch breaks themselves,
+            // but are not looked into
+            return true;
+        }
+        return false;
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    /**
+     * Defines the class of a single compiled expression.
+     */
+    private static final class Loader extends ClassLoader {
+        private Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Finds out whether an expression carries state from one evaluation to
+ * the next.
+ *
+ * <p>An expression is stateless if every variable is assigned before it is
+ * read, except for the parameters, and it does not call functions that
+ * use buffers or the environment. The check is conservative: assignments
+ * inside conditionals and loops are not considered to assign the variable
+ * for the code that follows them.</p>
+ */
+public final class StateAnalysis {
+
+    private static final Set<String> statefulFunctions = new HashSet<String>(Arrays.asList(
+            "megabuf", "gmegabuf", "closest", "gclosest", "query", "queryAbs", "queryRel"));
+
+    private StateAnalysis() {
+    }
+
+    /**
+     * Return whether the given expression is stateless.
+     *
+     * @param root the root of the expression
+     * @param parameters the variables that are set before each evaluation
+     * @return true if stateless
+     */
+    public static boolean isStateless(RValue root, Collection<Variable> parameters) {
+        Set<Variable> assigned = newSet();
+        assigned.addAll(parameters);
+        return isStateless(root, assigned);
+    }
+
+    /**
+     * Check a node.
+     *
+     * @param node the node
+     * @param assigned the variables that are assigned when the node is evaluated, to which
+     *                 the variables that the node always assigns are added
+     * @return true if stateless
+     */
+    private static boolean isStateless(RValue node, Set<Variable> assigned) {
+        if (node instanceof Constant || node instanceof Break) {
+            return true;
+        } else if (node instanceof Variable) {
+            return assigned.contains(node);
+        } else if (node instanceof CompiledExpression) {
+            return isStateless(((CompiledExpression) node).getSource(), assigned);
+        } else if (node instanceof Function) {
+            Function function = (Function) node;
+            String name = function.method.getName();
+            if (function.method.getDeclaringClass() == Functions.class && statefulFunctions.contains(name)) {
+                return false;
+            }
+            RValue[] args = function.args;
+            if (function.method.getDeclaringClass() == Operators.class && name.equals("ass") && args[0] instanceof Variable) {
+                if (!isStateless(args[1], assigned)) {
+                    return false;
+                }
+                assigned.add((Variable) args[0]);
+                return true;
+            }
+            return allStateless(assigned, args);
+        } else if (node instanceof Sequence) {
+            return allStateless(assigned, ((Sequence) node).sequence);
+        } else if (node instanceof Conditional) {
+            Conditional conditional = (Conditional) node;
+            return isStateless(conditional.condition, assigned)
+                    && isStateless(conditional.truePart, copy(assigned))
+                    && (conditional.falsePart == null || isStateless(conditional.falsePart, copy(assigned)));
+        } else if (node instanceof While) {
+            While loop = (While) node;
+            if (loop.footChecked) {
+                Set<Variable> inner = copy(assigned);
+                return isStateless(loop.body, inner) && isStateless(loop.condition, inner);
+            }
+            return isStateless(loop.condition, assigned) && isStateless(loop.body, copy(assigned));
+        } else if (node instanceof For) {
+            For loop = (For) node;
+            if (!isStateless(loop.init, assigned) || !isStateless(loop.condition, assigned)) {
+                return false;
+            }
+            Set<Variable> inner = copy(assigned);
+            return isStateless(loop.body, inner) && isStateless(loop.increment, inner);
+        } else if (node instanceof SimpleFor) {
+            SimpleFor loop = (SimpleFor) node;
+            if (!(loop.counter instanceof Variable) || !isStateless(loop.first, assigned) || !isStateless(loop.last, assigned)) {
+                return false;
+            }
+            Set<Variable> inner = copy(assigned);
+            inner.add((Variable) loop.counter);
+            return isStateless(loop.body, inner);
+        } else if (node instanceof Switch) {
+            Switch switchNode = (Switch) node;
+            if (!isStateless(switchNode.parameter, assigned)) {
+                return false;
+            }
+            for (RValue caseStatement : switchNode.caseStatements) {
+                if (!isStateless(caseStatement, copy(assigned))) {
+                    return false;
+                }
+            }
+            return switchNode.defaultCase == null || isStateless(switchNode.defaultCase, copy(assigned));
+        } else if (node instanceof Return) {
+            return isStateless(((Return) node).value, assigned);
+        }
+        return false;
+    }
+
+    private static boolean allStateless(Set<Variable> assigned, RValue... nodes) {
+        for (RValue node : nodes) {
+            if (!isStateless(node, assigned)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<Variable> newSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<Variable, Boolean>());
+    }
+
+    private static Set<Variable> copy(Set<Variable> assigned) {
+        Set<Variable> copy = newSet();
+        copy.addAll(assigned);
+        return copy;
+    }
+
+}
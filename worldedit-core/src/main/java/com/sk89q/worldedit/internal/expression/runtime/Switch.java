@@ -34,10 +34,10 @@
  */
 public class Switch extends Node implements RValue {
 
-    private RValue parameter;
+    RValue parameter;
     private final Map<Double, Integer> valueMap;
-    private final RValue[] caseStatements;
-    private RValue defaultCase;
+    final RValue[] caseStatements;
+    RValue defaultCase;
 
     public Switch(int position, RValue parameter, List<Double> values, List<RValue> caseStatements, RValue defaultCase) {
         this(position, parameter, invertList(values), caseStatements, defaultCase);
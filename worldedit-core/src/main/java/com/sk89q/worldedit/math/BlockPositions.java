@@ -0,0 +1,96 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math;
+
+/**
+ * Packs block positions into a single {@code long}.
+ *
+ * <p>X and Z are stored as signed 26-bit values and Y as a signed 12-bit
+ * value, which covers the full extent of a Minecraft world.</p>
+ */
+public final class BlockPositions {
+
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+    private static final int XZ_MIN = -(1 << (XZ_BITS - 1));
+    private static final int XZ_MAX = (1 << (XZ_BITS - 1)) - 1;
+    private static final int Y_MIN = -(1 << (Y_BITS - 1));
+    private static final int Y_MAX = (1 << (Y_BITS - 1)) - 1;
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+
+    private BlockPositions() {
+    }
+
+    /**
+     * Return whether the given position can be packed.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is within range
+     */
+    public static boolean canPack(int x, int y, int z) {
+        return x >= XZ_MIN && x <= XZ_MAX && z >= XZ_MIN && z <= XZ_MAX && y >= Y_MIN && y <= Y_MAX;
+    }
+
+    /**
+     * Pack the given position.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the packed position
+     */
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << (XZ_BITS + Y_BITS)) | ((z & XZ_MASK) << Y_BITS) | (y & Y_MASK);
+    }
+
+    /**
+     * Get the X coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the X coordinate
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> (XZ_BITS + Y_BITS));
+    }
+
+    /**
+     * Get the Y coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the Y coordinate
+     */
+    public static int unpackY(long packed) {
+        return (int) (packed << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    /**
+     * Get the Z coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the Z coordinate
+     */
+    public static int unpackZ(long packed) {
+        return (int) (packed << XZ_BITS >> (64 - XZ_BITS));
+    }
+
+}
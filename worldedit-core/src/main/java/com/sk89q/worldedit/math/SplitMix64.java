@@ -0,0 +1,113 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.math;
+
+/**
+ * A fast, splittable pseudo-random number generator based on SplitMix64.
+ *
+ * <p>Instances are not thread-safe. Use {@link #split()} to derive an
+ * independent generator for another thread, or {@link #hash(long, int, int, int)}
+ * to get a value that only depends on a seed and a position.</p>
+ */
+public final class SplitMix64 {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long state;
+
+    /**
+     * Create a new generator.
+     *
+     * @param seed the seed
+     */
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Get the next pseudo-random {@code long}.
+     *
+     * @return a value
+     */
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * Get the next pseudo-random {@code double} between 0 (inclusive)
+     * and 1 (exclusive).
+     *
+     * @return a value
+     */
+    public double nextDouble() {
+        return toDouble(nextLong());
+    }
+
+    /**
+     * Create a new generator that is seeded from this one.
+     *
+     * @return a new generator
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong());
+    }
+
+    /**
+     * Scramble the bits of the given value.
+     *
+     * @param z the value
+     * @return the scrambled value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Get a pseudo-random value that only depends on the seed and the
+     * given position.
+     *
+     * @param seed the seed
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return a value
+     */
+    public static long hash(long seed, int x, int y, int z) {
+        long h = mix(seed + GOLDEN_GAMMA * (x & 0xFFFFFFFFL));
+        h = mix(h + GOLDEN_GAMMA * (y & 0xFFFFFFFFL));
+        return mix(h + GOLDEN_GAMMA * (z & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Convert a pseudo-random {@code long} into a {@code double} between
+     * 0 (inclusive) and 1 (exclusive).
+     *
+     * @param value the value
+     * @return a double
+     */
+    public static double toDouble(long value) {
+        return (value >>> 11) * DOUBLE_UNIT;
+    }
+
+}
@@ -21,6 +21,8 @@
 
 import com.sk89q.worldedit.*;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.iterator.BoundingBoxCursor;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
 import com.sk89q.worldedit.regions.iterator.RegionIterator;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.storage.ChunkStore;
@@ -50,6 +52,41 @@ public Iterator<BlockVector> iterator() {
         return new RegionIterator(this);
     }
 
+    /**
+     * Returns true if the given block position is contained within this
+     * region.
+     *
+     * <p>Subclasses should override this to test the coordinates without
+     * creating a vector.</p>
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return whether the position is contained
+     */
+    public boolean contains(int x, int y, int z) {
+        return contains(new Vector(x, y, z));
+    }
+
+    /**
+     * Get a cursor over the points inside the region, in the same order as
+     * {@link #iterator()}.
+     *
+     * <p>This implementation visits the bounding box like the default
+     * iterator, so subclasses that override {@link #iterator()} must
+     * override this method as well.</p>
+     *
+     * @return a new cursor
+     */
+    public RegionCursor cursor() {
+        return new BoundingBoxCursor(getMinimumPoint(), getMaximumPoint()) {
+            @Override
+            protected boolean contains(int x, int y, int z) {
+                return AbstractRegion.this.contains(x, y, z);
+            }
+        };
+    }
+
     @Override
     public World getWorld() {
         return world;
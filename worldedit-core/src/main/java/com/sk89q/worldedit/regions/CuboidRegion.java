@@ -20,6 +20,8 @@
 package com.sk89q.worldedit.regions;
 
 import com.sk89q.worldedit.*;
+import com.sk89q.worldedit.regions.iterator.BoundingBoxCursor;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.storage.ChunkStore;
 
@@ -341,6 +343,21 @@ public boolean contains(Vector position) {
                 && z >= min.getBlockZ() && z <= max.getBlockZ();
     }
 
+    @Override
+    public boolean contains(int x, int y, int z) {
+        Vector min = getMinimumPoint();
+        Vector max = getMaximumPoint();
+
+        return x >= min.getBlockX() && x <= max.getBlockX()
+                && y >= min.getBlockY() && y <= max.getBlockY()
+                && z >= min.getBlockZ() && z <= max.getBlockZ();
+    }
+
+    @Override
+    public RegionCursor cursor() {
+        return new BoundingBoxCursor(getMinimumPoint(), getMaximumPoint());
+    }
+
     @Override
     public Iterator<BlockVector> iterator() {
         return new Iterator<BlockVector>() {
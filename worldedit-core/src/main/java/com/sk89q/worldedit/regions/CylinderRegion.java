@@ -27,7 +27,9 @@
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.geom.Polygons;
 import com.sk89q.worldedit.regions.iterator.FlatRegion3DIterator;
+import com.sk89q.worldedit.regions.iterator.FlatRegionCursor;
 import com.sk89q.worldedit.regions.iterator.FlatRegionIterator;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
 import com.sk89q.worldedit.world.World;
 
 import java.util.Iterator;
@@ -313,6 +315,17 @@ public boolean contains(Vector position) {
         return position.toVector2D().subtract(center).divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return y >= minY && y <= maxY && containsColumn(x, z);
+    }
+
+    private boolean containsColumn(int x, int z) {
+        double dx = (x - center.getX()) / radius.getX();
+        double dz = (z - center.getZ()) / radius.getZ();
+        return dx * dx + dz * dz <= 1;
+    }
+
 
     /**
      * Sets the height of the cylinder to fit the specified Y.
@@ -342,6 +355,16 @@ public Iterator<BlockVector> iterator() {
         return new FlatRegion3DIterator(this);
     }
 
+    @Override
+    public RegionCursor cursor() {
+        return new FlatRegionCursor(getMinimumPoint(), getMaximumPoint()) {
+            @Override
+            protected boolean containsColumn(int x, int z) {
+                return CylinderRegion.this.containsColumn(x, z);
+            }
+        };
+    }
+
     @Override
     public Iterable<Vector2D> asFlatRegion() {
         return new Iterable<Vector2D>() {
@@ -210,6 +210,14 @@ public boolean contains(Vector position) {
         return position.subtract(center).divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public boolean contains(int x, int y, int z) {
+        double dx = (x - center.getX()) / radius.getX();
+        double dy = (y - center.getY()) / radius.getY();
+        double dz = (z - center.getZ()) / radius.getZ();
+        return dx * dx + dy * dy + dz * dz <= 1;
+    }
+
     /**
      * Returns string representation in the format
      * "(centerX, centerY, centerZ) - (radiusX, radiusY, radiusZ)".
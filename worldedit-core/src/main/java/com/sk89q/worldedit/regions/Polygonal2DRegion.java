@@ -25,7 +25,9 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.regions.iterator.FlatRegion3DIterator;
+import com.sk89q.worldedit.regions.iterator.FlatRegionCursor;
 import com.sk89q.worldedit.regions.iterator.FlatRegionIterator;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
 import com.sk89q.worldedit.world.World;
 
 import java.util.ArrayList;
@@ -314,6 +316,11 @@ public boolean contains(Vector position) {
         return contains(points, minY, maxY, position);
     }
 
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return contains(points, minY, maxY, x, y, z);
+    }
+
     /**
      * Checks to see if a point is inside a region.
      *
@@ -324,12 +331,24 @@ public boolean contains(Vector position) {
      * @return true if the given polygon contains the given point
      */
     public static boolean contains(List<BlockVector2D> points, int minY, int maxY, Vector pt) {
+        return contains(points, minY, maxY, pt.getBlockX(), pt.getBlockY(), pt.getBlockZ());
+    }
+
+    /**
+     * Checks to see if a point is inside a region.
+     *
+     * @param points a list of points
+     * @param minY the min Y
+     * @param maxY the max Y
+     * @param targetX the X coordinate of the position to check
+     * @param targetY the Y coordinate of the position to check
+     * @param targetZ the Z coordinate of the position to check
+     * @return true if the given polygon contains the given point
+     */
+    public static boolean contains(List<BlockVector2D> points, int minY, int maxY, int targetX, int targetY, int targetZ) {
         if (points.size() < 3) {
             return false;
         }
-        int targetX = pt.getBlockX(); //wide
-        int targetY = pt.getBlockY(); //height
-        int targetZ = pt.getBlockZ(); //depth
 
         if (targetY < minY || targetY > maxY) {
             return false;
@@ -418,6 +437,16 @@ public Iterator<BlockVector> iterator() {
         return new FlatRegion3DIterator(this);
     }
 
+    @Override
+    public RegionCursor cursor() {
+        return new FlatRegionCursor(getMinimumPoint(), getMaximumPoint()) {
+            @Override
+            protected boolean containsColumn(int x, int z) {
+                return contains(points, minY, maxY, x, minY, z);
+            }
+        };
+    }
+
     @Override
     public Iterable<Vector2D> asFlatRegion() {
         return new Iterable<Vector2D>() {
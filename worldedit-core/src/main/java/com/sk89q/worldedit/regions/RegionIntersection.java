@@ -23,6 +23,8 @@
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.LocalWorld;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.iterator.IteratorCursor;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -134,6 +136,11 @@ public boolean contains(Vector position) {
         return false;
     }
 
+    @Override
+    public RegionCursor cursor() {
+        return new IteratorCursor(iterator());
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
     public Iterator<BlockVector> iterator() {
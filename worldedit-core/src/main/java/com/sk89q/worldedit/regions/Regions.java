@@ -19,6 +19,9 @@
 
 package com.sk89q.worldedit.regions;
 
+import com.sk89q.worldedit.regions.iterator.IteratorCursor;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
+
 /**
  * Utility methods relating to {@link Region}s.
  */
@@ -71,6 +74,24 @@ public static int maximumBlockY(Region region) {
         return region.getMaximumPoint().getBlockY();
     }
 
+    /**
+     * Get a cursor over the points inside the given region.
+     *
+     * <p>Regions that extend {@link AbstractRegion} provide their own cursor,
+     * which usually avoids creating a vector for every point. The cursor
+     * of any other region wraps its iterator.</p>
+     *
+     * @param region the region
+     * @return a new cursor
+     */
+    public static RegionCursor cursor(Region region) {
+        if (region instanceof AbstractRegion) {
+            return ((AbstractRegion) region).cursor();
+        } else {
+            return new IteratorCursor(region.iterator());
+        }
+    }
+
     /**
      * Attempt to get a {@link FlatRegion} from the given region.
      *
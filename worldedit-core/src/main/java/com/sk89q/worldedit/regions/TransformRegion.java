@@ -24,6 +24,8 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.math.transform.Identity;
 import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.iterator.IteratorCursor;
+import com.sk89q.worldedit.regions.iterator.RegionCursor;
 import com.sk89q.worldedit.world.World;
 
 import javax.annotation.Nullable;
@@ -161,6 +163,11 @@ public List<BlockVector2D> polygonize(int maxPoints) {
         return transformedPoints;
     }
 
+    @Override
+    public RegionCursor cursor() {
+        return new IteratorCursor(iterator());
+    }
+
     @Override
     public Iterator<BlockVector> iterator() {
         final Iterator<BlockVector> it = region.iterator();
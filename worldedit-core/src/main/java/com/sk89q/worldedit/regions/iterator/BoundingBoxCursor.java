@@ -0,0 +1,111 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.regions.iterator;
+
+import com.sk89q.worldedit.Vector;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Visits the positions within a bounding box, X first, then Y, then Z,
+ * which is the same order as {@link RegionIterator}.
+ *
+ * <p>Subclasses may override {@link #contains(int, int, int)} to skip
+ * positions that are not part of the region.</p>
+ */
+public class BoundingBoxCursor implements RegionCursor {
+
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    private int x;
+    private int y;
+    private int z;
+    private boolean done;
+
+    /**
+     * Create a new cursor.
+     *
+     * @param min the minimum point of the bounding box
+     * @param max the maximum point of the bounding box
+     */
+    public BoundingBoxCursor(Vector min, Vector max) {
+        checkNotNull(min);
+        checkNotNull(max);
+        this.minX = min.getBlockX();
+        this.minY = min.getBlockY();
+        this.maxX = max.getBlockX();
+        this.maxY = max.getBlockY();
+        this.maxZ = max.getBlockZ();
+        this.x = minX - 1;
+        this.y = minY;
+        this.z = min.getBlockZ();
+        this.done = minX > maxX || minY > maxY || z > maxZ;
+    }
+
+    /**
+     * Return whether the given position is part of the region.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position should be visited
+     */
+    protected boolean contains(int x, int y, int z) {
+        return true;
+    }
+
+    @Override
+    public boolean next() {
+        while (!done) {
+            if (++x > maxX) {
+                x = minX;
+                if (++y > maxY) {
+                    y = minY;
+                    if (++z > maxZ) {
+                        done = true;
+                        return false;
+                    }
+                }
+            }
+            if (contains(x, y, z)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getX() {
+        return x;
+    }
+
+    @Override
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public int getZ() {
+        return z;
+    }
+
+}
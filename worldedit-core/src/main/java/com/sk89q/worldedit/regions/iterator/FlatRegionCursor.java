@@ -0,0 +1,111 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.regions.iterator;
+
+import com.sk89q.worldedit.Vector;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Visits the positions of a region that is made of full-height columns,
+ * in the same order as {@link FlatRegion3DIterator}.
+ *
+ * <p>Each column is tested once with {@link #containsColumn(int, int)},
+ * after which every position in the column is visited from the bottom
+ * up.</p>
+ */
+public abstract class FlatRegionCursor implements RegionCursor {
+
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    private int x;
+    private int y;
+    private int z;
+    private boolean done;
+
+    /**
+     * Create a new cursor.
+     *
+     * @param min the minimum point of the bounding box
+     * @param max the maximum point of the bounding box
+     */
+    protected FlatRegionCursor(Vector min, Vector max) {
+        checkNotNull(min);
+        checkNotNull(max);
+        this.minX = min.getBlockX();
+        this.minY = min.getBlockY();
+        this.maxX = max.getBlockX();
+        this.maxY = max.getBlockY();
+        this.maxZ = max.getBlockZ();
+        this.x = minX - 1;
+        this.y = maxY;
+        this.z = min.getBlockZ();
+        this.done = minX > maxX || minY > maxY || z > maxZ;
+    }
+
+    /**
+     * Return whether the column at the given position is part of the region.
+     *
+     * @param x the X coordinate
+     * @param z the Z coordinate
+     * @return true if the column should be visited
+     */
+    protected abstract boolean containsColumn(int x, int z);
+
+    @Override
+    public boolean next() {
+        if (done) {
+            return false;
+        }
+        if (y < maxY) {
+            y++;
+            return true;
+        }
+        do {
+            if (++x > maxX) {
+                x = minX;
+                if (++z > maxZ) {
+                    done = true;
+                    return false;
+                }
+            }
+        } while (!containsColumn(x, z));
+        y = minY;
+        return true;
+    }
+
+    @Override
+    public int getX() {
+        return x;
+    }
+
+    @Override
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public int getZ() {
+        return z;
+    }
+
+}
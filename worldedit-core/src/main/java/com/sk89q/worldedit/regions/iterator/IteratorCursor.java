@@ -0,0 +1,71 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.regions.iterator;
+
+import com.sk89q.worldedit.Vector;
+
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Adapts an iterator of positions to a {@link RegionCursor}.
+ *
+ * <p>This is used for regions that do not provide their own cursor.</p>
+ */
+public class IteratorCursor implements RegionCursor {
+
+    private final Iterator<? extends Vector> iterator;
+    private Vector current;
+
+    /**
+     * Create a new cursor.
+     *
+     * @param iterator the iterator
+     */
+    public IteratorCursor(Iterator<? extends Vector> iterator) {
+        checkNotNull(iterator);
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean next() {
+        if (iterator.hasNext()) {
+            current = iterator.next();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int getX() {
+        return current.getBlockX();
+    }
+
+    @Override
+    public int getY() {
+        return current.getBlockY();
+    }
+
+    @Override
+    public int getZ() {
+        return current.getBlockZ();
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.regions.iterator;
+
+/**
+ * Visits the block positions of a region without creating a vector for
+ * every position.
+ *
+ * <p>A cursor starts before the first position. Each call to
+ * {@link #next()} moves it to the following position, after which the
+ * coordinates of that position can be read.</p>
+ */
+public interface RegionCursor {
+
+    /**
+     * Move to the next position.
+     *
+     * @return true if there was another position, false if all positions have been visited
+     */
+    boolean next();
+
+    /**
+     * Get the X coordinate of the current position.
+     *
+     * @return the X coordinate
+     */
+    int getX();
+
+    /**
+     * Get the Y coordinate of the current position.
+     *
+     * @return the Y coordinate
+     */
+    int getY();
+
+    /**
+     * Get the Z coordinate of the current position.
+     *
+     * @return the Z coordinate
+     */
+    int getZ();
+
+}
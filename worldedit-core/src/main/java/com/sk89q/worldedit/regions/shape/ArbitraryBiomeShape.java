@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.regions.shape;
 
+import com.google.common.base.Throwables;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.regions.CuboidRegion;
@@ -26,6 +27,17 @@
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Generates solid and hollow shapes according to materials returned by the
  * {@link #getBiome} method.
@@ -35,7 +47,6 @@ public abstract class ArbitraryBiomeShape {
     private final FlatRegion extent;
     private int cacheOffsetX;
     private int cacheOffsetZ;
-    @SuppressWarnings("FieldCanBeLocal")
     private int cacheSizeX;
     private int cacheSizeZ;
 
@@ -54,8 +65,8 @@ public ArbitraryBiomeShape(Region extent) {
         cacheOffsetX = min.getBlockX() - 1;
         cacheOffsetZ = min.getBlockZ() - 1;
 
-        cacheSizeX = (int) (max.getX() - cacheOffsetX + 2);
-        cacheSizeZ = (int) (max.getZ() - cacheOffsetZ + 2);
+        cacheSizeX = max.getBlockX() - cacheOffsetX + 2;
+        cacheSizeZ = max.getBlockZ() - cacheOffsetZ + 2;
 
         cache = new BaseBiome[cacheSizeX * cacheSizeZ];
     }
@@ -83,6 +94,16 @@ protected Iterable<Vector2D> getExtent() {
      */
     protected abstract BaseBiome getBiome(int x, int z, BaseBiome defaultBaseBiome);
 
+    /**
+     * Return whether {@link #getBiome} may be called from several threads
+     * at once.
+     *
+     * @return true if thread-safe
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     private BaseBiome getBiomeCached(int x, int z, BaseBiome baseBiome) {
         final int index = (z - cacheOffsetZ) + (x - cacheOffsetX) * cacheSizeZ;
 
@@ -180,6 +201,116 @@ public int generate(EditSession editSession, BaseBiome baseBiome, boolean hollow
         return affected;
     }
 
+    /**
+     * Generates the shape, evaluating it on several threads if possible.
+     *
+     * <p>If the shape is {@linkplain #isThreadSafe() thread-safe}, every
+     * column of the region's bounding box, grown by one block, is first
+     * evaluated on the executor in slabs along the X axis. The biomes are
+     * then set on the calling thread. Other shapes are generated on the
+     * calling thread.</p>
+     *
+     * @param editSession The EditSession to use.
+     * @param baseBiome The default biome type.
+     * @param hollow Specifies whether to generate a hollow shape.
+     * @param executor the executor to evaluate the shape on
+     * @param parallelism the number of tasks that evaluate the shape at once
+     * @return number of affected blocks.
+     */
+    public int generate(EditSession editSession, BaseBiome baseBiome, boolean hollow, ExecutorService executor, int parallelism) {
+        checkNotNull(executor);
+        checkArgument(parallelism >= 1, "parallelism >= 1 required");
+
+        if (parallelism == 1 || !isThreadSafe()) {
+            return generate(editSession, baseBiome, hollow);
+        }
+
+        final BaseBiome[] evaluated = evaluate(baseBiome, executor, parallelism);
+        int affected = 0;
+
+        for (Vector2D position : getExtent()) {
+            int x = position.getBlockX();
+            int z = position.getBlockZ();
+            final BaseBiome material = evaluated[index(x, z)];
+            if (material == OUTSIDE) {
+                continue;
+            }
+
+            if (hollow && evaluated[index(x + 1, z)] != OUTSIDE && evaluated[index(x - 1, z)] != OUTSIDE
+                    && evaluated[index(x, z + 1)] != OUTSIDE && evaluated[index(x, z - 1)] != OUTSIDE) {
+                continue;
+            }
+
+            editSession.getWorld().setBiome(position, material);
+            ++affected;
+        }
+
+        return affected;
+    }
+
+    /**
+     * Evaluate every column of the cache on several threads. The calling
+     * thread takes part and then only waits for tasks that other threads
+     * have started.
+     *
+     * @param baseBiome the default biome
+     * @param executor the executor to run the other tasks on
+     * @param parallelism the number of tasks, including the calling thread
+     * @return the biomes, with {@link #OUTSIDE} for columns outside the shape
+     */
+    private BaseBiome[] evaluate(final BaseBiome baseBiome, ExecutorService executor, int parallelism) {
+        final BaseBiome[] evaluated = new BaseBiome[cacheSizeX * cacheSizeZ];
+        final AtomicInteger next = new AtomicInteger();
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                int row;
+                while ((row = next.getAndIncrement()) < cacheSizeX) {
+                    int x = cacheOffsetX + row;
+                    for (int z = cacheOffsetZ; z < cacheOffsetZ + cacheSizeZ; z++) {
+                        BaseBiome biome = getBiome(x, z, baseBiome);
+                        evaluated[index(x, z)] = biome == null ? OUTSIDE : biome;
+                    }
+                }
+            }
+        };
+
+        List<FutureTask<?>> futures = new ArrayList<FutureTask<?>>();
+        try {
+            for (int i = 1; i < Math.min(parallelism, cacheSizeX); i++) {
+                FutureTask<?> future = new FutureTask<Void>(task, null);
+                executor.execute(future);
+                futures.add(future);
+            }
+        } catch (RejectedExecutionException ignored) {
+            // The calling thread evaluates whatever the submitted tasks do not
+        }
+
+        try {
+            task.run();
+            for (FutureTask<?> future : futures) {
+                // Tasks that have not started yet find no rows left and finish at once
+                future.run();
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the shape to be evaluated", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new RuntimeException("Failed to evaluate the shape", e.getCause());
+        } finally {
+            next.set(cacheSizeX);
+        }
+
+        return evaluated;
+    }
+
+    private int index(int x, int z) {
+        return (z - cacheOffsetZ) + (x - cacheOffsetX) * cacheSizeZ;
+    }
+
     private static final BaseBiome OUTSIDE = new BaseBiome(0) {
         @Override
         public int hashCode() {
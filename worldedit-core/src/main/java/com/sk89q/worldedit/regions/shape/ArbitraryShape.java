@@ -19,13 +19,34 @@
 
 package com.sk89q.worldedit.regions.shape;
 
+import com.google.common.base.Throwables;
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.pattern.Patterns;
 import com.sk89q.worldedit.patterns.Pattern;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.ChunkBatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Generates solid and hollow shapes according to materials returned by the
@@ -33,11 +54,12 @@
  */
 public abstract class ArbitraryShape {
 
+    private static final int SLAB_WIDTH = 4;
+
     protected final Region extent;
     private int cacheOffsetX;
     private int cacheOffsetY;
     private int cacheOffsetZ;
-    @SuppressWarnings("FieldCanBeLocal")
     private int cacheSizeX;
     private int cacheSizeY;
     private int cacheSizeZ;
@@ -52,11 +74,9 @@ public ArbitraryShape(Region extent) {
         cacheOffsetY = min.getBlockY() - 1;
         cacheOffsetZ = min.getBlockZ() - 1;
 
-        cacheSizeX = (int) (max.getX() - cacheOffsetX + 2);
-        cacheSizeY = (int) (max.getY() - cacheOffsetY + 2);
-        cacheSizeZ = (int) (max.getZ() - cacheOffsetZ + 2);
-
-        cache = new short[cacheSizeX * cacheSizeY * cacheSizeZ];
+        cacheSizeX = max.getBlockX() - cacheOffsetX + 2;
+        cacheSizeY = max.getBlockY() - cacheOffsetY + 2;
+        cacheSizeZ = max.getBlockZ() - cacheOffsetZ + 2;
     }
 
     protected Region getExtent() {
@@ -70,8 +90,10 @@ protected Region getExtent() {
      * -1 = outside
      * -2 = inside but type and data 0
      * > 0 = inside, value = (type | (data << 8)), not handling data < 0
+     *
+     * Only allocated for hollow shapes that are generated on one thread.
      */
-    private final short[] cache;
+    private short[] cache;
 
     /**
      * Override this function to specify the shape to generate.
@@ -84,6 +106,16 @@ protected Region getExtent() {
      */
     protected abstract BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial);
 
+    /**
+     * Return whether {@link #getMaterial} may be called from several
+     * threads at once.
+     *
+     * @return true if thread-safe
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     private BaseBlock getMaterialCached(int x, int y, int z, Pattern pattern) {
         final int index = (y - cacheOffsetY) + (z - cacheOffsetZ) * cacheSizeY + (x - cacheOffsetX) * cacheSizeY * cacheSizeZ;
 
@@ -147,8 +179,31 @@ private boolean isInsideCached(int x, int y, int z, Pattern pattern) {
      * @throws MaxChangedBlocksException
      */
     public int generate(EditSession editSession, Pattern pattern, boolean hollow) throws MaxChangedBlocksException {
+        try {
+            return generate((Extent) editSession, pattern, hollow);
+        } catch (MaxChangedBlocksException e) {
+            throw e;
+        } catch (WorldEditException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Generates the shape.
+     *
+     * @param extent The extent to set blocks on.
+     * @param pattern The pattern to generate default materials from.
+     * @param hollow Specifies whether to generate a hollow shape.
+     * @return number of affected blocks.
+     * @throws WorldEditException thrown if a block could not be set
+     */
+    public int generate(Extent extent, Pattern pattern, boolean hollow) throws WorldEditException {
         int affected = 0;
 
+        if (hollow && cache == null) {
+            cache = new short[cacheSizeX * cacheSizeY * cacheSizeZ];
+        }
+
         for (BlockVector position : getExtent()) {
             int x = position.getBlockX();
             int y = position.getBlockY();
@@ -156,7 +211,7 @@ public int generate(EditSession editSession, Pattern pattern, boolean hollow) th
 
             if (!hollow) {
                 final BaseBlock material = getMaterial(x, y, z, pattern.next(position));
-                if (material != null && editSession.setBlock(position, material)) {
+                if (material != null && extent.setBlock(position, material)) {
                     ++affected;
                 }
 
@@ -200,7 +255,7 @@ public int generate(EditSession editSession, Pattern pattern, boolean hollow) th
                 continue;
             }
 
-            if (editSession.setBlock(position, material)) {
+            if (extent.setBlock(position, material)) {
                 ++affected;
             }
         }
@@ -208,4 +263,266 @@ public int generate(EditSession editSession, Pattern pattern, boolean hollow) th
         return affected;
     }
 
+    /**
+     * Generates the shape, evaluating it on several threads if possible.
+     *
+     * <p>If both the shape and the pattern are thread-safe, as told by
+     * {@link #isThreadSafe()} and {@link Patterns#isThreadSafe(Pattern)},
+     * the shape is evaluated on the executor. Solid shapes are evaluated one chunk column at
+     * a time, and the blocks of each column are set on the calling thread
+     * in order. Hollow shapes are first evaluated into a packed cache in
+     * slabs along the X axis, including a margin of one block around the
+     * region, and the blocks on the surface are then set on the calling
+     * thread one chunk column at a time. Other shapes are generated on the
+     * calling thread.</p>
+     *
+     * <p>The calling thread evaluates any work that the executor has not
+     * started by the time it is needed, so this may be called from one of
+     * the executor's own threads.</p>
+     *
+     * @param extent The extent to set blocks on.
+     * @param pattern The pattern to generate default materials from.
+     * @param hollow Specifies whether to generate a hollow shape.
+     * @param executor the executor to evaluate the shape on
+     * @param parallelism the number of tasks that evaluate the shape at once
+     * @return number of affected blocks.
+     * @throws WorldEditException thrown if a block could not be set
+     */
+    public int generate(Extent extent, Pattern pattern, boolean hollow, ExecutorService executor, int parallelism) throws WorldEditException {
+        checkNotNull(executor);
+        checkArgument(parallelism >= 1, "parallelism >= 1 required");
+
+        if (parallelism == 1 || !isThreadSafe() || !Patterns.isThreadSafe(pattern)) {
+            return generate(extent, pattern, hollow);
+        } else if (hollow) {
+            return generateHollow(extent, evaluate(pattern, executor, parallelism));
+        }
+
+        Region region = getExtent();
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        int minChunkX = min.getBlockX() >> 4;
+        int minChunkZ = min.getBlockZ() >> 4;
+        int chunksX = (max.getBlockX() >> 4) - minChunkX + 1;
+        int count = chunksX * ((max.getBlockZ() >> 4) - minChunkZ + 1);
+
+        Deque<FutureTask<ChunkBatch>> pending = new ArrayDeque<FutureTask<ChunkBatch>>();
+        int next = 0;
+        int affected = 0;
+        try {
+            while (next < count || !pending.isEmpty()) {
+                while (next < count && pending.size() < parallelism * 2) {
+                    int chunkX = minChunkX + next % chunksX;
+                    int chunkZ = minChunkZ + next / chunksX;
+                    pending.add(evaluate(chunkX, chunkZ, pattern, executor));
+                    next++;
+                }
+
+                FutureTask<ChunkBatch> task = pending.poll();
+                // Evaluate the column here if no thread has started it yet
+                task.run();
+                ChunkBatch batch = getResult(task);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (extent.setBlock(new Vector(batch.getX(i), batch.getY(i), batch.getZ(i)), batch.getBlock(i))) {
+                        ++affected;
+                    }
+                }
+            }
+        } finally {
+            for (FutureTask<ChunkBatch> future : pending) {
+                future.cancel(false);
+            }
+        }
+
+        return affected;
+    }
+
+    /**
+     * Set the blocks on the surface of an evaluated shape, one chunk
+     * column at a time.
+     *
+     * @param extent the extent to set blocks on
+     * @param cache the evaluated shape
+     * @return the number of affected blocks
+     * @throws WorldEditException thrown if a block could not be set
+     */
+    private int generateHollow(Extent extent, MaterialCache cache) throws WorldEditException {
+        Region region = getExtent();
+        boolean cuboid = region instanceof CuboidRegion;
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        int affected = 0;
+
+        for (int chunkZ = min.getBlockZ() >> 4; chunkZ <= max.getBlockZ() >> 4; chunkZ++) {
+            for (int chunkX = min.getBlockX() >> 4; chunkX <= max.getBlockX() >> 4; chunkX++) {
+                int minX = Math.max(min.getBlockX(), chunkX << 4);
+                int maxX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+                int minZ = Math.max(min.getBlockZ(), chunkZ << 4);
+                int maxZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+
+                for (int x = minX; x <= maxX; x++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                            BaseBlock material = cache.get(x, y, z);
+                            if (material == null) {
+                                continue;
+                            }
+
+                            if (cache.isInside(x + 1, y, z) && cache.isInside(x - 1, y, z)
+                                    && cache.isInside(x, y, z + 1) && cache.isInside(x, y, z - 1)
+                                    && cache.isInside(x, y + 1, z) && cache.isInside(x, y - 1, z)) {
+                                continue;
+                            }
+
+                            Vector position = new Vector(x, y, z);
+                            if (!cuboid && !region.contains(position)) {
+                                continue;
+                            }
+
+                            if (extent.setBlock(position, material)) {
+                                ++affected;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return affected;
+    }
+
+    /**
+     * Evaluate the shape within the bounding box of the region, grown by
+     * one block, on several threads.
+     *
+     * <p>Each task claims slabs of a few X planes until none are left. The
+     * calling thread takes part and then only waits for tasks that other
+     * threads have started.</p>
+     *
+     * @param pattern the pattern
+     * @param executor the executor to run the other tasks on
+     * @param parallelism the number of tasks, including the calling thread
+     * @return the evaluated shape
+     * @throws WorldEditException thrown if the shape could not be evaluated
+     */
+    private MaterialCache evaluate(final Pattern pattern, ExecutorService executor, int parallelism) throws WorldEditException {
+        Region region = getExtent();
+        final MaterialCache cache = new MaterialCache(
+                region.getMinimumPoint().subtract(1, 1, 1),
+                region.getMaximumPoint().add(1, 1, 1));
+        final int slabs = (cache.getMaxX() - cache.getMinX() + SLAB_WIDTH) / SLAB_WIDTH;
+        final AtomicInteger next = new AtomicInteger();
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                int slab;
+                while ((slab = next.getAndIncrement()) < slabs) {
+                    int minX = cache.getMinX() + slab * SLAB_WIDTH;
+                    int maxX = Math.min(cache.getMaxX(), minX + SLAB_WIDTH - 1);
+                    for (int x = minX; x <= maxX; x++) {
+                        for (int z = cache.getMinZ(); z <= cache.getMaxZ(); z++) {
+                            for (int y = cache.getMinY(); y <= cache.getMaxY(); y++) {
+                                cache.set(x, y, z, getMaterial(x, y, z, pattern.next(new BlockVector(x, y, z))));
+                            }
+                        }
+                    }
+                }
+            }
+        };
+
+        List<FutureTask<?>> futures = new ArrayList<FutureTask<?>>();
+        try {
+            for (int i = 1; i < Math.min(parallelism, slabs); i++) {
+                FutureTask<?> future = new FutureTask<Void>(task, null);
+                executor.execute(future);
+                futures.add(future);
+            }
+        } catch (RejectedExecutionException ignored) {
+            // The calling thread evaluates whatever the submitted tasks do not
+        }
+
+        try {
+            task.run();
+            for (FutureTask<?> future : futures) {
+                // Tasks that have not started yet find no slabs left and finish at once
+                future.run();
+                getResult(future);
+            }
+        } finally {
+            next.set(slabs);
+        }
+
+        return cache;
+    }
+
+    /**
+     * Start evaluating the shape within a chunk column, on the executor if
+     * it accepts the task.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @param pattern the pattern
+     * @param executor the executor
+     * @return a future of the materials of the column
+     */
+    private FutureTask<ChunkBatch> evaluate(final int chunkX, final int chunkZ, final Pattern pattern, ExecutorService executor) {
+        FutureTask<ChunkBatch> task = new FutureTask<ChunkBatch>(new Callable<ChunkBatch>() {
+            @Override
+            public ChunkBatch call() throws Exception {
+                return evaluate(chunkX, chunkZ, pattern);
+            }
+        });
+
+        try {
+            executor.execute(task);
+            return task;
+        } catch (RejectedExecutionException ignored) {
+            // Evaluate it on this thread instead
+        }
+
+        task.run();
+        return task;
+    }
+
+    private ChunkBatch evaluate(int chunkX, int chunkZ, Pattern pattern) {
+        Region region = getExtent();
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        boolean cuboid = region instanceof CuboidRegion;
+        int minX = Math.max(min.getBlockX(), chunkX << 4);
+        int maxX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+        int minZ = Math.max(min.getBlockZ(), chunkZ << 4);
+        int maxZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+
+        ChunkBatch batch = new ChunkBatch(chunkX, chunkZ);
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                    BlockVector position = new BlockVector(x, y, z);
+                    if (!cuboid && !region.contains(position)) {
+                        continue;
+                    }
+                    BaseBlock material = getMaterial(x, y, z, pattern.next(position));
+                    if (material != null) {
+                        batch.set(x, y, z, material);
+                    }
+                }
+            }
+        }
+        return batch;
+    }
+
+    private static <T> T getResult(Future<T> future) throws WorldEditException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the shape to be evaluated", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), WorldEditException.class);
+            throw new RuntimeException("Failed to evaluate the shape", e.getCause());
+        }
+    }
+
 }
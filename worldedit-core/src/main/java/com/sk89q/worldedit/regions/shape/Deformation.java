@@ -0,0 +1,386 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.internal.expression.runtime.RValue;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Deforms a region by setting each block to the block at the position
+ * that an expression maps it to.
+ *
+ * <p>The expression is given the scaled coordinates of each block as the
+ * variables {@code x}, {@code y} and {@code z}, and changes them to the
+ * scaled coordinates of the block to copy. Blocks are read as they were
+ * before the deformation: the bounding box of the region is copied into a
+ * packed snapshot of ID and data values first, and blocks outside of it
+ * are read from the source extent, where they are not changed. The region
+ * is then deformed one chunk column at a time. Blocks that the expression
+ * queries are read in the same way, so the result does not depend on the
+ * order in which columns are set.</p>
+ *
+ * <p>If the expression is {@linkplain Expression#isStateless() stateless},
+ * the source positions of several columns can be evaluated on other
+ * threads while blocks are set on the calling thread.</p>
+ */
+public class Deformation {
+
+    private final Extent source;
+    private final Region region;
+    private final Vector zero;
+    private final Vector unit;
+    private final Expression expression;
+    private final boolean stateless;
+    private final Extent snapshotExtent;
+    private volatile MaterialCache snapshot;
+    private final Evaluator evaluator;
+    private final ThreadLocal<Evaluator> evaluators = new ThreadLocal<Evaluator>() {
+        @Override
+        protected Evaluator initialValue() {
+            return new Evaluator(expression.copy());
+        }
+    };
+
+    /**
+     * Create a new deformation.
+     *
+     * @param source the extent to read blocks from
+     * @param region the region to deform
+     * @param zero the origin of the expression's coordinate system
+     * @param unit the scale of the expression's coordinate system
+     * @param expression the expression
+     * @throws ExpressionException thrown if the expression is invalid
+     */
+    public Deformation(Extent source, Region region, Vector zero, Vector unit, String expression) throws ExpressionException {
+        checkNotNull(source);
+        checkNotNull(region);
+        checkNotNull(zero);
+        checkNotNull(unit);
+        checkNotNull(expression);
+        this.source = source;
+        this.region = region;
+        this.zero = zero;
+        this.unit = unit;
+        this.expression = Expression.compile(expression, "x", "y", "z");
+        this.expression.optimize();
+        this.stateless = this.expression.isStateless();
+        this.snapshotExtent = new SnapshotExtent(source);
+        this.evaluator = new Evaluator(this.expression);
+    }
+
+    /**
+     * Return whether the source positions can be evaluated on several
+     * threads.
+     *
+     * @return true if thread-safe
+     */
+    public boolean isThreadSafe() {
+        return stateless;
+    }
+
+    /**
+     * Deform the region on the calling thread.
+     *
+     * @param destination the extent to set blocks on
+     * @return the number of affected blocks
+     * @throws ExpressionException thrown if the expression could not be evaluated
+     * @throws WorldEditException thrown if a block could not be set
+     */
+    public int apply(Extent destination) throws ExpressionException, WorldEditException {
+        checkNotNull(destination);
+        MaterialCache snapshot = createSnapshot();
+        Columns columns = new Columns();
+        int affected = 0;
+        for (int i = 0; i < columns.count; i++) {
+            affected += apply(destination, snapshot, columns.evaluate(i));
+        }
+        return affected;
+    }
+
+    /**
+     * Deform the region, evaluating source positions on the executor if
+     * the expression is {@linkplain #isThreadSafe() thread-safe}.
+     *
+     * @param destination the extent to set blocks on
+     * @param executor the executor to evaluate source positions on
+     * @param parallelism the number of columns to evaluate at once
+     * @return the number of affected blocks
+     * @throws ExpressionException thrown if the expression could not be evaluated
+     * @throws WorldEditException thrown if a block could not be set
+     */
+    public int apply(Extent destination, ExecutorService executor, int parallelism) throws ExpressionException, WorldEditException {
+        checkNotNull(destination);
+        checkNotNull(executor);
+        checkArgument(parallelism >= 1, "parallelism >= 1 required");
+
+        if (parallelism == 1 || !isThreadSafe()) {
+            return apply(destination);
+        }
+
+        MaterialCache snapshot = createSnapshot();
+        Columns columns = new Columns();
+        Deque<FutureTask<int[]>> pending = new ArrayDeque<FutureTask<int[]>>();
+        int next = 0;
+        int affected = 0;
+        try {
+            while (next < columns.count || !pending.isEmpty()) {
+                while (next < columns.count && pending.size() < parallelism * 2) {
+                    pending.add(columns.evaluate(next++, executor));
+                }
+                FutureTask<int[]> task = pending.poll();
+                // Evaluate the column here if no thread has started it yet
+                task.run();
+                affected += apply(destination, snapshot, getResult(task));
+            }
+        } finally {
+            for (FutureTask<int[]> future : pending) {
+                future.cancel(false);
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Copy the blocks within the bounding box of the region, which are
+     * then read by the expression.
+     *
+     * @return the snapshot
+     */
+    private MaterialCache createSnapshot() {
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        MaterialCache snapshot = new MaterialCache(min, max);
+        for (int x = snapshot.getMinX(); x <= snapshot.getMaxX(); x++) {
+            for (int z = snapshot.getMinZ(); z <= snapshot.getMaxZ(); z++) {
+                for (int y = snapshot.getMinY(); y <= snapshot.getMaxY(); y++) {
+                    snapshot.set(x, y, z, source.getLazyBlock(new Vector(x, y, z)));
+                }
+            }
+        }
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Set the blocks of an evaluated column.
+     *
+     * @param destination the extent to set blocks on
+     * @param snapshot the snapshot of the region
+     * @param positions the destination and source positions
+     * @return the number of affected blocks
+     * @throws WorldEditException thrown if a block could not be set
+     */
+    private int apply(Extent destination, MaterialCache snapshot, int[] positions) throws WorldEditException {
+        int affected = 0;
+        for (int i = 0; i < positions.length; i += 6) {
+            int x = positions[i + 3];
+            int y = positions[i + 4];
+            int z = positions[i + 5];
+            BaseBlock material = snapshot.get(x, y, z);
+            if (material == null) {
+                BaseBlock block = source.getLazyBlock(new Vector(x, y, z));
+                material = new BaseBlock(block.getType(), block.getData());
+            }
+            if (destination.setBlock(new BlockVector(positions[i], positions[i + 1], positions[i + 2]), material)) {
+                ++affected;
+            }
+        }
+        return affected;
+    }
+
+    private static int[] getResult(FutureTask<int[]> future) throws ExpressionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the deformation to be evaluated", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ExpressionException) {
+                throw (ExpressionException) e.getCause();
+            }
+            throw new RuntimeException("Failed to evaluate the deformation", e.getCause());
+        }
+    }
+
+    /**
+     * The chunk-aligned columns of the region.
+     */
+    private final class Columns {
+        private final boolean cuboid = region instanceof CuboidRegion;
+        private final Vector min = region.getMinimumPoint();
+        private final Vector max = region.getMaximumPoint();
+        private final int minChunkX = min.getBlockX() >> 4;
+        private final int minChunkZ = min.getBlockZ() >> 4;
+        private final int chunksX = (max.getBlockX() >> 4) - minChunkX + 1;
+        private final int count = chunksX * ((max.getBlockZ() >> 4) - minChunkZ + 1);
+
+        /**
+         * Start evaluating a column, on the executor if it accepts the task.
+         *
+         * @param index the index of the column
+         * @param executor the executor
+         * @return a future of the positions of the column
+         */
+        private FutureTask<int[]> evaluate(final int index, ExecutorService executor) {
+            FutureTask<int[]> task = new FutureTask<int[]>(new Callable<int[]>() {
+                @Override
+                public int[] call() throws Exception {
+                    return evaluate(index);
+                }
+            });
+
+            try {
+                executor.execute(task);
+                return task;
+            } catch (RejectedExecutionException ignored) {
+                // Evaluate it on this thread instead
+            }
+
+            task.run();
+            return task;
+        }
+
+        /**
+         * Evaluate the source positions of a column.
+         *
+         * @param index the index of the column
+         * @return the destination and source coordinates, six per block
+         * @throws ExpressionException thrown if the expression could not be evaluated
+         */
+        private int[] evaluate(int index) throws ExpressionException {
+            Evaluator evaluator = stateless ? evaluators.get() : Deformation.this.evaluator;
+            int chunkX = minChunkX + index % chunksX;
+            int chunkZ = minChunkZ + index / chunksX;
+            int minX = Math.max(min.getBlockX(), chunkX << 4);
+            int maxX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+            int minZ = Math.max(min.getBlockZ(), chunkZ << 4);
+            int maxZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+
+            int[] positions = new int[(maxX - minX + 1) * (maxZ - minZ + 1) * (max.getBlockY() - min.getBlockY() + 1) * 6];
+            int size = 0;
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                        Vector position = new Vector(x, y, z);
+                        if (!cuboid && !region.contains(position)) {
+                            continue;
+                        }
+
+                        // offset, scale
+                        Vector scaled = position.subtract(zero).divide(unit);
+
+                        // transform
+                        evaluator.expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ());
+                        BlockVector source = evaluator.environment.toWorld(evaluator.x.getValue(), evaluator.y.getValue(), evaluator.z.getValue());
+
+                        positions[size++] = x;
+                        positions[size++] = y;
+                        positions[size++] = z;
+                        positions[size++] = source.getBlockX();
+                        positions[size++] = source.getBlockY();
+                        positions[size++] = source.getBlockZ();
+                    }
+                }
+            }
+
+            if (size == positions.length) {
+                return positions;
+            }
+            int[] trimmed = new int[size];
+            System.arraycopy(positions, 0, trimmed, 0, size);
+            return trimmed;
+        }
+    }
+
+    /**
+     * Reads blocks from the snapshot, if one has been taken and it contains
+     * them, and otherwise from the source extent.
+     */
+    private class SnapshotExtent extends AbstractDelegateExtent {
+        private SnapshotExtent(Extent extent) {
+            super(extent);
+        }
+
+        @Override
+        public BaseBlock getBlock(Vector position) {
+            BaseBlock block = getSnapshotBlock(position);
+            return block != null ? block : super.getBlock(position);
+        }
+
+        @Override
+        public BaseBlock getLazyBlock(Vector position) {
+            BaseBlock block = getSnapshotBlock(position);
+            return block != null ? block : super.getLazyBlock(position);
+        }
+
+        @Nullable
+        private BaseBlock getSnapshotBlock(Vector position) {
+            MaterialCache snapshot = Deformation.this.snapshot;
+            if (snapshot == null) {
+                return null;
+            }
+            return snapshot.get(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+        }
+    }
+
+    /**
+     * An expression and the environment that it is evaluated in, which
+     * are used by one thread at a time.
+     */
+    private class Evaluator {
+        private final Expression expression;
+        private final RValue x;
+        private final RValue y;
+        private final RValue z;
+        private final WorldEditExpressionEnvironment environment;
+
+        private Evaluator(Expression expression) {
+            this.expression = expression;
+            this.x = expression.getVariable("x", false);
+            this.y = expression.getVariable("y", false);
+            this.z = expression.getVariable("z", false);
+            this.environment = new WorldEditExpressionEnvironment(snapshotExtent, unit, zero);
+            expression.setEnvironment(environment);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.internal.expression.runtime.RValue;
+import com.sk89q.worldedit.regions.Region;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A shape defined by an expression of the variables {@code x}, {@code y}
+ * and {@code z}, which may set the variables {@code type} and {@code data}
+ * to choose the material.
+ *
+ * <p>If the expression is {@linkplain Expression#isStateless() stateless},
+ * each thread evaluates its own copy of it, and the shape can be generated
+ * on several threads.</p>
+ */
+public class ExpressionShape extends ArbitraryShape {
+
+    private static final Logger log = Logger.getLogger(ExpressionShape.class.getCanonicalName());
+
+    private final EditSession editSession;
+    private final Vector zero;
+    private final Vector unit;
+    private final Expression expression;
+    private final boolean stateless;
+    private final Evaluator evaluator;
+    private final ThreadLocal<Evaluator> evaluators = new ThreadLocal<Evaluator>() {
+        @Override
+        protected Evaluator initialValue() {
+            return new Evaluator(expression.copy());
+        }
+    };
+
+    /**
+     * Create a new shape.
+     *
+     * @param region the region to generate the shape in
+     * @param editSession the edit session that the expression reads blocks from
+     * @param zero the origin of the expression's coordinate system
+     * @param unit the scale of the expression's coordinate system
+     * @param expression the expression
+     * @throws ExpressionException thrown if the expression is invalid
+     */
+    public ExpressionShape(Region region, EditSession editSession, Vector zero, Vector unit, String expression) throws ExpressionException {
+        super(region);
+        checkNotNull(editSession);
+        checkNotNull(zero);
+        checkNotNull(unit);
+        checkNotNull(expression);
+        this.editSession = editSession;
+        this.zero = zero;
+        this.unit = unit;
+        this.expression = Expression.compile(expression, "x", "y", "z", "type", "data");
+        this.expression.optimize();
+        this.stateless = this.expression.isStateless();
+        this.evaluator = new Evaluator(this.expression);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return stateless;
+    }
+
+    @Override
+    protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
+        Evaluator evaluator = stateless ? evaluators.get() : this.evaluator;
+        final Vector current = new Vector(x, y, z);
+        evaluator.environment.setCurrentBlock(current);
+        final Vector scaled = current.subtract(zero).divide(unit);
+
+        try {
+            if (evaluator.expression.evaluate(scaled.getX(), scaled.getY(), scaled.getZ(), defaultMaterial.getType(), defaultMaterial.getData()) <= 0) {
+                return null;
+            }
+
+            return new BaseBlock((int) evaluator.type.getValue(), (int) evaluator.data.getValue());
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Failed to create shape", e);
+            return null;
+        }
+    }
+
+    /**
+     * An expression and the environment that it is evaluated in, which
+     * are used by one thread at a time.
+     */
+    private class Evaluator {
+        private final Expression expression;
+        private final RValue type;
+        private final RValue data;
+        private final WorldEditExpressionEnvironment environment;
+
+        private Evaluator(Expression expression) {
+            this.expression = expression;
+            this.type = expression.getVariable("type", false);
+            this.data = expression.getVariable("data", false);
+            this.environment = new WorldEditExpressionEnvironment(editSession, unit, zero);
+            expression.setEnvironment(environment);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+import javax.annotation.Nullable;
+
+/**
+ * The materials of a shape within a box, packed into one bit per block
+ * for whether the block is inside the shape and one {@code short} for the
+ * ID and data value of blocks that are.
+ *
+ * <p>Each X plane starts at a multiple of 64 blocks, so that different
+ * planes can be filled on different threads at once.</p>
+ */
+final class MaterialCache {
+
+    private final int offsetX;
+    private final int offsetY;
+    private final int offsetZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int planeSize;
+    private final long[] inside;
+    private final short[] materials;
+
+    /**
+     * Create a new cache.
+     *
+     * @param min the minimum point of the box
+     * @param max the maximum point of the box
+     */
+    MaterialCache(Vector min, Vector max) {
+        offsetX = min.getBlockX();
+        offsetY = min.getBlockY();
+        offsetZ = min.getBlockZ();
+        sizeX = max.getBlockX() - offsetX + 1;
+        sizeY = max.getBlockY() - offsetY + 1;
+        sizeZ = max.getBlockZ() - offsetZ + 1;
+        planeSize = (sizeY * sizeZ + 63) & ~63;
+        inside = new long[sizeX * (planeSize >> 6)];
+        materials = new short[sizeX * planeSize];
+    }
+
+    int getMinX() {
+        return offsetX;
+    }
+
+    int getMaxX() {
+        return offsetX + sizeX - 1;
+    }
+
+    int getMinY() {
+        return offsetY;
+    }
+
+    int getMaxY() {
+        return offsetY + sizeY - 1;
+    }
+
+    int getMinZ() {
+        return offsetZ;
+    }
+
+    int getMaxZ() {
+        return offsetZ + sizeZ - 1;
+    }
+
+    /**
+     * Store the material of a block.
+     *
+     * <p>Blocks in different X planes may be stored from different threads
+     * at once.</p>
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @param material the material, or null if the block is outside the shape
+     */
+    void set(int x, int y, int z, @Nullable BaseBlock material) {
+        int index = index(x, y, z);
+        if (material == null) {
+            inside[index >> 6] &= ~(1L << index);
+        } else {
+            inside[index >> 6] |= 1L << index;
+            materials[index] = (short) ((material.getType() << 4) | (material.getData() & 0xF));
+        }
+    }
+
+    /**
+     * Return whether a block is inside the shape. Blocks outside of the
+     * box are outside the shape.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if inside
+     */
+    boolean isInside(int x, int y, int z) {
+        if (x < offsetX || y < offsetY || z < offsetZ
+                || x >= offsetX + sizeX || y >= offsetY + sizeY || z >= offsetZ + sizeZ) {
+            return false;
+        }
+        int index = index(x, y, z);
+        return (inside[index >> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Get the material of a block.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the material, or null if the block is outside the shape
+     */
+    @Nullable
+    BaseBlock get(int x, int y, int z) {
+        if (!isInside(x, y, z)) {
+            return null;
+        }
+        int packed = materials[index(x, y, z)] & 0xFFFF;
+        return new BaseBlock(packed >> 4, packed & 0xF);
+    }
+
+    private int index(int x, int y, int z) {
+        return (x - offsetX) * planeSize + (z - offsetZ) * sizeY + (y - offsetY);
+    }
+
+}
@@ -33,6 +33,18 @@ public RegionShape(Region extent) {
         super(extent);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Region shapes are thread-safe as long as the region is not
+     * modified while generating. Subclasses that keep state in
+     * {@link #getMaterial} must override this method.</p>
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
         if (!this.extent.contains(new Vector(x, y, z))) {
@@ -22,6 +22,7 @@
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.internal.expression.runtime.ExpressionEnvironment;
 
 public class WorldEditExpressionEnvironment implements ExpressionEnvironment {
@@ -29,10 +30,14 @@ public class WorldEditExpressionEnvironment implements ExpressionEnvironment {
     private final Vector unit;
     private final Vector zero2;
     private Vector current = new Vector();
-    private EditSession editSession;
+    private Extent extent;
 
     public WorldEditExpressionEnvironment(EditSession editSession, Vector unit, Vector zero) {
-        this.editSession = editSession;
+        this((Extent) editSession, unit, zero);
+    }
+
+    public WorldEditExpressionEnvironment(Extent extent, Vector unit, Vector zero) {
+        this.extent = extent;
         this.unit = unit;
         this.zero2 = zero.add(0.5, 0.5, 0.5);
     }
@@ -48,32 +53,32 @@ public Vector toWorldRel(double x, double y, double z) {
 
     @Override
     public int getBlockType(double x, double y, double z) {
-        return editSession.getBlockType(toWorld(x, y, z));
+        return extent.getLazyBlock(toWorld(x, y, z)).getType();
     }
 
     @Override
     public int getBlockData(double x, double y, double z) {
-        return editSession.getBlockData(toWorld(x, y, z));
+        return extent.getLazyBlock(toWorld(x, y, z)).getData();
     }
 
     @Override
     public int getBlockTypeAbs(double x, double y, double z) {
-        return editSession.getBlockType(new Vector(x, y, z));
+        return extent.getLazyBlock(new Vector(x, y, z)).getType();
     }
 
     @Override
     public int getBlockDataAbs(double x, double y, double z) {
-        return editSession.getBlockData(new Vector(x, y, z));
+        return extent.getLazyBlock(new Vector(x, y, z)).getData();
     }
 
     @Override
     public int getBlockTypeRel(double x, double y, double z) {
-        return editSession.getBlockType(toWorldRel(x, y, z));
+        return extent.getLazyBlock(toWorldRel(x, y, z)).getType();
     }
 
     @Override
     public int getBlockDataRel(double x, double y, double z) {
-        return editSession.getBlockData(toWorldRel(x, y, z));
+        return extent.getLazyBlock(toWorldRel(x, y, z)).getData();
     }
 
     public void setCurrentBlock(Vector current) {
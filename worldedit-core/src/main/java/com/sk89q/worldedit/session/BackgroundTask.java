@@ -0,0 +1,185 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.session;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.sk89q.worldedit.util.io.TransferMonitor;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A task, such as loading or saving a schematic, that has been submitted
+ * to the I/O threads of an {@link OperationScheduler}.
+ *
+ * @param <V> the type of result
+ */
+public class BackgroundTask<V> {
+
+    private final OperationScheduler scheduler;
+    private final SessionOwner owner;
+    private final String description;
+    private final @Nullable TransferMonitor monitor;
+    private final ListenableFutureTask<V> future;
+    private final long submitted = System.nanoTime();
+    private long lastReport = submitted;
+
+    BackgroundTask(OperationScheduler scheduler, SessionOwner owner, String description, Callable<V> callable, @Nullable TransferMonitor monitor) {
+        checkNotNull(scheduler);
+        checkNotNull(owner);
+        checkNotNull(description);
+        checkNotNull(callable);
+        this.scheduler = scheduler;
+        this.owner = owner;
+        this.description = description;
+        this.monitor = monitor;
+        this.future = ListenableFutureTask.create(callable);
+    }
+
+    /**
+     * Get the owner of the task.
+     *
+     * @return the owner
+     */
+    public SessionOwner getOwner() {
+        return owner;
+    }
+
+    /**
+     * Get the ID of the owner of the task.
+     *
+     * @return the owner's ID
+     */
+    UUID getOwnerId() {
+        return owner.getSessionKey().getUniqueId();
+    }
+
+    /**
+     * Get a description of the task.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Return whether the task has completed, been cancelled or failed.
+     *
+     * @return true if done
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Get the fraction of the task that has been completed.
+     *
+     * @return a value between 0 and 1, or -1 if it is not known
+     */
+    public double getProgress() {
+        if (future.isDone()) {
+            return 1;
+        } else if (monitor != null) {
+            return monitor.getProgress();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the number of bytes that the task has read or written so far.
+     *
+     * @return the number of bytes, or -1 if it is not known
+     */
+    public long getTransferred() {
+        return monitor != null ? monitor.getTransferred() : -1;
+    }
+
+    /**
+     * Get the time since the task was submitted.
+     *
+     * @param unit the unit to return the time in
+     * @return the time
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        return unit.convert(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get a future that completes with the result of the task.
+     *
+     * @return a future
+     */
+    public ListenableFuture<V> getFuture() {
+        return future;
+    }
+
+    /**
+     * Cancel the task if it has not completed yet.
+     *
+     * @return true if the task was cancelled
+     */
+    public boolean cancel() {
+        return scheduler.cancel(this);
+    }
+
+    /**
+     * Get the runnable that performs the task.
+     *
+     * @return the runnable
+     */
+    Runnable getRunnable() {
+        return future;
+    }
+
+    /**
+     * Return whether progress should be reported to the owner again, and
+     * if so, remember that it has been.
+     *
+     * @param interval the minimum time between reports, in nanoseconds
+     * @return true if progress should be reported
+     */
+    boolean shouldReport(long interval) {
+        long now = System.nanoTime();
+        if (now - lastReport >= interval) {
+            lastReport = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancel the underlying task.
+     */
+    void abort() {
+        if (monitor != null) {
+            monitor.cancel();
+        }
+        future.cancel(true);
+    }
+
+}
@@ -0,0 +1,607 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.session;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.NoCapablePlatformException;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.function.operation.TimedRunContext;
+import com.sk89q.worldedit.util.concurrency.EvenMoreExecutors;
+import com.sk89q.worldedit.util.io.TransferMonitor;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs {@link Operation}s over several server ticks, spending at most a
+ * configured amount of time per tick.
+ *
+ * <p>Every owner has its own queue of operations, which are run one after
+ * another. The time budget of a tick is shared evenly between owners that
+ * have operations queued. If no budget is configured, or the platform is
+ * unable to schedule repeating tasks, operations are completed immediately
+ * when they are submitted.</p>
+ *
+ * <p>Slow tasks that do not touch the world, such as reading and writing
+ * schematics, can be submitted with
+ * {@link #submitBackground(SessionOwner, String, Callable, TransferMonitor)}
+ * to run on a limited number of I/O threads. Their owners are told about
+ * their progress every few seconds.</p>
+ *
+ * <p>The scheduler's lock only guards its queues. Operations are run
+ * without holding it, so an operation that waits on another thread does
+ * not block callers of the scheduler in the meantime.</p>
+ *
+ * <p>Get a reference to one from {@link WorldEdit}.</p>
+ */
+public class OperationScheduler implements Runnable {
+
+    private static final Logger log = Logger.getLogger(OperationScheduler.class.getCanonicalName());
+    private static final int COMPUTE_QUEUE_SIZE = 64;
+    private static final int IO_QUEUE_SIZE = 16;
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final WorldEdit worldEdit;
+    private final Map<UUID, Deque<ScheduledOperation>> queues = new LinkedHashMap<UUID, Deque<ScheduledOperation>>();
+    private boolean scheduled = false;
+    private boolean unavailable = false;
+    private volatile long tick = 0;
+    private @Nullable ListeningExecutorService computeExecutor;
+    private int computeThreads = 0;
+    private final Map<UUID, List<BackgroundTask<?>>> backgroundTasks = new LinkedHashMap<UUID, List<BackgroundTask<?>>>();
+    private final Queue<Runnable> serverTasks = new ArrayDeque<Runnable>();
+    private final Executor serverExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            executeOnServer(command);
+        }
+    };
+    private @Nullable ListeningExecutorService ioExecutor;
+    private int ioThreads = 0;
+
+    /**
+     * Create a new scheduler.
+     *
+     * @param worldEdit a WorldEdit instance
+     */
+    public OperationScheduler(WorldEdit worldEdit) {
+        checkNotNull(worldEdit);
+        this.worldEdit = worldEdit;
+    }
+
+    /**
+     * Submit an operation to be run.
+     *
+     * <p>The operation is run after all other operations of the same owner
+     * have finished. The returned operation may already be done if it was
+     * completed immediately.</p>
+     *
+     * @param owner the owner of the operation
+     * @param description a description of the operation
+     * @param operation the operation
+     * @return the scheduled operation
+     */
+    public ScheduledOperation submit(SessionOwner owner, String description, Operation operation) {
+        checkNotNull(owner);
+        checkNotNull(description);
+        checkNotNull(operation);
+
+        UUID id = owner.getSessionKey().getUniqueId();
+        ScheduledOperation scheduledOperation = new ScheduledOperation(this, id, description, operation);
+
+        Deque<ScheduledOperation> pending;
+        synchronized (this) {
+            if (getTickBudget() > 0 && ensureScheduled()) {
+                Deque<ScheduledOperation> queue = queues.get(id);
+                if (queue == null) {
+                    queue = new ArrayDeque<ScheduledOperation>();
+                    queues.put(id, queue);
+                }
+                queue.add(scheduledOperation);
+                return scheduledOperation;
+            }
+            pending = queues.remove(id);
+        }
+
+        completeOperations(id, pending);
+        scheduledOperation.step(new RunContext());
+        return scheduledOperation;
+    }
+
+    /**
+     * Get the operations of the given owner that are queued or running.
+     *
+     * @param owner the owner
+     * @return a list of operations, in the order in which they will be run
+     */
+    public synchronized List<ScheduledOperation> getOperations(SessionOwner owner) {
+        checkNotNull(owner);
+        Deque<ScheduledOperation> queue = queues.get(owner.getSessionKey().getUniqueId());
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<ScheduledOperation>(queue);
+    }
+
+    /**
+     * Submit a task to be run on one of the I/O threads.
+     *
+     * <p>If no I/O threads are configured, the task is run immediately on
+     * the calling thread and the returned task is already done.</p>
+     *
+     * @param owner the owner of the task
+     * @param description a description of the task
+     * @param callable the task
+     * @param monitor a monitor of the bytes that the task transfers, or null
+     * @param <V> the type of result
+     * @return the submitted task
+     * @throws RejectedExecutionException if the owner has too many tasks running, or the I/O threads are too busy
+     */
+    public synchronized <V> BackgroundTask<V> submitBackground(SessionOwner owner, String description, Callable<V> callable, @Nullable TransferMonitor monitor) {
+        checkNotNull(owner);
+        checkNotNull(description);
+        checkNotNull(callable);
+
+        final BackgroundTask<V> task = new BackgroundTask<V>(this, owner, description, callable, monitor);
+        ListeningExecutorService executor = getIOExecutor();
+        if (executor == null) {
+            task.getRunnable().run();
+            return task;
+        }
+
+        UUID id = task.getOwnerId();
+        List<BackgroundTask<?>> tasks = backgroundTasks.get(id);
+        int limit = worldEdit.getConfiguration().schedulerIOTasksPerOwner;
+        if (tasks != null && limit > 0 && tasks.size() >= limit) {
+            throw new RejectedExecutionException("The owner already has " + tasks.size() + " task(s) running");
+        }
+
+        executor.execute(task.getRunnable());
+        if (tasks == null) {
+            tasks = new ArrayList<BackgroundTask<?>>();
+            backgroundTasks.put(id, tasks);
+        }
+        tasks.add(task);
+        task.getFuture().addListener(new Runnable() {
+            @Override
+            public void run() {
+                remove(task);
+            }
+        }, MoreExecutors.directExecutor());
+        return task;
+    }
+
+    /**
+     * Get the background tasks of the given owner that are queued or
+     * running.
+     *
+     * @param owner the owner
+     * @return a list of tasks, in the order in which they were submitted
+     */
+    public synchronized List<BackgroundTask<?>> getBackgroundTasks(SessionOwner owner) {
+        checkNotNull(owner);
+        List<BackgroundTask<?>> tasks = backgroundTasks.get(owner.getSessionKey().getUniqueId());
+        if (tasks == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<BackgroundTask<?>>(tasks);
+    }
+
+    /**
+     * Cancel all the operations and background tasks of the given owner that
+     * are queued or running.
+     *
+     * @param owner the owner
+     * @return the number of operations and tasks that were cancelled
+     */
+    public synchronized int cancel(SessionOwner owner) {
+        checkNotNull(owner);
+        UUID id = owner.getSessionKey().getUniqueId();
+        int cancelled = 0;
+        List<BackgroundTask<?>> tasks = backgroundTasks.remove(id);
+        if (tasks != null) {
+            for (BackgroundTask<?> task : tasks) {
+                task.abort();
+            }
+            cancelled += tasks.size();
+        }
+        Deque<ScheduledOperation> queue = queues.remove(id);
+        if (queue != null) {
+            for (ScheduledOperation operation : queue) {
+                operation.abort();
+            }
+            cancelled += queue.size();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancel the given background task.
+     *
+     * @param task the task
+     * @return true if the task was queued or running
+     */
+    synchronized boolean cancel(BackgroundTask<?> task) {
+        if (!remove(task)) {
+            return false;
+        }
+        task.abort();
+        return true;
+    }
+
+    private synchronized boolean remove(BackgroundTask<?> task) {
+        List<BackgroundTask<?>> tasks = backgroundTasks.get(task.getOwnerId());
+        if (tasks == null || !tasks.remove(task)) {
+            return false;
+        }
+        if (tasks.isEmpty()) {
+            backgroundTasks.remove(task.getOwnerId());
+        }
+        return true;
+    }
+
+    /**
+     * Cancel the given operation.
+     *
+     * @param operation the operation
+     * @return true if the operation was queued or running
+     */
+    synchronized boolean cancel(ScheduledOperation operation) {
+        Deque<ScheduledOperation> queue = queues.get(operation.getOwner());
+        if (queue == null || !queue.remove(operation)) {
+            return false;
+        }
+        if (queue.isEmpty()) {
+            queues.remove(operation.getOwner());
+        }
+        operation.abort();
+        return true;
+    }
+
+    /**
+     * Immediately complete all operations of the given owner.
+     *
+     * <p>This should be called before the owner starts a new edit, so that
+     * it is made on top of the results of earlier operations.</p>
+     *
+     * @param owner the owner
+     */
+    public void complete(SessionOwner owner) {
+        checkNotNull(owner);
+        complete(owner.getSessionKey());
+    }
+
+    /**
+     * Immediately complete all operations of the owner with the given key.
+     *
+     * @param key the key of the owner
+     * @see #complete(SessionOwner)
+     */
+    public void complete(SessionKey key) {
+        checkNotNull(key);
+        UUID id = key.getUniqueId();
+        Deque<ScheduledOperation> queue;
+        synchronized (this) {
+            queue = queues.remove(id);
+        }
+        completeOperations(id, queue);
+    }
+
+    /**
+     * Immediately complete all queued operations.
+     */
+    public void completeAll() {
+        Map<UUID, Deque<ScheduledOperation>> all;
+        synchronized (this) {
+            all = new LinkedHashMap<UUID, Deque<ScheduledOperation>>(queues);
+            queues.clear();
+        }
+        for (Map.Entry<UUID, Deque<ScheduledOperation>> entry : all.entrySet()) {
+            completeOperations(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Complete all queued operations, run the remaining tasks for the
+     * server thread and shut down the compute and I/O threads.
+     *
+     * <p>This should be called when the platform that runs the scheduler is
+     * going away. The threads are created again if the scheduler is used
+     * afterwards.</p>
+     */
+    public void shutdown() {
+        completeAll();
+
+        runServerTasks();
+
+        synchronized (this) {
+            if (computeExecutor != null) {
+                computeExecutor.shutdown();
+                computeExecutor = null;
+            }
+            computeThreads = 0;
+            if (ioExecutor != null) {
+                ioExecutor.shutdown();
+                ioExecutor = null;
+            }
+            ioThreads = 0;
+
+            scheduled = false;
+            unavailable = false;
+        }
+    }
+
+    private void completeOperations(UUID id, @Nullable Deque<ScheduledOperation> queue) {
+        if (queue == null) {
+            return;
+        }
+
+        ScheduledOperation operation;
+        while ((operation = queue.peek()) != null) {
+            if (!operation.step(new RunContext())) {
+                // The operation is being run further up the stack of this thread
+                requeue(id, queue);
+                return;
+            }
+            queue.poll();
+        }
+    }
+
+    private synchronized void requeue(UUID id, Deque<ScheduledOperation> queue) {
+        Deque<ScheduledOperation> newer = queues.get(id);
+        if (newer != null) {
+            queue.addAll(newer);
+        }
+        queues.put(id, queue);
+    }
+
+    /**
+     * Get the number of server ticks that the scheduler has run in.
+     *
+     * <p>The number only increases while the scheduler is scheduled to
+     * run every tick, which is the case once an operation has been queued
+     * or a task has been passed to the {@link #getServerExecutor() server
+     * executor}.</p>
+     *
+     * @return the number of ticks
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        runServerTasks();
+
+        List<String> messages = new ArrayList<String>();
+        List<Actor> recipients = new ArrayList<Actor>();
+        List<UUID> ids;
+        long slice;
+        synchronized (this) {
+            reportProgress(recipients, messages);
+
+            long budget = TimeUnit.MILLISECONDS.toNanos(getTickBudget());
+            if (queues.isEmpty()) {
+                ids = Collections.emptyList();
+                slice = 0;
+            } else if (budget <= 0) {
+                ids = null;
+                slice = 0;
+            } else {
+                ids = new ArrayList<UUID>(queues.keySet());
+                slice = Math.max(1, budget / queues.size());
+            }
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            recipients.get(i).print(messages.get(i));
+        }
+
+        if (ids == null) {
+            completeAll();
+            return;
+        }
+
+        for (UUID id : ids) {
+            TimedRunContext context = new TimedRunContext(slice, TimeUnit.NANOSECONDS);
+            ScheduledOperation operation;
+            while ((operation = peek(id)) != null) {
+                if (!operation.step(context)) {
+                    break;
+                }
+                remove(id, operation);
+                if (context.isExpired()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private synchronized ScheduledOperation peek(UUID id) {
+        Deque<ScheduledOperation> queue = queues.get(id);
+        return queue != null ? queue.peek() : null;
+    }
+
+    private synchronized void remove(UUID id, ScheduledOperation operation) {
+        Deque<ScheduledOperation> queue = queues.get(id);
+        if (queue != null && queue.remove(operation) && queue.isEmpty()) {
+            queues.remove(id);
+        }
+    }
+
+    /**
+     * Get the executor that edits may be computed on away from the
+     * server thread.
+     *
+     * @return the executor, or null if computing edits away from the server thread is disabled
+     */
+    @Nullable
+    public synchronized ListeningExecutorService getComputeExecutor() {
+        int threads = worldEdit.getConfiguration().schedulerComputeThreads;
+        if (threads != computeThreads) {
+            if (computeExecutor != null) {
+                computeExecutor.shutdown();
+                computeExecutor = null;
+            }
+            if (threads > 0) {
+                computeExecutor = MoreExecutors.listeningDecorator(
+                        EvenMoreExecutors.newBoundedCachedThreadPool(threads, threads, COMPUTE_QUEUE_SIZE, "WorldEdit Compute Thread %d"));
+            }
+            computeThreads = threads;
+        }
+        return computeExecutor;
+    }
+
+    /**
+     * Get an executor that runs tasks on the server thread, such as
+     * callbacks that apply the result of a background task.
+     *
+     * <p>Tasks are run at the start of the next tick. If the platform is
+     * unable to schedule repeating tasks, they are run immediately on the
+     * calling thread instead.</p>
+     *
+     * @return the executor
+     */
+    public Executor getServerExecutor() {
+        return serverExecutor;
+    }
+
+    /**
+     * Get the executor that background tasks are run on.
+     *
+     * @return the executor, or null if background tasks are run immediately
+     */
+    @Nullable
+    private synchronized ListeningExecutorService getIOExecutor() {
+        int threads = worldEdit.getConfiguration().schedulerIOThreads;
+        if (threads != ioThreads) {
+            if (ioExecutor != null) {
+                ioExecutor.shutdown();
+                ioExecutor = null;
+            }
+            if (threads > 0) {
+                ioExecutor = MoreExecutors.listeningDecorator(
+                        EvenMoreExecutors.newBoundedCachedThreadPool(threads, threads, IO_QUEUE_SIZE, "WorldEdit I/O Thread %d"));
+            }
+            ioThreads = threads;
+        }
+        return ioExecutor;
+    }
+
+    private void executeOnServer(Runnable runnable) {
+        boolean queued;
+        synchronized (this) {
+            queued = ensureScheduled();
+            if (queued) {
+                serverTasks.add(runnable);
+            }
+        }
+        if (!queued) {
+            runnable.run();
+        }
+    }
+
+    private void runServerTasks() {
+        Runnable serverTask;
+        while ((serverTask = pollServerTask()) != null) {
+            try {
+                serverTask.run();
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to run a task on the server thread", e);
+            }
+        }
+    }
+
+    @Nullable
+    private synchronized Runnable pollServerTask() {
+        return serverTasks.poll();
+    }
+
+    private void reportProgress(List<Actor> recipients, List<String> messages) {
+        for (List<BackgroundTask<?>> tasks : backgroundTasks.values()) {
+            for (BackgroundTask<?> task : tasks) {
+                if (task.getOwner() instanceof Actor && !task.isDone() && task.shouldReport(REPORT_INTERVAL)) {
+                    StringBuilder builder = new StringBuilder();
+                    builder.append(task.getDescription()).append(": ");
+                    double progress = task.getProgress();
+                    if (progress >= 0) {
+                        builder.append(Math.round(progress * 100)).append("% done");
+                    } else if (task.getTransferred() >= 0) {
+                        builder.append(task.getTransferred() / 1024).append(" KB so far");
+                    } else {
+                        builder.append("still running");
+                    }
+                    builder.append(" (").append(task.getElapsedTime(TimeUnit.SECONDS)).append("s)");
+                    recipients.add((Actor) task.getOwner());
+                    messages.add(builder.toString());
+                }
+            }
+        }
+    }
+
+    private int getTickBudget() {
+        return worldEdit.getConfiguration().schedulerTickBudget;
+    }
+
+    private boolean ensureScheduled() {
+        if (scheduled) {
+            return true;
+        } else if (unavailable) {
+            return false;
+        }
+
+        try {
+            int taskId = worldEdit.getPlatformManager().queryCapability(Capability.GAME_HOOKS).schedule(1, 1, this);
+            if (taskId == -1) {
+                log.warning("The platform cannot schedule repeating tasks, so operations will be completed immediately");
+                unavailable = true;
+            } else {
+                scheduled = true;
+            }
+        } catch (NoCapablePlatformException e) {
+            return false;
+        }
+
+        return scheduled;
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.session;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.ProgressiveOperation;
+import com.sk89q.worldedit.function.operation.RunContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An {@link Operation} that has been submitted to an
+ * {@link OperationScheduler}.
+ */
+public class ScheduledOperation {
+
+    /**
+     * The state of a scheduled operation.
+     */
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final OperationScheduler scheduler;
+    private final UUID owner;
+    private final String description;
+    private final Operation root;
+    private final SettableFuture<Void> future = SettableFuture.create();
+    private volatile Operation current;
+    private volatile State state = State.QUEUED;
+    private boolean stepping = false;
+    private long runNanos = 0;
+    private int ticks = 0;
+
+    ScheduledOperation(OperationScheduler scheduler, UUID owner, String description, Operation operation) {
+        checkNotNull(scheduler);
+        checkNotNull(owner);
+        checkNotNull(description);
+        checkNotNull(operation);
+        this.scheduler = scheduler;
+        this.owner = owner;
+        this.description = description;
+        this.root = operation;
+        this.current = operation;
+    }
+
+    /**
+     * Get the ID of the owner of the operation.
+     *
+     * @return the owner's ID
+     */
+    public UUID getOwner() {
+        return owner;
+    }
+
+    /**
+     * Get a description of the operation.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Get the state of the operation.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Return whether the operation has completed, been cancelled or failed.
+     *
+     * @return true if done
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Get the fraction of the operation that has been completed.
+     *
+     * @return a value between 0 and 1, or -1 if it is not known
+     */
+    public double getProgress() {
+        if (state == State.COMPLETED) {
+            return 1;
+        } else if (root instanceof ProgressiveOperation) {
+            return ((ProgressiveOperation) root).getProgress();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the number of ticks that the operation has run in.
+     *
+     * @return the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get the time that the operation has spent running.
+     *
+     * @param unit the unit to return the time in
+     * @return the time
+     */
+    public long getRunTime(TimeUnit unit) {
+        return unit.convert(runNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get messages that describe the status of the operation.
+     *
+     * @return a list of messages
+     */
+    public List<String> getStatusMessages() {
+        List<String> messages = new ArrayList<String>();
+        root.addStatusMessages(messages);
+        return messages;
+    }
+
+    /**
+     * Get a future that completes when the operation has completed, is
+     * cancelled or has failed.
+     *
+     * @return a future
+     */
+    public ListenableFuture<Void> getFuture() {
+        return future;
+    }
+
+    /**
+     * Cancel the operation if it has not completed yet.
+     *
+     * @return true if the operation was cancelled
+     */
+    public boolean cancel() {
+        return scheduler.cancel(this);
+    }
+
+    /**
+     * Run the operation until it completes or the given context asks it
+     * to stop.
+     *
+     * <p>Only one thread runs the operation at a time. If the operation
+     * is already being run by the calling thread, such as when it
+     * completes the queue of its own owner, nothing is done.</p>
+     *
+     * @param run the run context
+     * @return true if the operation is done
+     */
+    synchronized boolean step(RunContext run) {
+        if (isDone()) {
+            return true;
+        } else if (stepping) {
+            return false;
+        }
+
+        stepping = true;
+        state = State.RUNNING;
+        ticks++;
+        long start = System.nanoTime();
+        try {
+            Operation operation = current;
+            while (operation != null && !isDone()) {
+                operation = operation.resume(run);
+                current = operation;
+                if (!run.shouldContinue()) {
+                    break;
+                }
+            }
+        } catch (WorldEditException e) {
+            fail(e);
+            return true;
+        } catch (RuntimeException e) {
+            fail(e);
+            return true;
+        } finally {
+            runNanos += System.nanoTime() - start;
+            stepping = false;
+        }
+
+        if (isDone()) {
+            return true;
+        } else if (current == null) {
+            state = State.COMPLETED;
+            future.set(null);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Cancel the underlying operation.
+     *
+     * <p>This may be called while another thread runs the operation, which
+     * then stops once the operation returns control.</p>
+     */
+    void abort() {
+        if (future.cancel(false)) {
+            state = State.CANCELLED;
+            root.cancel();
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        if (future.setException(throwable)) {
+            state = State.FAILED;
+            current = null;
+            root.cancel();
+        }
+    }
+
+}
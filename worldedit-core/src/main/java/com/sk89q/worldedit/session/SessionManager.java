@@ -28,17 +28,22 @@
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.event.platform.ConfigurationLoadEvent;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.NoCapablePlatformException;
 import com.sk89q.worldedit.session.storage.JsonFileSessionStore;
 import com.sk89q.worldedit.session.storage.SessionStore;
 import com.sk89q.worldedit.session.storage.VoidStore;
 import com.sk89q.worldedit.util.concurrency.EvenMoreExecutors;
 import com.sk89q.worldedit.util.eventbus.Subscribe;
+import com.sk89q.worldedit.world.World;
 
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -66,6 +71,7 @@ public class SessionManager {
     private final WorldEdit worldEdit;
     private final Map<UUID, SessionHolder> sessions = new HashMap<UUID, SessionHolder>();
     private SessionStore store = new VoidStore();
+    private @Nullable File historyDir;
 
     /**
      * Create a new session manager.
@@ -110,6 +116,26 @@ public synchronized LocalSession findByName(String name) {
         return null;
     }
 
+    /**
+     * Find the key of a session by its name specified by
+     * {@link SessionKey#getName()}.
+     *
+     * @param name the name
+     * @return the key, if found, otherwise {@code null}
+     */
+    @Nullable
+    public synchronized SessionKey findKeyByName(String name) {
+        checkNotNull(name);
+        for (SessionHolder holder : sessions.values()) {
+            String test = holder.key.getName();
+            if (test != null && name.equals(test)) {
+                return holder.key;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Gets the session for an owner and return it if it exists, otherwise
      * return {@code null}.
@@ -154,6 +180,11 @@ public synchronized LocalSession get(SessionOwner owner) {
             session.setConfiguration(config);
             session.setBlockChangeLimit(config.defaultChangeLimit);
 
+            File historyDirectory = getHistoryDirectory(sessionKey);
+            if (historyDirectory != null) {
+                session.loadHistory(historyDirectory, getWorlds());
+            }
+
             // Remember the session if the session is still active
             if (sessionKey.isActive()) {
                 sessions.put(getKey(owner), new SessionHolder(sessionKey, session));
@@ -191,6 +222,36 @@ public synchronized LocalSession get(SessionOwner owner) {
         return session;
     }
 
+    /**
+     * Get the directory that history of the given session is written to
+     * when it is spilled to disk.
+     *
+     * @param key the session key
+     * @return the directory, or null if history is not written to disk for the session
+     */
+    @Nullable
+    public File getHistoryDirectory(SessionKey key) {
+        checkNotNull(key);
+        File dir = historyDir;
+        if (dir == null || !key.isPersistent() || worldEdit.getConfiguration().historyDiskThreshold < 0) {
+            return null;
+        }
+        return new File(dir, getKey(key).toString());
+    }
+
+    /**
+     * Get the worlds that history can be restored into.
+     *
+     * @return a list of worlds
+     */
+    private List<? extends World> getWorlds() {
+        try {
+            return worldEdit.getPlatformManager().queryCapability(Capability.WORLD_EDITING).getWorlds();
+        } catch (NoCapablePlatformException e) {
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * Save a map of sessions to disk.
      *
@@ -279,6 +340,7 @@ public void onConfigurationLoad(ConfigurationLoadEvent event) {
         LocalConfiguration config = event.getConfiguration();
         File dir = new File(config.getWorkingDirectory(), "sessions");
         store = new JsonFileSessionStore(dir);
+        historyDir = new File(dir, "history");
     }
 
     /**
@@ -24,6 +24,8 @@
 import com.sk89q.util.StringUtil;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.internal.expression.runtime.ExpressionCompiler;
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 
 import java.io.File;
@@ -93,6 +95,7 @@ public void load() {
         maxRadius = getInt("max-radius", maxRadius);
         maxSuperPickaxeSize = getInt("max-super-pickaxe-size", maxSuperPickaxeSize);
         maxBrushRadius = getInt("max-brush-radius", maxBrushRadius);
+        maxSearchMemory = Math.max(-1, getInt("max-search-memory", maxSearchMemory));
         logCommands = getBool("log-commands", logCommands);
         logFile = getString("log-file", logFile);
         logFormat = getString("log-format", logFormat);
@@ -113,8 +116,19 @@ public void load() {
         butcherDefaultRadius = getInt("butcher-default-radius", butcherDefaultRadius);
         butcherMaxRadius = getInt("butcher-max-radius", butcherMaxRadius);
         allowSymlinks = getBool("allow-symbolic-links", allowSymlinks);
+        ClipboardStorage storage = ClipboardStorage.findByAlias(getString("clipboard-storage", "array"));
+        clipboardStorage = storage != null ? storage : ClipboardStorage.ARRAY;
 
         LocalSession.MAX_HISTORY_SIZE = Math.max(15, getInt("history-size", 15));
+        historyDiskThreshold = Math.max(-1, getInt("history-disk-threshold", historyDiskThreshold));
+        schedulerTickBudget = Math.max(0, getInt("scheduler-tick-budget", schedulerTickBudget));
+        schedulerComputeThreads = Math.max(0, getInt("scheduler-compute-threads", schedulerComputeThreads));
+        schedulerIOThreads = Math.max(0, getInt("scheduler-io-threads", schedulerIOThreads));
+        schedulerIOTasksPerOwner = Math.max(0, getInt("scheduler-io-tasks-per-player", schedulerIOTasksPerOwner));
+        sectionCacheMemory = Math.max(0, getInt("section-cache-memory", sectionCacheMemory));
+        schematicCompressionLevel = Math.max(-1, Math.min(9, getInt("schematic-compression-level", schematicCompressionLevel)));
+        compileExpressions = getBool("compile-expressions", compileExpressions);
+        ExpressionCompiler.setEnabled(compileExpressions);
 
         String snapshotsDir = getString("snapshots-dir", "");
         if (!snapshotsDir.isEmpty()) {
@@ -22,6 +22,8 @@
 import com.sk89q.util.yaml.YAMLProcessor;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.internal.expression.runtime.ExpressionCompiler;
 import com.sk89q.worldedit.session.SessionManager;
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 
@@ -70,6 +72,7 @@ public void load() {
 
         maxRadius = Math.max(-1, config.getInt("limits.max-radius", maxRadius));
         maxBrushRadius = config.getInt("limits.max-brush-radius", maxBrushRadius);
+        maxSearchMemory = Math.max(-1, config.getInt("limits.max-search-memory", maxSearchMemory));
         maxSuperPickaxeSize = Math.max(1, config.getInt(
                 "limits.max-super-pickaxe-size", maxSuperPickaxeSize));
 
@@ -107,8 +110,19 @@ public void load() {
         saveDir = config.getString("saving.dir", saveDir);
 
         allowSymlinks = config.getBoolean("files.allow-symbolic-links", false);
+        ClipboardStorage storage = ClipboardStorage.findByAlias(config.getString("clipboard.storage", "array"));
+        clipboardStorage = storage != null ? storage : ClipboardStorage.ARRAY;
         LocalSession.MAX_HISTORY_SIZE = Math.max(0, config.getInt("history.size", 15));
         SessionManager.EXPIRATION_GRACE = config.getInt("history.expiration", 10) * 60 * 1000;
+        historyDiskThreshold = Math.max(-1, config.getInt("history.disk-threshold", historyDiskThreshold));
+        schedulerTickBudget = Math.max(0, config.getInt("scheduler.tick-budget", schedulerTickBudget));
+        schedulerComputeThreads = Math.max(0, config.getInt("scheduler.compute-threads", schedulerComputeThreads));
+        schedulerIOThreads = Math.max(0, config.getInt("scheduler.io-threads", schedulerIOThreads));
+        schedulerIOTasksPerOwner = Math.max(0, config.getInt("scheduler.io-tasks-per-player", schedulerIOTasksPerOwner));
+        sectionCacheMemory = Math.max(0, config.getInt("cache.section-memory", sectionCacheMemory));
+        schematicCompressionLevel = Math.max(-1, Math.min(9, config.getInt("saving.compression-level", schematicCompressionLevel)));
+        compileExpressions = config.getBoolean("expressions.compile", compileExpressions);
+        ExpressionCompiler.setEnabled(compileExpressions);
 
         showHelpInfo = config.getBoolean("show-help-on-first-use", true);
 
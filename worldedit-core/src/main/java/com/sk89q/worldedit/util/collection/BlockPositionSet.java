@@ -0,0 +1,209 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.math.BlockPositions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A set of block positions that stores one bit per position.
+ *
+ * <p>Positions are grouped into 16x16x16 sections, which are allocated as
+ * positions within them are added. Only positions accepted by
+ * {@link BlockPositions#canPack(int, int, int)} can be stored.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class BlockPositionSet {
+
+    private static final int SECTION_WORDS = 4096 / 64;
+    private static final long SECTION_BYTES = SECTION_WORDS * 8 + 16 + 8 + 8;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[][] sections = new long[INITIAL_CAPACITY][];
+    private int sectionCount = 0;
+    private int size = 0;
+    private long lastKey;
+    private long[] lastSection;
+
+    /**
+     * Add a position to the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position was not already in the set
+     */
+    public boolean add(int x, int y, int z) {
+        checkArgument(BlockPositions.canPack(x, y, z), "position out of range");
+        long[] section = getSection(x, y, z, true);
+        int index = getIndex(x, y, z);
+        long bit = 1L << index;
+        long word = section[index >>> 6];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        section[index >>> 6] = word | bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * Return whether the set contains a position.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the set
+     */
+    public boolean contains(int x, int y, int z) {
+        if (!BlockPositions.canPack(x, y, z)) {
+            return false;
+        }
+        long[] section = getSection(x, y, z, false);
+        if (section == null) {
+            return false;
+        }
+        int index = getIndex(x, y, z);
+        return (section[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Get the number of positions in the set.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the set is empty.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the number of sections that have been allocated.
+     *
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * Get an estimate of the number of bytes used by this set.
+     *
+     * @return the number of bytes
+     */
+    public long getMemoryUsage() {
+        return sectionCount * SECTION_BYTES + keys.length * 16L;
+    }
+
+    /**
+     * Remove all positions from the set.
+     */
+    public void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        sections = new long[INITIAL_CAPACITY][];
+        sectionCount = 0;
+        size = 0;
+        lastSection = null;
+    }
+
+    /**
+     * Get the bit index of a position within its section.
+     *
+     * <p>The 16 bits of the X coordinate are adjacent so that the six
+     * neighbours of a position are usually in the same word or section.</p>
+     */
+    private static int getIndex(int x, int y, int z) {
+        return ((y & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private long[] getSection(int x, int y, int z, boolean create) {
+        long key = BlockPositions.pack(x >> 4, y >> 4, z >> 4);
+        if (lastSection != null && lastKey == key) {
+            return lastSection;
+        }
+
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        long[] section;
+        while ((section = sections[i]) != null) {
+            if (keys[i] == key) {
+                lastKey = key;
+                lastSection = section;
+                return section;
+            }
+            i = (i + 1) & mask;
+        }
+
+        if (!create) {
+            return null;
+        }
+
+        section = new long[SECTION_WORDS];
+        if ((sectionCount + 1) * 2 > keys.length) {
+            grow();
+            insert(key, section);
+        } else {
+            keys[i] = key;
+            sections[i] = section;
+        }
+        sectionCount++;
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    private void insert(long key, long[] section) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (sections[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        sections[i] = section;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[][] oldSections = sections;
+        keys = new long[oldKeys.length * 2];
+        sections = new long[oldKeys.length * 2][];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSections[i] != null) {
+                insert(oldKeys[i], oldSections[i]);
+            }
+        }
+    }
+
+}
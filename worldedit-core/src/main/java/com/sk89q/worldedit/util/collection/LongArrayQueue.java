@@ -0,0 +1,111 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.util.collection;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A first-in, first-out queue of primitive {@code long}s that is backed by
+ * a growable circular array.
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class LongArrayQueue {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] elements = new long[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Add a value to the end of the queue.
+     *
+     * @param value the value
+     */
+    public void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * Remove and return the value at the start of the queue.
+     *
+     * @return the value
+     * @throws NoSuchElementException thrown if the queue is empty
+     */
+    public long remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * Get the number of values in the queue.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the queue is empty.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get an estimate of the number of bytes used by this queue.
+     *
+     * @return the number of bytes
+     */
+    public long getMemoryUsage() {
+        return elements.length * 8L + 16;
+    }
+
+    /**
+     * Remove all values and release the backing array.
+     */
+    public void clear() {
+        elements = new long[INITIAL_CAPACITY];
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        long[] grown = new long[elements.length * 2];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, size - firstPart);
+        elements = grown;
+        head = 0;
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A fixed-size array of unsigned 16-bit values that is stored as a palette
+ * of distinct values plus a bit-packed array of palette indices.
+ *
+ * <p>An array that contains only one distinct value takes no storage
+ * besides the palette. Once the palette grows past
+ * {@link #MAX_PALETTE_SIZE} entries, the palette is dropped and values
+ * are stored directly with 16 bits each.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class PaletteArray {
+
+    /**
+     * The largest palette kept before switching to direct storage.
+     */
+    public static final int MAX_PALETTE_SIZE = 64;
+
+    private static final int DIRECT_BITS = 16;
+    private static final int MAX_VALUE = 0xFFFF;
+
+    private final int size;
+    private int[] palette;
+    private int paletteSize;
+    private int bitsPerEntry;
+    private long[] data;
+    private int lastIndex;
+
+    /**
+     * Create a new array where every entry is set to the given value.
+     *
+     * @param size the number of entries
+     * @param initialValue the initial value
+     */
+    public PaletteArray(int size, int initialValue) {
+        checkArgument(size > 0, "size must be > 0");
+        checkValue(initialValue);
+        this.size = size;
+        this.palette = new int[] { initialValue };
+        this.paletteSize = 1;
+        this.bitsPerEntry = 0;
+        this.data = null;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the value at the given index.
+     *
+     * @param index the index
+     * @return the value
+     */
+    public int get(int index) {
+        if (bitsPerEntry == 0) {
+            return palette[0];
+        }
+        int raw = read(data, bitsPerEntry, index);
+        return palette == null ? raw : palette[raw];
+    }
+
+    /**
+     * Set the value at the given index.
+     *
+     * @param index the index
+     * @param value the value, between 0 and 65535
+     */
+    public void set(int index, int value) {
+        checkValue(value);
+        if (palette == null) {
+            write(data, DIRECT_BITS, index, value);
+            return;
+        }
+
+        int paletteIndex = indexOf(value);
+        if (paletteIndex == -1) {
+            paletteIndex = addToPalette(value);
+            if (palette == null) {
+                write(data, DIRECT_BITS, index, value);
+                return;
+            }
+        } else if (bitsPerEntry == 0) {
+            return; // Only one value and it's the same
+        }
+
+        write(data, bitsPerEntry, index, paletteIndex);
+    }
+
+    /**
+     * Set every entry to the given value, releasing the packed storage.
+     *
+     * @param value the value
+     */
+    public void fill(int value) {
+        checkValue(value);
+        palette = new int[] { value };
+        paletteSize = 1;
+        bitsPerEntry = 0;
+        data = null;
+        lastIndex = 0;
+    }
+
+    /**
+     * Return whether every entry holds the same value.
+     *
+     * @return true if uniform
+     */
+    public boolean isUniform() {
+        return bitsPerEntry == 0;
+    }
+
+    /**
+     * Get the number of distinct values currently in the palette, or -1 if
+     * values are stored directly.
+     *
+     * @return the palette size or -1
+     */
+    public int getPaletteSize() {
+        return palette == null ? -1 : paletteSize;
+    }
+
+    /**
+     * Get the number of bits used to store each entry.
+     *
+     * @return the number of bits
+     */
+    public int getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+    /**
+     * Get an estimate of the number of bytes of heap used by this array.
+     *
+     * @return the number of bytes
+     */
+    public long getMemoryUsage() {
+        long bytes = 32; // Object header and fields
+        if (palette != null) {
+            bytes += 16 + palette.length * 4L;
+        }
+        if (data != null) {
+            bytes += 16 + data.length * 8L;
+        }
+        return bytes;
+    }
+
+    private int indexOf(int value) {
+        if (palette[lastIndex] == value) {
+            return lastIndex;
+        }
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == value) {
+                lastIndex = i;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int addToPalette(int value) {
+        if (paletteSize == MAX_PALETTE_SIZE) {
+            convertToDirect();
+            return -1;
+        }
+
+        if (paletteSize == palette.length) {
+            int[] expanded = new int[Math.min(MAX_PALETTE_SIZE, palette.length * 2)];
+            System.arraycopy(palette, 0, expanded, 0, paletteSize);
+            palette = expanded;
+        }
+
+        int index = paletteSize++;
+        palette[index] = value;
+        lastIndex = index;
+
+        int needed = bitsFor(paletteSize);
+        if (needed != bitsPerEntry) {
+            resize(needed);
+        }
+
+        return index;
+    }
+
+    private void resize(int newBits) {
+        long[] newData = new long[longsFor(newBits)];
+        if (bitsPerEntry != 0) {
+            for (int i = 0; i < size; i++) {
+                write(newData, newBits, i, read(data, bitsPerEntry, i));
+            }
+        }
+        // A zero-bit array implied palette index 0 everywhere, which the
+        // new zeroed array already encodes
+        data = newData;
+        bitsPerEntry = newBits;
+    }
+
+    private void convertToDirect() {
+        long[] newData = new long[longsFor(DIRECT_BITS)];
+        for (int i = 0; i < size; i++) {
+            write(newData, DIRECT_BITS, i, get(i));
+        }
+        data = newData;
+        bitsPerEntry = DIRECT_BITS;
+        palette = null;
+        paletteSize = 0;
+        lastIndex = 0;
+    }
+
+    private int longsFor(int bits) {
+        return (int) (((long) size * bits + 63) / 64);
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return paletteSize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    private static int read(long[] data, int bits, int index) {
+        long bitIndex = (long) index * bits;
+        int word = (int) (bitIndex >>> 6);
+        int offset = (int) (bitIndex & 63);
+        long mask = (1L << bits) - 1;
+        long value = data[word] >>> offset;
+        if (offset + bits > 64) {
+            value |= data[word + 1] << (64 - offset);
+        }
+        return (int) (value & mask);
+    }
+
+    private static void write(long[] data, int bits, int index, int value) {
+        long bitIndex = (long) index * bits;
+        int word = (int) (bitIndex >>> 6);
+        int offset = (int) (bitIndex & 63);
+        long mask = (1L << bits) - 1;
+        data[word] = (data[word] & ~(mask << offset)) | ((value & mask) << offset);
+        if (offset + bits > 64) {
+            int spill = 64 - offset;
+            data[word + 1] = (data[word + 1] & ~(mask >>> spill)) | ((value & mask) >>> spill);
+        }
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("Value must be between 0 and " + MAX_VALUE + " (" + value + " given)");
+        }
+    }
+
+}
@@ -19,6 +19,8 @@
 
 package com.sk89q.worldedit.util.concurrency;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -51,4 +53,25 @@ public static ExecutorService newBoundedCachedThreadPool(int minThreads, int max
         return threadPoolExecutor;
     }
 
+    /**
+     * Creates a thread pool that creates new daemon threads as needed up to
+     * a maximum number of threads, but will reuse previously constructed
+     * threads when they are available.
+     *
+     * @param minThreads the minimum number of threads to have at a given time
+     * @param maxThreads the maximum number of threads to have at a given time
+     * @param queueSize the size of the queue before new submissions are rejected
+     * @param threadNameFormat the format of thread names, as used by {@link String#format(String, Object...)} with the thread number
+     * @return the newly created thread pool
+     */
+    public static ExecutorService newBoundedCachedThreadPool(int minThreads, int maxThreads, int queueSize, String threadNameFormat) {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                minThreads, maxThreads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat(threadNameFormat).build());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
 }
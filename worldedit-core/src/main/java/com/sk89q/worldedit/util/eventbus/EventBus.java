@@ -28,6 +28,8 @@
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,6 +46,12 @@
  * <p>This implementation utilizes naive synchronization on all getter and
  * setter methods. Dispatch does not occur when a lock has been acquired,
  * however.</p>
+ *
+ * <p>The handlers of each posted event class, including those subscribed to
+ * its supertypes, are sorted by priority once and cached in an array. The
+ * cache is cleared whenever handlers are subscribed or unsubscribed, so
+ * posting an event of a class that was posted before only reads the
+ * cache and does not lock the bus.</p>
  */
 public class EventBus {
 
@@ -68,6 +76,8 @@ public Set<EventHandler> get() {
     @RequiresNewerGuava
     private HierarchyCache flattenHierarchyCache = new HierarchyCache();
 
+    private final ConcurrentMap<Class<?>, EventHandler[]> dispatchCache = new ConcurrentHashMap<Class<?>, EventHandler[]>();
+
     /**
      * Registers the given handler for the given class to receive events.
      *
@@ -78,6 +88,7 @@ public synchronized void subscribe(Class<?> clazz, EventHandler handler) {
         checkNotNull(clazz);
         checkNotNull(handler);
         handlersByType.put(clazz, handler);
+        dispatchCache.clear();
     }
 
     /**
@@ -88,6 +99,7 @@ public synchronized void subscribe(Class<?> clazz, EventHandler handler) {
     public synchronized void subscribeAll(Multimap<Class<?>, EventHandler> handlers) {
         checkNotNull(handlers);
         handlersByType.putAll(handlers);
+        dispatchCache.clear();
     }
 
     /**
@@ -100,6 +112,7 @@ public synchronized void unsubscribe(Class<?> clazz, EventHandler handler) {
         checkNotNull(clazz);
         checkNotNull(handler);
         handlersByType.remove(clazz, handler);
+        dispatchCache.clear();
     }
 
     /**
@@ -117,6 +130,7 @@ public synchronized void unsubscribeAll(Multimap<Class<?>, EventHandler> handler
                 currentHandlers.removeAll(eventMethodsInListener);
             }
         }
+        dispatchCache.clear();
     }
 
     /**
@@ -153,25 +167,44 @@ public void unregister(Object object) {
      * @param event  event to post.
      */
     public void post(Object event) {
-        List<EventHandler> dispatching = new ArrayList<EventHandler>();
+        EventHandler[] dispatching = dispatchCache.get(event.getClass());
+        if (dispatching == null) {
+            dispatching = getDispatchHandlers(event.getClass());
+        }
 
-        synchronized (this) {
-            Set<Class<?>> dispatchTypes = flattenHierarchy(event.getClass());
+        for (EventHandler handler : dispatching) {
+            dispatch(event, handler);
+        }
+    }
 
-            for (Class<?> eventType : dispatchTypes) {
-                Set<EventHandler> wrappers = getHandlersForEventType(eventType);
+    /**
+     * Get the handlers that events of the given class are dispatched to,
+     * sorted by priority, and cache them until handlers are subscribed or
+     * unsubscribed.
+     *
+     * @param eventClass the event class
+     * @return the handlers, which must not be modified
+     */
+    private synchronized EventHandler[] getDispatchHandlers(Class<?> eventClass) {
+        EventHandler[] cached = dispatchCache.get(eventClass);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<EventHandler> dispatching = new ArrayList<EventHandler>();
+        for (Class<?> eventType : flattenHierarchy(eventClass)) {
+            Set<EventHandler> wrappers = getHandlersForEventType(eventType);
 
-                if (wrappers != null && !wrappers.isEmpty()) {
-                    dispatching.addAll(wrappers);
-                }
+            if (wrappers != null && !wrappers.isEmpty()) {
+                dispatching.addAll(wrappers);
             }
         }
 
         Collections.sort(dispatching);
 
-        for (EventHandler handler : dispatching) {
-            dispatch(event, handler);
-        }
+        EventHandler[] handlers = dispatching.toArray(new EventHandler[dispatching.size()]);
+        dispatchCache.put(eventClass, handlers);
+        return handlers;
     }
 
     /**
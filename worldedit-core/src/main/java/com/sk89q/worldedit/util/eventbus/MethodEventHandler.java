@@ -19,17 +19,29 @@
 
 package com.sk89q.worldedit.util.eventbus;
 
+import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Invokes a {@link Method} to dispatch an event.
+ *
+ * <p>The method is invoked through a {@link MethodHandle} that is bound to
+ * the object, unless the method cannot be looked up that way, in which
+ * case it is invoked reflectively.</p>
  */
 public class MethodEventHandler extends EventHandler {
 
     private final Object object;
     private final Method method;
+    @Nullable
+    private final MethodHandle handle;
 
     /**
      * Create a new event handler.
@@ -42,6 +54,33 @@ public MethodEventHandler(Priority priority, Object object, Method method) {
         checkNotNull(method);
         this.object = object;
         this.method = method;
+        this.handle = createHandle(object, method);
+    }
+
+    /**
+     * Create a method handle that takes the event and invokes the method.
+     *
+     * @param object the object to invoke the method on
+     * @param method the method
+     * @return the handle, or null if the method must be invoked reflectively
+     */
+    @Nullable
+    private static MethodHandle createHandle(Object object, Method method) {
+        if (method.getParameterTypes().length != 1 || (object == null) != Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (object != null) {
+                handle = handle.bindTo(object);
+            }
+            return handle.asType(MethodType.methodType(void.class, Object.class));
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -55,7 +94,20 @@ public Method getMethod() {
 
     @Override
     public void dispatch(Object event) throws Exception {
-        method.invoke(object, event);
+        if (handle == null) {
+            method.invoke(object, event);
+            return;
+        }
+
+        try {
+            handle.invokeExact(event);
+        } catch (Exception e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
     @Override
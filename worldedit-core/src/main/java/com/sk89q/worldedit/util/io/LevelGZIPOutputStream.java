@@ -0,0 +1,58 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link GZIPOutputStream} with a configurable compression level.
+ */
+public class LevelGZIPOutputStream extends GZIPOutputStream {
+
+    /**
+     * Create a new stream.
+     *
+     * @param out the output stream
+     * @param level the compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @throws IOException on I/O error
+     */
+    public LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+        super(out, 8192);
+        checkLevel(level);
+        def.setLevel(level);
+    }
+
+    /**
+     * Check that the given compression level is valid.
+     *
+     * @param level the compression level
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    static void checkLevel(int level) {
+        checkArgument(level == Deflater.DEFAULT_COMPRESSION || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+                "level must be between 0 and 9, or -1");
+    }
+
+}
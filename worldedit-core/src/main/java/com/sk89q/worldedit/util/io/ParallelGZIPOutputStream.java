@@ -0,0 +1,233 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * Compresses data as a series of independent gzip members, several of
+ * which may be compressed at the same time on an executor.
+ *
+ * <p>The data is split into blocks of a fixed size, and each block is
+ * compressed into a complete gzip member. The members are written to the
+ * underlying stream in order. Concatenated gzip members are a valid gzip
+ * stream, and are read back as one by {@link java.util.zip.GZIPInputStream}.
+ * Compression is slightly worse than a single member because each block
+ * starts with an empty dictionary.</p>
+ *
+ * <p>If the executor rejects a block, it is compressed on the calling
+ * thread instead.</p>
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+    /**
+     * The default block size.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private final OutputStream out;
+    private final int level;
+    private final ExecutorService executor;
+    private final int blockSize;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+    private byte[] buffer;
+    private int count = 0;
+    private boolean closed = false;
+
+    /**
+     * Create a new stream.
+     *
+     * @param out the output stream
+     * @param level the compression level, from 0 to 9, or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}
+     * @param executor the executor to compress blocks on
+     * @param parallelism the maximum number of blocks to compress at once
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int level, ExecutorService executor, int parallelism) {
+        this(out, level, executor, parallelism, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a new stream.
+     *
+     * @param out the output stream
+     * @param level the compression level, from 0 to 9, or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}
+     * @param executor the executor to compress blocks on
+     * @param parallelism the maximum number of blocks to compress at once
+     * @param blockSize the number of bytes of input in each gzip member
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int level, ExecutorService executor, int parallelism, int blockSize) {
+        checkNotNull(out);
+        checkNotNull(executor);
+        LevelGZIPOutputStream.checkLevel(level);
+        checkArgument(parallelism >= 1, "parallelism >= 1 required");
+        checkArgument(blockSize >= 1, "blockSize >= 1 required");
+        this.out = out;
+        this.level = level;
+        this.executor = executor;
+        this.maxPending = parallelism;
+        this.blockSize = blockSize;
+        this.buffer = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkOpen();
+        buffer[count++] = (byte) b;
+        if (count == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkPositionIndexes(off, off + len, b.length);
+        checkOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Write the members that have been compressed so far and flush the
+     * underlying stream. Data of the block that is not yet full is kept
+     * until the block fills or the stream is closed.
+     *
+     * @throws IOException on I/O error
+     */
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeMember(pending.removeFirst());
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (count > 0) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeMember(pending.removeFirst());
+            }
+        } finally {
+            closed = true;
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+            out.close();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (pending.size() >= maxPending) {
+            writeMember(pending.removeFirst());
+        }
+
+        Callable<byte[]> task = new CompressTask(buffer, count, level);
+        Future<byte[]> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            FutureTask<byte[]> inline = new FutureTask<byte[]>(task);
+            inline.run();
+            future = inline;
+        }
+        pending.addLast(future);
+        buffer = new byte[blockSize];
+        count = 0;
+    }
+
+    private void writeMember(Future<byte[]> future) throws IOException {
+        byte[] member;
+        try {
+            member = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to compress", cause);
+        }
+        out.write(member);
+    }
+
+    /**
+     * Compresses a block into a gzip member.
+     */
+    private static final class CompressTask implements Callable<byte[]> {
+        private final byte[] data;
+        private final int length;
+        private final int level;
+
+        private CompressTask(byte[] data, int length, int level) {
+            this.data = data;
+            this.length = length;
+            this.level = level;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 2 + 64);
+            LevelGZIPOutputStream gzip = new LevelGZIPOutputStream(bytes, level);
+            gzip.write(data, 0, length);
+            gzip.close();
+            return bytes.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.util.io;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Counts the bytes that pass through wrapped streams and allows the transfer
+ * to be cancelled from another thread.
+ *
+ * <p>Once {@link #cancel()} has been called, any further read from or write
+ * to a wrapped stream throws an {@link InterruptedIOException}.</p>
+ */
+public class TransferMonitor {
+
+    private final long total;
+    private final AtomicLong transferred = new AtomicLong();
+    private volatile boolean cancelled = false;
+
+    /**
+     * Create a new monitor.
+     *
+     * @param total the expected number of bytes, or -1 if it is not known
+     */
+    public TransferMonitor(long total) {
+        checkArgument(total >= -1, "total >= -1");
+        this.total = total;
+    }
+
+    /**
+     * Get the expected number of bytes.
+     *
+     * @return the number of bytes, or -1 if it is not known
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the number of bytes that have been transferred so far.
+     *
+     * @return the number of bytes
+     */
+    public long getTransferred() {
+        return transferred.get();
+    }
+
+    /**
+     * Get the fraction of the expected bytes that have been transferred.
+     *
+     * @return a value between 0 and 1, or -1 if the total is not known
+     */
+    public double getProgress() {
+        if (total <= 0) {
+            return -1;
+        }
+        return Math.min(1, transferred.get() / (double) total);
+    }
+
+    /**
+     * Cancel the transfer.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Return whether the transfer has been cancelled.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Wrap an input stream so that the bytes read from it are counted.
+     *
+     * @param in the input stream
+     * @return the wrapped stream
+     */
+    public InputStream wrap(InputStream in) {
+        checkNotNull(in);
+        return new MonitoredInputStream(in);
+    }
+
+    /**
+     * Wrap an output stream so that the bytes written to it are counted.
+     *
+     * @param out the output stream
+     * @return the wrapped stream
+     */
+    public OutputStream wrap(OutputStream out) {
+        checkNotNull(out);
+        return new MonitoredOutputStream(out);
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("The transfer was cancelled");
+        }
+    }
+
+    private class MonitoredInputStream extends FilterInputStream {
+        private MonitoredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkCancelled();
+            int b = super.read();
+            if (b != -1) {
+                transferred.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                transferred.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            checkCancelled();
+            long skipped = super.skip(n);
+            transferred.addAndGet(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private class MonitoredOutputStream extends FilterOutputStream {
+        private MonitoredOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkCancelled();
+            out.write(b);
+            transferred.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            out.write(b, off, len);
+            transferred.addAndGet(len);
+        }
+    }
+
+}
@@ -83,6 +83,30 @@ public final boolean setBlock(Vector pt, BaseBlock block) throws WorldEditExcept
         return setBlock(pt, block, true);
     }
 
+    /**
+     * Set all the blocks in the given batch, which are all contained within
+     * the same chunk.
+     *
+     * <p>This implementation sets the blocks one at a time. Implementations
+     * should take advantage of the batch to look up the chunk only once and
+     * may set the blocks in any order. The {@code notifyAndLight} parameter
+     * has the same meaning as with {@link #setBlock(Vector, BaseBlock, boolean)}.</p>
+     *
+     * @param batch the batch of changes
+     * @param notifyAndLight true to to notify and light
+     * @return the number of blocks that were successfully set (return value may not be accurate)
+     * @throws WorldEditException thrown on an error
+     */
+    public int setBlocks(ChunkBatch batch, boolean notifyAndLight) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(new Vector(batch.getX(i), batch.getY(i), batch.getZ(i)), batch.getBlock(i), notifyAndLight)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     @Override
     public int getMaxY() {
         return getMaximumPoint().getBlockY();
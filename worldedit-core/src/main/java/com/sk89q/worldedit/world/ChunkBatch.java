@@ -0,0 +1,234 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A set of pending block changes within a single chunk column.
+ *
+ * <p>Each position appears at most once; setting a position again replaces
+ * the block that was queued for it. Changes are kept in the order in which
+ * positions were first set.</p>
+ */
+public class ChunkBatch {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int chunkX;
+    private final int chunkZ;
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private BaseBlock[] blocks = new BaseBlock[INITIAL_CAPACITY];
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private int size = 0;
+
+    /**
+     * Create a new batch.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     */
+    public ChunkBatch(int chunkX, int chunkZ) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+
+    /**
+     * Get the chunk X coordinate.
+     *
+     * @return the chunk X coordinate
+     */
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    /**
+     * Get the chunk Z coordinate.
+     *
+     * @return the chunk Z coordinate
+     */
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * Get the chunk position.
+     *
+     * @return the chunk position
+     */
+    public BlockVector2D getChunkPosition() {
+        return new BlockVector2D(chunkX, chunkZ);
+    }
+
+    /**
+     * Get the number of queued changes.
+     *
+     * @return the number of changes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether there are no queued changes.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Queue a block change.
+     *
+     * @param x the X coordinate in the world
+     * @param y the Y coordinate in the world
+     * @param z the Z coordinate in the world
+     * @param block the block
+     */
+    public void set(int x, int y, int z, BaseBlock block) {
+        checkArgument(x >> 4 == chunkX && z >> 4 == chunkZ, "position is not in this chunk");
+        checkNotNull(block);
+
+        int key = toKey(x, y, z);
+        int slot = find(key);
+        if (slot >= 0) {
+            blocks[slot] = block;
+            return;
+        }
+
+        if (size == keys.length) {
+            grow();
+        }
+        keys[size] = key;
+        blocks[size] = block;
+        insert(key, size);
+        size++;
+    }
+
+    /**
+     * Get the block queued for the given position.
+     *
+     * @param x the X coordinate in the world
+     * @param y the Y coordinate in the world
+     * @param z the Z coordinate in the world
+     * @return the block, or null if no change is queued for the position
+     */
+    @Nullable
+    public BaseBlock get(int x, int y, int z) {
+        if (x >> 4 != chunkX || z >> 4 != chunkZ) {
+            return null;
+        }
+        int slot = find(toKey(x, y, z));
+        return slot >= 0 ? blocks[slot] : null;
+    }
+
+    /**
+     * Get the X coordinate in the world of the change at the given index.
+     *
+     * @param index the index, between 0 and {@link #size()}
+     * @return the X coordinate
+     */
+    public int getX(int index) {
+        return (chunkX << 4) | (keys[index] & 0xF);
+    }
+
+    /**
+     * Get the Y coordinate in the world of the change at the given index.
+     *
+     * @param index the index, between 0 and {@link #size()}
+     * @return the Y coordinate
+     */
+    public int getY(int index) {
+        return keys[index] >> 8;
+    }
+
+    /**
+     * Get the Z coordinate in the world of the change at the given index.
+     *
+     * @param index the index, between 0 and {@link #size()}
+     * @return the Z coordinate
+     */
+    public int getZ(int index) {
+        return (chunkZ << 4) | ((keys[index] >> 4) & 0xF);
+    }
+
+    /**
+     * Get the block of the change at the given index.
+     *
+     * @param index the index, between 0 and {@link #size()}
+     * @return the block
+     */
+    public BaseBlock getBlock(int index) {
+        return blocks[index];
+    }
+
+    private static int toKey(int x, int y, int z) {
+        return (y << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int find(int key) {
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        int entry;
+        while ((entry = table[i]) != 0) {
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int key, int slot) {
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        int[] newKeys = new int[capacity];
+        BaseBlock[] newBlocks = new BaseBlock[capacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(blocks, 0, newBlocks, 0, size);
+        keys = newKeys;
+        blocks = newBlocks;
+        table = new int[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            insert(keys[i], i);
+        }
+    }
+
+}
@@ -108,7 +108,7 @@ private ChunkStore internalGetChunkStore() throws IOException, DataException {
                 throw new DataException("TrueZIP is required for .tar support");
             }
         } else {
-            ChunkStore chunkStore = new FileMcRegionChunkStore(file);
+            ChunkStore chunkStore = new MappedMcRegionChunkStore(file);
 
             if (!chunkStore.isValid()) {
                 return new FileLegacyChunkStore(file);
@@ -127,15 +127,22 @@ public boolean containsWorld(String worldname) {
         try {
             if (file.getName().toLowerCase().endsWith(".zip")) {
                 ZipFile entry = new ZipFile(file);
-                return (entry.getEntry(worldname) != null
-                || entry.getEntry(worldname + "/level.dat") != null);
+                try {
+                    return (entry.getEntry(worldname) != null
+                    || entry.getEntry(worldname + "/level.dat") != null);
+                } finally {
+                    entry.close();
+                }
             } else if (file.getName().toLowerCase().endsWith(".tar.bz2")
                     || file.getName().toLowerCase().endsWith(".tar.gz")
                     || file.getName().toLowerCase().endsWith(".tar")) {
                 try {
                     de.schlichtherle.util.zip.ZipFile entry = new de.schlichtherle.util.zip.ZipFile(file);
-
-                    return entry.getEntry(worldname) != null;
+                    try {
+                        return entry.getEntry(worldname) != null;
+                    } finally {
+                        entry.close();
+                    }
                 } catch (NoClassDefFoundError e) {
                     throw new DataException("TrueZIP is required for .tar support");
                 }
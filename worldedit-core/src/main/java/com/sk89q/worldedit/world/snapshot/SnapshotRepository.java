@@ -29,7 +29,10 @@
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A repository contains zero or more snapshots.
@@ -38,6 +41,7 @@ public class SnapshotRepository {
 
     protected File dir;
     protected List<SnapshotDateParser> dateParsers = new ArrayList<SnapshotDateParser>();
+    private final Map<File, CachedSnapshot> cache = new HashMap<File, CachedSnapshot>();
 
     /**
      * Create a new instance of a repository.
@@ -88,7 +92,7 @@ public boolean accept(File dir, String name) {
         for (File file : snapshotFiles) {
             if (isValidSnapshot(file)) {
                 Snapshot snapshot = new Snapshot(this, file.getName());
-                if (snapshot.containsWorld(worldName)) {
+                if (containsWorld(snapshot, worldName)) {
                     detectDate(snapshot);
                     list.add(snapshot);
                 }
@@ -101,6 +105,8 @@ public boolean accept(File dir, String name) {
             }
         }
 
+        pruneCache();
+
         if (newestFirst) {
             Collections.sort(list, Collections.reverseOrder());
         } else {
@@ -160,15 +166,72 @@ public Snapshot getSnapshotBefore(Calendar date, String world) throws MissingWor
      * @param snapshot the snapshot
      */
     protected void detectDate(Snapshot snapshot) {
-        for (SnapshotDateParser parser : dateParsers) {
-            Calendar date = parser.detectDate(snapshot.getFile());
-            if (date != null) {
-                snapshot.setDate(date);
+        CachedSnapshot cached = getCached(snapshot.getFile());
+        if (cached == null || !cached.dateDetected) {
+            Calendar detected = null;
+            for (SnapshotDateParser parser : dateParsers) {
+                Calendar date = parser.detectDate(snapshot.getFile());
+                if (date != null) {
+                    detected = date;
+                    break;
+                }
+            }
+            if (cached == null) {
+                snapshot.setDate(detected);
                 return;
             }
+            cached.date = detected;
+            cached.dateDetected = true;
         }
 
-        snapshot.setDate(null);
+        snapshot.setDate(cached.date != null ? (Calendar) cached.date.clone() : null);
+    }
+
+    /**
+     * Check whether a snapshot contains the given world, remembering the
+     * answer until the snapshot file changes.
+     *
+     * @param snapshot the snapshot
+     * @param worldName the world name
+     * @return true if the snapshot contains the world
+     */
+    private boolean containsWorld(Snapshot snapshot, String worldName) {
+        CachedSnapshot cached = getCached(snapshot.getFile());
+        if (cached == null) {
+            return snapshot.containsWorld(worldName);
+        }
+        Boolean contains = cached.worlds.get(worldName);
+        if (contains == null) {
+            contains = snapshot.containsWorld(worldName);
+            cached.worlds.put(worldName, contains);
+        }
+        return contains;
+    }
+
+    /**
+     * Get the cached information about a snapshot archive, discarding it if
+     * the file has been modified since.
+     *
+     * <p>Snapshots that are folders are not cached, because their contents
+     * can change without changing the folder itself.</p>
+     *
+     * @param file the snapshot file
+     * @return the cached information, or null if the snapshot is not an archive
+     */
+    @Nullable
+    private synchronized CachedSnapshot getCached(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        long lastModified = file.lastModified();
+        long length = file.length();
+        CachedSnapshot cached = cache.get(file);
+        if (cached == null || cached.lastModified != lastModified || cached.length != length) {
+            cached = new CachedSnapshot(lastModified, length);
+            cache.put(file, cached);
+        }
+        return cached;
     }
 
     /**
@@ -240,4 +303,32 @@ public File getDirectory() {
         return dir;
     }
 
+    /**
+     * Forget about snapshot archives that no longer exist.
+     */
+    private synchronized void pruneCache() {
+        Iterator<File> it = cache.keySet().iterator();
+        while (it.hasNext()) {
+            if (!it.next().isFile()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Information about a snapshot archive that is expensive to find out.
+     */
+    private static final class CachedSnapshot {
+        private final long lastModified;
+        private final long length;
+        private final Map<String, Boolean> worlds = Collections.synchronizedMap(new HashMap<String, Boolean>());
+        private volatile boolean dateDetected = false;
+        private volatile Calendar date;
+
+        private CachedSnapshot(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
 }
@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.DataException;
@@ -33,20 +34,40 @@
 import com.sk89q.worldedit.world.storage.MissingChunkException;
 import com.sk89q.worldedit.world.storage.MissingWorldException;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * A snapshot restore operation.
+ *
+ * <p>The positions to restore are stored as a bitmask per chunk. If an
+ * executor is given, chunks are loaded and decoded on it ahead of time,
+ * while the blocks of earlier chunks are placed on the calling thread in
+ * the order in which the chunks were found.</p>
  */
 public class SnapshotRestore {
 
-    private final Map<BlockVector2D, ArrayList<Vector>> neededChunks = new LinkedHashMap<BlockVector2D, ArrayList<Vector>>();
+    private final Map<BlockVector2D, ChunkMask> neededChunks = new LinkedHashMap<BlockVector2D, ChunkMask>();
     private final ChunkStore chunkStore;
     private final EditSession editSession;
+    private final @Nullable ExecutorService executor;
+    private final int parallelism;
+    private final int minY;
+    private final int height;
     private ArrayList<Vector2D> missingChunks;
     private ArrayList<Vector2D> errorChunks;
     private String lastErrorMessage;
@@ -59,8 +80,26 @@ public class SnapshotRestore {
      * @param region The {@link Region} to restore to
      */
     public SnapshotRestore(ChunkStore chunkStore, EditSession editSession, Region region) {
+        this(chunkStore, editSession, region, null, 1);
+    }
+
+    /**
+     * Construct the snapshot restore operation.
+     *
+     * @param chunkStore The {@link ChunkStore} to restore from
+     * @param editSession The {@link EditSession} to restore to
+     * @param region The {@link Region} to restore to
+     * @param executor an executor to load chunks on, or null to load them on the calling thread
+     * @param parallelism the maximum number of chunks to load at once
+     */
+    public SnapshotRestore(ChunkStore chunkStore, EditSession editSession, Region region, @Nullable ExecutorService executor, int parallelism) {
+        checkArgument(parallelism >= 1, "parallelism >= 1");
         this.chunkStore = chunkStore;
         this.editSession = editSession;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.minY = region.getMinimumPoint().getBlockY();
+        this.height = region.getMaximumPoint().getBlockY() - minY + 1;
 
         if (region instanceof CuboidRegion) {
             findNeededCuboidChunks(region);
@@ -83,8 +122,7 @@ private void findNeededCuboidChunks(Region region) {
         for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
             for (int y = min.getBlockY(); y <= max.getBlockY(); ++y) {
                 for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                    Vector pos = new Vector(x, y, z);
-                    checkAndAddBlock(pos);
+                    checkAndAddBlock(x, y, z);
                 }
             }
         }
@@ -99,22 +137,25 @@ private void findNeededChunks(Region region) {
         // First, we need to group points by chunk so that we only need
         // to keep one chunk in memory at any given moment
         for (Vector pos : region) {
-            checkAndAddBlock(pos);
+            checkAndAddBlock(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
         }
     }
 
-    private void checkAndAddBlock(Vector pos) {
-        if (editSession.getMask() != null && !editSession.getMask().test(pos))
+    private void checkAndAddBlock(int x, int y, int z) {
+        Mask mask = editSession.getMask();
+        if (mask != null && !mask.test(new Vector(x, y, z)))
             return;
 
-        BlockVector2D chunkPos = ChunkStore.toChunk(pos);
+        BlockVector2D chunkPos = new BlockVector2D(x >> ChunkStore.CHUNK_SHIFTS, z >> ChunkStore.CHUNK_SHIFTS);
+        ChunkMask chunkMask = neededChunks.get(chunkPos);
 
         // Unidentified chunk
-        if (!neededChunks.containsKey(chunkPos)) {
-            neededChunks.put(chunkPos, new ArrayList<Vector>());
+        if (chunkMask == null) {
+            chunkMask = new ChunkMask(height);
+            neededChunks.put(chunkPos, chunkMask);
         }
 
-        neededChunks.get(chunkPos).add(pos);
+        chunkMask.set(((y - minY) << 8) | ((z & 15) << 4) | (x & 15));
     }
 
     /**
@@ -136,17 +177,46 @@ public void restore() throws MaxChangedBlocksException {
         missingChunks = new ArrayList<Vector2D>();
         errorChunks = new ArrayList<Vector2D>();
 
-        // Now let's start restoring!
-        for (Map.Entry<BlockVector2D, ArrayList<Vector>> entry : neededChunks.entrySet()) {
-            BlockVector2D chunkPos = entry.getKey();
-            Chunk chunk;
+        List<BlockVector2D> positions = new ArrayList<BlockVector2D>(neededChunks.keySet());
+        Deque<Future<Chunk>> loading = new ArrayDeque<Future<Chunk>>();
+        int prefetch = executor != null ? parallelism * 2 : 0;
+        int submitted = 0;
 
-            try {
-                chunk = chunkStore.getChunk(chunkPos, editSession.getWorld());
-                // Good, the chunk could be at least loaded
+        try {
+            // Now let's start restoring!
+            for (BlockVector2D chunkPos : positions) {
+                while (submitted < positions.size() && loading.size() <= prefetch) {
+                    loading.add(load(positions.get(submitted++)));
+                }
+
+                Chunk chunk;
+
+                try {
+                    chunk = getChunk(loading.remove());
+                    // Good, the chunk could be at least loaded
+                } catch (MissingChunkException me) {
+                    missingChunks.add(chunkPos);
+                    continue;
+                } catch (MissingWorldException me) {
+                    errorChunks.add(chunkPos);
+                    lastErrorMessage = me.getMessage();
+                    continue;
+                } catch (DataException de) {
+                    errorChunks.add(chunkPos);
+                    lastErrorMessage = de.getMessage();
+                    continue;
+                } catch (IOException ioe) {
+                    errorChunks.add(chunkPos);
+                    lastErrorMessage = ioe.getMessage();
+                    continue;
+                }
 
                 // Now just copy blocks!
-                for (Vector pos : entry.getValue()) {
+                ChunkMask mask = neededChunks.get(chunkPos);
+                int baseX = chunkPos.getBlockX() << ChunkStore.CHUNK_SHIFTS;
+                int baseZ = chunkPos.getBlockZ() << ChunkStore.CHUNK_SHIFTS;
+                for (int index = mask.next(0); index >= 0; index = mask.next(index + 1)) {
+                    Vector pos = new Vector(baseX + (index & 15), minY + (index >> 8), baseZ + ((index >> 4) & 15));
                     try {
                         BaseBlock block = chunk.getBlock(pos);
                         editSession.setBlock(pos, block);
@@ -154,17 +224,81 @@ public void restore() throws MaxChangedBlocksException {
                         // this is a workaround: just ignore for now
                     }
                 }
-            } catch (MissingChunkException me) {
-                missingChunks.add(chunkPos);
-            } catch (MissingWorldException me) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = me.getMessage();
-            } catch (DataException de) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = de.getMessage();
-            } catch (IOException ioe) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = ioe.getMessage();
+            }
+        } finally {
+            for (Future<Chunk> future : loading) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Start loading a chunk, on the executor if there is one.
+     *
+     * @param position the position of the chunk
+     * @return a future of the chunk
+     */
+    private Future<Chunk> load(final BlockVector2D position) {
+        FutureTask<Chunk> task = new FutureTask<Chunk>(new Callable<Chunk>() {
+            @Override
+            public Chunk call() throws Exception {
+                if (chunkStore.isThreadSafe()) {
+                    return chunkStore.getChunk(position, editSession.getWorld());
+                } else {
+                    synchronized (chunkStore) {
+                        return chunkStore.getChunk(position, editSession.getWorld());
+                    }
+                }
+            }
+        });
+
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return task;
+            } catch (RejectedExecutionException ignored) {
+                // Load it on this thread instead
+            }
+        }
+
+        task.run();
+        return task;
+    }
+
+    /**
+     * Wait for a chunk to be loaded.
+     *
+     * @param future the future of the chunk
+     * @return the chunk
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     */
+    private static Chunk getChunk(Future<Chunk> future) throws DataException, IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataException) {
+                throw (DataException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
     }
@@ -208,4 +342,37 @@ public String getLastErrorMessage() {
         return lastErrorMessage;
     }
 
+    /**
+     * The positions to restore within a chunk, as a bitmask ordered by Y,
+     * then Z, then X.
+     */
+    private static final class ChunkMask {
+        private final long[] bits;
+
+        private ChunkMask(int height) {
+            this.bits = new long[height << 2];
+        }
+
+        private void set(int index) {
+            bits[index >> 6] |= 1L << index;
+        }
+
+        private int next(int from) {
+            int word = from >> 6;
+            if (word >= bits.length) {
+                return -1;
+            }
+            long current = bits[word] & (-1L << from);
+            while (true) {
+                if (current != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(current);
+                }
+                if (++word == bits.length) {
+                    return -1;
+                }
+                current = bits[word];
+            }
+        }
+    }
+
 }
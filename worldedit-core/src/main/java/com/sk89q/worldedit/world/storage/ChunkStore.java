@@ -86,6 +86,15 @@ public Chunk getChunk(Vector2D position, World world) throws DataException, IOEx
         return new OldChunk(world, tag);
     }
 
+    /**
+     * Returns whether chunks may be read from several threads at once.
+     *
+     * @return true if this store is thread safe
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     /**
      * Close resources.
      *
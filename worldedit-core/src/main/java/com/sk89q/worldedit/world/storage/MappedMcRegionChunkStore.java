@@ -0,0 +1,206 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.World;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads chunks from the MCRegion files of a world folder by mapping the
+ * files into memory.
+ *
+ * <p>Unlike {@link FileMcRegionChunkStore}, chunks can be read in any order
+ * without reopening files. The most recently used region files are kept
+ * open, up to a limit. This store may be used by several threads at
+ * once.</p>
+ *
+ * <p>Mapped files are not unmapped when they are evicted or when the
+ * store is closed, as Java has no public way to do so. The memory and the
+ * file handle are released once the mapping is garbage collected. Until
+ * then, some platforms (such as Windows) will not allow the region files
+ * to be deleted or replaced.</p>
+ */
+public class MappedMcRegionChunkStore extends ChunkStore {
+
+    /**
+     * The default number of region files that are kept open.
+     */
+    public static final int DEFAULT_OPEN_FILES = 16;
+
+    private final File path;
+    private final RegionFileCache regionFiles;
+    private final Set<String> missingFiles = new HashSet<String>();
+
+    /**
+     * Create an instance that keeps the {@link #DEFAULT_OPEN_FILES} most
+     * recently used region files open. The passed path is the folder to
+     * read the region folder from.
+     *
+     * @param path a path
+     */
+    public MappedMcRegionChunkStore(File path) {
+        this(path, DEFAULT_OPEN_FILES);
+    }
+
+    /**
+     * Create an instance. The passed path is the folder to read the region
+     * folder from.
+     *
+     * @param path a path
+     * @param maxOpenFiles the number of region files to keep open
+     */
+    public MappedMcRegionChunkStore(File path, int maxOpenFiles) {
+        checkNotNull(path);
+        checkArgument(maxOpenFiles > 0, "maxOpenFiles > 0");
+        this.path = path;
+        this.regionFiles = new RegionFileCache(maxOpenFiles);
+    }
+
+    @Override
+    public CompoundTag getChunkTag(Vector2D position, World world) throws DataException, IOException {
+        MappedRegionFile regionFile = getRegionFile(McRegionChunkStore.getFilename(position));
+        if (regionFile == null) {
+            throw new MissingChunkException(position);
+        }
+        return McRegionChunkStore.readLevelTag(regionFile.getChunkInputStream(position));
+    }
+
+    /**
+     * Get the open region file with the given name, opening it if needed.
+     *
+     * @param name the name of the region file, with the .mca extension
+     * @return the region file, or null if it does not exist
+     * @throws DataException thrown if the file is not a region file
+     * @throws IOException thrown on I/O error
+     */
+    @Nullable
+    private synchronized MappedRegionFile getRegionFile(String name) throws DataException, IOException {
+        MappedRegionFile regionFile = regionFiles.get(name);
+        if (regionFile != null) {
+            return regionFile;
+        } else if (missingFiles.contains(name)) {
+            return null;
+        }
+
+        File file = findFile(name);
+        if (file == null) {
+            missingFiles.add(name);
+            return null;
+        }
+
+        regionFile = new MappedRegionFile(file);
+        regionFiles.put(name, regionFile);
+        return regionFile;
+    }
+
+    /**
+     * Find a region file, which may have either the .mca or the .mcr
+     * extension.
+     *
+     * @param name the name of the region file, with the .mca extension
+     * @return the file, or null if it does not exist
+     */
+    @Nullable
+    private File findFile(String name) {
+        File folder = new File(path, "region");
+        File file = new File(folder, name);
+        if (file.isFile()) {
+            return file;
+        }
+
+        String baseName = name.substring(0, name.length() - 4);
+        file = new File(folder, baseName + ".mcr");
+        if (file.isFile()) {
+            return file;
+        }
+
+        // Fall back to a case insensitive search
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                String tempName = f.getName().replaceFirst("mcr$", "mca"); // matcher only does one at a time
+                if (name.equalsIgnoreCase(tempName) && f.isFile()) {
+                    return f;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * Forget the open region files.
+     *
+     * <p>Mappings are not released here. Another thread may still be
+     * reading a chunk from one, and unmapping it would crash the JVM
+     * rather than throw an exception. The mappings are released when
+     * they are garbage collected.</p>
+     *
+     * @throws IOException on I/O error
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        regionFiles.clear();
+        missingFiles.clear();
+    }
+
+    @Override
+    public boolean isValid() {
+        return new File(path, "region").isDirectory() ||
+                new File(path, "DIM-1" + File.separator + "region").isDirectory();
+    }
+
+    /**
+     * Keeps the most recently used region files.
+     */
+    private static class RegionFileCache extends LinkedHashMap<String, MappedRegionFile> {
+        private final int maxSize;
+
+        private RegionFileCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MappedRegionFile> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+}
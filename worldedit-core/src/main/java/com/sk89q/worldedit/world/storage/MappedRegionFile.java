@@ -0,0 +1,234 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.world.DataException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A MCRegion file that is mapped or read into memory, so that its chunks
+ * can be read in any order.
+ *
+ * <p>The offset header is read once when the file is opened. Chunks are
+ * read from independent views of the file contents, so one instance may be
+ * used by several threads at once. See {@link McRegionReader} for a
+ * description of the format.</p>
+ *
+ * <p>There is no method to close an instance. A mapped file is released
+ * when the instance is garbage collected.</p>
+ */
+public class MappedRegionFile {
+
+    private static final int VERSION_GZIP = 1;
+    private static final int VERSION_DEFLATE = 2;
+    private static final int SECTOR_BYTES = 4096;
+    private static final int SECTOR_INTS = SECTOR_BYTES / 4;
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final int[] offsets = new int[SECTOR_INTS];
+
+    /**
+     * Open and map a region file.
+     *
+     * @param file the file
+     * @throws DataException thrown if the file is not a region file
+     * @throws IOException thrown on I/O error
+     */
+    public MappedRegionFile(File file) throws DataException, IOException {
+        checkNotNull(file);
+        this.name = file.getName();
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size < SECTOR_BYTES) {
+                throw new DataException("MCRegion file " + file.getName() + " is too short to have a header");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new DataException("MCRegion file " + file.getName() + " is too large");
+            }
+            // The mapping stays valid after the channel has been closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        readHeader();
+    }
+
+    /**
+     * Create an instance from the contents of a region file that has
+     * already been read into memory.
+     *
+     * @param name the name of the region file
+     * @param data the contents of the file
+     * @throws DataException thrown if the data is not a region file
+     */
+    public MappedRegionFile(String name, byte[] data) throws DataException {
+        checkNotNull(name);
+        checkNotNull(data);
+        this.name = name;
+        if (data.length < SECTOR_BYTES) {
+            throw new DataException("MCRegion file " + name + " is too short to have a header");
+        }
+        this.buffer = ByteBuffer.wrap(data).asReadOnlyBuffer();
+        readHeader();
+    }
+
+    private void readHeader() {
+        for (int i = 0; i < SECTOR_INTS; i++) {
+            offsets[i] = buffer.getInt(i * 4);
+        }
+    }
+
+    /**
+     * Get the name of the region file.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of bytes of the region file that are held in memory.
+     *
+     * @return the number of bytes
+     */
+    public int getSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Returns whether the file contains a chunk.
+     *
+     * @param x the X coordinate of the chunk
+     * @param z the Z coordinate of the chunk
+     * @return true if the chunk is stored in the file
+     */
+    public boolean hasChunk(int x, int z) {
+        return getOffset(x, z) != 0;
+    }
+
+    /**
+     * Gets the uncompressed data input stream for a chunk.
+     *
+     * @param position the chunk position
+     * @return an input stream
+     * @throws MissingChunkException thrown if the chunk is not stored in the file
+     * @throws DataException thrown if the chunk is stored incorrectly
+     * @throws IOException thrown on I/O error
+     */
+    public InputStream getChunkInputStream(Vector2D position) throws DataException, IOException {
+        int x = position.getBlockX() & 31;
+        int z = position.getBlockZ() & 31;
+        int offset = getOffset(x, z);
+
+        // The chunk hasn't been generated
+        if (offset == 0) {
+            throw new MissingChunkException(position);
+        }
+
+        long start = (long) (offset >>> 8) * SECTOR_BYTES;
+        int numSectors = offset & 0xFF;
+        if (start + McRegionReader.CHUNK_HEADER_SIZE > buffer.capacity()) {
+            throw new DataException("MCRegion chunk at " + x + "," + z + " lies outside of the file");
+        }
+
+        int length = buffer.getInt((int) start);
+        if (length <= 1 || length > SECTOR_BYTES * numSectors || start + 4 + length > buffer.capacity()) {
+            throw new DataException("MCRegion chunk at " + x + "," + z + " has an invalid length of " + length);
+        }
+
+        byte version = buffer.get((int) start + 4);
+        ByteBuffer data = buffer.duplicate();
+        data.limit((int) start + 4 + length);
+        data.position((int) start + McRegionReader.CHUNK_HEADER_SIZE);
+        InputStream stream = new ByteBufferInputStream(data.slice());
+
+        if (version == VERSION_GZIP) {
+            return new GZIPInputStream(stream);
+        } else if (version == VERSION_DEFLATE) {
+            return new InflaterInputStream(stream);
+        } else {
+            throw new DataException("MCRegion chunk at " + x + "," + z + " has an unsupported version of " + version);
+        }
+    }
+
+    private int getOffset(int x, int z) {
+        return offsets[(x & 31) + (z & 31) * 32];
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
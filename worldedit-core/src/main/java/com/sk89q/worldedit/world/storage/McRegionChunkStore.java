@@ -26,14 +26,35 @@
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
 
+import com.google.common.io.ByteStreams;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Reads chunks from MCRegion files that are provided as streams.
+ *
+ * <p>Region files are read into memory in full, and the most recently used
+ * ones are kept, so that the chunks of a region can be read in any order
+ * without reading the region file again.</p>
+ */
 public abstract class McRegionChunkStore extends ChunkStore {
 
+    private static final int CACHED_REGION_FILES = 4;
+
     protected String curFilename = null;
     protected McRegionReader cachedReader = null;
+    private final Map<String, MappedRegionFile> regionFiles = new LinkedHashMap<String, MappedRegionFile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MappedRegionFile> eldest) {
+            return size() > CACHED_REGION_FILES;
+        }
+    };
+    private final Set<String> missingRegionFiles = new HashSet<String>();
 
     /**
      * Get the filename of a region file.
@@ -48,6 +69,17 @@ public static String getFilename(Vector2D position) {
         return "r." + (x >> 5) + "." + (z >> 5) + ".mca";
     }
 
+    /**
+     * Get a reader for the region file that contains the given chunk.
+     *
+     * @param pos the chunk position
+     * @param worldname the world name
+     * @return a reader
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     * @deprecated use {@link #getRegionFile(Vector2D, String)}, which reads chunks in any order
+     */
+    @Deprecated
     protected McRegionReader getReader(Vector2D pos, String worldname) throws DataException, IOException {
         String filename = getFilename(pos);
         if (curFilename != null) {
@@ -68,9 +100,57 @@ protected McRegionReader getReader(Vector2D pos, String worldname) throws DataEx
 
     @Override
     public CompoundTag getChunkTag(Vector2D position, World world) throws DataException, IOException {
-        McRegionReader reader = getReader(position, world.getName());
+        MappedRegionFile regionFile = getRegionFile(position, world.getName());
+        return readLevelTag(regionFile.getChunkInputStream(position));
+    }
 
-        InputStream stream = reader.getChunkInputStream(position);
+    /**
+     * Get the region file that contains the given chunk, reading it into
+     * memory if it is not cached.
+     *
+     * @param position the chunk position
+     * @param worldName the world name
+     * @return the region file
+     * @throws MissingChunkException thrown if the region file does not exist
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     */
+    protected MappedRegionFile getRegionFile(Vector2D position, String worldName) throws DataException, IOException {
+        String filename = getFilename(position);
+        MappedRegionFile regionFile = regionFiles.get(filename);
+        if (regionFile != null) {
+            return regionFile;
+        } else if (missingRegionFiles.contains(filename)) {
+            throw new MissingChunkException(position);
+        }
+
+        InputStream stream;
+        try {
+            stream = getInputStream(filename, worldName);
+        } catch (MissingChunkException e) {
+            missingRegionFiles.add(filename);
+            throw e;
+        }
+
+        try {
+            regionFile = new MappedRegionFile(filename, ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+        regionFiles.put(filename, regionFile);
+        return regionFile;
+    }
+
+    /**
+     * Read the 'Level' tag of a chunk from the uncompressed data of the
+     * chunk, closing the stream afterwards.
+     *
+     * @param stream the stream of chunk data
+     * @return the 'Level' tag
+     * @throws DataException thrown if the data is not a chunk
+     * @throws IOException thrown on I/O error
+     */
+    static CompoundTag readLevelTag(InputStream stream) throws DataException, IOException {
         NBTInputStream nbt = new NBTInputStream(stream);
         Tag tag;
 
@@ -117,6 +197,8 @@ public CompoundTag getChunkTag(Vector2D position, World world) throws DataExcept
 
     @Override
     public void close() throws IOException {
+        regionFiles.clear();
+        missingRegionFiles.clear();
         if (cachedReader != null) {
             cachedReader.close();
         }
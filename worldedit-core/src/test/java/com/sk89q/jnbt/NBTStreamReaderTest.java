@@ -0,0 +1,57 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link NBTStreamReader}.
+ */
+public class NBTStreamReaderTest {
+
+    @Test
+    public void testSkipLongString() throws Exception {
+        char[] chars = new char[40000];
+        Arrays.fill(chars, 'a');
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("Text", new StringTag(new String(chars)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NBTOutputStream nbtStream = new NBTOutputStream(out);
+        nbtStream.writeNamedTag("Root", new CompoundTag(values));
+        nbtStream.close();
+
+        NBTStreamReader reader = new NBTStreamReader(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(NBTStreamReader.Event.START_COMPOUND, reader.next());
+        assertEquals(NBTStreamReader.Event.VALUE, reader.next());
+        assertEquals("Text", reader.getName());
+        assertEquals(NBTStreamReader.Event.END_COMPOUND, reader.next());
+        assertEquals(NBTStreamReader.Event.END_OF_STREAM, reader.next());
+        reader.close();
+    }
+
+}
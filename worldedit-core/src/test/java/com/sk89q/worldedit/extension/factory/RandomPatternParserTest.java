@@ -0,0 +1,83 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extension.factory;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.extension.input.InputParseException;
+import com.sk89q.worldedit.extension.input.ParserContext;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.world.World;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link RandomPatternParser}.
+ */
+public class RandomPatternParserTest {
+
+    private RandomPatternParser parser;
+    private ParserContext context;
+
+    @Before
+    public void setUp() {
+        World world = mock(World.class);
+        when(world.isValidBlockType(anyInt())).thenReturn(true);
+        parser = new RandomPatternParser(WorldEdit.getInstance());
+        context = new ParserContext();
+        context.setWorld(world);
+        context.setActor(mock(Actor.class));
+        context.setRestricted(false);
+    }
+
+    private String sample(Pattern pattern) {
+        StringBuilder builder = new StringBuilder();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                builder.append(pattern.apply(new Vector(x, 64, z)).getId()).append(',');
+            }
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testSeedIsReproducible() throws InputParseException {
+        String first = sample(parser.parseFromInput("50%stone,50%dirt,seed=1234", context));
+        String second = sample(parser.parseFromInput("seed=1234,50%stone,50%dirt", context));
+        assertEquals(first, second);
+    }
+
+    @Test(expected = InputParseException.class)
+    public void testInvalidSeed() throws InputParseException {
+        parser.parseFromInput("stone,dirt,seed=abc", context);
+    }
+
+    @Test(expected = InputParseException.class)
+    public void testDuplicateSeed() throws InputParseException {
+        parser.parseFromInput("stone,dirt,seed=1,seed=2", context);
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent;
+
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.reorder.MultiStageReorder;
+import com.sk89q.worldedit.extent.validation.BlockChangeLimiter;
+import com.sk89q.worldedit.function.mask.AbstractMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Mask2D;
+import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.function.operation.ChangeSetExecutor;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.history.change.CuboidFillChange;
+import com.sk89q.worldedit.history.changeset.CompactBlockHistory;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests bulk fills through {@link ChangeSetExtent} and the extents around
+ * it in an edit session.
+ */
+public class ChangeSetExtentTest {
+
+    private static final Vector MIN = new Vector(14, 0, 0);
+    private static final Vector MAX = new Vector(17, 1, 3);
+    private static final BaseBlock FILL = new BaseBlock(BlockID.CLOTH, 3);
+
+    @Test
+    public void testLimitHitDuringFill() throws Exception {
+        Chain chain = new Chain(Masks.alwaysTrue(), 10);
+        chain.world.setBlock(new Vector(15, 1, 2), new BaseBlock(BlockID.STONE));
+
+        try {
+            Extents.fillCuboid(chain.top, MIN, MAX, FILL);
+            fail("Expected the limit to be reached");
+        } catch (MaxChangedBlocksException ignored) {
+        }
+        chain.commit();
+
+        assertEquals(10, chain.history.size());
+        assertEquals(10, chain.countFilled());
+        chain.undo();
+        assertEquals(0, chain.countFilled());
+        assertEquals(BlockID.STONE, chain.world.getBlock(new Vector(15, 1, 2)).getId());
+    }
+
+    @Test
+    public void testMaskedFill() throws Exception {
+        Mask mask = new AbstractMask() {
+            @Override
+            public boolean test(Vector vector) {
+                return (vector.getBlockX() & 1) == 0;
+            }
+
+            @Nullable
+            @Override
+            public Mask2D toMask2D() {
+                return null;
+            }
+        };
+        Chain chain = new Chain(mask, -1);
+
+        Extents.fillCuboid(chain.top, MIN, MAX, FILL);
+        chain.commit();
+
+        assertEquals(16, chain.history.size());
+        assertEquals(16, chain.countFilled());
+        for (int x = MIN.getBlockX(); x <= MAX.getBlockX(); x++) {
+            assertEquals((x & 1) == 0 ? BlockID.CLOTH : BlockID.AIR, chain.world.getBlock(new Vector(x, 0, 0)).getId());
+        }
+        chain.undo();
+        assertEquals(0, chain.countFilled());
+    }
+
+    @Test
+    public void testFillOverStagedChanges() throws Exception {
+        Chain chain = new Chain(Masks.alwaysTrue(), -1);
+        chain.top.setBlock(new Vector(15, 0, 1), new BaseBlock(BlockID.STONE));
+        chain.top.setBlock(new Vector(16, 0, 2), new BaseBlock(BlockID.TORCH, 5));
+        chain.top.setBlock(new Vector(20, 0, 2), new BaseBlock(BlockID.STONE));
+
+        Extents.fillCuboid(chain.top, MIN, MAX, FILL);
+        chain.commit();
+
+        assertEquals(32, chain.countFilled());
+        assertEquals(BlockID.STONE, chain.world.getBlock(new Vector(20, 0, 2)).getId());
+        assertEquals(3 + 32, chain.history.size());
+        assertTrue(chain.history.backwardIterator().next() instanceof CuboidFillChange);
+
+        chain.undo();
+        assertEquals(0, chain.countFilled());
+        assertEquals(BlockID.AIR, chain.world.getBlock(new Vector(16, 0, 2)).getId());
+        assertEquals(BlockID.AIR, chain.world.getBlock(new Vector(20, 0, 2)).getId());
+    }
+
+    @Test
+    public void testFillReplacesPlaceLastBlocksWithAirFirst() throws Exception {
+        Chain chain = new Chain(Masks.alwaysTrue(), -1);
+        Vector torch = new Vector(15, 0, 1);
+        chain.world.setBlock(torch, new BaseBlock(BlockID.TORCH, 5));
+
+        Extents.fillCuboid(chain.top, MIN, MAX, FILL);
+        chain.commit();
+
+        assertEquals(32, chain.countFilled());
+        List<BaseBlock> written = chain.writes.get(torch);
+        assertEquals(2, written.size());
+        assertEquals(BlockID.AIR, written.get(0).getId());
+        assertEquals(BlockID.CLOTH, written.get(1).getId());
+
+        chain.undo();
+        assertEquals(BlockID.TORCH, chain.world.getBlock(torch).getId());
+    }
+
+    /**
+     * The extents of an edit session that take part in bulk fills, on top
+     * of a clipboard that stands in for the world.
+     */
+    private static class Chain {
+        private final BlockArrayClipboard world = new BlockArrayClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(31, 3, 7)));
+        private final WriteRecorder writes = new WriteRecorder(world);
+        private final MultiStageReorder reorder = new MultiStageReorder(writes, true);
+        private final CompactBlockHistory history = new CompactBlockHistory();
+        private final Extent top;
+
+        private Chain(Mask mask, int limit) {
+            Extent extent = new ChangeSetExtent(reorder, history);
+            extent = new MaskingExtent(extent, mask);
+            top = new BlockChangeLimiter(extent, limit);
+        }
+
+        private void commit() throws WorldEditException {
+            Operations.complete(top.commit());
+        }
+
+        private void undo() throws WorldEditException {
+            UndoContext context = new UndoContext();
+            context.setExtent(reorder);
+            Operations.complete(ChangeSetExecutor.createUndo(history, context));
+            commit();
+        }
+
+        private int countFilled() {
+            int count = 0;
+            for (Vector position : world.getRegion()) {
+                if (world.getBlock(position).equals(FILL)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Remembers every block written at each position.
+     */
+    private static class WriteRecorder extends AbstractDelegateExtent {
+        private final Map<Vector, List<BaseBlock>> writes = new HashMap<Vector, List<BaseBlock>>();
+
+        private WriteRecorder(Extent extent) {
+            super(extent);
+        }
+
+        private List<BaseBlock> get(Vector position) {
+            List<BaseBlock> blocks = writes.get(position.toBlockVector());
+            return blocks != null ? blocks : new ArrayList<BaseBlock>();
+        }
+
+        @Override
+        public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+            List<BaseBlock> blocks = writes.get(location.toBlockVector());
+            if (blocks == null) {
+                blocks = new ArrayList<BaseBlock>();
+                writes.put(location.toBlockVector(), blocks);
+            }
+            blocks.add(block);
+            return super.setBlock(location, block);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link SectionCacheExtent}.
+ */
+public class SectionCacheExtentTest {
+
+    private BlockArrayClipboard world;
+    private CountingExtent counting;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new BlockArrayClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(63, 31, 63)));
+        world.setBlock(new Vector(1, 2, 3), new BaseBlock(BlockID.CLOTH, 14));
+        counting = new CountingExtent(world);
+    }
+
+    @Test
+    public void testRepeatedReads() throws Exception {
+        SectionCacheExtent cache = new SectionCacheExtent(counting, 1024 * 1024);
+        for (int i = 0; i < 3; i++) {
+            BaseBlock block = cache.getLazyBlock(new Vector(1, 2, 3));
+            assertEquals(BlockID.CLOTH, block.getId());
+            assertEquals(14, block.getData());
+        }
+        assertEquals(1, counting.reads);
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testWritesUpdateCache() throws Exception {
+        SectionCacheExtent cache = new SectionCacheExtent(counting, 1024 * 1024);
+        cache.getLazyBlock(new Vector(1, 2, 3));
+        cache.setBlock(new Vector(1, 2, 3), new BaseBlock(BlockID.STONE));
+        assertEquals(BlockID.STONE, cache.getLazyBlock(new Vector(1, 2, 3)).getId());
+        assertEquals(BlockID.STONE, world.getLazyBlock(new Vector(1, 2, 3)).getId());
+        assertEquals(1, counting.reads);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        SectionCacheExtent cache = new SectionCacheExtent(counting, 2 * SectionCacheExtent.SECTION_MEMORY);
+        cache.getLazyBlock(new Vector(0, 0, 0));
+        cache.getLazyBlock(new Vector(16, 0, 0));
+        cache.getLazyBlock(new Vector(0, 0, 0));
+        cache.getLazyBlock(new Vector(32, 0, 0));
+        assertEquals(2, cache.getSectionCount());
+
+        cache.getLazyBlock(new Vector(0, 0, 0));
+        assertEquals(3, counting.reads);
+        cache.getLazyBlock(new Vector(16, 0, 0));
+        assertEquals(4, counting.reads);
+    }
+
+    private static class CountingExtent extends AbstractDelegateExtent {
+        private int reads = 0;
+
+        private CountingExtent(BlockArrayClipboard extent) {
+            super(extent);
+        }
+
+        @Override
+        public BaseBlock getLazyBlock(Vector position) {
+            reads++;
+            return super.getLazyBlock(position);
+        }
+    }
+
+}
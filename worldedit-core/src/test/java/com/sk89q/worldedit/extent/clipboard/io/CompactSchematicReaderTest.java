@@ -0,0 +1,153 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.function.scan.BlockHistogram;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.registry.LegacyWorldData;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests {@link CompactSchematicReader} and {@link CompactSchematicWriter}.
+ */
+public class CompactSchematicReaderTest {
+
+    private static final CuboidRegion REGION = new CuboidRegion(new Vector(-3, 5, 7), new Vector(30, 40, 19));
+    private static final Vector CHEST = new Vector(2, 10, 9);
+
+    private static BlockArrayClipboard createClipboard() throws Exception {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(REGION);
+        clipboard.setOrigin(new Vector(0, 5, 7));
+        Random random = new Random(7);
+        for (BlockVector position : REGION) {
+            int id;
+            if (position.getBlockY() < 21) {
+                id = BlockID.STONE; // Some uniform sections
+            } else if (random.nextInt(10) == 0) {
+                id = 256 + random.nextInt(100);
+            } else {
+                id = random.nextInt(100);
+            }
+            clipboard.setBlock(position, new BaseBlock(id, id == BlockID.STONE ? 0 : random.nextInt(16)));
+        }
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("id", new StringTag("Chest"));
+        clipboard.setBlock(CHEST, new BaseBlock(BlockID.CHEST, 3, new CompoundTag(values)));
+        return clipboard;
+    }
+
+    private static byte[] write(ClipboardFormat format, Clipboard clipboard) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ClipboardWriter writer = format.getWriter(out);
+        writer.write(clipboard, LegacyWorldData.getInstance());
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static void assertSameBlocks(Clipboard expected, Clipboard actual, CuboidRegion region) {
+        for (BlockVector position : region) {
+            BaseBlock expectedBlock = expected.getBlock(position);
+            BaseBlock actualBlock = actual.getBlock(position);
+            assertEquals(expectedBlock.getId(), actualBlock.getId());
+            assertEquals(expectedBlock.getData(), actualBlock.getData());
+        }
+    }
+
+    @Test
+    public void testRoundTripWithSchematic() throws Exception {
+        BlockArrayClipboard clipboard = createClipboard();
+        byte[] schematic = write(ClipboardFormat.SCHEMATIC, clipboard);
+        Clipboard fromSchematic = ClipboardFormat.SCHEMATIC.getReader(new ByteArrayInputStream(schematic)).read(LegacyWorldData.getInstance());
+        byte[] compact = write(ClipboardFormat.COMPACT, fromSchematic);
+        Clipboard fromCompact = ClipboardFormat.COMPACT.getReader(new ByteArrayInputStream(compact), ClipboardStorage.PALETTE)
+                .read(LegacyWorldData.getInstance());
+        byte[] schematicAgain = write(ClipboardFormat.SCHEMATIC, fromCompact);
+        Clipboard actual = ClipboardFormat.SCHEMATIC.getReader(new ByteArrayInputStream(schematicAgain)).read(LegacyWorldData.getInstance());
+
+        assertEquals(REGION.getMinimumPoint(), actual.getRegion().getMinimumPoint());
+        assertEquals(REGION.getMaximumPoint(), actual.getRegion().getMaximumPoint());
+        assertEquals(clipboard.getOrigin(), actual.getOrigin());
+        assertSameBlocks(clipboard, actual, REGION);
+        assertNotNull(actual.getBlock(CHEST).getNbtData());
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        BlockArrayClipboard clipboard = createClipboard();
+        CompactSchematicReader reader = new CompactSchematicReader(new ByteArrayInputStream(write(ClipboardFormat.COMPACT, clipboard)));
+
+        assertEquals(REGION.getMinimumPoint(), reader.getRegion().getMinimumPoint());
+        assertEquals(REGION.getMaximumPoint(), reader.getRegion().getMaximumPoint());
+        assertEquals(clipboard.getOrigin(), reader.getOrigin());
+
+        BlockHistogram histogram = new BlockHistogram();
+        long nonAir = 0;
+        for (BlockVector position : REGION) {
+            BaseBlock block = clipboard.getBlock(position);
+            histogram.add(block.getId(), block.getData());
+            if (block.getId() != BlockID.AIR) {
+                nonAir++;
+            }
+        }
+        BlockHistogram counts = reader.getBlockCounts();
+        assertEquals(nonAir, reader.getBlockCount());
+        assertEquals(histogram.getTotal(), counts.getTotal());
+        assertEquals(histogram.getCount(BlockID.STONE, 0), counts.getCount(BlockID.STONE, 0));
+        assertEquals(histogram.getCount(300), counts.getCount(300));
+    }
+
+    @Test
+    public void testReadRegion() throws Exception {
+        BlockArrayClipboard clipboard = createClipboard();
+        CompactSchematicReader reader = new CompactSchematicReader(new ByteArrayInputStream(write(ClipboardFormat.COMPACT, clipboard)));
+        CuboidRegion part = new CuboidRegion(new Vector(10, 30, 8), new Vector(40, 38, 12));
+        CuboidRegion expectedRegion = new CuboidRegion(new Vector(10, 30, 8), new Vector(30, 38, 12));
+
+        Clipboard actual = reader.read(LegacyWorldData.getInstance(), part);
+
+        assertEquals(expectedRegion.getMinimumPoint(), actual.getRegion().getMinimumPoint());
+        assertEquals(expectedRegion.getMaximumPoint(), actual.getRegion().getMaximumPoint());
+        assertEquals(clipboard.getOrigin(), actual.getOrigin());
+        assertSameBlocks(clipboard, actual, expectedRegion);
+        assertNull(actual.getBlock(new Vector(10, 30, 8)).getNbtData());
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTStreamReader;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.registry.LegacyWorldData;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link StreamingSchematicReader}.
+ */
+public class StreamingSchematicReaderTest {
+
+    @Test
+    public void testMatchesTreeReader() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(10, 60, -5), new Vector(29, 79, 14));
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        clipboard.setOrigin(new Vector(12, 64, 0));
+        Random random = new Random(42);
+        for (BlockVector position : region) {
+            int id = random.nextInt(8) == 0 ? 300 + random.nextInt(50) : random.nextInt(200);
+            clipboard.setBlock(position, new BaseBlock(id, random.nextInt(16)));
+        }
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("id", new StringTag("Chest"));
+        clipboard.setBlock(new Vector(15, 70, 3), new BaseBlock(BlockID.CHEST, 2, new CompoundTag(values)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ClipboardWriter writer = ClipboardFormat.SCHEMATIC.getWriter(out);
+        writer.write(clipboard, LegacyWorldData.getInstance());
+        writer.close();
+        byte[] bytes = out.toByteArray();
+
+        Clipboard expected = new SchematicReader(new NBTInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes))))
+                .read(LegacyWorldData.getInstance());
+        for (ClipboardStorage storage : ClipboardStorage.values()) {
+            NBTStreamReader stream = new NBTStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+            Clipboard actual = new StreamingSchematicReader(stream, storage).read(LegacyWorldData.getInstance());
+
+            assertEquals(expected.getRegion().getMinimumPoint(), actual.getRegion().getMinimumPoint());
+            assertEquals(expected.getRegion().getMaximumPoint(), actual.getRegion().getMaximumPoint());
+            assertEquals(expected.getOrigin(), actual.getOrigin());
+            for (BlockVector position : region) {
+                BaseBlock expectedBlock = expected.getBlock(position);
+                BaseBlock actualBlock = actual.getBlock(position);
+                assertEquals(expectedBlock.getId(), actualBlock.getId());
+                assertEquals(expectedBlock.getData(), actualBlock.getData());
+                assertEquals(expectedBlock.getNbtId(), actualBlock.getNbtId());
+            }
+        }
+    }
+
+    @Test
+    public void testReaderForStorage() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GZIPOutputStream(out).close();
+        byte[] bytes = out.toByteArray();
+        assertTrue(ClipboardFormat.SCHEMATIC.getReader(new ByteArrayInputStream(bytes)) instanceof SchematicReader);
+        assertTrue(ClipboardFormat.SCHEMATIC.getReader(new ByteArrayInputStream(bytes), ClipboardStorage.PALETTE) instanceof StreamingSchematicReader);
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTStreamWriter;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.io.ParallelGZIPOutputStream;
+import com.sk89q.worldedit.world.registry.LegacyWorldData;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests {@link StreamingSchematicWriter}.
+ */
+public class StreamingSchematicWriterTest {
+
+    @Test
+    public void testParallelMembersReadByTreeReader() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(-3, 5, 7), new Vector(30, 40, 19));
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        clipboard.setOrigin(new Vector(0, 5, 7));
+        Random random = new Random(7);
+        for (BlockVector position : region) {
+            int id = random.nextInt(10) == 0 ? 256 + random.nextInt(100) : random.nextInt(100);
+            clipboard.setBlock(position, new BaseBlock(id, random.nextInt(16)));
+        }
+        Map<String, Tag> values = new HashMap<String, Tag>();
+        values.put("id", new StringTag("Chest"));
+        clipboard.setBlock(new Vector(2, 10, 9), new BaseBlock(BlockID.CHEST, 3, new CompoundTag(values)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream(out, 1, executor, 3, 4000);
+            ClipboardWriter writer = new StreamingSchematicWriter(new NBTStreamWriter(gzip));
+            writer.write(clipboard, LegacyWorldData.getInstance());
+            writer.close();
+        } finally {
+            executor.shutdown();
+        }
+
+        Clipboard actual = new SchematicReader(new NBTInputStream(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))))
+                .read(LegacyWorldData.getInstance());
+
+        assertEquals(region.getMinimumPoint(), actual.getRegion().getMinimumPoint());
+        assertEquals(region.getMaximumPoint(), actual.getRegion().getMaximumPoint());
+        assertEquals(clipboard.getOrigin(), actual.getOrigin());
+        for (BlockVector position : region) {
+            BaseBlock expectedBlock = clipboard.getBlock(position);
+            BaseBlock actualBlock = actual.getBlock(position);
+            assertEquals(expectedBlock.getId(), actualBlock.getId());
+            assertEquals(expectedBlock.getData(), actualBlock.getData());
+        }
+        assertNotNull(actual.getBlock(new Vector(2, 10, 9)).getNbtData());
+    }
+
+}
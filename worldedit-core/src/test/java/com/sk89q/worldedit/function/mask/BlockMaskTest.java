@@ -0,0 +1,76 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link BlockMask} and the ordering of {@link MaskIntersection}.
+ */
+public class BlockMaskTest {
+
+    @Test
+    public void testMatchesExactAndWildcardData() throws Exception {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(new CuboidRegion(Vector.ZERO, new Vector(3, 0, 0)));
+        clipboard.setBlock(new Vector(0, 0, 0), new BaseBlock(BlockID.CLOTH, 4));
+        clipboard.setBlock(new Vector(1, 0, 0), new BaseBlock(BlockID.CLOTH, 5));
+        clipboard.setBlock(new Vector(2, 0, 0), new BaseBlock(BlockID.LOG, 2));
+        clipboard.setBlock(new Vector(3, 0, 0), new BaseBlock(BlockID.STONE));
+
+        BlockMask mask = new BlockMask(clipboard, new BaseBlock(BlockID.CLOTH, 4), new BaseBlock(BlockID.LOG, -1));
+        assertTrue(mask.test(new Vector(0, 0, 0)));
+        assertFalse(mask.test(new Vector(1, 0, 0)));
+        assertTrue(mask.test(new Vector(2, 0, 0)));
+        assertFalse(mask.test(new Vector(3, 0, 0)));
+
+        mask.add(new BaseBlock(BlockID.STONE));
+        assertTrue(mask.test(new Vector(3, 0, 0)));
+        assertTrue(mask.matches(BlockID.LOG, 15));
+        assertFalse(mask.matches(BaseBlock.MAX_ID + 1, 0));
+    }
+
+    @Test
+    public void testIntersectionFlattensAndOrdersByCost() throws Exception {
+        CuboidRegion region = new CuboidRegion(Vector.ZERO, Vector.ONE);
+        BlockMask blockMask = new BlockMask(new BlockArrayClipboard(region), new BaseBlock(BlockID.AIR));
+        RegionMask regionMask = new RegionMask(region);
+        BoundedHeightMask heightMask = new BoundedHeightMask(0, 1);
+
+        MaskIntersection mask = new MaskIntersection(blockMask, new MaskIntersection(regionMask, heightMask));
+        assertEquals(3, mask.getMasks().size());
+        assertEquals(blockMask, mask.getOrderedMasks()[2]);
+        assertTrue(mask.test(Vector.ZERO));
+        assertFalse(mask.test(new Vector(2, 0, 0)));
+
+        MaskUnion union = new MaskUnion(blockMask, mask);
+        assertEquals(2, union.getMasks().size());
+    }
+
+}
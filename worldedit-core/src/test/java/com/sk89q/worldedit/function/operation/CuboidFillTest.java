@@ -0,0 +1,89 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.BulkOutputExtent;
+import com.sk89q.worldedit.extent.Extents;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link CuboidFill}.
+ */
+public class CuboidFillTest {
+
+    @Test
+    public void testFillsEachBlockWithoutBulkSupport() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(-3, 0, 5), new Vector(20, 3, 18));
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        CuboidFill fill = new CuboidFill(clipboard, region, new BaseBlock(BlockID.STONE));
+        Operations.complete(fill);
+
+        assertEquals(region.getArea(), fill.getAffected());
+        for (Vector position : region) {
+            assertEquals(BlockID.STONE, clipboard.getBlock(position).getType());
+        }
+    }
+
+    @Test
+    public void testFillsChunkColumnsInBulk() throws Exception {
+        final List<Vector[]> fills = new ArrayList<Vector[]>();
+        BulkOutputExtent extent = new BulkExtent(fills);
+        CuboidRegion region = new CuboidRegion(new Vector(-3, 0, 5), new Vector(20, 3, 18));
+        CuboidFill fill = new CuboidFill(extent, region, new BaseBlock(BlockID.STONE));
+        Operations.complete(fill);
+
+        assertEquals(region.getArea(), fill.getAffected());
+        assertEquals(6, fills.size());
+        long volume = 0;
+        for (Vector[] cuboid : fills) {
+            assertEquals(cuboid[0].getBlockX() >> 4, cuboid[1].getBlockX() >> 4);
+            assertEquals(cuboid[0].getBlockZ() >> 4, cuboid[1].getBlockZ() >> 4);
+            volume += Extents.getVolume(cuboid[0], cuboid[1]);
+        }
+        assertEquals(region.getArea(), volume);
+    }
+
+    private static class BulkExtent extends NullExtent implements BulkOutputExtent {
+        private final List<Vector[]> fills;
+
+        private BulkExtent(List<Vector[]> fills) {
+            this.fills = fills;
+        }
+
+        @Override
+        public int fillCuboid(Vector min, Vector max, BaseBlock block) {
+            fills.add(new Vector[] { min, max });
+            return (int) Extents.getVolume(min, max);
+        }
+    }
+
+}
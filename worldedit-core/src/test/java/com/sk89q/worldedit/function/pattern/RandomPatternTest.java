@@ -0,0 +1,83 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.pattern;
+
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests {@link RandomPattern}.
+ */
+public class RandomPatternTest {
+
+    private static RandomPattern createPattern(RandomPattern pattern) {
+        pattern.add(new BlockPattern(new BaseBlock(BlockID.STONE)), 10);
+        pattern.add(new BlockPattern(new BaseBlock(BlockID.COBBLESTONE)), 5);
+        pattern.add(new BlockPattern(new BaseBlock(BlockID.DIRT)), 0);
+        pattern.add(new BlockPattern(new BaseBlock(BlockID.GRAVEL)), 85);
+        return pattern;
+    }
+
+    @Test
+    public void testDistribution() {
+        RandomPattern pattern = createPattern(new RandomPattern());
+        int[] counts = new int[256];
+        int samples = 100000;
+        for (int i = 0; i < samples; i++) {
+            counts[pattern.apply(0, 0, 0).getId()]++;
+        }
+
+        assertEquals(0.10, counts[BlockID.STONE] / (double) samples, 0.01);
+        assertEquals(0.05, counts[BlockID.COBBLESTONE] / (double) samples, 0.01);
+        assertEquals(0, counts[BlockID.DIRT]);
+        assertEquals(0.85, counts[BlockID.GRAVEL] / (double) samples, 0.01);
+    }
+
+    @Test
+    public void testSeededIsDeterministic() {
+        RandomPattern first = createPattern(new RandomPattern(42));
+        RandomPattern second = createPattern(new RandomPattern(42));
+        RandomPattern other = createPattern(new RandomPattern(43));
+
+        StringBuilder a = new StringBuilder();
+        StringBuilder b = new StringBuilder();
+        StringBuilder c = new StringBuilder();
+        for (int x = 15; x >= 0; x--) {
+            for (int z = 0; z < 16; z++) {
+                a.append(first.apply(x, 64, z).getId()).append(',');
+                c.append(other.apply(x, 64, z).getId()).append(',');
+            }
+        }
+        for (int x = 15; x >= 0; x--) {
+            for (int z = 0; z < 16; z++) {
+                b.append(second.apply(x, 64, z).getId()).append(',');
+            }
+        }
+
+        assertEquals(a.toString(), b.toString());
+        assertNotEquals(a.toString(), c.toString());
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.scan;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.PaletteClipboard;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.util.Countable;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link RegionScans}.
+ */
+public class RegionScansTest {
+
+    @Test
+    public void testParallelHistogram() throws Exception {
+        PaletteClipboard clipboard = new PaletteClipboard(new CuboidRegion(new Vector(-40, 0, -40), new Vector(40, 63, 40)));
+        for (int x = -40; x <= 40; x++) {
+            for (int y = 0; y < 64; y++) {
+                for (int z = -40; z <= 40; z++) {
+                    int id = (x & 1) == 0 ? BlockID.STONE : BlockID.CLOTH;
+                    clipboard.setBlock(new Vector(x, y, z), new BaseBlock(id, y & 0xF));
+                }
+            }
+        }
+
+        CylinderRegion region = new CylinderRegion(new Vector(0, 0, 0), new Vector2D(30.5, 20.5), 4, 50);
+        int area = 0;
+        for (Vector ignored : region) {
+            area++;
+        }
+
+        BlockHistogram serial = RegionScans.histogram(region, clipboard);
+        BlockHistogram parallel;
+        BlockHistogram snapshots;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            parallel = RegionScans.histogram(region, clipboard, executor, 4);
+            snapshots = RegionScans.histogramSnapshots(region, clipboard, executor, 2);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(area, serial.getTotal());
+        assertEquals(area, parallel.getTotal());
+        assertEquals(area, snapshots.getTotal());
+        assertEquals(serial.getDistributionWithData().size(), parallel.getDistributionWithData().size());
+        assertEquals(serial.getDistributionWithData().size(), snapshots.getDistributionWithData().size());
+        for (Countable<BaseBlock> count : serial.getDistributionWithData()) {
+            BaseBlock block = count.getID();
+            assertEquals(count.getAmount(), parallel.getCount(block.getId(), block.getData()));
+            assertEquals(count.getAmount(), snapshots.getCount(block.getId(), block.getData()));
+        }
+
+        List<Countable<Integer>> distribution = parallel.getDistribution();
+        assertEquals(2, distribution.size());
+        assertEquals(area, distribution.get(0).getAmount() + distribution.get(1).getAmount());
+        assertEquals(parallel.getCount(BlockID.STONE), parallel.getCount(Collections.singleton(new BaseBlock(BlockID.STONE, -1))));
+    }
+
+    @Test
+    public void testSnapshotsWithBusyExecutor() throws Exception {
+        PaletteClipboard clipboard = new PaletteClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(47, 15, 47)));
+        for (int x = 0; x < 48; x++) {
+            for (int z = 0; z < 48; z++) {
+                clipboard.setBlock(new Vector(x, 0, z), new BaseBlock(BlockID.STONE));
+            }
+        }
+
+        BlockScanner<long[]> scanner = new BlockScanner<long[]>() {
+            @Override
+            public long[] createResult() {
+                return new long[2];
+            }
+
+            @Override
+            public void scan(long[] result, int x, int y, int z, BaseBlock block) {
+                result[block.getId() == BlockID.STONE ? 1 : 0]++;
+            }
+
+            @Override
+            public long[] merge(long[] first, long[] second) {
+                first[0] += second[0];
+                first[1] += second[1];
+                return first;
+            }
+        };
+
+        // The only thread is busy, so the scan tasks never start
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+            long[] result = RegionScans.scanSnapshots(clipboard.getRegion(), clipboard, scanner, executor, 3);
+            assertEquals(48 * 48, result[1]);
+            assertEquals(48 * 48 * 15, result[0]);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+}
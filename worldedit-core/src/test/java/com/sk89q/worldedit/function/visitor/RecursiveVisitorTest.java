@@ -0,0 +1,114 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.MaxSearchMemoryException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.world.World;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link RecursiveVisitor}.
+ */
+public class RecursiveVisitorTest {
+
+    @Test
+    public void testFillsConnectedRegion() throws Exception {
+        final EllipsoidRegion region = new EllipsoidRegion((World) null, new Vector(0, 64, 0), new Vector(6.5, 4.5, 5.5));
+        final Set<Vector> visited = new HashSet<Vector>();
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), new RegionFunction() {
+            @Override
+            public boolean apply(Vector position) throws WorldEditException {
+                assertTrue(region.contains(position));
+                return visited.add(position);
+            }
+        });
+        visitor.visit(new Vector(0, 64, 0));
+        Operations.complete(visitor);
+
+        int area = 0;
+        for (int x = -8; x <= 8; x++) {
+            for (int y = 56; y <= 72; y++) {
+                for (int z = -8; z <= 8; z++) {
+                    if (region.contains(new Vector(x, y, z))) {
+                        area++;
+                    }
+                }
+            }
+        }
+        assertEquals(area, visited.size());
+        assertEquals(visited.size(), visitor.getAffected());
+    }
+
+    @Test
+    public void testSubclassVectorTest() throws Exception {
+        final Set<Vector> visited = new HashSet<Vector>();
+        CuboidRegion region = new CuboidRegion(new Vector(-3, 60, -3), new Vector(3, 68, 3));
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), new RegionFunction() {
+            @Override
+            public boolean apply(Vector position) throws WorldEditException {
+                return visited.add(position);
+            }
+        }) {
+            @Override
+            protected boolean isVisitable(Vector from, Vector to) {
+                return to.getBlockY() <= 64 && super.isVisitable(from, to);
+            }
+        };
+        visitor.visit(new Vector(0, 64, 0));
+        Operations.complete(visitor);
+
+        assertEquals(7 * 5 * 7, visited.size());
+    }
+
+    @Test
+    public void testMemoryLimit() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(-100, 0, -100), new Vector(100, 100, 100));
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), new RegionFunction() {
+            @Override
+            public boolean apply(Vector position) throws WorldEditException {
+                return true;
+            }
+        });
+        visitor.setMemoryLimit(64 * 1024);
+        visitor.visit(new Vector(0, 50, 0));
+
+        try {
+            Operations.complete(visitor);
+            fail("Expected the memory limit to be reached");
+        } catch (MaxSearchMemoryException e) {
+            assertEquals(64 * 1024, e.getMemoryLimit());
+            assertTrue(e.getVisited() > 0);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests {@link RegionVisitor}.
+ */
+public class RegionVisitorTest {
+
+    @Test
+    public void testResumesWhereItStopped() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 3, 3));
+        final Set<Vector> visited = new HashSet<Vector>();
+        RegionVisitor visitor = new RegionVisitor(region, new RegionFunction() {
+            @Override
+            public boolean apply(Vector position) throws WorldEditException {
+                return visited.add(position);
+            }
+        });
+
+        RunContext stop = new RunContext() {
+            @Override
+            public boolean shouldContinue() {
+                return false;
+            }
+        };
+
+        int steps = 0;
+        Operation operation = visitor;
+        while (operation != null) {
+            assertSame(visitor, operation);
+            operation = operation.resume(stop);
+            steps++;
+        }
+
+        assertEquals(64, steps);
+        assertEquals(64, visited.size());
+        assertEquals(64, visitor.getAffected());
+        assertEquals(1, visitor.getProgress(), 0);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 3, 3));
+        RegionVisitor visitor = new RegionVisitor(region, new RegionFunction() {
+            @Override
+            public boolean apply(Vector position) throws WorldEditException {
+                return true;
+            }
+        });
+
+        visitor.cancel();
+        assertNull(visitor.resume(new RunContext()));
+        assertEquals(0, visitor.getAffected());
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.history.changeset;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.history.change.CuboidFillChange;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests {@link CompactBlockHistory}.
+ */
+public class CompactBlockHistoryTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        CompoundTag tag = new CompoundTag(new HashMap<String, Tag>());
+        CompactBlockHistory history = new CompactBlockHistory();
+        history.add(new BlockChange(new BlockVector(-29999999, 0, 29999999), new BaseBlock(BlockID.STONE), new BaseBlock(BlockID.CLOTH, 14)));
+        history.add(new BlockChange(new BlockVector(5, 255, -7), new BaseBlock(BlockID.CHEST, 2, tag), new BaseBlock(BlockID.AIR)));
+        assertEquals(2, history.size());
+
+        Iterator<Change> it = history.forwardIterator();
+        BlockChange first = (BlockChange) it.next();
+        assertEquals(new BlockVector(-29999999, 0, 29999999), first.getPosition());
+        assertEquals(new BaseBlock(BlockID.STONE), first.getPrevious());
+        assertEquals(new BaseBlock(BlockID.CLOTH, 14), first.getCurrent());
+
+        it = history.backwardIterator();
+        BlockChange last = (BlockChange) it.next();
+        assertEquals(new BlockVector(5, 255, -7), last.getPosition());
+        assertEquals(BlockID.CHEST, last.getPrevious().getId());
+        assertEquals(2, last.getPrevious().getData());
+        assertSame(tag, last.getPrevious().getNbtData());
+        assertEquals(BlockID.AIR, last.getCurrent().getId());
+        it.next();
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testFillsStayInOrder() throws Exception {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(new CuboidRegion(new Vector(0, 0, 0), new Vector(3, 3, 3)));
+        CuboidFillChange fill = new CuboidFillChange(clipboard, new Vector(0, 0, 0), new Vector(1, 1, 1), new BaseBlock(BlockID.STONE));
+        CompactBlockHistory history = new CompactBlockHistory();
+        history.add(new BlockChange(new BlockVector(0, 0, 0), new BaseBlock(BlockID.AIR), new BaseBlock(BlockID.DIRT)));
+        history.add(fill);
+        history.add(new BlockChange(new BlockVector(1, 1, 1), new BaseBlock(BlockID.STONE), new BaseBlock(BlockID.GLASS)));
+        assertEquals(2 + fill.getVolume(), history.size());
+
+        Iterator<Change> it = history.forwardIterator();
+        assertEquals(BlockID.DIRT, ((BlockChange) it.next()).getCurrent().getId());
+        assertSame(fill, it.next());
+        assertEquals(BlockID.GLASS, ((BlockChange) it.next()).getCurrent().getId());
+        assertFalse(it.hasNext());
+
+        it = history.backwardIterator();
+        assertEquals(BlockID.GLASS, ((BlockChange) it.next()).getCurrent().getId());
+        assertSame(fill, it.next());
+        assertEquals(BlockID.DIRT, ((BlockChange) it.next()).getCurrent().getId());
+        assertFalse(it.hasNext());
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.history.changeset;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link DiskSpillingHistory}.
+ */
+public class DiskSpillingHistoryTest {
+
+    private static final int CHANGES = DiskSpillingHistory.FRAME_SIZE * 2 + 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSpillAndReopen() throws Exception {
+        DiskSpillingHistory history = new DiskSpillingHistory(folder.getRoot(), "world", 1000);
+        for (int i = 0; i < CHANGES; i++) {
+            history.add(createChange(i));
+        }
+        history.flush();
+        assertTrue(history.isSpilled());
+        assertEquals(CHANGES, history.size());
+        assertIterates(history);
+
+        File file = history.getFile();
+        assertNotNull(file);
+        DiskSpillingHistory reopened = DiskSpillingHistory.open(file);
+        assertEquals("world", reopened.getWorldName());
+        assertEquals(CHANGES, reopened.size());
+        assertIterates(reopened);
+
+        reopened.delete();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testBelowThreshold() throws Exception {
+        DiskSpillingHistory history = new DiskSpillingHistory(folder.getRoot(), "world", CHANGES);
+        for (int i = 0; i < CHANGES; i++) {
+            history.add(createChange(i));
+        }
+        history.flush();
+        assertFalse(history.isSpilled());
+        assertIterates(history);
+    }
+
+    @Test
+    public void testSpillsOnceThresholdPassed() throws Exception {
+        DiskSpillingHistory history = new DiskSpillingHistory(folder.getRoot(), "world", 10);
+        for (int i = 0; i < 10; i++) {
+            history.add(createChange(i));
+        }
+        assertFalse(history.isSpilled());
+        history.add(createChange(10));
+        assertTrue(history.isSpilled());
+        assertEquals(11, history.size());
+    }
+
+    @Test
+    public void testUndoneKeptOnReopen() throws Exception {
+        DiskSpillingHistory history = new DiskSpillingHistory(folder.getRoot(), "world", 0);
+        for (int i = 0; i < CHANGES; i++) {
+            history.add(createChange(i));
+        }
+        history.flush();
+        File file = history.getFile();
+        assertNotNull(file);
+        assertFalse(DiskSpillingHistory.open(file).isUndone());
+
+        history.setUndone(true);
+        DiskSpillingHistory reopened = DiskSpillingHistory.open(file);
+        assertTrue(reopened.isUndone());
+        assertEquals("world", reopened.getWorldName());
+        assertIterates(reopened);
+
+        reopened.setUndone(false);
+        assertFalse(DiskSpillingHistory.open(file).isUndone());
+    }
+
+    private static BlockChange createChange(int i) {
+        return new BlockChange(new BlockVector(i, i % 256, -i), new BaseBlock(i % 4096, i % 16), new BaseBlock((i + 1) % 4096));
+    }
+
+    private static void assertIterates(ChangeSet history) {
+        Iterator<Change> it = history.forwardIterator();
+        for (int i = 0; i < CHANGES; i++) {
+            BlockChange change = (BlockChange) it.next();
+            assertEquals(new BlockVector(i, i % 256, -i), change.getPosition());
+            assertEquals(new BaseBlock(i % 4096, i % 16), change.getPrevious());
+        }
+        assertFalse(it.hasNext());
+
+        it = history.backwardIterator();
+        for (int i = CHANGES - 1; i >= 0; i--) {
+            BlockChange change = (BlockChange) it.next();
+            assertEquals(new BlockVector(i, i % 256, -i), change.getPosition());
+            assertEquals(new BaseBlock((i + 1) % 4096), change.getCurrent());
+        }
+        assertFalse(it.hasNext());
+    }
+
+}
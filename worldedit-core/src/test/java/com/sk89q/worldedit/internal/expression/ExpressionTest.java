@@ -28,6 +28,8 @@
 import static java.lang.Math.atan2;
 import static java.lang.Math.sin;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class ExpressionTest {
@@ -162,6 +164,26 @@ public void testQuery() throws Exception {
         assertEquals(1, simpleEval("!queryRel(3,4,5,100,200)"), 0);
     }
 
+    @Test
+    public void testCopy() throws ExpressionException {
+        Expression expression = compile("a += x; a", "x");
+        assertEquals(2, expression.evaluate(2), 0);
+
+        Expression copy = expression.copy();
+        assertEquals(5, copy.evaluate(3), 0);
+        assertEquals(3, expression.evaluate(1), 0);
+    }
+
+    @Test
+    public void testStateless() throws ExpressionException {
+        assertTrue(compile("r = sqrt(x^2 + z^2); if (r < 5) { type = 1; } r < y", "x", "y", "z", "type").isStateless());
+        assertTrue(compile("for (i = 0, 3) { x += i; } x", "x").isStateless());
+        assertFalse(compile("a += x; a", "x").isStateless());
+        assertFalse(compile("if (x) { a = 1; } a", "x").isStateless());
+        assertFalse(compile("megabuf(x)", "x").isStateless());
+        assertFalse(compile("query(x, 0, 0, 0, 0)", "x").isStateless());
+    }
+
     private double simpleEval(String expressionString) throws ExpressionException {
         final Expression expression = compile(expressionString);
 
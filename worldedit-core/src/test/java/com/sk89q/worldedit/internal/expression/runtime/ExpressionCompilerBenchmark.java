@@ -0,0 +1,105 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+import com.sk89q.worldedit.internal.expression.Expression;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how long expressions take to evaluate when they are
+ * interpreted and when they are compiled by {@link ExpressionCompiler}.
+ *
+ * <p>This is not run as part of the tests. Run {@link #main(String[])}
+ * from the test classpath, optionally with the number of rounds as the
+ * first argument.</p>
+ */
+public final class ExpressionCompilerBenchmark {
+
+    private static final String[] EXPRESSIONS = {
+            "x * x + y * y + z * z < 1",
+            "sqrt(x ^ 2 + z ^ 2) < 0.5 + 0.2 * sin(y * 6)",
+            "a = 0; for (i = 0; i < 4; i++) { a += abs(x * i - z); } a < y",
+            "if (y > 0) { type = 1; } else { type = 3; } x + z < y",
+    };
+    private static final int SIZE = 48;
+
+    private ExpressionCompilerBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        boolean enabled = ExpressionCompiler.isEnabled();
+        try {
+            for (String source : EXPRESSIONS) {
+                ExpressionCompiler.setEnabled(false);
+                long interpreted = measure(source, rounds);
+                ExpressionCompiler.setEnabled(true);
+                long compiled = measure(source, rounds);
+                System.out.printf("%-70s interpreted %6.1f ns, compiled %6.1f ns (%.1fx)%n",
+                        source, perEvaluation(interpreted), perEvaluation(compiled),
+                        interpreted / (double) Math.max(1, compiled));
+            }
+        } finally {
+            ExpressionCompiler.setEnabled(enabled);
+        }
+    }
+
+    /**
+     * Evaluate an expression over a cube of points, first without timing to
+     * warm up the JIT, and return the fastest round in nanoseconds.
+     *
+     * @param source the expression
+     * @param rounds the number of timed rounds
+     * @return the time of the fastest round
+     * @throws Exception thrown if the expression fails
+     */
+    private static long measure(String source, int rounds) throws Exception {
+        Expression expression = Expression.compile(source, "x", "y", "z", "type", "data");
+        expression.optimize();
+
+        double sink = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = -rounds; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    for (int z = 0; z < SIZE; z++) {
+                        sink += expression.evaluate(x / (double) SIZE, y / (double) SIZE, z / (double) SIZE, 0, 0);
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+
+        if (sink == Double.MIN_VALUE) {
+            System.out.println(); // Keep the results from being optimized away
+        }
+        return best;
+    }
+
+    private static double perEvaluation(long nanos) {
+        return nanos / (double) (SIZE * SIZE * SIZE);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.internal.expression.runtime;
+
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExpressionCompilerTest {
+
+    private static final String[] EXPRESSIONS = {
+            "x + y * z - x / (y + 1) % 3",
+            "x ^ 2 + -y",
+            "x < y", "x <= y", "x > y", "x >= y", "x == y", "x != y", "x ~= y",
+            "x && y", "x || y", "!x", "~x", "x << 2", "y >> 1",
+            "sin(x) + cos(y) + atan2(x, y) + sqrt(abs(z)) + round(x / 3) + ln(abs(y) + 1)",
+            "min(x, y) + max(x, y, z)",
+            "if (x > y) { z = x; } else { z = y; } z",
+            "x > 0 ? y : z",
+            "a = x; a += y; a -= z; a *= 2; a /= 3; a %= 5; a ^= 2; a",
+            "a = x; b = a++; c = a--; d = ++a; f = --a; a + b * 2 + c * 3 + d * 5 + f * 7",
+            "a = 0; while (a < 10) { a += 2; } a",
+            "a = 0; do { a += 3; } while (a < 10); a",
+            "a = 0; for (i = 0; i < 5; i++) { a += i * x; } a",
+            "a = 0; for (i = x, 5) { a += i; } a",
+            "a = 0; while (a < 10) { a += 1; if (a == 3) break; } a",
+            "a = 0; for (i = 0; i < 5; ++i) { if (i == 2) continue; a += i; } a",
+            "switch (x) { case 1: z = 2; break; default: z = 3; } z",
+            "randint(1) + megabuf(0)",
+    };
+
+    private final List<LogRecord> failures = new ArrayList<LogRecord>();
+    private final Logger logger = Logger.getLogger(ExpressionCompiler.class.getCanonicalName());
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            failures.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private Level level;
+
+    @Before
+    public void setUp() {
+        level = logger.getLevel();
+        logger.setLevel(Level.FINE);
+        logger.addHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+        logger.removeHandler(handler);
+        logger.setLevel(level);
+        ExpressionCompiler.setEnabled(true);
+    }
+
+    @Test
+    public void testMatchesInterpreter() throws ExpressionException {
+        double[][] inputs = { { 0, 0, 0 }, { 1, 2, 3 }, { -4.5, 2.25, 7 }, { 3, 3, -1 }, { 1, 0, 0 } };
+        for (String source : EXPRESSIONS) {
+            for (double[] input : inputs) {
+                assertEquals(source, interpret(source, input), evaluate(source, input), 0);
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    @Test
+    public void testIterationLimit() throws ExpressionException {
+        Expression expression = Expression.compile("a = 0; while (1) { a += 1; } a");
+        expression.optimize();
+        try {
+            expression.evaluate();
+            fail("Error expected");
+        } catch (EvaluationException e) {
+            assertEquals("Error position", 7, e.getPosition());
+        }
+    }
+
+    private static double interpret(String source, double[] input) throws ExpressionException {
+        ExpressionCompiler.setEnabled(false);
+        try {
+            return evaluate(source, input);
+        } finally {
+            ExpressionCompiler.setEnabled(true);
+        }
+    }
+
+    private static double evaluate(String source, double[] input) throws ExpressionException {
+        Expression expression = Expression.compile(source, "x", "y", "z");
+        expression.optimize();
+        return expression.evaluate(input);
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.regions.iterator;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.regions.AbstractRegion;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
+import com.sk89q.worldedit.regions.RegionIntersection;
+import com.sk89q.worldedit.regions.Regions;
+import com.sk89q.worldedit.regions.TransformRegion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests that {@link RegionCursor}s visit the same positions as region
+ * iterators, in the same order.
+ */
+public class RegionCursorTest {
+
+    @Test
+    public void testCuboid() {
+        assertSameAsIterator(new CuboidRegion(new Vector(-3, 2, 5), new Vector(4, 6, 9)));
+    }
+
+    @Test
+    public void testCylinder() {
+        assertSameAsIterator(new CylinderRegion(new Vector(2, 0, -3), new Vector2D(5.5, 3.5), 10, 14));
+    }
+
+    @Test
+    public void testEllipsoid() {
+        assertSameAsIterator(new EllipsoidRegion(null, new Vector(-1, 64, 7), new Vector(6.5, 4.5, 3.5)));
+    }
+
+    @Test
+    public void testPolygon() {
+        List<BlockVector2D> points = Arrays.asList(
+                new BlockVector2D(0, 0), new BlockVector2D(10, 2), new BlockVector2D(4, 6), new BlockVector2D(8, 12), new BlockVector2D(-3, 9));
+        assertSameAsIterator(new Polygonal2DRegion(null, points, 3, 5));
+    }
+
+    @Test
+    public void testTransform() {
+        CuboidRegion region = new CuboidRegion(new Vector(1, 0, 2), new Vector(6, 3, 4));
+        assertSameAsIterator(new TransformRegion(region, new AffineTransform().rotateY(90)));
+    }
+
+    @Test
+    public void testIntersection() {
+        assertSameAsIterator(new RegionIntersection(
+                new CuboidRegion(new Vector(-3, 2, 5), new Vector(4, 6, 9)),
+                new CuboidRegion(new Vector(0, 0, 0), new Vector(2, 3, 6))));
+    }
+
+    @Test
+    public void testContains() {
+        EllipsoidRegion region = new EllipsoidRegion(null, new Vector(0, 0, 0), new Vector(4.5, 2.5, 3.5));
+        for (int x = -6; x <= 6; x++) {
+            for (int y = -4; y <= 4; y++) {
+                for (int z = -5; z <= 5; z++) {
+                    assertEquals(region.contains(new Vector(x, y, z)), region.contains(x, y, z));
+                }
+            }
+        }
+    }
+
+    private static void assertSameAsIterator(AbstractRegion region) {
+        List<BlockVector> expected = new ArrayList<BlockVector>();
+        for (BlockVector position : region) {
+            expected.add(position);
+        }
+
+        List<BlockVector> actual = new ArrayList<BlockVector>();
+        RegionCursor cursor = Regions.cursor(region);
+        while (cursor.next()) {
+            actual.add(new BlockVector(cursor.getX(), cursor.getY(), cursor.getZ()));
+        }
+        assertFalse(cursor.next());
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+}
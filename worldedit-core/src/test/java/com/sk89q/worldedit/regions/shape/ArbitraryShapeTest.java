@@ -0,0 +1,159 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.patterns.Pattern;
+import com.sk89q.worldedit.patterns.SingleBlockPattern;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ArbitraryShape}.
+ */
+public class ArbitraryShapeTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testParallelMatchesSerial() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(-20, 0, -7), new Vector(21, 30, 40));
+        assertSameBlocks(region, new Sphere(region), new Sphere(region), false);
+    }
+
+    @Test
+    public void testParallelHollowMatchesSerial() throws Exception {
+        CuboidRegion region = new CuboidRegion(new Vector(-20, 0, -7), new Vector(21, 30, 40));
+        assertSameBlocks(region, new Sphere(region), new Sphere(region), true);
+    }
+
+    @Test
+    public void testParallelRegionShapeMatchesSerial() throws Exception {
+        CylinderRegion region = new CylinderRegion(new Vector(3, 0, -5), new Vector2D(17, 9), 2, 12);
+        assertSameBlocks(region, new RegionShape(region), new RegionShape(region), true);
+        assertSameBlocks(region, new RegionShape(region), new RegionShape(region), false);
+    }
+
+    @Test
+    public void testUnsafePatternOnCallingThread() throws Exception {
+        final Thread caller = Thread.currentThread();
+        Pattern pattern = new Pattern() {
+            @Override
+            public BaseBlock next(Vector position) {
+                return next(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+            }
+
+            @Override
+            public BaseBlock next(int x, int y, int z) {
+                assertSame(caller, Thread.currentThread());
+                return new BaseBlock(BlockID.STONE);
+            }
+        };
+        CuboidRegion region = new CuboidRegion(new Vector(-20, 0, -7), new Vector(21, 30, 40));
+        assertTrue(new Sphere(region).generate(new BlockArrayClipboard(region), pattern, false, executor, 4) > 0);
+        assertTrue(new Sphere(region).generate(new BlockArrayClipboard(region), pattern, true, executor, 4) > 0);
+    }
+
+    @Test(timeout = 10000)
+    public void testGenerateFromExecutorThread() throws Exception {
+        assertGeneratesFromExecutorThread(false);
+        assertGeneratesFromExecutorThread(true);
+    }
+
+    private void assertGeneratesFromExecutorThread(final boolean hollow) throws Exception {
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            final CuboidRegion region = new CuboidRegion(new Vector(-20, 0, -7), new Vector(21, 30, 40));
+            final SingleBlockPattern pattern = new SingleBlockPattern(new BaseBlock(BlockID.STONE));
+            Future<Integer> future = single.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return new Sphere(region).generate(new BlockArrayClipboard(region), pattern, hollow, single, 2);
+                }
+            });
+            int expected = new Sphere(region).generate(new BlockArrayClipboard(region), pattern, hollow);
+            assertEquals(expected, (int) future.get());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    private void assertSameBlocks(Region region, ArbitraryShape serialShape, ArbitraryShape parallelShape, boolean hollow) throws Exception {
+        SingleBlockPattern pattern = new SingleBlockPattern(new BaseBlock(BlockID.STONE));
+        CuboidRegion bounds = new CuboidRegion(region.getMinimumPoint(), region.getMaximumPoint());
+
+        BlockArrayClipboard serial = new BlockArrayClipboard(bounds);
+        int serialAffected = serialShape.generate(serial, pattern, hollow);
+        BlockArrayClipboard parallel = new BlockArrayClipboard(bounds);
+        int parallelAffected = parallelShape.generate(parallel, pattern, hollow, executor, 4);
+
+        assertTrue(serialAffected > 0);
+        assertEquals(serialAffected, parallelAffected);
+        for (Vector position : bounds) {
+            assertEquals(serial.getBlock(position).getType(), parallel.getBlock(position).getType());
+            assertEquals(serial.getBlock(position).getData(), parallel.getBlock(position).getData());
+        }
+    }
+
+    /**
+     * A sphere around the origin that takes its data value from the height.
+     */
+    private static class Sphere extends ArbitraryShape {
+        private Sphere(Region extent) {
+            super(extent);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
+            if (x * x + (y - 15) * (y - 15) + (z - 10) * (z - 10) > 225) {
+                return null;
+            }
+            return new BaseBlock(defaultMaterial.getType(), y & 15);
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link Deformation}.
+ */
+public class DeformationTest {
+
+    private static final CuboidRegion REGION = new CuboidRegion(new Vector(-5, 1, -3), new Vector(20, 6, 18));
+    private static final CuboidRegion BOUNDS = new CuboidRegion(new Vector(-8, 0, -6), new Vector(23, 8, 21));
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testQueryReadsOriginalBlocks() throws Exception {
+        String expression = "if (query(x - 16, y, z, 1, -1)) { y -= 1; } else { x += 1; }";
+        BlockArrayClipboard clipboard = createClipboard();
+        Deformation deformation = new Deformation(clipboard, REGION, Vector.ZERO, Vector.ONE, expression);
+        assertFalse(deformation.isThreadSafe());
+        int affected = deformation.apply(clipboard, executor, 3);
+        assertSameBlocks(deform(expression), clipboard, affected);
+    }
+
+    @Test
+    public void testParallelMatchesSerial() throws Exception {
+        String expression = "x = x * 0.8 + z * 0.2; z -= 2";
+        BlockArrayClipboard clipboard = createClipboard();
+        Deformation deformation = new Deformation(clipboard, REGION, Vector.ZERO, Vector.ONE, expression);
+        assertTrue(deformation.isThreadSafe());
+        int affected = deformation.apply(clipboard, executor, 3);
+        assertSameBlocks(deform(expression), clipboard, affected);
+    }
+
+    private static void assertSameBlocks(BlockArrayClipboard expected, BlockArrayClipboard actual, int affected) {
+        assertEquals(REGION.getArea(), affected);
+        for (BlockVector position : BOUNDS) {
+            assertEquals(position.toString(), expected.getBlock(position).getType(), actual.getBlock(position).getType());
+            assertEquals(position.toString(), expected.getBlock(position).getData(), actual.getBlock(position).getData());
+        }
+    }
+
+    private static BlockArrayClipboard createClipboard() throws Exception {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(BOUNDS);
+        for (BlockVector position : BOUNDS) {
+            int hash = position.getBlockX() * 7 + position.getBlockY() * 3 + position.getBlockZ() * 5;
+            clipboard.setBlock(position, new BaseBlock((hash & 3) == 0 ? 1 : 3, hash & 15));
+        }
+        return clipboard;
+    }
+
+    /**
+     * Deform the region by evaluating every block before setting any.
+     *
+     * @param expressionString the expression
+     * @return the deformed blocks
+     * @throws Exception on error
+     */
+    private static BlockArrayClipboard deform(String expressionString) throws Exception {
+        BlockArrayClipboard clipboard = createClipboard();
+        Expression expression = Expression.compile(expressionString, "x", "y", "z");
+        WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(clipboard, Vector.ONE, Vector.ZERO);
+        expression.setEnvironment(environment);
+
+        List<BlockVector> positions = new ArrayList<BlockVector>();
+        List<BaseBlock> blocks = new ArrayList<BaseBlock>();
+        for (BlockVector position : REGION) {
+            expression.evaluate(position.getX(), position.getY(), position.getZ());
+            BlockVector source = environment.toWorld(
+                    expression.getVariable("x", false).getValue(),
+                    expression.getVariable("y", false).getValue(),
+                    expression.getVariable("z", false).getValue());
+            BaseBlock block = clipboard.getBlock(source);
+            positions.add(position);
+            blocks.add(new BaseBlock(block.getType(), block.getData()));
+        }
+
+        for (int i = 0; i < positions.size(); i++) {
+            clipboard.setBlock(positions.get(i), blocks.get(i));
+        }
+        return clipboard;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.util.collection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link BlockPositionSet} and {@link LongArrayQueue}.
+ */
+public class BlockPositionSetTest {
+
+    @Test
+    public void testAddAndContains() {
+        BlockPositionSet set = new BlockPositionSet();
+        for (int x = -40; x < 40; x += 3) {
+            for (int y = -5; y < 300; y += 7) {
+                for (int z = -40; z < 40; z += 5) {
+                    assertTrue(set.add(x, y, z));
+                }
+            }
+        }
+        int size = set.size();
+        for (int x = -40; x < 40; x++) {
+            for (int y = -5; y < 300; y++) {
+                for (int z = -40; z < 40; z++) {
+                    boolean expected = (x + 40) % 3 == 0 && (y + 5) % 7 == 0 && (z + 40) % 5 == 0;
+                    assertEquals(expected, set.contains(x, y, z));
+                    assertEquals(!expected, set.add(x, y, z));
+                }
+            }
+        }
+        assertEquals(80 * 305 * 80, set.size());
+        assertTrue(size < set.size());
+        assertFalse(set.contains(Integer.MAX_VALUE, 0, 0));
+    }
+
+    @Test
+    public void testQueueOrder() {
+        LongArrayQueue queue = new LongArrayQueue();
+        long next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) {
+                queue.add(round * 1000L + i);
+            }
+            for (int i = 0; i < 50; i++) {
+                assertEquals(expected(next++), queue.remove());
+            }
+        }
+        while (!queue.isEmpty()) {
+            assertEquals(expected(next++), queue.remove());
+        }
+        assertEquals(1000, next);
+    }
+
+    private static long expected(long index) {
+        return (index / 100) * 1000 + index % 100;
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sk89q.worldedit.util.collection;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link PaletteArray}.
+ */
+public class PaletteArrayTest {
+
+    private static final int SIZE = 4096;
+
+    @Test
+    public void testUniform() throws Exception {
+        PaletteArray array = new PaletteArray(SIZE, 16);
+        assertTrue(array.isUniform());
+        assertEquals(16, array.get(0));
+        assertEquals(16, array.get(SIZE - 1));
+        array.set(100, 16);
+        assertTrue(array.isUniform());
+    }
+
+    @Test
+    public void testGrowPalette() throws Exception {
+        PaletteArray array = new PaletteArray(SIZE, 0);
+        int[] expected = new int[SIZE];
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            int value = random.nextInt(PaletteArray.MAX_PALETTE_SIZE) * 16;
+            array.set(i, value);
+            expected[i] = value;
+        }
+        assertFalse(array.isUniform());
+        assertEquals(6, array.getBitsPerEntry());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected[i], array.get(i));
+        }
+    }
+
+    @Test
+    public void testDirectStorage() throws Exception {
+        PaletteArray array = new PaletteArray(SIZE, 0);
+        int[] expected = new int[SIZE];
+        Random random = new Random(7);
+        for (int i = 0; i < SIZE; i++) {
+            int value = random.nextInt(0x10000);
+            array.set(i, value);
+            expected[i] = value;
+        }
+        assertEquals(-1, array.getPaletteSize());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected[i], array.get(i));
+        }
+
+        array.fill(3);
+        assertTrue(array.isUniform());
+        assertEquals(3, array.get(SIZE / 2));
+    }
+
+}
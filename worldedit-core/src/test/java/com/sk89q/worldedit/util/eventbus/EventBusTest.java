@@ -0,0 +1,124 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.util.eventbus;
+
+import com.sk89q.worldedit.util.eventbus.EventHandler.Priority;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link EventBus}.
+ */
+public class EventBusTest {
+
+    @Test
+    public void testDispatchOrder() {
+        EventBus bus = new EventBus();
+        List<String> calls = new ArrayList<String>();
+        bus.register(new Listener(calls));
+
+        bus.post("event");
+        assertEquals(Arrays.asList("early event", "object event", "late event"), calls);
+
+        calls.clear();
+        bus.post(1);
+        assertEquals(Arrays.asList("object 1"), calls);
+    }
+
+    @Test
+    public void testSubscribeAfterPost() {
+        EventBus bus = new EventBus();
+        final List<String> calls = new ArrayList<String>();
+        bus.post("event");
+
+        EventHandler handler = new EventHandler(Priority.NORMAL) {
+            @Override
+            public void dispatch(Object event) {
+                calls.add("handler " + event);
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return this == obj;
+            }
+
+            @Override
+            public int hashCode() {
+                return System.identityHashCode(this);
+            }
+        };
+        bus.subscribe(CharSequence.class, handler);
+        bus.post("event");
+        assertEquals(Arrays.asList("handler event"), calls);
+
+        calls.clear();
+        bus.unsubscribe(CharSequence.class, handler);
+        bus.post("event");
+        assertEquals(0, calls.size());
+    }
+
+    @Test
+    public void testHandlerExceptionIsCaught() {
+        EventBus bus = new EventBus();
+        List<String> calls = new ArrayList<String>();
+        bus.register(new FailingListener());
+        bus.register(new Listener(calls));
+
+        bus.post("event");
+        assertEquals(3, calls.size());
+    }
+
+    private static class Listener {
+        private final List<String> calls;
+
+        private Listener(List<String> calls) {
+            this.calls = calls;
+        }
+
+        @Subscribe(priority = Priority.LATE)
+        public void onLate(String event) {
+            calls.add("late " + event);
+        }
+
+        @Subscribe
+        public void onObject(Object event) {
+            calls.add("object " + event);
+        }
+
+        @Subscribe(priority = Priority.EARLY)
+        public void onEarly(String event) {
+            calls.add("early " + event);
+        }
+    }
+
+    private static class FailingListener {
+        @Subscribe(priority = Priority.VERY_EARLY)
+        public void onEvent(String event) {
+            throw new IllegalStateException("Expected");
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.IntTag;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.Vector2D;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link MappedMcRegionChunkStore}.
+ */
+public class MappedMcRegionChunkStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] createChunk(int x, int z, boolean gzip) throws Exception {
+        Map<String, Tag> level = new HashMap<String, Tag>();
+        level.put("xPos", new IntTag(x));
+        level.put("zPos", new IntTag(z));
+        Map<String, Tag> root = new HashMap<String, Tag>();
+        root.put("Level", new CompoundTag(level));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NBTOutputStream nbt = new NBTOutputStream(gzip ? new GZIPOutputStream(out) : new DeflaterOutputStream(out));
+        nbt.writeNamedTag("", new CompoundTag(root));
+        nbt.close();
+        return out.toByteArray();
+    }
+
+    private File createRegionFolder() throws Exception {
+        File world = folder.newFolder("world");
+        File region = new File(world, "region");
+        assertEquals(true, region.mkdir());
+
+        // Chunks (1, 2) and (31, 31) of region 0, 0 in reverse order
+        byte[] first = createChunk(31, 31, false);
+        byte[] second = createChunk(1, 2, true);
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(region, "r.0.0.mca")));
+        try {
+            for (int i = 0; i < 1024; i++) {
+                if (i == 31 + 31 * 32) {
+                    out.writeInt(2 << 8 | 1);
+                } else if (i == 1 + 2 * 32) {
+                    out.writeInt(3 << 8 | 1);
+                } else {
+                    out.writeInt(0);
+                }
+            }
+            out.write(new byte[4096]); // Timestamps
+            writeSector(out, first, 2);
+            writeSector(out, second, 1);
+        } finally {
+            out.close();
+        }
+        return world;
+    }
+
+    private static void writeSector(DataOutputStream out, byte[] data, int version) throws Exception {
+        out.writeInt(data.length + 1);
+        out.writeByte(version);
+        out.write(data);
+        out.write(new byte[4096 - 5 - data.length]);
+    }
+
+    @Test
+    public void testReadChunksInAnyOrder() throws Exception {
+        MappedMcRegionChunkStore store = new MappedMcRegionChunkStore(createRegionFolder(), 1);
+        try {
+            for (int i = 0; i < 3; i++) {
+                CompoundTag first = store.getChunkTag(new Vector2D(1, 2), null);
+                assertEquals(1, first.getInt("xPos"));
+                assertEquals(2, first.getInt("zPos"));
+                CompoundTag second = store.getChunkTag(new Vector2D(31, 31), null);
+                assertEquals(31, second.getInt("xPos"));
+                assertEquals(31, second.getInt("zPos"));
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test(expected = MissingChunkException.class)
+    public void testMissingChunk() throws Exception {
+        new MappedMcRegionChunkStore(createRegionFolder()).getChunkTag(new Vector2D(5, 5), null);
+    }
+
+    @Test(expected = MissingChunkException.class)
+    public void testMissingRegionFile() throws Exception {
+        new MappedMcRegionChunkStore(createRegionFolder()).getChunkTag(new Vector2D(40, 5), null);
+    }
+
+}
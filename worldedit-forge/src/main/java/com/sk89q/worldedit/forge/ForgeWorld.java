@@ -40,6 +40,7 @@
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
 import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.ChunkBatch;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 import com.sk89q.worldedit.world.registry.WorldData;
 
@@ -56,7 +57,9 @@
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.play.server.SPacketChunkData;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.management.PlayerChunkMapEntry;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumActionResult;
 import net.minecraft.util.EnumHand;
@@ -194,6 +197,78 @@ public boolean setBlock(Vector position, BaseBlock block, boolean notifyAndLight
         return successful;
     }
 
+    @Override
+    public int setBlocks(ChunkBatch batch, boolean notifyAndLight) throws WorldEditException {
+        checkNotNull(batch);
+
+        World world = getWorldChecked();
+        Chunk chunk = world.getChunkFromChunkCoords(batch.getChunkX(), batch.getChunkZ());
+        int size = batch.size();
+        BlockPos[] positions = new BlockPos[size];
+        IBlockState[] oldStates = new IBlockState[size];
+        IBlockState[] newStates = new IBlockState[size];
+        int changed = 0;
+
+        // Set all the blocks in the chunk first
+        for (int i = 0; i < size; i++) {
+            BaseBlock block = batch.getBlock(i);
+            BlockPos pos = new BlockPos(batch.getX(i), batch.getY(i), batch.getZ(i));
+            IBlockState old = chunk.getBlockState(pos);
+            @SuppressWarnings("deprecation")
+            IBlockState newState = Block.getBlockById(block.getId()).getStateFromMeta(block.getData());
+            boolean successful = chunk.setBlockState(pos, newState) != null;
+
+            if (successful) {
+                changed++;
+                if (block.hasNbtData()) {
+                    world.removeTileEntity(pos);
+                    NBTTagCompound nativeTag = NBTConverter.toNative(block.getNbtData());
+                    nativeTag.setString("id", block.getNbtId());
+                    TileEntityUtils.setTileEntity(world, new Vector(pos.getX(), pos.getY(), pos.getZ()), nativeTag);
+                }
+            }
+
+            positions[i] = pos;
+            oldStates[i] = old;
+            newStates[i] = successful ? newState : old;
+        }
+
+        // Then light and notify once every block in the chunk is in place.
+        // Setting the block state in the chunk already updates its height map
+        // and sky light columns, so only blocks that emit or block a different
+        // amount of light are relit
+        if (notifyAndLight) {
+            int changedSections = 0;
+            for (int i = 0; i < size; i++) {
+                BlockPos pos = positions[i];
+                IBlockState old = oldStates[i];
+                IBlockState newState = newStates[i];
+                if (old == newState) {
+                    continue;
+                }
+                if (old.getLightValue(world, pos) != newState.getLightValue(world, pos)
+                        || old.getLightOpacity(world, pos) != newState.getLightOpacity(world, pos)) {
+                    world.checkLight(pos);
+                }
+                world.notifyNeighborsRespectDebug(pos, old.getBlock(), true);
+                if (newState.hasComparatorInputOverride()) {
+                    world.updateComparatorOutputLevel(pos, newState.getBlock());
+                }
+                changedSections |= 1 << (pos.getY() >> 4);
+            }
+
+            // Send the changed sections to players once, rather than every block
+            if (changedSections != 0 && world instanceof WorldServer) {
+                PlayerChunkMapEntry entry = ((WorldServer) world).getPlayerChunkMap().getEntry(batch.getChunkX(), batch.getChunkZ());
+                if (entry != null && entry.isSentToPlayers()) {
+                    entry.sendPacket(new SPacketChunkData(chunk, changedSections));
+                }
+            }
+        }
+
+        return changed;
+    }
+
     @Override
     public int getBlockLightLevel(Vector position) {
         checkNotNull(position);
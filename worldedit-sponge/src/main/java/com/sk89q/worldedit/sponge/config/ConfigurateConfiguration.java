@@ -22,6 +22,8 @@
 import com.google.common.reflect.TypeToken;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.extent.clipboard.ClipboardStorage;
+import com.sk89q.worldedit.internal.expression.runtime.ExpressionCompiler;
 import com.sk89q.worldedit.session.SessionManager;
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 import ninja.leaping.configurate.ConfigurationOptions;
@@ -67,6 +69,7 @@ public void load() {
 
         maxRadius = Math.max(-1, node.getNode("limits", "max-radius").getInt(maxRadius));
         maxBrushRadius = node.getNode("limits", "max-brush-radius").getInt(maxBrushRadius);
+        maxSearchMemory = Math.max(-1, node.getNode("limits", "max-search-memory").getInt(maxSearchMemory));
         maxSuperPickaxeSize = Math.max(1, node.getNode("limits", "max-super-pickaxe-size").getInt(maxSuperPickaxeSize));
 
         butcherDefaultRadius = Math.max(-1, node.getNode("limits", "butcher-radius", "default").getInt(butcherDefaultRadius));
@@ -107,8 +110,19 @@ public void load() {
         saveDir = node.getNode("saving", "dir").getString(saveDir);
 
         allowSymlinks = node.getNode("files", "allow-symbolic-links").getBoolean(false);
+        ClipboardStorage storage = ClipboardStorage.findByAlias(node.getNode("clipboard", "storage").getString("array"));
+        clipboardStorage = storage != null ? storage : ClipboardStorage.ARRAY;
         LocalSession.MAX_HISTORY_SIZE = Math.max(0, node.getNode("history", "size").getInt(15));
         SessionManager.EXPIRATION_GRACE = node.getNode("history", "expiration").getInt(10) * 60 * 1000;
+        historyDiskThreshold = Math.max(-1, node.getNode("history", "disk-threshold").getInt(historyDiskThreshold));
+        schedulerTickBudget = Math.max(0, node.getNode("scheduler", "tick-budget").getInt(schedulerTickBudget));
+        schedulerComputeThreads = Math.max(0, node.getNode("scheduler", "compute-threads").getInt(schedulerComputeThreads));
+        schedulerIOThreads = Math.max(0, node.getNode("scheduler", "io-threads").getInt(schedulerIOThreads));
+        schedulerIOTasksPerOwner = Math.max(0, node.getNode("scheduler", "io-tasks-per-player").getInt(schedulerIOTasksPerOwner));
+        sectionCacheMemory = Math.max(0, node.getNode("cache", "section-memory").getInt(sectionCacheMemory));
+        schematicCompressionLevel = Math.max(-1, Math.min(9, node.getNode("saving", "compression-level").getInt(schematicCompressionLevel)));
+        compileExpressions = node.getNode("expressions", "compile").getBoolean(compileExpressions);
+        ExpressionCompiler.setEnabled(compileExpressions);
 
         showHelpInfo = node.getNode("show-help-on-first-use").getBoolean(true);
 